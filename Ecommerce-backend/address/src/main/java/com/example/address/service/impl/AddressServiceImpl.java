@@ -1,5 +1,7 @@
 package com.example.address.service.impl;
 
+import com.ecommerce.common.id.Ids;
+import com.ecommerce.common.patch.EntityPatcher;
 import com.example.address.entity.Address;
 import com.example.address.repository.AddressRepository;
 import com.example.address.service.AddressService;
@@ -9,18 +11,15 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
-import java.lang.reflect.Field;
-import java.sql.Timestamp;
-import java.time.OffsetDateTime;
-import java.time.format.DateTimeParseException;
 import java.util.Map;
 import java.util.Optional;
-import java.util.UUID;
 
 @Service
 @Transactional
 public class AddressServiceImpl implements AddressService {
 
+    private static final EntityPatcher<Address> PATCHER = EntityPatcher.of(Address.class);
+
     @Autowired
     private AddressRepository addressRepository;
 
@@ -38,7 +37,7 @@ public class AddressServiceImpl implements AddressService {
     @Override
     public Address createAddress(Address address) {
         if (address.getAddressId() == null)
-            address.setAddressId(UUID.randomUUID().toString());
+            address.setAddressId(Ids.next());
         else {
             Optional<Address> existingAddress = addressRepository.findById(address.getAddressId());
             if (existingAddress.isPresent()) {
@@ -58,25 +57,7 @@ public class AddressServiceImpl implements AddressService {
         Address existingAddress = addressRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Address not found"));
 
-        updates.forEach((key, value) -> {
-            try {
-                Field field = Address.class.getDeclaredField(key);
-                field.setAccessible(true);
-                if (field.getType() == Timestamp.class) {
-                    try {
-                        OffsetDateTime odt = OffsetDateTime.parse((String) value);
-                        Timestamp timestampValue = Timestamp.from(odt.toInstant());
-                        field.set(existingAddress, timestampValue);
-                    } catch (DateTimeParseException e) {
-                        throw new IllegalArgumentException("Invalid format for " + key + " TimeStamp field");
-                    }
-                } else {
-                    field.set(existingAddress, value);
-                }
-            } catch (NoSuchFieldException | IllegalAccessException e) {
-                throw new IllegalArgumentException("Invalid update field: " + key);
-            }
-        });
+        PATCHER.apply(existingAddress, updates);
 
         addressRepository.save(existingAddress);
     }
@@ -1,5 +1,7 @@
 package com.example.address.service.impl;
 
+import com.ecommerce.common.id.Ids;
+import com.ecommerce.common.patch.EntityPatcher;
 import com.example.address.entity.City;
 import com.example.address.repository.CityRepository;
 import com.example.address.service.CityService;
@@ -9,18 +11,15 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
-import java.lang.reflect.Field;
-import java.sql.Timestamp;
-import java.time.OffsetDateTime;
-import java.time.format.DateTimeParseException;
 import java.util.Map;
 import java.util.Optional;
-import java.util.UUID;
 
 @Service
 @Transactional
 public class CityServiceImpl implements CityService {
 
+    private static final EntityPatcher<City> PATCHER = EntityPatcher.of(City.class);
+
     @Autowired
     private CityRepository cityRepository;
 
@@ -38,7 +37,7 @@ public class CityServiceImpl implements CityService {
     @Override
     public City createCity(City city) {
         if (city.getCityId() == null)
-            city.setCityId(UUID.randomUUID().toString());
+            city.setCityId(Ids.next());
         else {
             Optional<City> existingCity = cityRepository.findById(city.getCityId());
             if (existingCity.isPresent()) {
@@ -58,25 +57,7 @@ public class CityServiceImpl implements CityService {
         City existingCity = cityRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("City not found"));
 
-        updates.forEach((key, value) -> {
-            try {
-                Field field = City.class.getDeclaredField(key);
-                field.setAccessible(true);
-                if (field.getType() == Timestamp.class) {
-                    try {
-                        OffsetDateTime odt = OffsetDateTime.parse((String) value);
-                        Timestamp timestampValue = Timestamp.from(odt.toInstant());
-                        field.set(existingCity, timestampValue);
-                    } catch (DateTimeParseException e) {
-                        throw new IllegalArgumentException("Invalid format for " + key + " TimeStamp field");
-                    }
-                } else {
-                    field.set(existingCity, value);
-                }
-            } catch (NoSuchFieldException | IllegalAccessException e) {
-                throw new IllegalArgumentException("Invalid update field: " + key);
-            }
-        });
+        PATCHER.apply(existingCity, updates);
 
         cityRepository.save(existingCity);
     }
@@ -1,5 +1,7 @@
 package com.example.address.service.impl;
 
+import com.ecommerce.common.id.Ids;
+import com.ecommerce.common.patch.EntityPatcher;
 import com.example.address.entity.Country;
 import com.example.address.repository.CountryRepository;
 import com.example.address.service.CountryService;
@@ -9,18 +11,15 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
-import java.lang.reflect.Field;
-import java.sql.Timestamp;
-import java.time.OffsetDateTime;
-import java.time.format.DateTimeParseException;
 import java.util.Map;
 import java.util.Optional;
-import java.util.UUID;
 
 @Service
 @Transactional
 public class CountryServiceImpl implements CountryService {
 
+    private static final EntityPatcher<Country> PATCHER = EntityPatcher.of(Country.class);
+
     @Autowired
     private CountryRepository countryRepository;
 
@@ -38,7 +37,7 @@ public class CountryServiceImpl implements CountryService {
     @Override
     public Country createCountry(Country country) {
         if (country.getCountryId() == null)
-            country.setCountryId(UUID.randomUUID().toString());
+            country.setCountryId(Ids.next());
         else {
             Optional<Country> existingCountry = countryRepository.findById(country.getCountryId());
             if (existingCountry.isPresent()) {
@@ -58,25 +57,7 @@ public class CountryServiceImpl implements CountryService {
         Country existingCountry = countryRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Country not found"));
 
-        updates.forEach((key, value) -> {
-            try {
-                Field field = Country.class.getDeclaredField(key);
-                field.setAccessible(true);
-                if (field.getType() == Timestamp.class) {
-                    try {
-                        OffsetDateTime odt = OffsetDateTime.parse((String) value);
-                        Timestamp timestampValue = Timestamp.from(odt.toInstant());
-                        field.set(existingCountry, timestampValue);
-                    } catch (DateTimeParseException e) {
-                        throw new IllegalArgumentException("Invalid format for " + key + " TimeStamp field");
-                    }
-                } else {
-                    field.set(existingCountry, value);
-                }
-            } catch (NoSuchFieldException | IllegalAccessException e) {
-                throw new IllegalArgumentException("Invalid update field: " + key);
-            }
-        });
+        PATCHER.apply(existingCountry, updates);
 
         countryRepository.save(existingCountry);
     }
@@ -3,28 +3,23 @@ package com.ecommerce.card.service.impl;
 import com.ecommerce.card.entity.Card;
 import com.ecommerce.card.repository.CardRepository;
 import com.ecommerce.card.service.CardService;
+import com.ecommerce.common.id.Ids;
+import com.ecommerce.common.patch.EntityPatcher;
 import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
-import java.lang.reflect.Field;
-import java.sql.Date;
-import java.sql.Timestamp;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.time.OffsetDateTime;
-import java.time.format.DateTimeParseException;
 import java.util.Map;
 import java.util.Optional;
-import java.util.TimeZone;
-import java.util.UUID;
 
 @Service
 @Transactional
 public class CardServiceImpl implements CardService {
 
+    private static final EntityPatcher<Card> PATCHER = EntityPatcher.of(Card.class);
+
     @Autowired
     private CardRepository cardRepository;
 
@@ -42,7 +37,7 @@ public class CardServiceImpl implements CardService {
     @Override
     public Card createCard(Card card) {
         if (card.getCardId() == null) {
-            card.setCardId(UUID.randomUUID().toString());
+            card.setCardId(Ids.next());
         } else {
             Optional<Card> existingCard = cardRepository.findById(card.getCardId());
             if (existingCard.isPresent()) {
@@ -67,34 +62,7 @@ public class CardServiceImpl implements CardService {
     public void patchCard(String cardId, Map<String, Object> updates) {
         Card existingCard = cardRepository.findById(cardId).orElseThrow(() -> new RuntimeException("Card not found"));
 
-        updates.forEach((key, value) -> {
-            try {
-                Field field = Card.class.getDeclaredField(key);
-                field.setAccessible(true);
-                if (field.getType() == Timestamp.class) {
-                    try {
-                        OffsetDateTime odt = OffsetDateTime.parse((String) value);
-                        Timestamp timestampValue = Timestamp.from(odt.toInstant());
-                        field.set(existingCard, timestampValue);
-                    } catch (DateTimeParseException e) {
-                        throw new IllegalArgumentException("Invalid format for " + key + " TimeStamp field");
-                    }
-                } else if (field.getType() == Date.class) {
-                    try{
-                        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
-                        dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
-                        java.util.Date utilDate = dateFormat.parse((String) value);
-                        field.set(existingCard, new java.sql.Date(utilDate.getTime()));
-                    } catch ( ParseException e) {
-                        throw new IllegalArgumentException("Invalid format for " + key + " Date field");
-                    }
-                } else {
-                    field.set(existingCard, value);
-                }
-            } catch (NoSuchFieldException | IllegalAccessException e) {
-                throw new IllegalArgumentException("Invalid update field: " + key);
-            }
-        });
+        PATCHER.apply(existingCard, updates);
 
         cardRepository.save(existingCard);
     }
@@ -1,14 +1,21 @@
 package com.ecommerce.cart.controller;
 
+import com.ecommerce.cart.dto.CartBatchRequest;
+import com.ecommerce.cart.dto.CartBatchResult;
+import com.ecommerce.cart.dto.CartView;
 import com.ecommerce.cart.entity.Cart;
 import com.ecommerce.cart.service.CartService;
+import com.ecommerce.common.etag.ETags;
+import com.ecommerce.common.etag.PreconditionFailedException;
 import jakarta.validation.Valid;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.*;
 
@@ -44,10 +51,34 @@ public class CartController {
         return ResponseEntity.ok(cart);
     }
 
-    @GetMapping("/userId/{userId}")  // Assuming user ID identifies a user's cart
-    public ResponseEntity<Cart> getCartByUserId(@PathVariable String userId){
-        Cart cart = cartService.getCartByUserId(userId);
-        return ResponseEntity.ok(cart);
+    // A user's cart is every cart row with their user ID; an empty cart has no lines
+    @GetMapping("/userId/{userId}")
+    public ResponseEntity<CartView> getCartByUserId(@PathVariable String userId,
+                                                    @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch){
+        // A matching If-None-Match is answered from the line and product versions alone, without pricing or serializing the cart
+        if (ifNoneMatch != null) {
+            String eTag = cartService.getCartViewETag(userId);
+            if (ETags.matchesIfNoneMatch(ifNoneMatch, eTag))
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+        }
+        CartView cart = cartService.getCartView(userId);
+        return ResponseEntity.ok().eTag(cart.getETag()).body(cart);
+    }
+
+    // Counters of the write-behind store; not found when carts are written straight to the table
+    @GetMapping("/store/stats")
+    public ResponseEntity<Map<String, Object>> getStoreStats() {
+        Map<String, Object> stats = cartService.getStoreStats();
+        if (stats == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(stats);
+    }
+
+    // Rows swept and how far the oldest remaining line is past the expiry cutoff
+    @GetMapping("/expiry/stats")
+    public ResponseEntity<Map<String, Object>> getExpiryStats() {
+        return ResponseEntity.ok(cartService.getExpiryStats());
     }
 
     @PostMapping
@@ -56,25 +87,34 @@ public class CartController {
         return ResponseEntity.ok(createdCart);
     }
 
+    // Adds, replaces and removes many lines at once, e.g. when a saved list is moved to the cart
+    @PostMapping("/batch")
+    public ResponseEntity<CartBatchResult> applyBatch(@RequestBody @Valid CartBatchRequest batch) {
+        CartBatchResult result = cartService.applyBatch(batch);
+        return ResponseEntity.ok(result);
+    }
+
     @PutMapping("/{cartId}")
-    public ResponseEntity<Cart> updateCart(@PathVariable String cartId,@RequestBody @Valid Cart cart) {
+    public ResponseEntity<Cart> updateCart(@PathVariable String cartId,@RequestBody @Valid Cart cart,
+                                           @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
 //        cart.setCartId(cartId); // Ensure ID matches path variable (optional)
-        Cart updatedCart = cartService.updateCart(cart);
+        Cart updatedCart = cartService.updateCart(cart, ifMatch);
         if (updatedCart == null) {
             return ResponseEntity.notFound().build();
         }
-        return ResponseEntity.ok(updatedCart);
+        return ResponseEntity.ok().eTag(ETags.of(updatedCart.getCartId(), updatedCart.getVersion())).body(updatedCart);
     }
 
     @PatchMapping("/{cartId}")
-    public ResponseEntity<Cart> patchCart(@PathVariable String cartId, @RequestBody Map<String, Object> updates) {
+    public ResponseEntity<Cart> patchCart(@PathVariable String cartId, @RequestBody Map<String, Object> updates,
+                                          @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         Cart existingCart = cartService.getCartById(cartId);
         if (existingCart == null) {
             return ResponseEntity.notFound().build();
         }
-        cartService.patchCart(cartId, updates); // Delegate patching logic to service
+        cartService.patchCart(cartId, updates, ifMatch); // Delegate patching logic to service
         Cart updatedCart = cartService.getCartById(cartId); // Refetch after patching
-        return ResponseEntity.ok(updatedCart);
+        return ResponseEntity.ok().eTag(ETags.of(cartId, updatedCart.getVersion())).body(updatedCart);
     }
 
     @DeleteMapping("/{cartId}")
@@ -90,4 +130,20 @@ public class CartController {
                 errors.put(error.getField(), error.getDefaultMessage()));
         return new ResponseEntity<>(errors, HttpStatus.BAD_REQUEST);
     }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> handleInvalidRequest(IllegalArgumentException ex) {
+        return new ResponseEntity<>(Map.of("error", ex.getMessage()), HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(PreconditionFailedException.class)
+    public ResponseEntity<Map<String, String>> handlePreconditionFailed(PreconditionFailedException ex) {
+        return new ResponseEntity<>(Map.of("error", ex.getMessage()), HttpStatus.PRECONDITION_FAILED);
+    }
+
+    // Another write committed between loading the cart and flushing this one
+    @ExceptionHandler(ObjectOptimisticLockingFailureException.class)
+    public ResponseEntity<Map<String, String>> handleConcurrentUpdate(ObjectOptimisticLockingFailureException ex) {
+        return new ResponseEntity<>(Map.of("error", "Cart was modified concurrently, retry"), HttpStatus.CONFLICT);
+    }
 }
@@ -0,0 +1,35 @@
+package com.ecommerce.cart.dto;
+
+import com.ecommerce.cart.entity.Cart;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Cart lines to add, replace and remove in one request. Every line is validated before any
+ * is written, and a cart ID may appear only once across the three lists.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CartBatchRequest {
+
+    @Valid
+    @Size(max = 500, message = "At most 500 lines can be added per request")
+    private List<Cart> add;
+
+    // Replaces user, product and quantity of existing lines, like PUT /carts/{cartId}
+    @Valid
+    @Size(max = 500, message = "At most 500 lines can be updated per request")
+    private List<Cart> update;
+
+    @Size(max = 500, message = "At most 500 lines can be removed per request")
+    private List<@NotBlank(message = "Cart ID cannot be blank") String> remove;
+}
@@ -0,0 +1,19 @@
+package com.ecommerce.cart.dto;
+
+import com.ecommerce.cart.entity.Cart;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CartBatchResult {
+    private List<Cart> added;
+    private List<Cart> updated;
+    private int removed; // Lines that existed; unknown IDs are ignored, as DELETE /carts/{cartId} does
+}
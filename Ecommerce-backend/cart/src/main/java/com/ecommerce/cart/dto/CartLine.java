@@ -0,0 +1,24 @@
+package com.ecommerce.cart.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CartLine {
+    private String cartId;
+    private String productId;
+    private String productName;
+    private Integer quantity;
+    private BigDecimal unitPrice; // product.discounted_price; null when the product no longer exists
+    private BigDecimal lineTotal;
+    private Timestamp createdAt;
+    private String eTag; // If-Match value for PUT/PATCH /carts/{cartId}
+}
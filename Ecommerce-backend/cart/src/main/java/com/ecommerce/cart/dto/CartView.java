@@ -0,0 +1,28 @@
+package com.ecommerce.cart.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Every cart line of a user, oldest first, priced at the products' current discounted price.
+ * Lines whose product has been deleted are listed without a price and left out of the total.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CartView {
+    private String userId;
+    private List<CartLine> lines;
+    private int lineCount;
+    private int totalQuantity;
+    private BigDecimal total;
+    @JsonIgnore // Sent as the ETag header; computed from the same rows as the lines
+    private String eTag;
+}
@@ -0,0 +1,42 @@
+package com.ecommerce.cart.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.sql.Timestamp;
+
+/**
+ * A cart line moved out of the cart table by the expiry sweeper when cart.expiry.archive is set.
+ * Written with SQL only; mapped so the table is created and documented alongside cart.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table(name = "cart_archive")
+public class ArchivedCart {
+
+    @Id
+    private String cartId;
+
+    @Column(nullable = false)
+    private String userId;
+
+    @Column(nullable = false)
+    private String productId;
+
+    @Column(nullable = false)
+    private Integer quantity;
+
+    private Timestamp createdAt;
+
+    @Column(nullable = false)
+    private Timestamp archivedAt;
+}
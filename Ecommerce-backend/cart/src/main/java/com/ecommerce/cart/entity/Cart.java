@@ -8,6 +8,7 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
 
 import java.sql.Timestamp;
@@ -17,7 +18,10 @@ import java.sql.Timestamp;
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
-@Table(name = "cart")
+@Table(name = "cart", indexes = {
+        @Index(name = "idx_cart_user_id_created_at", columnList = "user_id, created_at"), // per-user cart view
+        @Index(name = "idx_cart_created_at_cart_id", columnList = "created_at, cart_id") // expiry sweep
+})
 public class Cart {
 
     @Id
@@ -40,4 +44,8 @@ public class Cart {
     @CreationTimestamp
     @Column(updatable = false) // Ensures the column cannot be updated after creation
     private Timestamp createdAt;
+
+    @Version
+    @ColumnDefault("0")
+    private long version; // Backs the ETag and If-Match checks
 }
@@ -0,0 +1,211 @@
+package com.ecommerce.cart.expiry;
+
+import com.ecommerce.cart.store.WriteBehindCartStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Deletes cart lines created more than cart.expiry.max-age ago, or moves them to cart_archive.
+ * A run walks the expired rows in (created_at, cart_id) order over idx_cart_created_at_cart_id,
+ * a chunk at a time. Each chunk is its own short transaction that locks only the rows it
+ * deletes, by primary key. A chunk that takes longer than target-chunk-ms halves the chunk size
+ * and a quick one doubles it, up to chunk-size. The sweeper pauses between chunks so foreground
+ * writes get the table back, and a run stops after max-rows-per-run rows; the next run picks up
+ * where it left off.
+ */
+@Component
+public class CartExpirySweeper {
+
+    private static final Logger log = LoggerFactory.getLogger(CartExpirySweeper.class);
+
+    private static final int MIN_CHUNK_SIZE = 10;
+
+    // Continues after the last key of the previous chunk instead of rescanning deleted index entries
+    private static final String NEXT_CHUNK_SQL = """
+            SELECT cart_id, created_at FROM cart
+            WHERE created_at < :cutoff
+              AND (created_at > :lastCreatedAt OR (created_at = :lastCreatedAt AND cart_id > :lastCartId))
+            ORDER BY created_at, cart_id
+            LIMIT :limit
+            """;
+    // IGNORE: with the write-behind store a line can be seen again before its delete is flushed
+    private static final String ARCHIVE_SQL = """
+            INSERT IGNORE INTO cart_archive (cart_id, user_id, product_id, quantity, created_at, archived_at)
+            SELECT cart_id, user_id, product_id, quantity, created_at, :archivedAt FROM cart
+            WHERE cart_id IN (:cartIds) AND created_at < :cutoff
+            """;
+    private static final String DELETE_SQL = "DELETE FROM cart WHERE cart_id IN (:cartIds) AND created_at < :cutoff";
+    private static final String OLDEST_SQL = "SELECT MIN(created_at) FROM cart";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final WriteBehindCartStore cartStore; // Null unless cart.store.write-behind.enabled
+    private final boolean enabled;
+    private final Duration maxAge;
+    private final boolean archive;
+    private final int maxChunkSize;
+    private final long targetChunkMillis;
+    private final long chunkPauseMillis;
+    private final int maxRowsPerRun;
+
+    private final LongAdder runs = new LongAdder();
+    private final LongAdder rowsSwept = new LongAdder();
+    private volatile int chunkSize;
+    private volatile int lastRunRows;
+    private volatile long lastRunMillis;
+    private volatile long lagSeconds;
+    private volatile String lastError;
+
+    public CartExpirySweeper(DataSource dataSource,
+                             TransactionTemplate transactionTemplate,
+                             ObjectProvider<WriteBehindCartStore> cartStore,
+                             @Value("${cart.expiry.enabled:false}") boolean enabled,
+                             @Value("${cart.expiry.max-age:30d}") Duration maxAge,
+                             @Value("${cart.expiry.archive:false}") boolean archive,
+                             @Value("${cart.expiry.chunk-size:500}") int chunkSize,
+                             @Value("${cart.expiry.target-chunk-ms:50}") long targetChunkMillis,
+                             @Value("${cart.expiry.chunk-pause-ms:20}") long chunkPauseMillis,
+                             @Value("${cart.expiry.max-rows-per-run:20000}") int maxRowsPerRun,
+                             @Value("${cart.expiry.statement-timeout-seconds:5}") int statementTimeoutSeconds) {
+        JdbcTemplate template = new JdbcTemplate(dataSource);
+        // A chunk stuck behind a foreground lock gives up instead of holding its own locks
+        template.setQueryTimeout(statementTimeoutSeconds);
+        this.jdbcTemplate = new NamedParameterJdbcTemplate(template);
+        this.transactionTemplate = transactionTemplate;
+        this.cartStore = cartStore.getIfAvailable();
+        this.enabled = enabled;
+        this.maxAge = maxAge;
+        this.archive = archive;
+        this.maxChunkSize = Math.max(MIN_CHUNK_SIZE, chunkSize);
+        this.chunkSize = this.maxChunkSize;
+        this.targetChunkMillis = targetChunkMillis;
+        this.chunkPauseMillis = chunkPauseMillis;
+        this.maxRowsPerRun = maxRowsPerRun;
+    }
+
+    @Scheduled(fixedDelayString = "${cart.expiry.sweep-interval-ms:60000}")
+    public void sweep() {
+        if (enabled)
+            sweep(new Timestamp(System.currentTimeMillis() - maxAge.toMillis()));
+    }
+
+    // Returns the number of lines removed from the cart table
+    synchronized int sweep(Timestamp cutoff) {
+        long start = System.currentTimeMillis();
+        int swept = 0;
+        Timestamp lastCreatedAt = new Timestamp(0);
+        String lastCartId = "";
+        try {
+            while (swept < maxRowsPerRun) {
+                int limit = Math.min(chunkSize, maxRowsPerRun - swept);
+                List<Key> keys = jdbcTemplate.query(NEXT_CHUNK_SQL, new MapSqlParameterSource()
+                                .addValue("cutoff", cutoff)
+                                .addValue("lastCreatedAt", lastCreatedAt)
+                                .addValue("lastCartId", lastCartId)
+                                .addValue("limit", limit),
+                        (rs, rowNum) -> new Key(rs.getString("cart_id"), rs.getTimestamp("created_at")));
+                if (keys.isEmpty())
+                    break;
+
+                long chunkStart = System.currentTimeMillis();
+                swept += sweepChunk(keys.stream().map(Key::cartId).toList(), cutoff);
+                adaptChunkSize(System.currentTimeMillis() - chunkStart);
+
+                Key last = keys.get(keys.size() - 1);
+                lastCreatedAt = last.createdAt();
+                lastCartId = last.cartId();
+                if (keys.size() < limit)
+                    break;
+                Thread.sleep(chunkPauseMillis);
+            }
+            lastError = null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            // Most likely a statement timeout behind foreground locks; back off and retry next run
+            chunkSize = Math.max(MIN_CHUNK_SIZE, chunkSize / 2);
+            lastError = e.getMessage();
+            log.warn("Cart expiry sweep stopped after {} rows", swept, e);
+        }
+
+        runs.increment();
+        rowsSwept.add(swept);
+        lastRunRows = swept;
+        lastRunMillis = System.currentTimeMillis() - start;
+        lagSeconds = lag(cutoff);
+        if (swept > 0)
+            log.info("Swept {} expired cart lines in {} ms, lag {} s", swept, lastRunMillis, lagSeconds);
+        return swept;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", enabled);
+        result.put("maxAge", maxAge.toString());
+        result.put("mode", archive ? "archive" : "delete");
+        result.put("runs", runs.sum());
+        result.put("rowsSwept", rowsSwept.sum());
+        result.put("lastRunRows", lastRunRows);
+        result.put("lastRunMs", lastRunMillis);
+        result.put("chunkSize", chunkSize);
+        result.put("lagSeconds", lagSeconds);
+        result.put("lastError", lastError);
+        return result;
+    }
+
+    private int sweepChunk(List<String> cartIds, Timestamp cutoff) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("cartIds", cartIds)
+                .addValue("cutoff", cutoff)
+                .addValue("archivedAt", new Timestamp(System.currentTimeMillis()));
+        if (cartStore == null) {
+            Integer deleted = transactionTemplate.execute(status -> {
+                if (archive)
+                    jdbcTemplate.update(ARCHIVE_SQL, params);
+                return jdbcTemplate.update(DELETE_SQL, params);
+            });
+            return deleted == null ? 0 : deleted;
+        }
+        // The store holds lines in memory and writes them back, so it has to do the delete
+        if (archive)
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.update(ARCHIVE_SQL, params));
+        return cartStore.applyBatch(List.of(), List.of(), cartIds).getRemoved();
+    }
+
+    private void adaptChunkSize(long chunkMillis) {
+        if (chunkMillis > targetChunkMillis)
+            chunkSize = Math.max(MIN_CHUNK_SIZE, chunkSize / 2);
+        else if (chunkMillis < targetChunkMillis / 4)
+            chunkSize = Math.min(maxChunkSize, chunkSize * 2);
+    }
+
+    // How far the oldest remaining line is past the cutoff; 0 once the sweeper has caught up
+    private long lag(Timestamp cutoff) {
+        try {
+            Timestamp oldest = jdbcTemplate.getJdbcTemplate().queryForObject(OLDEST_SQL, Timestamp.class);
+            return oldest == null || !oldest.before(cutoff) ? 0 : (cutoff.getTime() - oldest.getTime()) / 1000;
+        } catch (RuntimeException e) {
+            log.warn("Cannot compute cart expiry lag", e);
+            return lagSeconds;
+        }
+    }
+
+    private record Key(String cartId, Timestamp createdAt) {
+    }
+}
@@ -2,12 +2,95 @@ package com.ecommerce.cart.repository;
 
 import com.ecommerce.cart.entity.Cart;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface CartRepository extends JpaRepository<Cart,String> {
+public interface CartRepository extends JpaRepository<Cart,String>, CartRepositoryCustom {
 
-    Optional<Cart> findByUserId(String userId);
+    List<Cart> findByUserId(String userId);
+
+    @Query("select c.cartId from Cart c where c.cartId in :cartIds")
+    List<String> findExistingIds(@Param("cartIds") Collection<String> cartIds);
+
+    // One statement for the whole list instead of a select and a delete per line
+    @Modifying
+    @Query("delete from Cart c where c.cartId in :cartIds")
+    int deleteAllByCartIdIn(@Param("cartIds") Collection<String> cartIds);
+
+    // Conditional GET and If-Match without loading the row
+    @Query("select c.version from Cart c where c.cartId = :cartId")
+    Optional<Long> findVersion(@Param("cartId") String cartId);
+
+    // The whole cart priced in one round trip: an index range scan on (user_id, created_at)
+    // plus a primary-key lookup into product per line. product belongs to the product service
+    // but lives in the same schema, hence the native query.
+    @Query(value = """
+            select c.cart_id as cartId, c.product_id as productId, c.quantity as quantity,
+                   c.created_at as createdAt, c.version as version,
+                   p.product_name as productName, p.discounted_price as unitPrice,
+                   p.discounted_price * c.quantity as lineTotal, p.version as productVersion
+            from cart c left join product p on p.product_id = c.product_id
+            where c.user_id = :userId
+            order by c.created_at, c.cart_id
+            """, nativeQuery = true)
+    List<CartLineRow> findLines(@Param("userId") String userId);
+
+    // Same rows and order as findLines, reduced to what the cart's ETag is built from
+    @Query(value = """
+            select c.cart_id as cartId, c.version as version, p.version as productVersion
+            from cart c left join product p on p.product_id = c.product_id
+            where c.user_id = :userId
+            order by c.created_at, c.cart_id
+            """, nativeQuery = true)
+    List<CartLineVersion> findLineVersions(@Param("userId") String userId);
+
+    // Prices for lines held by the write-behind store, which reads the cart rows from memory
+    @Query(value = """
+            select p.product_id as productId, p.product_name as productName,
+                   p.discounted_price as unitPrice, p.version as version
+            from product p
+            where p.product_id in (:productIds)
+            """, nativeQuery = true)
+    List<ProductPrice> findProductPrices(@Param("productIds") Collection<String> productIds);
+
+    interface ProductPrice {
+        String getProductId();
+
+        String getProductName();
+
+        BigDecimal getUnitPrice();
+
+        Long getVersion();
+    }
+
+    interface CartLineVersion {
+        String getCartId();
+
+        Long getVersion();
+
+        Long getProductVersion();
+    }
+
+    interface CartLineRow extends CartLineVersion {
+        String getProductId();
+
+        String getProductName();
+
+        Integer getQuantity();
+
+        BigDecimal getUnitPrice();
+
+        BigDecimal getLineTotal();
+
+        Timestamp getCreatedAt();
+    }
 }
@@ -0,0 +1,12 @@
+package com.ecommerce.cart.repository;
+
+import com.ecommerce.cart.entity.Cart;
+
+import java.util.List;
+
+public interface CartRepositoryCustom {
+
+    // Persists lines known to be new. save() would merge them, selecting each one first,
+    // because an assigned ID and a primitive version give it no way to tell they are new.
+    void persistAll(List<Cart> carts);
+}
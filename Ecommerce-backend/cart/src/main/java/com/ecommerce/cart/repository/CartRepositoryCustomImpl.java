@@ -0,0 +1,18 @@
+package com.ecommerce.cart.repository;
+
+import com.ecommerce.cart.entity.Cart;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import java.util.List;
+
+public class CartRepositoryCustomImpl implements CartRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public void persistAll(List<Cart> carts) {
+        carts.forEach(entityManager::persist);
+    }
+}
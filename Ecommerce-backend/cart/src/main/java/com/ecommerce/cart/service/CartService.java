@@ -1,5 +1,8 @@
 package com.ecommerce.cart.service;
 
+import com.ecommerce.cart.dto.CartBatchRequest;
+import com.ecommerce.cart.dto.CartBatchResult;
+import com.ecommerce.cart.dto.CartView;
 import com.ecommerce.cart.entity.Cart;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -12,13 +15,21 @@ public interface CartService {
 
     Cart getCartById(String cartId);
 
-    Cart getCartByUserId(String userId);
+    CartView getCartView(String userId);
+
+    String getCartViewETag(String userId);
 
     Cart createCart(Cart cart);
 
     void deleteCart(String cartId);
 
-    Cart updateCart(Cart updatedCart);
+    Cart updateCart(Cart updatedCart, String ifMatch);
+
+    void patchCart(String cartId, Map<String, Object> updates, String ifMatch);
+
+    CartBatchResult applyBatch(CartBatchRequest batch);
+
+    Map<String, Object> getStoreStats();
 
-    void patchCart(String cartId, Map<String, Object> updates);
+    Map<String, Object> getExpiryStats();
 }
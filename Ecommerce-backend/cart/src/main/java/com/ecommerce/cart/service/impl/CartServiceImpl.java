@@ -1,31 +1,60 @@
 package com.ecommerce.cart.service.impl;
 
+import com.ecommerce.cart.dto.CartBatchRequest;
+import com.ecommerce.cart.dto.CartBatchResult;
+import com.ecommerce.cart.dto.CartLine;
+import com.ecommerce.cart.dto.CartView;
 import com.ecommerce.cart.entity.Cart;
+import com.ecommerce.cart.expiry.CartExpirySweeper;
 import com.ecommerce.cart.repository.CartRepository;
+import com.ecommerce.cart.repository.CartRepository.CartLineRow;
+import com.ecommerce.cart.repository.CartRepository.CartLineVersion;
+import com.ecommerce.cart.repository.CartRepository.ProductPrice;
 import com.ecommerce.cart.service.CartService;
+import com.ecommerce.cart.store.WriteBehindCartStore;
+import com.ecommerce.common.etag.ETags;
+import com.ecommerce.common.id.Ids;
+import com.ecommerce.common.patch.EntityPatcher;
 import jakarta.transaction.Transactional;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
-import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.sql.Timestamp;
-import java.time.OffsetDateTime;
-import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.UUID;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @Transactional
 public class CartServiceImpl implements CartService {
 
+    private static final EntityPatcher<Cart> PATCHER = EntityPatcher.of(Cart.class);
+
     private final CartRepository cartRepository;
+    private final WriteBehindCartStore cartStore; // Null unless cart.store.write-behind.enabled
+    private final CartExpirySweeper cartExpirySweeper;
 
-    public CartServiceImpl(CartRepository cartRepository) {
+    public CartServiceImpl(CartRepository cartRepository, ObjectProvider<WriteBehindCartStore> cartStore,
+                           CartExpirySweeper cartExpirySweeper) {
         this.cartRepository = cartRepository;
+        this.cartStore = cartStore.getIfAvailable();
+        this.cartExpirySweeper = cartExpirySweeper;
     }
 
+    // Paged from the table, so with the write-behind store it trails writes by up to a flush interval
     @Override
     public Page<Cart> getCarts(Pageable pageable) {
         return cartRepository.findAll(pageable);
@@ -33,19 +62,72 @@ public class CartServiceImpl implements CartService {
 
     @Override
     public Cart getCartById(String cartId) {
+        if (cartStore != null)
+            return cartStore.find(cartId);
         Optional<Cart> optionalCart = cartRepository.findById(cartId);
         return optionalCart.orElse(null);
     }
 
     @Override
-    public Cart getCartByUserId(String userId) {
-        return cartRepository.findByUserId(userId).orElse(null);
+    public CartView getCartView(String userId) {
+        List<? extends CartLineRow> rows = cartStore != null ? storedLines(userId) : cartRepository.findLines(userId);
+        List<CartLine> lines = new ArrayList<>(rows.size());
+        int totalQuantity = 0;
+        BigDecimal total = BigDecimal.ZERO;
+        for (CartLineRow row : rows) {
+            lines.add(CartLine.builder()
+                    .cartId(row.getCartId())
+                    .productId(row.getProductId())
+                    .productName(row.getProductName())
+                    .quantity(row.getQuantity())
+                    .unitPrice(row.getUnitPrice())
+                    .lineTotal(row.getLineTotal())
+                    .createdAt(row.getCreatedAt())
+                    .eTag(ETags.of(row.getCartId(), row.getVersion()))
+                    .build());
+            totalQuantity += row.getQuantity();
+            if (row.getLineTotal() != null)
+                total = total.add(row.getLineTotal());
+        }
+        return new CartView(userId, lines, lines.size(), totalQuantity, total, viewETag(userId, rows));
+    }
+
+    @Override
+    public String getCartViewETag(String userId) {
+        return viewETag(userId, cartStore != null ? storedLines(userId) : cartRepository.findLineVersions(userId));
+    }
+
+    // The store's lines priced with one product lookup, in the shape findLines returns
+    private List<StoredLine> storedLines(String userId) {
+        List<Cart> lines = cartStore.lines(userId);
+        if (lines.isEmpty())
+            return List.of();
+        Map<String, ProductPrice> prices = cartRepository.findProductPrices(lines.stream().map(Cart::getProductId).distinct().toList())
+                .stream().collect(Collectors.toMap(ProductPrice::getProductId, Function.identity()));
+        return lines.stream().map(line -> new StoredLine(line, prices.get(line.getProductId()))).toList();
+    }
+
+    // The view changes when a line is added, removed or updated, or when a product's price does,
+    // so the tag digests every line's version together with its product's version
+    private static String viewETag(String userId, List<? extends CartLineVersion> lines) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        for (CartLineVersion line : lines)
+            digest.update((line.getCartId() + ":" + line.getVersion() + ":" + line.getProductVersion() + ";")
+                    .getBytes(StandardCharsets.UTF_8));
+        return ETags.of(userId, HexFormat.of().formatHex(digest.digest(), 0, 8));
     }
 
     @Override
     public Cart createCart(Cart cart) {
+        if (cartStore != null)
+            return cartStore.create(cart);
         if (cart.getCartId() == null) {
-            cart.setCartId(UUID.randomUUID().toString());
+            cart.setCartId(Ids.next());
         } else {
             Optional<Cart> existingCart = cartRepository.findById(cart.getCartId());
             if (existingCart.isPresent()) {
@@ -57,42 +139,145 @@ public class CartServiceImpl implements CartService {
 
     @Override
     public void deleteCart(String cartId) {
-        cartRepository.deleteById(cartId);
+        if (cartStore != null)
+            cartStore.delete(cartId);
+        else
+            cartRepository.deleteById(cartId);
     }
 
     @Override
-    public Cart updateCart(Cart updatedCart) {
+    public Cart updateCart(Cart updatedCart, String ifMatch) {
+        if (cartStore != null)
+            return cartStore.replace(updatedCart, ifMatch);
+        Long version = cartRepository.findVersion(updatedCart.getCartId()).orElse(null);
+        ETags.checkIfMatch(ifMatch, updatedCart.getCartId(), version);
+        // The body replaces the content, not the version; concurrent writers are caught by If-Match or at flush
+        if (version != null)
+            updatedCart.setVersion(version);
         return cartRepository.saveAndFlush(updatedCart);
     }
 
     @Override
-    public void patchCart(String cartId, Map<String, Object> updates) {
+    public void patchCart(String cartId, Map<String, Object> updates, String ifMatch) {
+        if (cartStore != null) {
+            cartStore.patch(cartId, updates, ifMatch);
+            return;
+        }
         Cart existingCart = cartRepository.findById(cartId).orElseThrow(() -> new RuntimeException("Cart not found"));
+        ETags.checkIfMatch(ifMatch, cartId, existingCart.getVersion());
 
-        updates.forEach((key, value) -> {
-            try {
-                // Use reflection or property accessors to update specific fields based on the key
-                Field field = Cart.class.getDeclaredField(key);
-                field.setAccessible(true);
-                if (field.getType() == Timestamp.class) {
-                    try {
-                        // Use OffsetDateTime to parse the ISO 8601 format
-                        OffsetDateTime odt = OffsetDateTime.parse((String) value);
-                        Timestamp timestampValue = Timestamp.from(odt.toInstant());
-                        field.set(existingCart, timestampValue);
-                    } catch (DateTimeParseException e) {
-                        throw new IllegalArgumentException("Invalid format for " + key + " TimeStamp field");
-                    }
-                } else {
-                    // Set other field types as usual
-                    field.set(existingCart, value);
-                }
-            } catch (NoSuchFieldException | IllegalAccessException e) {
-                // Handle potential exceptions (e.g., invalid field name)
-                throw new IllegalArgumentException("Invalid update field: " + key);
-            }
-        });
+        PATCHER.apply(existingCart, updates);
+
+        cartRepository.saveAndFlush(existingCart);
+    }
+
+    /**
+     * Applies the batch in this transaction with one existence query for the added lines, one
+     * load for the updated lines and one delete statement. Inserts and updates are sent at
+     * flush time as JDBC batches (hibernate.jdbc.batch_size, ordered by statement).
+     */
+    @Override
+    public CartBatchResult applyBatch(CartBatchRequest batch) {
+        List<Cart> add = batch.getAdd() == null ? List.of() : batch.getAdd();
+        List<Cart> update = batch.getUpdate() == null ? List.of() : batch.getUpdate();
+        List<String> remove = batch.getRemove() == null ? List.of() : batch.getRemove();
+
+        Set<String> cartIds = new HashSet<>();
+        add.forEach(line -> requireOnce(cartIds, line.getCartId()));
+        update.forEach(line -> requireOnce(cartIds, line.getCartId()));
+        remove.forEach(cartId -> requireOnce(cartIds, cartId));
+
+        if (cartStore != null)
+            return cartStore.applyBatch(add, update, remove);
+
+        if (!add.isEmpty()) {
+            List<String> existing = cartRepository.findExistingIds(add.stream().map(Cart::getCartId).toList());
+            if (!existing.isEmpty())
+                throw new IllegalArgumentException("Cart with ID " + existing.get(0) + " already exists.");
+        }
+
+        Map<String, Cart> current = new HashMap<>();
+        if (!update.isEmpty())
+            cartRepository.findAllById(update.stream().map(Cart::getCartId).toList())
+                    .forEach(cart -> current.put(cart.getCartId(), cart));
+        List<Cart> updated = new ArrayList<>(update.size());
+        for (Cart line : update) {
+            Cart existingCart = current.get(line.getCartId());
+            if (existingCart == null)
+                throw new IllegalArgumentException("Cart " + line.getCartId() + " not found");
+            existingCart.setUserId(line.getUserId());
+            existingCart.setProductId(line.getProductId());
+            existingCart.setQuantity(line.getQuantity());
+            updated.add(existingCart);
+        }
+
+        int removed = remove.isEmpty() ? 0 : cartRepository.deleteAllByCartIdIn(remove);
+        cartRepository.persistAll(add);
+        cartRepository.flush();
+        return new CartBatchResult(add, updated, removed);
+    }
+
+    private static void requireOnce(Set<String> cartIds, String cartId) {
+        if (!cartIds.add(cartId))
+            throw new IllegalArgumentException("Cart ID " + cartId + " appears more than once in the batch");
+    }
+
+    @Override
+    public Map<String, Object> getStoreStats() {
+        return cartStore == null ? null : cartStore.stats();
+    }
+
+    @Override
+    public Map<String, Object> getExpiryStats() {
+        return cartExpirySweeper.stats();
+    }
 
-        cartRepository.save(existingCart);
+    private record StoredLine(Cart line, ProductPrice price) implements CartLineRow {
+
+        @Override
+        public String getCartId() {
+            return line.getCartId();
+        }
+
+        @Override
+        public Long getVersion() {
+            return line.getVersion();
+        }
+
+        @Override
+        public Long getProductVersion() {
+            return price == null ? null : price.getVersion();
+        }
+
+        @Override
+        public String getProductId() {
+            return line.getProductId();
+        }
+
+        @Override
+        public String getProductName() {
+            return price == null ? null : price.getProductName();
+        }
+
+        @Override
+        public Integer getQuantity() {
+            return line.getQuantity();
+        }
+
+        @Override
+        public BigDecimal getUnitPrice() {
+            return price == null ? null : price.getUnitPrice();
+        }
+
+        @Override
+        public BigDecimal getLineTotal() {
+            return price == null || price.getUnitPrice() == null ? null
+                    : price.getUnitPrice().multiply(BigDecimal.valueOf(line.getQuantity()));
+        }
+
+        @Override
+        public Timestamp getCreatedAt() {
+            return line.getCreatedAt();
+        }
     }
 }
@@ -0,0 +1,254 @@
+package com.ecommerce.cart.store;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only log in fixed-size, memory-mapped segment files. Appending copies the record into
+ * the mapping; a background thread forces the current segment to disk every fsync interval and
+ * writers that need durability wait for the force that covers their record, so one fsync is
+ * shared by every append in the interval.
+ * A record is its length, the CRC32C of its payload and the payload. Segments are zero-filled
+ * when mapped, so a zero length ends a segment's data; a CRC mismatch is a torn write at the
+ * tail, and replay stops there.
+ * Positions are byte offsets across segments (segment index * segment size + offset); a
+ * checkpoint at a position deletes the segments wholly before it.
+ */
+final class CartLog implements Closeable {
+
+    private static final int HEADER = 8;
+
+    private final Path dir;
+    private final int segmentSize;
+    private final long fsyncIntervalNanos;
+    private final Thread syncer;
+    private final Object durableMonitor = new Object();
+
+    // Guarded by this
+    private long segmentIndex;
+    private MappedByteBuffer segment;
+    private int offset;
+    private long checkpoint;
+
+    private volatile long durable;
+    private volatile long syncs;
+    private volatile boolean closed;
+
+    private CartLog(Path dir, int segmentSize, long fsyncIntervalMillis, long segmentIndex) throws IOException {
+        this.dir = dir;
+        this.segmentSize = segmentSize;
+        this.fsyncIntervalNanos = TimeUnit.MILLISECONDS.toNanos(fsyncIntervalMillis);
+        this.segmentIndex = segmentIndex;
+        this.segment = map(segmentIndex);
+        this.checkpoint = position();
+        this.durable = checkpoint;
+        this.syncer = new Thread(this::syncLoop, "cart-log-sync");
+        this.syncer.setDaemon(true);
+        this.syncer.start();
+    }
+
+    /**
+     * Starts a new log in {@code dir}, deleting the segments already there. Replay them first.
+     */
+    static CartLog open(Path dir, int segmentSize, long fsyncIntervalMillis) throws IOException {
+        if (segmentSize <= HEADER || fsyncIntervalMillis <= 0)
+            throw new IllegalArgumentException("Invalid cart log settings");
+        Files.createDirectories(dir);
+        List<Path> existing = segments(dir);
+        long next = existing.isEmpty() ? 0 : index(existing.get(existing.size() - 1)) + 1;
+        for (Path path : existing)
+            Files.delete(path);
+        return new CartLog(dir, segmentSize, fsyncIntervalMillis, next);
+    }
+
+    /**
+     * Feeds every intact record in {@code dir} to {@code consumer} in append order and
+     * returns how many there were.
+     */
+    static long replay(Path dir, Consumer<byte[]> consumer) throws IOException {
+        if (!Files.isDirectory(dir))
+            return 0;
+        long records = 0;
+        for (Path path : segments(dir)) {
+            MappedByteBuffer buffer;
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            int position = 0;
+            while (position + HEADER <= buffer.limit()) {
+                int length = buffer.getInt(position);
+                if (length <= 0 || length > buffer.limit() - position - HEADER)
+                    break;
+                byte[] payload = new byte[length];
+                buffer.get(position + HEADER, payload);
+                if (crc(payload) != buffer.getInt(position + 4))
+                    break;
+                consumer.accept(payload);
+                records++;
+                position += HEADER + length;
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Appends a record and returns the log position just past it, to pass to
+     * {@link #awaitDurable(long)}.
+     */
+    synchronized long append(byte[] payload) {
+        if (closed)
+            throw new IllegalStateException("Cart log is closed");
+        if (payload.length == 0 || payload.length > segmentSize - HEADER)
+            throw new IllegalArgumentException("Invalid cart log record of " + payload.length + " bytes");
+        if (offset + HEADER + payload.length > segmentSize)
+            rotate();
+        segment.putInt(offset + 4, crc(payload));
+        segment.put(offset + HEADER, payload);
+        segment.putInt(offset, payload.length);
+        offset += HEADER + payload.length;
+        return position();
+    }
+
+    synchronized long position() {
+        return segmentIndex * segmentSize + offset;
+    }
+
+    /**
+     * Blocks until every record up to {@code position} has been forced to disk.
+     */
+    void awaitDurable(long position) {
+        if (durable >= position)
+            return;
+        synchronized (durableMonitor) {
+            while (durable < position) {
+                if (closed)
+                    throw new IllegalStateException("Cart log closed before the write was durable");
+                try {
+                    durableMonitor.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted waiting for the cart log", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Records that everything before {@code position} is in the table and drops the
+     * segments that only hold such records.
+     */
+    void checkpoint(long position) throws IOException {
+        long keepFrom;
+        synchronized (this) {
+            checkpoint = Math.max(checkpoint, position);
+            keepFrom = checkpoint / segmentSize;
+        }
+        for (Path path : segments(dir))
+            if (index(path) < keepFrom)
+                Files.deleteIfExists(path);
+    }
+
+    // Bytes appended since the last checkpoint: what a restart would replay
+    synchronized long pendingBytes() {
+        return position() - checkpoint;
+    }
+
+    long syncs() {
+        return syncs;
+    }
+
+    @Override
+    public void close() {
+        if (closed)
+            return;
+        sync();
+        closed = true;
+        syncer.interrupt();
+        synchronized (durableMonitor) {
+            durableMonitor.notifyAll();
+        }
+    }
+
+    private void rotate() {
+        segment.force();
+        markDurable(position());
+        try {
+            segment = map(++segmentIndex);
+        } catch (IOException e) {
+            segmentIndex--;
+            throw new IllegalStateException("Cannot create cart log segment", e);
+        }
+        offset = 0;
+    }
+
+    private void syncLoop() {
+        while (!closed) {
+            LockSupport.parkNanos(fsyncIntervalNanos);
+            sync();
+        }
+    }
+
+    private void sync() {
+        MappedByteBuffer buffer;
+        long target;
+        synchronized (this) {
+            buffer = segment;
+            target = position();
+        }
+        if (target <= durable)
+            return;
+        // Appends after the snapshot may land in the same force; they are only acknowledged by a later one
+        buffer.force();
+        syncs++;
+        markDurable(target);
+    }
+
+    private void markDurable(long position) {
+        synchronized (durableMonitor) {
+            if (position > durable) {
+                durable = position;
+                durableMonitor.notifyAll();
+            }
+        }
+    }
+
+    private MappedByteBuffer map(long index) throws IOException {
+        Path path = dir.resolve(String.format("cart-%016d.log", index));
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+    }
+
+    private static List<Path> segments(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return new ArrayList<>(files
+                    .filter(path -> path.getFileName().toString().matches("cart-\\d{16}\\.log"))
+                    .sorted()
+                    .toList());
+        }
+    }
+
+    private static long index(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(5, name.length() - 4));
+    }
+
+    private static int crc(byte[] payload) {
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,592 @@
+package com.ecommerce.cart.store;
+
+import com.ecommerce.cart.dto.CartBatchResult;
+import com.ecommerce.cart.entity.Cart;
+import com.ecommerce.cart.repository.CartRepository;
+import com.ecommerce.common.etag.ETags;
+import com.ecommerce.common.id.Ids;
+import com.ecommerce.common.patch.EntityPatcher;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.ConstraintViolationException;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.*;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.UnaryOperator;
+
+/**
+ * Write-behind storage for cart lines, switched on with cart.store.write-behind.enabled.
+ * The lines of active users are held in memory, sharded by user ID. A mutation is appended to
+ * a {@link CartLog} and acknowledged once the log is on disk; a scheduled flush then writes
+ * every line changed since the previous flush to the cart table in JDBC batches, so a line
+ * changed many times between flushes costs one row write. On startup whatever the log holds is
+ * replayed into the table before anything is served.
+ * Users not in memory are loaded from the table on first access and dropped again once idle
+ * and flushed. The store must be the only writer of the cart table: run a single cart
+ * instance with it enabled.
+ */
+@Component
+@ConditionalOnProperty(name = "cart.store.write-behind.enabled", havingValue = "true")
+public class WriteBehindCartStore {
+
+    private static final Logger log = LoggerFactory.getLogger(WriteBehindCartStore.class);
+
+    private static final EntityPatcher<Cart> PATCHER = EntityPatcher.of(Cart.class);
+
+    private static final byte UPSERT = 1;
+    private static final byte DELETE = 2;
+
+    // The version is the one the store assigned; the row may be new, changed or moved to another user
+    private static final String UPSERT_SQL = """
+            INSERT INTO cart (cart_id, user_id, product_id, quantity, created_at, version)
+            VALUES (?, ?, ?, ?, ?, ?)
+            ON DUPLICATE KEY UPDATE
+                user_id = VALUES(user_id), product_id = VALUES(product_id),
+                quantity = VALUES(quantity), version = VALUES(version)
+            """;
+    private static final String DELETE_SQL = "DELETE FROM cart WHERE cart_id = ?";
+
+    private final CartRepository cartRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Validator validator;
+    private final Shard[] shards;
+    private final boolean syncWrites;
+    private final int batchSize;
+    private final long idleMillis;
+    private final CartLog cartLog;
+
+    // cartId -> userId for every line in memory, and for deleted lines until the delete is flushed
+    private final Map<String, String> owners = new ConcurrentHashMap<>();
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+    // Mutations hold the read lock from log append to dirty mark; the flush takes the write lock to
+    // cut a snapshot that covers exactly the log up to its checkpoint position
+    private final ReentrantReadWriteLock snapshotLock = new ReentrantReadWriteLock();
+
+    private final LongAdder writes = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder failedFlushes = new LongAdder();
+    private final LongAdder rowsWritten = new LongAdder();
+    private volatile long lastFlushMillis;
+
+    public WriteBehindCartStore(CartRepository cartRepository,
+                                JdbcTemplate jdbcTemplate,
+                                TransactionTemplate transactionTemplate,
+                                Validator validator,
+                                @Value("${cart.store.write-behind.shards:64}") int shards,
+                                @Value("${cart.store.write-behind.log-dir:cart-log}") String logDir,
+                                @Value("${cart.store.write-behind.segment-size:67108864}") int segmentSize,
+                                @Value("${cart.store.write-behind.fsync-interval-ms:2}") long fsyncIntervalMillis,
+                                @Value("${cart.store.write-behind.sync-writes:true}") boolean syncWrites,
+                                @Value("${cart.store.write-behind.flush-batch-size:500}") int batchSize,
+                                @Value("${cart.store.write-behind.idle-ms:600000}") long idleMillis) throws IOException {
+        this.cartRepository = cartRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.validator = validator;
+        this.shards = new Shard[shards];
+        for (int i = 0; i < shards; i++)
+            this.shards[i] = new Shard(i);
+        this.syncWrites = syncWrites;
+        this.batchSize = batchSize;
+        this.idleMillis = idleMillis;
+
+        Path dir = Path.of(logDir);
+        recover(dir);
+        this.cartLog = CartLog.open(dir, segmentSize, fsyncIntervalMillis);
+    }
+
+    public Cart find(String cartId) {
+        while (true) {
+            String userId = owner(cartId);
+            if (userId == null)
+                return null;
+            Shard shard = shard(userId);
+            shard.lock.lock();
+            try {
+                UserLines user = shard.users.get(userId);
+                // Otherwise evicted or moved to another user since owner() looked
+                if (user != null && userId.equals(owners.get(cartId))) {
+                    user.touch();
+                    Cart line = user.lines.get(cartId);
+                    return line == null ? null : copy(line);
+                }
+            } finally {
+                shard.lock.unlock();
+            }
+        }
+    }
+
+    // A user's lines in cart view order
+    public List<Cart> lines(String userId) {
+        while (true) {
+            load(userId);
+            Shard shard = shard(userId);
+            shard.lock.lock();
+            try {
+                UserLines user = shard.users.get(userId);
+                if (user != null) {
+                    user.touch();
+                    List<Cart> lines = new ArrayList<>(user.lines.size());
+                    for (Cart line : user.lines.values())
+                        lines.add(copy(line));
+                    lines.sort(Comparator.comparing(Cart::getCreatedAt, Comparator.nullsFirst(Comparator.naturalOrder()))
+                            .thenComparing(Cart::getCartId));
+                    return lines;
+                }
+            } finally {
+                shard.lock.unlock();
+            }
+        }
+    }
+
+    public Cart create(Cart cart) {
+        return durable(add(cart));
+    }
+
+    // Replaces a line's content, creating it when missing, as a save of the entity would
+    public Cart replace(Cart cart, String ifMatch) {
+        return durable(mutate(cart.getCartId(), current -> {
+            ETags.checkIfMatch(ifMatch, cart.getCartId(), current == null ? null : current.getVersion());
+            return copy(cart);
+        }));
+    }
+
+    public Cart patch(String cartId, Map<String, Object> updates, String ifMatch) {
+        return durable(mutate(cartId, current -> {
+            if (current == null)
+                throw new RuntimeException("Cart not found");
+            ETags.checkIfMatch(ifMatch, cartId, current.getVersion());
+            PATCHER.apply(current, updates);
+            // The table's constraints are only reached at the next flush, so check them now
+            Set<ConstraintViolation<Cart>> violations = validator.validate(current);
+            if (!violations.isEmpty())
+                throw new ConstraintViolationException(violations);
+            return current;
+        }));
+    }
+
+    public void delete(String cartId) {
+        durable(mutate(cartId, current -> null));
+    }
+
+    /**
+     * Adds, replaces and removes lines, then waits once for the log to cover every change.
+     * All lines are checked before the first is written, but unlike the table path the batch
+     * is not atomic: a write racing it can still fail a later line after earlier ones applied.
+     */
+    public CartBatchResult applyBatch(List<Cart> add, List<Cart> update, List<String> remove) {
+        for (Cart line : add)
+            if (find(line.getCartId()) != null)
+                throw new IllegalArgumentException("Cart with ID " + line.getCartId() + " already exists.");
+        for (Cart line : update)
+            if (find(line.getCartId()) == null)
+                throw new IllegalArgumentException("Cart " + line.getCartId() + " not found");
+
+        long position = -1;
+        List<Cart> added = new ArrayList<>(add.size());
+        for (Cart line : add) {
+            Write write = add(line);
+            added.add(write.line());
+            position = Math.max(position, write.position());
+        }
+        List<Cart> updated = new ArrayList<>(update.size());
+        for (Cart line : update) {
+            Write write = mutate(line.getCartId(), current -> {
+                if (current == null)
+                    throw new IllegalArgumentException("Cart " + line.getCartId() + " not found");
+                return copy(line);
+            });
+            updated.add(write.line());
+            position = Math.max(position, write.position());
+        }
+        int removed = 0;
+        for (String cartId : remove) {
+            Write write = mutate(cartId, current -> null);
+            if (write.position() >= 0)
+                removed++;
+            position = Math.max(position, write.position());
+        }
+        durable(new Write(null, position));
+        return new CartBatchResult(added, updated, removed);
+    }
+
+    /**
+     * Writes every line changed since the last flush to the table, then checkpoints the log.
+     * A failed flush leaves the lines dirty and the log intact; the next run retries them.
+     */
+    @Scheduled(fixedDelayString = "${cart.store.write-behind.flush-interval-ms:1000}")
+    public synchronized void flush() {
+        if (!dirty.isEmpty()) {
+            Map<String, Cart> changes = new HashMap<>();
+            long position;
+            snapshotLock.writeLock().lock();
+            try {
+                position = cartLog.position();
+                for (String cartId : dirty)
+                    changes.put(cartId, current(cartId));
+                dirty.clear();
+            } finally {
+                snapshotLock.writeLock().unlock();
+            }
+
+            long start = System.currentTimeMillis();
+            try {
+                write(changes);
+                cartLog.checkpoint(position);
+            } catch (RuntimeException | IOException e) {
+                dirty.addAll(changes.keySet());
+                failedFlushes.increment();
+                log.warn("Cart flush of {} lines failed, retrying on the next run", changes.size(), e);
+                return;
+            }
+            lastFlushMillis = System.currentTimeMillis() - start;
+            flushes.increment();
+            rowsWritten.add(changes.size());
+            forgetDeleted(changes);
+        }
+        evictIdle();
+    }
+
+    @PreDestroy
+    public void close() {
+        try {
+            flush();
+        } finally {
+            cartLog.close();
+        }
+    }
+
+    public Map<String, Object> stats() {
+        long users = 0;
+        for (Shard shard : shards) {
+            shard.lock.lock();
+            try {
+                users += shard.users.size();
+            } finally {
+                shard.lock.unlock();
+            }
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("users", users);
+        result.put("lines", owners.size());
+        result.put("dirtyLines", dirty.size());
+        result.put("writes", writes.sum());
+        result.put("logSyncs", cartLog.syncs());
+        result.put("logPendingBytes", cartLog.pendingBytes());
+        result.put("flushes", flushes.sum());
+        result.put("failedFlushes", failedFlushes.sum());
+        result.put("rowsWritten", rowsWritten.sum());
+        result.put("lastFlushMs", lastFlushMillis);
+        return result;
+    }
+
+    private Write add(Cart cart) {
+        String cartId = cart.getCartId() != null ? cart.getCartId() : Ids.next();
+        return mutate(cartId, current -> {
+            if (current != null)
+                throw new RuntimeException("Cart with ID " + cartId + " already exists.");
+            Cart line = copy(cart);
+            line.setCartId(cartId);
+            return line;
+        });
+    }
+
+    private Cart durable(Write write) {
+        if (syncWrites && write.position() >= 0)
+            cartLog.awaitDurable(write.position());
+        return write.line();
+    }
+
+    /**
+     * Applies {@code change} to the line's current state (a copy, null when there is no line)
+     * and makes the result, null for a delete, the new state. The change runs outside any lock
+     * and is re-run if another write got in first. The write is in the log but not yet durable.
+     */
+    private Write mutate(String cartId, UnaryOperator<Cart> change) {
+        while (true) {
+            String from = owner(cartId);
+            Cart current = from == null ? null : stored(from, cartId);
+            Cart next = change.apply(current == null ? null : copy(current));
+            if (current == null && next == null)
+                return new Write(null, -1);
+            if (next != null) {
+                next.setCartId(cartId);
+                next.setVersion(current == null ? 0 : current.getVersion() + 1);
+                // created_at is never updated by the flush, so filling in a missing one only affects the log
+                next.setCreatedAt(current == null || current.getCreatedAt() == null
+                        ? new Timestamp(System.currentTimeMillis()) : current.getCreatedAt());
+                load(next.getUserId());
+            }
+            long position = commit(cartId, from, current, next);
+            if (position < 0)
+                continue;
+            writes.increment();
+            return new Write(next == null ? null : copy(next), position);
+        }
+    }
+
+    // Returns the log position of the write, or -1 when the line or its users changed since they were read
+    private long commit(String cartId, String from, Cart current, Cart next) {
+        String to = next == null ? from : next.getUserId();
+        Shard source = from == null ? null : shard(from);
+        Shard target = shard(to);
+        Shard first = source == null || source.index >= target.index ? target : source;
+        Shard second = first == target ? source : target;
+        if (second == first)
+            second = null;
+
+        snapshotLock.readLock().lock();
+        first.lock.lock();
+        if (second != null)
+            second.lock.lock();
+        try {
+            if (!Objects.equals(from, owners.get(cartId)))
+                return -1;
+            UserLines sourceUser = from == null ? null : source.users.get(from);
+            UserLines targetUser = target.users.get(to);
+            Cart stored = sourceUser == null ? null : sourceUser.lines.get(cartId);
+            if (stored != current || (next != null && targetUser == null))
+                return -1;
+
+            long position = cartLog.append(encode(cartId, next));
+            if (sourceUser != null) {
+                sourceUser.lines.remove(cartId);
+                sourceUser.touch();
+            }
+            // A delete leaves the owner entry behind as a tombstone until it is flushed
+            if (next != null) {
+                targetUser.lines.put(cartId, next);
+                targetUser.touch();
+                owners.put(cartId, to);
+            }
+            dirty.add(cartId);
+            return position;
+        } finally {
+            if (second != null)
+                second.lock.unlock();
+            first.lock.unlock();
+            snapshotLock.readLock().unlock();
+        }
+    }
+
+    // The user the line belongs to in memory, loading its user from the table if needed
+    private String owner(String cartId) {
+        String userId = owners.get(cartId);
+        if (userId != null)
+            return userId;
+        userId = cartRepository.findById(cartId).map(Cart::getUserId).orElse(null);
+        if (userId == null)
+            return null;
+        load(userId);
+        return owners.get(cartId);
+    }
+
+    private Cart stored(String userId, String cartId) {
+        Shard shard = shard(userId);
+        shard.lock.lock();
+        try {
+            UserLines user = shard.users.get(userId);
+            return user == null ? null : user.lines.get(cartId);
+        } finally {
+            shard.lock.unlock();
+        }
+    }
+
+    // The state to write for a dirty line; null when it was deleted
+    private Cart current(String cartId) {
+        String userId = owners.get(cartId);
+        Cart line = userId == null ? null : stored(userId, cartId);
+        return line == null ? null : copy(line);
+    }
+
+    private void load(String userId) {
+        Shard shard = shard(userId);
+        shard.lock.lock();
+        try {
+            if (shard.users.containsKey(userId))
+                return;
+        } finally {
+            shard.lock.unlock();
+        }
+
+        List<Cart> stored = cartRepository.findByUserId(userId);
+        shard.lock.lock();
+        try {
+            if (shard.users.containsKey(userId))
+                return;
+            UserLines user = new UserLines();
+            for (Cart line : stored) {
+                // Lines already tracked were moved or deleted in memory; the table is behind on them
+                if (owners.putIfAbsent(line.getCartId(), userId) == null)
+                    user.lines.put(line.getCartId(), line);
+            }
+            user.touch();
+            shard.users.put(userId, user);
+        } finally {
+            shard.lock.unlock();
+        }
+    }
+
+    private void write(Map<String, Cart> changes) {
+        List<Cart> upserts = new ArrayList<>();
+        List<String> deletes = new ArrayList<>();
+        changes.forEach((cartId, line) -> {
+            if (line == null)
+                deletes.add(cartId);
+            else
+                upserts.add(line);
+        });
+        for (int from = 0; from < upserts.size(); from += batchSize) {
+            List<Cart> batch = upserts.subList(from, Math.min(from + batchSize, upserts.size()));
+            transactionTemplate.executeWithoutResult(status ->
+                    jdbcTemplate.batchUpdate(UPSERT_SQL, batch, batch.size(), (ps, line) -> {
+                        ps.setString(1, line.getCartId());
+                        ps.setString(2, line.getUserId());
+                        ps.setString(3, line.getProductId());
+                        ps.setInt(4, line.getQuantity());
+                        ps.setTimestamp(5, line.getCreatedAt());
+                        ps.setLong(6, line.getVersion());
+                    }));
+        }
+        for (int from = 0; from < deletes.size(); from += batchSize) {
+            List<String> batch = deletes.subList(from, Math.min(from + batchSize, deletes.size()));
+            transactionTemplate.executeWithoutResult(status ->
+                    jdbcTemplate.batchUpdate(DELETE_SQL, batch, batch.size(), (ps, cartId) -> ps.setString(1, cartId)));
+        }
+    }
+
+    // Drops the tombstones of flushed deletes that nothing has written to since
+    private void forgetDeleted(Map<String, Cart> changes) {
+        changes.forEach((cartId, line) -> {
+            if (line != null)
+                return;
+            String userId = owners.get(cartId);
+            if (userId == null)
+                return;
+            Shard shard = shard(userId);
+            shard.lock.lock();
+            try {
+                UserLines user = shard.users.get(userId);
+                if (!dirty.contains(cartId) && (user == null || !user.lines.containsKey(cartId)))
+                    owners.remove(cartId, userId);
+            } finally {
+                shard.lock.unlock();
+            }
+        });
+    }
+
+    private void evictIdle() {
+        long idleSince = System.currentTimeMillis() - idleMillis;
+        for (Shard shard : shards) {
+            shard.lock.lock();
+            try {
+                shard.users.entrySet().removeIf(entry -> {
+                    UserLines user = entry.getValue();
+                    if (user.lastAccess > idleSince || user.lines.keySet().stream().anyMatch(dirty::contains))
+                        return false;
+                    user.lines.keySet().forEach(cartId -> owners.remove(cartId, entry.getKey()));
+                    return true;
+                });
+            } finally {
+                shard.lock.unlock();
+            }
+        }
+    }
+
+    // Folds the log into the last state of each line and writes that to the table
+    private void recover(Path dir) throws IOException {
+        Map<String, Cart> latest = new HashMap<>();
+        long records = CartLog.replay(dir, payload -> {
+            try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+                byte type = in.readByte();
+                String cartId = in.readUTF();
+                latest.put(cartId, type == DELETE ? null : Cart.builder()
+                        .cartId(cartId)
+                        .userId(in.readUTF())
+                        .productId(in.readUTF())
+                        .quantity(in.readInt())
+                        .createdAt(new Timestamp(in.readLong()))
+                        .version(in.readLong())
+                        .build());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        if (records == 0)
+            return;
+        write(latest);
+        log.info("Recovered {} cart lines from {} log records", latest.size(), records);
+    }
+
+    private static byte[] encode(String cartId, Cart line) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(line == null ? DELETE : UPSERT);
+            out.writeUTF(cartId);
+            if (line != null) {
+                out.writeUTF(line.getUserId());
+                out.writeUTF(line.getProductId());
+                out.writeInt(line.getQuantity());
+                out.writeLong(line.getCreatedAt().getTime());
+                out.writeLong(line.getVersion());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Cart copy(Cart line) {
+        return Cart.builder()
+                .cartId(line.getCartId())
+                .userId(line.getUserId())
+                .productId(line.getProductId())
+                .quantity(line.getQuantity())
+                .createdAt(line.getCreatedAt())
+                .version(line.getVersion())
+                .build();
+    }
+
+    private Shard shard(String userId) {
+        return shards[Math.floorMod(userId.hashCode(), shards.length)];
+    }
+
+    // A line's state after a change and the log position to wait for; -1 when nothing was written
+    private record Write(Cart line, long position) {
+    }
+
+    private static final class Shard {
+        final int index;
+        final ReentrantLock lock = new ReentrantLock();
+        final Map<String, UserLines> users = new HashMap<>();
+
+        Shard(int index) {
+            this.index = index;
+        }
+    }
+
+    private static final class UserLines {
+        final Map<String, Cart> lines = new HashMap<>();
+        long lastAccess;
+
+        void touch() {
+            lastAccess = System.currentTimeMillis();
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.ecommerce.cart.controller;
+
+import com.ecommerce.cart.entity.Cart;
+import com.ecommerce.cart.repository.CartRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:cartbatch;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@AutoConfigureMockMvc
+class CartBatchTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private String userId;
+
+    @BeforeEach
+    void newUser() {
+        userId = UUID.randomUUID().toString();
+    }
+
+    @Test
+    void writesAllLinesWithBatchedStatements() throws Exception {
+        Cart kept = cartRepository.saveAndFlush(line("p1", 1));
+        Cart dropped = cartRepository.saveAndFlush(line("p2", 1));
+        List<Cart> added = new ArrayList<>();
+        for (int i = 0; i < 50; i++)
+            added.add(line("p" + i, 1));
+        kept.setQuantity(5);
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        batch(Map.of("add", added, "update", List.of(kept), "remove", List.of(dropped.getCartId())))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.added.length()").value(50))
+                .andExpect(jsonPath("$.updated[0].quantity").value(5))
+                .andExpect(jsonPath("$.updated[0].version").value(1))
+                .andExpect(jsonPath("$.removed").value(1));
+
+        assertEquals(50, statistics.getEntityInsertCount());
+        // Existence check, load of the updated line, delete, one insert batch and one update batch
+        assertEquals(5, statistics.getPrepareStatementCount());
+        assertEquals(51, cartRepository.findByUserId(userId).size());
+    }
+
+    @Test
+    void invalidLineRejectsTheWholeBatch() throws Exception {
+        batch(Map.of("add", List.of(line("p1", 1), line("p2", 0))))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$['add[1].quantity']").value("Quantity must be at least 1"));
+
+        assertTrue(cartRepository.findByUserId(userId).isEmpty());
+    }
+
+    @Test
+    void unknownUpdateWritesNothing() throws Exception {
+        batch(Map.of("add", List.of(line("p1", 1)), "update", List.of(line("p2", 1))))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").exists());
+
+        assertTrue(cartRepository.findByUserId(userId).isEmpty());
+    }
+
+    @Test
+    void cartIdMayAppearOnlyOnce() throws Exception {
+        Cart line = line("p1", 1);
+
+        batch(Map.of("add", List.of(line), "remove", List.of(line.getCartId())))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Cart ID " + line.getCartId() + " appears more than once in the batch"));
+    }
+
+    private ResultActions batch(Map<String, ?> body) throws Exception {
+        return mockMvc.perform(post("/carts/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(body)));
+    }
+
+    private Cart line(String productId, int quantity) {
+        return Cart.builder()
+                .cartId(UUID.randomUUID().toString())
+                .userId(userId)
+                .productId(productId)
+                .quantity(quantity)
+                .build();
+    }
+}
@@ -0,0 +1,109 @@
+package com.ecommerce.cart.controller;
+
+import com.ecommerce.cart.entity.Cart;
+import com.ecommerce.cart.repository.CartRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * The cart view joins the product service's table, which this module does not map;
+ * the test creates the columns the query reads.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:cartview;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+@AutoConfigureMockMvc
+class CartViewTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private String userId;
+
+    @BeforeEach
+    void createProducts() {
+        jdbcTemplate.execute("create table if not exists product (product_id varchar(50) primary key, " +
+                "product_name varchar(255), discounted_price decimal(10, 2), version bigint not null default 0)");
+        jdbcTemplate.update("merge into product key (product_id) values ('p1', 'Mug', 4.50, 0), ('p2', 'Lamp', 20.00, 0)");
+        userId = UUID.randomUUID().toString();
+    }
+
+    @Test
+    void listsEveryLineWithTotals() throws Exception {
+        line("p1", 2);
+        line("p2", 1);
+        line("gone", 3); // Product deleted since it was added
+
+        mockMvc.perform(get("/carts/userId/{userId}", userId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.lineCount").value(3))
+                .andExpect(jsonPath("$.totalQuantity").value(6))
+                .andExpect(jsonPath("$.total").value(29.00))
+                .andExpect(jsonPath("$.lines[0].productName").value("Mug"))
+                .andExpect(jsonPath("$.lines[0].lineTotal").value(9.00))
+                .andExpect(jsonPath("$.lines[2].unitPrice").doesNotExist());
+    }
+
+    @Test
+    void emptyCartHasNoLines() throws Exception {
+        mockMvc.perform(get("/carts/userId/{userId}", userId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.lines").isEmpty())
+                .andExpect(jsonPath("$.total").value(0));
+    }
+
+    @Test
+    void tagChangesWithLinesAndPrices() throws Exception {
+        Cart mug = line("p1", 2);
+        String eTag = eTag();
+
+        mockMvc.perform(get("/carts/userId/{userId}", userId).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        mug.setQuantity(3);
+        cartRepository.saveAndFlush(mug);
+        String updated = eTag();
+        assertNotEquals(eTag, updated);
+
+        jdbcTemplate.update("update product set discounted_price = 4.00, version = version + 1 where product_id = 'p1'");
+        assertNotEquals(updated, eTag());
+    }
+
+    private Cart line(String productId, int quantity) {
+        return cartRepository.saveAndFlush(Cart.builder()
+                .cartId(UUID.randomUUID().toString())
+                .userId(userId)
+                .productId(productId)
+                .quantity(quantity)
+                .build());
+    }
+
+    private String eTag() throws Exception {
+        return mockMvc.perform(get("/carts/userId/{userId}", userId))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    }
+}
@@ -0,0 +1,99 @@
+package com.ecommerce.cart.expiry;
+
+import com.ecommerce.cart.store.WriteBehindCartStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The scheduled sweep is disabled; tests call it with an explicit cutoff.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:cartexpiry;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "cart.expiry.enabled=false",
+        "cart.expiry.chunk-size=10",
+        "cart.expiry.chunk-pause-ms=0",
+        "cart.expiry.max-rows-per-run=20"
+})
+class CartExpirySweeperTest {
+
+    private static final long DAY = Duration.ofDays(1).toMillis();
+
+    @Autowired
+    private CartExpirySweeper sweeper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectProvider<WriteBehindCartStore> cartStore;
+
+    private final long now = System.currentTimeMillis();
+
+    @BeforeEach
+    void emptyCarts() {
+        jdbcTemplate.update("delete from cart");
+        jdbcTemplate.update("delete from cart_archive");
+    }
+
+    @Test
+    void sweepsInChunksUpToTheRunLimitAndReportsLag() {
+        for (int i = 0; i < 25; i++)
+            line(new Timestamp(now - (40 + i) * DAY));
+        line(new Timestamp(now - DAY));
+        Timestamp cutoff = new Timestamp(now - 30 * DAY);
+
+        assertEquals(20, sweeper.sweep(cutoff));
+        // The 5 newest expired lines are left, the oldest of them 14 days past the cutoff
+        assertEquals(14 * 86400, (long) sweeper.stats().get("lagSeconds"), 1);
+
+        assertEquals(5, sweeper.sweep(cutoff));
+        assertEquals(0L, sweeper.stats().get("lagSeconds"));
+        assertEquals(1, count("cart"));
+        assertEquals(0, sweeper.sweep(cutoff));
+    }
+
+    @Test
+    void archiveModeMovesLinesToCartArchive() {
+        CartExpirySweeper archiving = new CartExpirySweeper(dataSource, transactionTemplate, cartStore,
+                true, Duration.ofDays(30), true, 10, 50, 0, 100, 5);
+        for (int i = 0; i < 3; i++)
+            line(new Timestamp(now - 40 * DAY));
+        line(new Timestamp(now));
+
+        assertEquals(3, archiving.sweep(new Timestamp(now - 30 * DAY)));
+
+        assertEquals(1, count("cart"));
+        assertEquals(3, count("cart_archive"));
+    }
+
+    private void line(Timestamp createdAt) {
+        jdbcTemplate.update("insert into cart (cart_id, user_id, product_id, quantity, created_at, version) values (?, ?, ?, ?, ?, 0)",
+                UUID.randomUUID().toString(), "u1", "p1", 1, createdAt);
+    }
+
+    private long count(String table) {
+        return jdbcTemplate.queryForObject("select count(*) from " + table, Long.class);
+    }
+}
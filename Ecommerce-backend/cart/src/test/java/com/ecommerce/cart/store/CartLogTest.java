@@ -0,0 +1,91 @@
+package com.ecommerce.cart.store;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CartLogTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void replaysRecordsAcrossSegmentsInOrder() throws IOException {
+        try (CartLog log = CartLog.open(dir, 64, 1)) {
+            for (int i = 0; i < 10; i++)
+                log.awaitDurable(log.append(("record-" + i).getBytes(StandardCharsets.UTF_8)));
+        }
+
+        assertTrue(segmentCount() > 1);
+        assertEquals(List.of("record-0", "record-1", "record-2", "record-3", "record-4",
+                "record-5", "record-6", "record-7", "record-8", "record-9"), replay());
+    }
+
+    @Test
+    void replayStopsAtTornRecord() throws IOException {
+        try (CartLog log = CartLog.open(dir, 1024, 1)) {
+            log.append("first".getBytes(StandardCharsets.UTF_8));
+            log.append("second".getBytes(StandardCharsets.UTF_8));
+            log.awaitDurable(log.append("third".getBytes(StandardCharsets.UTF_8)));
+        }
+        Path segment = segments().get(0);
+        byte[] bytes = Files.readAllBytes(segment);
+        bytes[8 + 5 + 8] ^= 1; // First payload byte of the second record
+        Files.write(segment, bytes);
+
+        assertEquals(List.of("first"), replay());
+    }
+
+    @Test
+    void checkpointDeletesSegmentsBeforeIt() throws IOException {
+        try (CartLog log = CartLog.open(dir, 64, 1)) {
+            long position = 0;
+            for (int i = 0; i < 10; i++)
+                position = log.append(("record-" + i).getBytes(StandardCharsets.UTF_8));
+            log.awaitDurable(position);
+            log.append("after".getBytes(StandardCharsets.UTF_8));
+
+            log.checkpoint(position);
+
+            assertEquals(1, segmentCount());
+            assertTrue(log.pendingBytes() > 0);
+        }
+    }
+
+    @Test
+    void openingStartsAfterReplayedSegments() throws IOException {
+        try (CartLog log = CartLog.open(dir, 64, 1)) {
+            log.awaitDurable(log.append("old".getBytes(StandardCharsets.UTF_8)));
+        }
+        try (CartLog log = CartLog.open(dir, 64, 1)) {
+            log.awaitDurable(log.append("new".getBytes(StandardCharsets.UTF_8)));
+        }
+
+        assertEquals(List.of("new"), replay());
+    }
+
+    private List<String> replay() throws IOException {
+        List<String> records = new ArrayList<>();
+        CartLog.replay(dir, payload -> records.add(new String(payload, StandardCharsets.UTF_8)));
+        return records;
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.sorted().toList();
+        }
+    }
+
+    private long segmentCount() throws IOException {
+        return segments().size();
+    }
+}
@@ -0,0 +1,153 @@
+package com.ecommerce.cart.store;
+
+import com.ecommerce.cart.entity.Cart;
+import com.ecommerce.cart.repository.CartRepository;
+import jakarta.validation.ConstraintViolationException;
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * The scheduled flush is pushed out of the way; tests flush explicitly.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:cartstore;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "cart.store.write-behind.enabled=true",
+        "cart.store.write-behind.log-dir=target/cart-log-test",
+        "cart.store.write-behind.flush-interval-ms=3600000"
+})
+@AutoConfigureMockMvc
+class WriteBehindCartStoreTest {
+
+    @Autowired
+    private WriteBehindCartStore cartStore;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    private String userId;
+
+    @BeforeEach
+    void createProducts() {
+        jdbcTemplate.execute("create table if not exists product (product_id varchar(50) primary key, " +
+                "product_name varchar(255), discounted_price decimal(10, 2), version bigint not null default 0)");
+        jdbcTemplate.update("merge into product key (product_id) values ('p1', 'Mug', 4.50, 0)");
+        userId = UUID.randomUUID().toString();
+    }
+
+    @Test
+    void changesReachTableAsOneRowPerLineOnFlush() {
+        cartStore.flush(); // Lines other tests left dirty
+        Cart line = cartStore.create(line("p1", 1));
+        cartStore.patch(line.getCartId(), Map.of("quantity", 2), null);
+        cartStore.patch(line.getCartId(), Map.of("quantity", 3), null);
+
+        assertTrue(cartRepository.findById(line.getCartId()).isEmpty());
+        assertEquals(3, cartStore.find(line.getCartId()).getQuantity());
+
+        long rowsBefore = (long) cartStore.stats().get("rowsWritten");
+        cartStore.flush();
+
+        Cart stored = cartRepository.findById(line.getCartId()).orElseThrow();
+        assertEquals(3, stored.getQuantity());
+        assertEquals(2, stored.getVersion());
+        assertEquals(1, (long) cartStore.stats().get("rowsWritten") - rowsBefore);
+    }
+
+    @Test
+    void deleteIsFlushedAndLineStaysGone() {
+        Cart line = cartStore.create(line("p1", 1));
+        cartStore.flush();
+
+        cartStore.delete(line.getCartId());
+        assertNull(cartStore.find(line.getCartId()));
+        cartStore.flush();
+
+        assertTrue(cartRepository.findById(line.getCartId()).isEmpty());
+        assertNull(cartStore.find(line.getCartId()));
+    }
+
+    @Test
+    void cartViewIsServedFromMemory() throws Exception {
+        cartStore.create(line("p1", 2));
+
+        mockMvc.perform(get("/carts/userId/{userId}", userId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.lineCount").value(1))
+                .andExpect(jsonPath("$.lines[0].productName").value("Mug"))
+                .andExpect(jsonPath("$.total").value(9.00));
+    }
+
+    @Test
+    void invalidPatchIsRejectedBeforeTheLog() {
+        Cart line = cartStore.create(line("p1", 1));
+
+        assertThrows(ConstraintViolationException.class,
+                () -> cartStore.patch(line.getCartId(), Map.of("quantity", 0), null));
+        assertEquals(1, cartStore.find(line.getCartId()).getQuantity());
+    }
+
+    @Test
+    void unflushedWritesAreRecoveredFromTheLog(@TempDir Path logDir) throws IOException {
+        // Never flushed or closed, as if the process died
+        WriteBehindCartStore crashed = store(logDir);
+        Cart kept = crashed.create(line("p1", 1));
+        crashed.patch(kept.getCartId(), Map.of("quantity", 4), null);
+        Cart dropped = crashed.create(line("p1", 1));
+        crashed.delete(dropped.getCartId());
+
+        WriteBehindCartStore restarted = store(logDir);
+
+        assertEquals(4, cartRepository.findById(kept.getCartId()).orElseThrow().getQuantity());
+        assertTrue(cartRepository.findById(dropped.getCartId()).isEmpty());
+        assertEquals(0L, restarted.stats().get("logPendingBytes"));
+        restarted.close();
+    }
+
+    private WriteBehindCartStore store(Path logDir) throws IOException {
+        return new WriteBehindCartStore(cartRepository, jdbcTemplate, transactionTemplate, validator,
+                4, logDir.toString(), 1 << 16, 1, true, 100, 600000);
+    }
+
+    private Cart line(String productId, int quantity) {
+        return Cart.builder()
+                .cartId(UUID.randomUUID().toString())
+                .userId(userId)
+                .productId(productId)
+                .quantity(quantity)
+                .build();
+    }
+}
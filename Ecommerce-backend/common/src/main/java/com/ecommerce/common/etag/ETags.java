@@ -0,0 +1,85 @@
+package com.ecommerce.common.etag;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Strong entity tags built from an entity's id and its {@code @Version} column. The id is part
+ * of the tag so a resource addressed by something other than its id (a user's cart) changes tag
+ * when it resolves to a different row, even if both rows happen to be on the same version.
+ * <p>
+ * Ids are percent-encoded where they hold anything an entity tag cannot, or a comma, so every
+ * tag is a valid header value and a list of them can be split on commas. Plain ids are kept as
+ * they are, and so are the tags clients already hold for them.
+ */
+public final class ETags {
+
+    private ETags() {
+    }
+
+    public static String of(String id, long version) {
+        return of(id, Long.toString(version));
+    }
+
+    // For representations assembled from several rows, where the revision is a digest of their versions
+    public static String of(String id, String revision) {
+        return "\"" + encode(id) + ":" + revision + "\"";
+    }
+
+    // Tag characters are visible ASCII other than the double quote (RFC 9110, section 8.8.3)
+    private static String encode(String id) {
+        if (id.chars().allMatch(ETags::isPlain))
+            return id;
+        StringBuilder encoded = new StringBuilder();
+        for (byte b : id.getBytes(StandardCharsets.UTF_8)) {
+            if (isPlain(b))
+                encoded.append((char) b);
+            else
+                encoded.append('%').append(Character.toUpperCase(Character.forDigit((b >> 4) & 0xF, 16)))
+                        .append(Character.toUpperCase(Character.forDigit(b & 0xF, 16)));
+        }
+        return encoded.toString();
+    }
+
+    private static boolean isPlain(int c) {
+        return c > ' ' && c < 0x7F && c != '"' && c != ',' && c != '%';
+    }
+
+    /**
+     * Whether an If-None-Match header lists {@code eTag} (or is {@code *}). Uses weak comparison,
+     * as If-None-Match does, so a {@code W/} prefix added by a proxy still matches.
+     */
+    public static boolean matchesIfNoneMatch(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null || eTag == null)
+            return false;
+        for (String tag : ifNoneMatch.split(",")) {
+            String trimmed = tag.trim();
+            if (trimmed.startsWith("W/"))
+                trimmed = trimmed.substring(2);
+            if (trimmed.equals("*") || trimmed.equals(eTag))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Enforces an If-Match header against the current state of an entity, {@code version} being
+     * null when it does not exist. Passes when the header is absent, or when the entity exists and
+     * the header is {@code *} or lists its current tag. Weak tags never match, as If-Match uses
+     * strong comparison.
+     *
+     * @throws PreconditionFailedException when the header is present and does not match
+     */
+    public static void checkIfMatch(String ifMatch, String id, Long version) {
+        if (ifMatch == null || ifMatch.isBlank())
+            return;
+        if (version != null) {
+            String current = of(id, version);
+            for (String tag : ifMatch.split(",")) {
+                String trimmed = tag.trim();
+                if (trimmed.equals("*") || trimmed.equals(current))
+                    return;
+            }
+        }
+        throw new PreconditionFailedException("If-Match " + ifMatch + " does not match the current version of " + id);
+    }
+}
@@ -0,0 +1,239 @@
+package com.ecommerce.common.export;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams the rows of a query into a response as CSV or NDJSON, optionally gzip-compressed, in
+ * constant memory. The query runs on a forward-only, read-only cursor; on MySQL the fetch size is
+ * Integer.MIN_VALUE, which makes Connector/J hand over rows one at a time as they arrive instead
+ * of reading the whole result first. Each row is written straight to a fixed-size buffer in front
+ * of the response, so heap use is one row plus the buffers, however many rows are exported.
+ * <p>
+ * The connection stays checked out for as long as the client takes to read, and rows the
+ * client has not taken yet back up into the server. A query that fails halfway aborts the
+ * response without its final chunk, so the client sees a broken transfer rather than a short
+ * file.
+ */
+public class JdbcExport {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public JdbcExport(DataSource dataSource, int fetchSize) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(streamingFetchSize(dataSource, fetchSize));
+    }
+
+    /**
+     * The fetch size that streams a forward-only result: Integer.MIN_VALUE on MySQL, fetchSize
+     * rows per round trip elsewhere.
+     */
+    public static int streamingFetchSize(DataSource dataSource, int fetchSize) {
+        return isMySql(dataSource) ? Integer.MIN_VALUE : fetchSize;
+    }
+
+    /**
+     * A response that runs sql with args and writes every row, the columns named by fields in
+     * select-list order.
+     */
+    public ResponseEntity<StreamingResponseBody> response(String name, ExportFormat format, boolean gzip,
+                                                          List<String> fields, String sql, Object... args) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(format.mediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(name + "." + format.extension()).build().toString());
+        if (gzip)
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        return response.body(out -> write(out, format, gzip, fields, sql, args));
+    }
+
+    void write(OutputStream out, ExportFormat format, boolean gzip, List<String> fields, String sql, Object... args)
+            throws IOException {
+        GZIPOutputStream compressed = gzip ? new GZIPOutputStream(out, BUFFER_SIZE) : null;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(gzip ? compressed : out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        ResultSetExtractor<Void> export = rs -> {
+            try {
+                RowWriter rows = format == ExportFormat.CSV ? new CsvRowWriter(writer, fields) : new NdjsonRowWriter(writer, fields);
+                int[] types = columnTypes(rs.getMetaData(), fields.size());
+                while (rs.next())
+                    rows.write(rs, types);
+                rows.finish();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return null;
+        };
+        try {
+            jdbcTemplate.query(sql, export, args);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } catch (RuntimeException e) {
+            throw new IOException("Export failed", e);
+        }
+        writer.flush();
+        if (compressed != null)
+            compressed.finish();
+    }
+
+    private static int[] columnTypes(ResultSetMetaData metaData, int columns) throws SQLException {
+        if (metaData.getColumnCount() != columns)
+            throw new IllegalArgumentException("Query returns " + metaData.getColumnCount() + " columns for " + columns + " fields");
+        int[] types = new int[columns];
+        for (int i = 0; i < columns; i++)
+            types[i] = metaData.getColumnType(i + 1);
+        return types;
+    }
+
+    // Timestamps as ISO-8601 instants, numbers in plain notation, everything else as text
+    private static String text(ResultSet rs, int column, int type) throws SQLException {
+        return switch (type) {
+            case Types.TIMESTAMP, Types.TIMESTAMP_WITH_TIMEZONE -> {
+                Timestamp value = rs.getTimestamp(column);
+                yield value == null ? null : value.toInstant().toString();
+            }
+            case Types.DECIMAL, Types.NUMERIC -> {
+                BigDecimal value = rs.getBigDecimal(column);
+                yield value == null ? null : value.toPlainString();
+            }
+            default -> rs.getString(column);
+        };
+    }
+
+    private static boolean isNumber(int type) {
+        return switch (type) {
+            case Types.DECIMAL, Types.NUMERIC, Types.TINYINT, Types.SMALLINT, Types.INTEGER, Types.BIGINT,
+                 Types.REAL, Types.FLOAT, Types.DOUBLE -> true;
+            default -> false;
+        };
+    }
+
+    private static boolean isMySql(DataSource dataSource) {
+        try {
+            String product = JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName);
+            return "MySQL".equalsIgnoreCase(product);
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private interface RowWriter {
+        void write(ResultSet rs, int[] types) throws SQLException, IOException;
+
+        void finish() throws IOException;
+    }
+
+    private static final class CsvRowWriter implements RowWriter {
+
+        private final Writer writer;
+
+        CsvRowWriter(Writer writer, List<String> fields) throws IOException {
+            this.writer = writer;
+            for (int i = 0; i < fields.size(); i++) {
+                if (i > 0)
+                    writer.write(',');
+                writeField(fields.get(i));
+            }
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void write(ResultSet rs, int[] types) throws SQLException, IOException {
+            for (int i = 0; i < types.length; i++) {
+                if (i > 0)
+                    writer.write(',');
+                String value = text(rs, i + 1, types[i]);
+                if (value != null)
+                    writeField(value);
+            }
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void finish() {
+        }
+
+        // RFC 4180: quoted only when it has to be, with embedded quotes doubled
+        private void writeField(String value) throws IOException {
+            boolean quote = false;
+            for (int i = 0; i < value.length() && !quote; i++) {
+                char c = value.charAt(i);
+                quote = c == ',' || c == '"' || c == '\r' || c == '\n';
+            }
+            if (!quote) {
+                writer.write(value);
+                return;
+            }
+            writer.write('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"')
+                    writer.write('"');
+                writer.write(c);
+            }
+            writer.write('"');
+        }
+    }
+
+    private static final class NdjsonRowWriter implements RowWriter {
+
+        private final JsonGenerator generator;
+        private final List<String> fields;
+
+        NdjsonRowWriter(Writer writer, List<String> fields) throws IOException {
+            this.generator = JSON.createGenerator(writer);
+            this.generator.setRootValueSeparator(null);
+            this.generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            this.fields = fields;
+        }
+
+        @Override
+        public void write(ResultSet rs, int[] types) throws SQLException, IOException {
+            generator.writeStartObject();
+            for (int i = 0; i < types.length; i++) {
+                generator.writeFieldName(fields.get(i));
+                String value = text(rs, i + 1, types[i]);
+                if (value == null)
+                    generator.writeNull();
+                else if (isNumber(types[i]))
+                    generator.writeNumber(value);
+                else
+                    generator.writeString(value);
+            }
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        }
+
+        @Override
+        public void finish() throws IOException {
+            generator.flush();
+        }
+    }
+}
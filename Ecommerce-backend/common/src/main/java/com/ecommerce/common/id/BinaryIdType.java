@@ -0,0 +1,82 @@
+package com.ecommerce.common.id;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.usertype.UserType;
+
+import java.io.Serializable;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Objects;
+
+/**
+ * Stores an id from {@link Ids} in a BINARY(16) column instead of its 36 character text form,
+ * less than half the size in the primary key and in every secondary index that carries it. The
+ * entity keeps its String field, so JSON and repository signatures are unchanged. A user type
+ * rather than an AttributeConverter, which Hibernate ignores on an {@code @Id}. Opt in per
+ * column, together with migrating the column and the columns referencing it:
+ * <pre>
+ * &#64;Id
+ * &#64;Type(BinaryIdType.class)
+ * &#64;Column(columnDefinition = "BINARY(16)")
+ * private String orderId;
+ * </pre>
+ * Native queries then bind ids with {@link Ids#toBytes}, or {@code UUID_TO_BIN(?)} in MySQL.
+ */
+public class BinaryIdType implements UserType<String> {
+
+    @Override
+    public int getSqlType() {
+        return Types.BINARY;
+    }
+
+    @Override
+    public Class<String> returnedClass() {
+        return String.class;
+    }
+
+    @Override
+    public boolean equals(String x, String y) {
+        return Objects.equals(x, y);
+    }
+
+    @Override
+    public int hashCode(String id) {
+        return Objects.hashCode(id);
+    }
+
+    @Override
+    public String nullSafeGet(ResultSet rs, int position, SharedSessionContractImplementor session, Object owner) throws SQLException {
+        byte[] bytes = rs.getBytes(position);
+        return bytes == null ? null : Ids.fromBytes(bytes);
+    }
+
+    @Override
+    public void nullSafeSet(PreparedStatement st, String id, int index, SharedSessionContractImplementor session) throws SQLException {
+        if (id == null)
+            st.setNull(index, Types.BINARY);
+        else
+            st.setBytes(index, Ids.toBytes(id));
+    }
+
+    @Override
+    public String deepCopy(String id) {
+        return id;
+    }
+
+    @Override
+    public boolean isMutable() {
+        return false;
+    }
+
+    @Override
+    public Serializable disassemble(String id) {
+        return id;
+    }
+
+    @Override
+    public String assemble(Serializable cached, Object owner) {
+        return (String) cached;
+    }
+}
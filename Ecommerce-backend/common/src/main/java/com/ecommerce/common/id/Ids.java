@@ -0,0 +1,76 @@
+package com.ecommerce.common.id;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Primary keys for every entity: version 7 UUIDs (RFC 9562), which start with the creation time
+ * in milliseconds. New rows land at the right-hand edge of the primary key index instead of on a
+ * random page, so InnoDB appends to a few hot pages rather than splitting pages all over the
+ * clustered index. The canonical string form still fits the VARCHAR(50) key columns and sorts,
+ * as text, in creation order.
+ * <p>
+ * Within a process the ids are strictly increasing. The 12 bits after the timestamp count ids
+ * issued in the same millisecond; when they run out, or the clock steps back, the generator keeps
+ * counting from the last id it issued, so its timestamp runs slightly ahead until the clock
+ * catches up. The remaining 62 bits are random, so instances never need to coordinate.
+ */
+public final class Ids {
+
+    private static final long VERSION = 0x7000L;
+    private static final long VARIANT = 0x8000_0000_0000_0000L;
+    private static final long RANDOM_MASK = 0x3FFF_FFFF_FFFF_FFFFL;
+
+    // Unix millis << 12 | counter, of the last id issued
+    private static final AtomicLong last = new AtomicLong();
+
+    private Ids() {
+    }
+
+    public static String next() {
+        return nextUuid().toString();
+    }
+
+    public static UUID nextUuid() {
+        return nextUuid(System.currentTimeMillis());
+    }
+
+    static UUID nextUuid(long nowMillis) {
+        long tick = nextTick(nowMillis << 12);
+        long msb = (tick >>> 12) << 16 | VERSION | (tick & 0xFFF);
+        long lsb = VARIANT | (ThreadLocalRandom.current().nextLong() & RANDOM_MASK);
+        return new UUID(msb, lsb);
+    }
+
+    // Milliseconds since the epoch at which an id from next() was issued
+    public static long timestamp(String id) {
+        return UUID.fromString(id).getMostSignificantBits() >>> 16;
+    }
+
+    // The 16 bytes of an id, for keys stored as BINARY(16); see BinaryIdType
+    public static byte[] toBytes(String id) {
+        UUID uuid = UUID.fromString(id);
+        return ByteBuffer.allocate(16)
+                .putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits())
+                .array();
+    }
+
+    public static String fromBytes(byte[] bytes) {
+        if (bytes.length != 16)
+            throw new IllegalArgumentException("An id has 16 bytes, not " + bytes.length);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong()).toString();
+    }
+
+    private static long nextTick(long now) {
+        while (true) {
+            long previous = last.get();
+            long tick = Math.max(now, previous + 1);
+            if (last.compareAndSet(previous, tick))
+                return tick;
+        }
+    }
+}
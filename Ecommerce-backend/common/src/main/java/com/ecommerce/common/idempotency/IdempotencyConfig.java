@@ -0,0 +1,29 @@
+package com.ecommerce.common.idempotency;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+
+/**
+ * The {@link IdempotencyStore} of a service, scoped by its spring.application.name. Services
+ * that take an Idempotency-Key import it into their application class.
+ */
+@Configuration
+public class IdempotencyConfig {
+
+    @Bean
+    public IdempotencyStore idempotencyStore(JdbcTemplate jdbcTemplate,
+                                             PlatformTransactionManager transactionManager,
+                                             ObjectMapper objectMapper,
+                                             @Value("${spring.application.name}") String scope,
+                                             @Value("${idempotency.ttl:24h}") Duration ttl,
+                                             @Value("${idempotency.cache-size:10000}") int cacheSize,
+                                             @Value("${idempotency.wait-timeout:10s}") Duration waitTimeout) {
+        return new IdempotencyStore(scope, jdbcTemplate, transactionManager, objectMapper, ttl, cacheSize, waitTimeout);
+    }
+}
@@ -0,0 +1,358 @@
+package com.ecommerce.common.idempotency;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Makes a POST safe to retry. A request carrying an Idempotency-Key runs once; the status and
+ * JSON body of its response are kept under the key for the TTL, and a retry with the same key
+ * and body gets that response back without the handler, or the entity tables, being involved.
+ * Reusing a key for a different body is a conflict.
+ * <p>
+ * Responses live in the idempotency_key table, shared by the services and told apart by scope,
+ * and in a bounded in-memory cache in front of it. The key row is inserted in the same
+ * transaction as the handler's writes and completed before it commits, so the key is recorded
+ * exactly when the entity is. Duplicates arriving together run once: within one instance the
+ * later ones wait for the first, and across instances the second insert of the key waits on the
+ * first's row lock, then finds the stored response. A handler that fails rolls its key back
+ * with everything else, so the retry runs again.
+ * <p>
+ * A handler that commits on its own, like one that waits for a batch writer, cannot share the
+ * key's transaction; {@link #executeReserved} claims the key with the id of the resource it is
+ * about to create in a short transaction first, so a retry after any failure creates the same
+ * resource again instead of another one.
+ */
+public class IdempotencyStore {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final long PURGE_EVERY = 1024; // Fresh executions between purges of expired keys
+    private static final int PURGE_LIMIT = 1000;
+
+    private static final String CREATE_TABLE_SQL = """
+            CREATE TABLE IF NOT EXISTS idempotency_key (
+                scope VARCHAR(50) NOT NULL,
+                idempotency_key VARCHAR(255) NOT NULL,
+                request_hash CHAR(64) NOT NULL,
+                response_status INT,
+                response_body MEDIUMTEXT,
+                resource_id VARCHAR(50),
+                expires_at TIMESTAMP NOT NULL,
+                PRIMARY KEY (scope, idempotency_key)
+            )
+            """;
+    private static final String FIND_SQL = """
+            SELECT request_hash, response_status, response_body, expires_at FROM idempotency_key
+            WHERE scope = ? AND idempotency_key = ? AND expires_at > ?
+            """;
+    private static final String FIND_RESERVATION_SQL = """
+            SELECT request_hash, response_status, response_body, expires_at, resource_id FROM idempotency_key
+            WHERE scope = ? AND idempotency_key = ? AND expires_at > ?
+            """;
+    private static final String DELETE_EXPIRED_KEY_SQL =
+            "DELETE FROM idempotency_key WHERE scope = ? AND idempotency_key = ? AND expires_at <= ?";
+    private static final String CLAIM_SQL =
+            "INSERT INTO idempotency_key (scope, idempotency_key, request_hash, expires_at) VALUES (?, ?, ?, ?)";
+    private static final String RESERVE_SQL =
+            "INSERT INTO idempotency_key (scope, idempotency_key, request_hash, resource_id, expires_at) VALUES (?, ?, ?, ?, ?)";
+    private static final String COMPLETE_SQL =
+            "UPDATE idempotency_key SET response_status = ?, response_body = ? WHERE scope = ? AND idempotency_key = ?";
+    private static final String PURGE_SQL = "DELETE FROM idempotency_key WHERE expires_at <= ? LIMIT " + PURGE_LIMIT;
+
+    private final String scope;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Duration ttl;
+    private final Duration waitTimeout;
+    private final Map<String, Stored> cache;
+    private final ConcurrentHashMap<String, CompletableFuture<Stored>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong executions = new AtomicLong();
+
+    public IdempotencyStore(String scope, JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                            ObjectMapper objectMapper, Duration ttl, int cacheSize, Duration waitTimeout) {
+        this.scope = scope;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.ttl = ttl;
+        this.waitTimeout = waitTimeout;
+        // Least recently used keys go first once the cache is full
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Stored> eldest) {
+                return size() > cacheSize;
+            }
+        };
+        jdbcTemplate.execute(CREATE_TABLE_SQL);
+        addResourceColumn();
+    }
+
+    /**
+     * Runs {@code handler} unless a response for {@code key} is already stored, in which case that
+     * response is returned, read back as {@code type}. Without a key the handler just runs.
+     * {@code request} is the parsed body, fingerprinted before the handler can change it.
+     */
+    public <T> ResponseEntity<T> execute(String key, Object request, Class<T> type, Supplier<ResponseEntity<T>> handler) {
+        if (key == null)
+            return handler.get();
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH)
+            throw new IllegalArgumentException(HEADER + " must be 1 to " + MAX_KEY_LENGTH + " characters");
+        String requestHash = fingerprint(request);
+
+        Stored cached = cached(key);
+        if (cached != null)
+            return replay(key, cached, requestHash, type);
+
+        CompletableFuture<Stored> flight = new CompletableFuture<>();
+        CompletableFuture<Stored> running = inFlight.putIfAbsent(key, flight);
+        if (running != null)
+            return replay(key, await(key, running), requestHash, type);
+
+        try {
+            Execution<T> execution = executeOnce(key, requestHash, handler);
+            cache(key, execution.stored());
+            flight.complete(execution.stored());
+            if (execution.response() != null)
+                return execution.response();
+            return replay(key, execution.stored(), requestHash, type);
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    /**
+     * Like {@link #execute}, for a handler that must not run inside the key's transaction. The key
+     * is claimed together with an id from {@code newId} in a transaction of its own, committed
+     * before the handler runs; the handler creates its resource under that id, and its response is
+     * stored once it returns. A retry after the handler failed, or after the caller gave up on it,
+     * is handed the same id, so the handler must return the resource already created under it
+     * rather than create another.
+     */
+    public <T> ResponseEntity<T> executeReserved(String key, Object request, Class<T> type, Supplier<String> newId,
+                                                 Function<String, ResponseEntity<T>> handler) {
+        if (key == null)
+            return handler.apply(newId.get());
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH)
+            throw new IllegalArgumentException(HEADER + " must be 1 to " + MAX_KEY_LENGTH + " characters");
+        String requestHash = fingerprint(request);
+
+        Stored cached = cached(key);
+        if (cached != null)
+            return replay(key, cached, requestHash, type);
+
+        CompletableFuture<Stored> flight = new CompletableFuture<>();
+        CompletableFuture<Stored> running = inFlight.putIfAbsent(key, flight);
+        if (running != null)
+            return replay(key, await(key, running), requestHash, type);
+
+        try {
+            Reservation reservation = reserve(key, requestHash, newId, true);
+            if (reservation.stored() != null) {
+                cache(key, reservation.stored());
+                flight.complete(reservation.stored());
+                return replay(key, reservation.stored(), requestHash, type);
+            }
+            ResponseEntity<T> response = handler.apply(reservation.resourceId());
+            String body = toJson(response.getBody());
+            jdbcTemplate.update(COMPLETE_SQL, response.getStatusCode().value(), body, scope, key);
+            Stored stored = new Stored(requestHash, response.getStatusCode().value(), body, reservation.expiresAt());
+            if (executions.incrementAndGet() % PURGE_EVERY == 0)
+                purgeExpired();
+            cache(key, stored);
+            flight.complete(stored);
+            return response;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    private Reservation reserve(String key, String requestHash, Supplier<String> newId, boolean retry) {
+        try {
+            return transactionTemplate.execute(status -> {
+                Timestamp now = new Timestamp(System.currentTimeMillis());
+                List<Reservation> rows = jdbcTemplate.query(FIND_RESERVATION_SQL, (rs, rowNum) -> {
+                    Stored stored = new Stored(rs.getString("request_hash"), rs.getInt("response_status"),
+                            rs.getString("response_body"), rs.getTimestamp("expires_at").getTime());
+                    return new Reservation(rs.getString("resource_id"), rs.getObject("response_status") == null ? null : stored,
+                            stored.requestHash(), stored.expiresAt());
+                }, scope, key, now);
+                if (!rows.isEmpty()) {
+                    Reservation existing = rows.get(0);
+                    if (!existing.requestHash().equals(requestHash))
+                        throw new IdempotencyConflictException(HEADER + " " + key + " was already used for a different request");
+                    return existing;
+                }
+                jdbcTemplate.update(DELETE_EXPIRED_KEY_SQL, scope, key, now);
+                Timestamp expiresAt = new Timestamp(now.getTime() + ttl.toMillis());
+                String resourceId = newId.get();
+                jdbcTemplate.update(RESERVE_SQL, scope, key, requestHash, resourceId, expiresAt);
+                return new Reservation(resourceId, null, requestHash, expiresAt.getTime());
+            });
+        } catch (DuplicateKeyException e) {
+            // Another instance reserved the key first; take its id
+            if (!retry)
+                throw new IdempotencyConflictException("A request with " + HEADER + " " + key + " is in progress, retry");
+            return reserve(key, requestHash, newId, false);
+        }
+    }
+
+    private <T> Execution<T> executeOnce(String key, String requestHash, Supplier<ResponseEntity<T>> handler) {
+        try {
+            Execution<T> execution = transactionTemplate.execute(status -> {
+                Timestamp now = new Timestamp(System.currentTimeMillis());
+                Stored existing = find(key, now);
+                if (existing != null)
+                    return new Execution<T>(null, completed(key, existing));
+                jdbcTemplate.update(DELETE_EXPIRED_KEY_SQL, scope, key, now);
+                Timestamp expiresAt = new Timestamp(now.getTime() + ttl.toMillis());
+                // Waits here while another instance holds the same key uncommitted
+                jdbcTemplate.update(CLAIM_SQL, scope, key, requestHash, expiresAt);
+
+                ResponseEntity<T> response = handler.get();
+                String body = toJson(response.getBody());
+                jdbcTemplate.update(COMPLETE_SQL, response.getStatusCode().value(), body, scope, key);
+                return new Execution<>(response, new Stored(requestHash, response.getStatusCode().value(), body, expiresAt.getTime()));
+            });
+            if (executions.incrementAndGet() % PURGE_EVERY == 0)
+                purgeExpired();
+            return execution;
+        } catch (DuplicateKeyException e) {
+            // Another instance committed the key first
+            Stored stored = find(key, new Timestamp(System.currentTimeMillis()));
+            if (stored == null)
+                throw new IdempotencyConflictException("A request with " + HEADER + " " + key + " is in progress, retry");
+            return new Execution<>(null, completed(key, stored));
+        }
+    }
+
+    // Tables created before executeReserved existed lack the column
+    private void addResourceColumn() {
+        try {
+            jdbcTemplate.queryForList("SELECT resource_id FROM idempotency_key WHERE 1 = 0");
+        } catch (BadSqlGrammarException e) {
+            jdbcTemplate.execute("ALTER TABLE idempotency_key ADD COLUMN resource_id VARCHAR(50)");
+        }
+    }
+
+    public int purgeExpired() {
+        return jdbcTemplate.update(PURGE_SQL, new Timestamp(System.currentTimeMillis()));
+    }
+
+    private Stored find(String key, Timestamp now) {
+        List<Stored> rows = jdbcTemplate.query(FIND_SQL, (rs, rowNum) -> new Stored(
+                rs.getString("request_hash"), rs.getInt("response_status"), rs.getString("response_body"),
+                rs.getTimestamp("expires_at").getTime()), scope, key, now);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    // A key reserved by executeReserved has no response until its handler returns
+    private Stored completed(String key, Stored stored) {
+        if (stored.status() == 0)
+            throw new IdempotencyConflictException("A request with " + HEADER + " " + key + " is in progress, retry");
+        return stored;
+    }
+
+    private Stored cached(String key) {
+        synchronized (cache) {
+            Stored stored = cache.get(key);
+            if (stored != null && stored.expiresAt() <= System.currentTimeMillis()) {
+                cache.remove(key);
+                return null;
+            }
+            return stored;
+        }
+    }
+
+    private void cache(String key, Stored stored) {
+        synchronized (cache) {
+            cache.put(key, stored);
+        }
+    }
+
+    private Stored await(String key, CompletableFuture<Stored> running) {
+        try {
+            return running.get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            // The first request failed and stored nothing; this one may be retried
+            throw new IdempotencyConflictException("A request with " + HEADER + " " + key + " failed, retry");
+        } catch (TimeoutException e) {
+            throw new IdempotencyConflictException("A request with " + HEADER + " " + key + " is in progress, retry");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IdempotencyConflictException("Interrupted waiting for " + HEADER + " " + key);
+        }
+    }
+
+    private <T> ResponseEntity<T> replay(String key, Stored stored, String requestHash, Class<T> type) {
+        if (!stored.requestHash().equals(requestHash))
+            throw new IdempotencyConflictException(HEADER + " " + key + " was already used for a different request");
+        try {
+            T body = stored.body() == null ? null : objectMapper.readValue(stored.body(), type);
+            return ResponseEntity.status(HttpStatus.valueOf(stored.status())).header(REPLAYED_HEADER, "true").body(body);
+        } catch (JsonProcessingException e) {
+            throw new IdempotencyStoreException("Stored response for " + HEADER + " " + key + " is unreadable", e);
+        }
+    }
+
+    private String fingerprint(Object request) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(toJson(request).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IdempotencyStoreException("SHA-256 is not available", e);
+        }
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IdempotencyStoreException("Cannot serialize " + value.getClass().getName(), e);
+        }
+    }
+
+    private record Stored(String requestHash, int status, String body, long expiresAt) {
+    }
+
+    // stored is null until the handler has returned
+    private record Reservation(String resourceId, Stored stored, String requestHash, long expiresAt) {
+    }
+
+    // response is null when the stored one has to be replayed
+    private record Execution<T>(ResponseEntity<T> response, Stored stored) {
+    }
+}
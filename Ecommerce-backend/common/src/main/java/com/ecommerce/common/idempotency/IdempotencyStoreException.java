@@ -0,0 +1,13 @@
+package com.ecommerce.common.idempotency;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+// A response that cannot be stored or replayed is a server fault, not a conflict with the request
+@ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
+public class IdempotencyStoreException extends RuntimeException {
+
+    public IdempotencyStoreException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
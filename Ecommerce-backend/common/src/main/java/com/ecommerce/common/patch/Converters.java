@@ -0,0 +1,131 @@
+package com.ecommerce.common.patch;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Converters from the values Jackson produces for a {@code Map<String, Object>} body
+ * (String, Boolean, Integer, Long, BigInteger, Double) to entity field types.
+ */
+final class Converters {
+
+    @FunctionalInterface
+    interface Converter {
+        Object convert(String key, Object value);
+    }
+
+    private Converters() {
+    }
+
+    static Converter forType(Class<?> type) {
+        if (type == Timestamp.class)
+            return Converters::toTimestamp;
+        if (type == Date.class)
+            return Converters::toDate;
+        if (type == BigDecimal.class)
+            return nullable(Converters::toBigDecimal);
+        if (type == Integer.class)
+            return nullable((key, value) -> toBigDecimal(key, value).intValueExact());
+        if (type == int.class)
+            return required((key, value) -> toBigDecimal(key, value).intValueExact());
+        if (type == Long.class)
+            return nullable((key, value) -> toBigDecimal(key, value).longValueExact());
+        if (type == long.class)
+            return required((key, value) -> toBigDecimal(key, value).longValueExact());
+        if (type == Double.class)
+            return nullable((key, value) -> toBigDecimal(key, value).doubleValue());
+        if (type == double.class)
+            return required((key, value) -> toBigDecimal(key, value).doubleValue());
+        if (type == Boolean.class)
+            return nullable(Converters::toBoolean);
+        if (type == boolean.class)
+            return required(Converters::toBoolean);
+        if (type == String.class)
+            return nullable((key, value) -> value.toString());
+        if (type.isEnum())
+            return nullable(enumConverter(type));
+        if (type.isPrimitive())
+            return (key, value) -> {
+                throw new IllegalArgumentException("Invalid value for " + key + " field");
+            };
+        return (key, value) -> {
+            if (value != null && !type.isInstance(value))
+                throw new IllegalArgumentException("Invalid value for " + key + " field");
+            return value;
+        };
+    }
+
+    private static Object toTimestamp(String key, Object value) {
+        if (value == null || value instanceof Timestamp)
+            return value;
+        try {
+            return Timestamp.from(OffsetDateTime.parse((String) value).toInstant());
+        } catch (DateTimeParseException | ClassCastException e) {
+            throw new IllegalArgumentException("Invalid format for " + key + " TimeStamp field");
+        }
+    }
+
+    // LocalDate keeps the calendar day as sent; parsing into UTC midnight shifted it in other zones
+    private static Object toDate(String key, Object value) {
+        if (value == null || value instanceof Date)
+            return value;
+        try {
+            return Date.valueOf(LocalDate.parse((String) value));
+        } catch (DateTimeParseException | ClassCastException e) {
+            throw new IllegalArgumentException("Invalid format for " + key + " Date field");
+        }
+    }
+
+    private static BigDecimal toBigDecimal(String key, Object value) {
+        if (value instanceof BigDecimal decimal)
+            return decimal;
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte)
+            return BigDecimal.valueOf(((Number) value).longValue());
+        if (value instanceof BigInteger integer)
+            return new BigDecimal(integer);
+        // Double.toString gives the shortest decimal that round-trips, so 19.99 stays 19.99
+        if (value instanceof Number || value instanceof String)
+            return new BigDecimal(value.toString().trim());
+        throw new NumberFormatException();
+    }
+
+    private static Object toBoolean(String key, Object value) {
+        if (value instanceof Boolean)
+            return value;
+        if ("true".equalsIgnoreCase(String.valueOf(value)))
+            return Boolean.TRUE;
+        if ("false".equalsIgnoreCase(String.valueOf(value)))
+            return Boolean.FALSE;
+        throw new IllegalArgumentException("Invalid value for " + key + " field");
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Converter enumConverter(Class<?> type) {
+        return (key, value) -> value instanceof Enum ? value : Enum.valueOf((Class) type, value.toString());
+    }
+
+    private static Converter nullable(Converter converter) {
+        return (key, value) -> value == null ? null : checked(converter, key, value);
+    }
+
+    private static Converter required(Converter converter) {
+        return (key, value) -> {
+            if (value == null)
+                throw new IllegalArgumentException("Invalid value for " + key + " field");
+            return checked(converter, key, value);
+        };
+    }
+
+    private static Object checked(Converter converter, String key, Object value) {
+        try {
+            return converter.convert(key, value);
+        } catch (IllegalArgumentException | ArithmeticException e) {
+            throw new IllegalArgumentException("Invalid value for " + key + " field");
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.ecommerce.common.patch;
+
+import jakarta.persistence.Version;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Applies a PATCH body (field name -> JSON value) to an entity. The field lookup, access
+ * check and choice of converter happen once per entity class when the patcher is built;
+ * applying an update is then a map lookup, a conversion and a direct field write per key.
+ * Like the reflection loops it replaces, it writes fields rather than calling setters and
+ * only sees fields declared on the class itself.
+ */
+public final class EntityPatcher<T> {
+
+    private static final ClassValue<EntityPatcher<?>> PATCHERS = new ClassValue<>() {
+        @Override
+        protected EntityPatcher<?> computeValue(Class<?> type) {
+            return new EntityPatcher<>(type);
+        }
+    };
+
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private final Class<T> type;
+    private final Map<String, Property> properties;
+
+    private EntityPatcher(Class<T> type) {
+        this.type = type;
+        MethodHandles.Lookup lookup;
+        try {
+            lookup = MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Cannot access fields of " + type.getName(), e);
+        }
+
+        Map<String, Property> properties = new HashMap<>();
+        for (Field field : type.getDeclaredFields()) {
+            int modifiers = field.getModifiers();
+            // The optimistic-lock version is checked through If-Match, never written by a client
+            if (Modifier.isStatic(modifiers) || Modifier.isFinal(modifiers) || field.isSynthetic()
+                    || field.isAnnotationPresent(Version.class))
+                continue;
+            try {
+                MethodHandle setter = lookup.unreflectSetter(field).asType(SETTER_TYPE);
+                properties.put(field.getName(), new Property(field.getName(), setter, Converters.forType(field.getType())));
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("Cannot access field " + field.getName() + " of " + type.getName(), e);
+            }
+        }
+        this.properties = Collections.unmodifiableMap(properties);
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> EntityPatcher<T> of(Class<T> type) {
+        return (EntityPatcher<T>) PATCHERS.get(type);
+    }
+
+    /**
+     * Writes every entry of {@code updates} onto {@code target}. Keys must name a field of the
+     * entity; values are converted to the field's type (ISO-8601 strings for Timestamp and Date,
+     * any number for numeric fields). Fails on the first bad key or value, leaving earlier keys
+     * applied, which is what the callers' transactions already expect.
+     */
+    public T apply(T target, Map<String, ?> updates) {
+        updates.forEach((key, value) -> {
+            Property property = properties.get(key);
+            if (property == null)
+                throw new IllegalArgumentException("Invalid update field: " + key);
+            property.set(target, value);
+        });
+        return target;
+    }
+
+    public boolean hasField(String name) {
+        return properties.containsKey(name);
+    }
+
+    @Override
+    public String toString() {
+        return "EntityPatcher[" + type.getName() + ", fields=" + properties.keySet() + "]";
+    }
+
+    private record Property(String name, MethodHandle setter, Converters.Converter converter) {
+
+        void set(Object target, Object value) {
+            Object converted = converter.convert(name, value);
+            try {
+                setter.invokeExact(target, converted);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.ecommerce.common.etag;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ETagsTest {
+
+    @Test
+    void ifNoneMatchUsesWeakComparison() {
+        String eTag = ETags.of("p1", 3);
+
+        assertTrue(ETags.matchesIfNoneMatch("\"p1:3\"", eTag));
+        assertTrue(ETags.matchesIfNoneMatch("\"p0:1\", W/\"p1:3\"", eTag));
+        assertTrue(ETags.matchesIfNoneMatch("*", eTag));
+        assertFalse(ETags.matchesIfNoneMatch("\"p1:2\"", eTag));
+        assertFalse(ETags.matchesIfNoneMatch("*", null)); // Resource does not exist
+    }
+
+    @Test
+    void ifMatchUsesStrongComparison() {
+        assertDoesNotThrow(() -> ETags.checkIfMatch(null, "p1", 3L));
+        assertDoesNotThrow(() -> ETags.checkIfMatch("\"p1:3\"", "p1", 3L));
+        assertDoesNotThrow(() -> ETags.checkIfMatch("\"p1:2\", \"p1:3\"", "p1", 3L));
+        assertDoesNotThrow(() -> ETags.checkIfMatch("*", "p1", 0L));
+
+        assertThrows(PreconditionFailedException.class, () -> ETags.checkIfMatch("W/\"p1:3\"", "p1", 3L));
+        assertThrows(PreconditionFailedException.class, () -> ETags.checkIfMatch("\"p1:2\"", "p1", 3L));
+        assertThrows(PreconditionFailedException.class, () -> ETags.checkIfMatch("*", "p1", null));
+    }
+
+    @Test
+    void idsAreEncodedIntoValidListableTags() {
+        assertEquals("\"p1:3\"", ETags.of("p1", 3));
+        String eTag = ETags.of("a\", b%c é", 3);
+        assertEquals("\"a%22%2C%20b%25c%20%C3%A9:3\"", eTag);
+
+        assertTrue(ETags.matchesIfNoneMatch("\"p0:1\", " + eTag, eTag));
+        assertDoesNotThrow(() -> ETags.checkIfMatch("\"p0:1\", " + eTag, "a\", b%c é", 3L));
+        assertThrows(PreconditionFailedException.class, () -> ETags.checkIfMatch("\"a\", b%c é:3\"", "a\", b%c é", 3L));
+    }
+}
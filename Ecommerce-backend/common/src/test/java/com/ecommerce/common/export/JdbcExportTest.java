@@ -0,0 +1,93 @@
+package com.ecommerce.common.export;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JdbcExportTest {
+
+    private static final List<String> FIELDS = List.of("id", "note", "amount", "paidAt");
+    private static final String SQL = "select id, note, amount, paid_at from payment order by id";
+
+    private JdbcExport export;
+
+    @BeforeEach
+    void database() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("create table payment (id varchar(36) primary key, note varchar(50), amount decimal(10, 2), paid_at timestamp)");
+        jdbcTemplate.update("insert into payment values (?, ?, ?, ?)", "a", "plain", new BigDecimal("10.50"),
+                Timestamp.from(Instant.parse("2024-03-01T10:15:30Z")));
+        jdbcTemplate.update("insert into payment values (?, ?, ?, ?)", "b", "say \"hi\", twice", new BigDecimal("1E+2"), null);
+        jdbcTemplate.update("insert into payment values (?, ?, ?, ?)", "c", null, null, null);
+        export = new JdbcExport(dataSource, 2);
+    }
+
+    @Test
+    void csvQuotesOnlyWhatNeedsQuoting() throws IOException {
+        assertEquals("""
+                id,note,amount,paidAt\r
+                a,plain,10.50,2024-03-01T10:15:30Z\r
+                b,"say ""hi"", twice",100.00,\r
+                c,,,\r
+                """, write(ExportFormat.CSV, false));
+    }
+
+    @Test
+    void ndjsonWritesOneTypedObjectPerLine() throws IOException {
+        assertEquals("""
+                {"id":"a","note":"plain","amount":10.50,"paidAt":"2024-03-01T10:15:30Z"}
+                {"id":"b","note":"say \\"hi\\", twice","amount":100.00,"paidAt":null}
+                {"id":"c","note":null,"amount":null,"paidAt":null}
+                """, write(ExportFormat.NDJSON, false));
+    }
+
+    @Test
+    void gzipCompressesTheSameRows() throws IOException {
+        assertEquals(write(ExportFormat.CSV, false), write(ExportFormat.CSV, true));
+    }
+
+    @Test
+    void emptyResultStillHasTheHeader() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        export.write(out, ExportFormat.CSV, false, FIELDS, "select id, note, amount, paid_at from payment where id = ?", "none");
+        assertEquals("id,note,amount,paidAt\r\n", out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void fieldsMustMatchTheSelectList() {
+        assertThrows(IOException.class, () -> export.write(new ByteArrayOutputStream(), ExportFormat.CSV, false,
+                List.of("id"), SQL));
+    }
+
+    @Test
+    void unknownFormatIsRejected() {
+        assertEquals(ExportFormat.NDJSON, ExportFormat.of("NDJSON"));
+        assertThrows(IllegalArgumentException.class, () -> ExportFormat.of("xml"));
+    }
+
+    private String write(ExportFormat format, boolean gzip) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        export.write(out, format, gzip, FIELDS, SQL);
+        if (!gzip)
+            return out.toString(StandardCharsets.UTF_8);
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.ecommerce.common.id;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of issuing a key: the random UUIDs every createX used against {@link Ids}, on one thread
+ * and on eight contending for the generator's shared counter. The insert side, throughput and
+ * index size in MySQL, is measured by resources/id_benchmark.py.
+ * Not a unit test; run {@link #main} from the IDE, or {@code org.openjdk.jmh.Main IdBenchmark}
+ * on the common module's test classpath after {@code mvn -pl common test-compile}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IdBenchmark {
+
+    @Benchmark
+    public String randomUuid() {
+        return UUID.randomUUID().toString();
+    }
+
+    @Benchmark
+    public String timeOrdered() {
+        return Ids.next();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String randomUuidContended() {
+        return UUID.randomUUID().toString();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String timeOrderedContended() {
+        return Ids.next();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(IdBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
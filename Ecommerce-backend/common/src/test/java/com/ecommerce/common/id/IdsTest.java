@@ -0,0 +1,84 @@
+package com.ecommerce.common.id;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdsTest {
+
+    @Test
+    void idsAreVersion7AndSortAsTextInIssueOrder() {
+        long before = System.currentTimeMillis();
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++)
+            ids.add(Ids.next());
+
+        List<String> sorted = new ArrayList<>(ids);
+        Collections.sort(sorted);
+        assertEquals(ids, sorted);
+        assertEquals(ids.size(), new HashSet<>(ids).size());
+
+        UUID uuid = UUID.fromString(ids.get(0));
+        assertEquals(7, uuid.version());
+        assertEquals(2, uuid.variant());
+        assertTrue(Ids.timestamp(ids.get(0)) >= before);
+        // Bursts of more than 4096 ids a millisecond borrow from the next one
+        assertTrue(Ids.timestamp(ids.get(0)) < System.currentTimeMillis() + 1000);
+    }
+
+    @Test
+    void clockGoingBackwardsKeepsIdsIncreasing() {
+        long now = System.currentTimeMillis();
+        String first = Ids.nextUuid(now).toString();
+        String second = Ids.nextUuid(now - 5_000).toString();
+        String third = Ids.nextUuid(now - 5_000).toString();
+
+        assertTrue(first.compareTo(second) < 0);
+        assertTrue(second.compareTo(third) < 0);
+        assertTrue(Ids.timestamp(third) >= now); // Held at the last issued millisecond
+    }
+
+    @Test
+    void concurrentCallersGetDistinctIncreasingIds() throws Exception {
+        ConcurrentLinkedQueue<List<String>> perThread = new ConcurrentLinkedQueue<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(() -> {
+                List<String> ids = new ArrayList<>();
+                for (int i = 0; i < 20_000; i++)
+                    ids.add(Ids.next());
+                perThread.add(ids);
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+
+        Set<String> all = new HashSet<>();
+        for (List<String> ids : perThread) {
+            for (int i = 1; i < ids.size(); i++)
+                assertTrue(ids.get(i - 1).compareTo(ids.get(i)) < 0);
+            all.addAll(ids);
+        }
+        assertEquals(8 * 20_000, all.size());
+    }
+
+    @Test
+    void binaryFormRoundTrips() {
+        String id = Ids.next();
+        byte[] bytes = Ids.toBytes(id);
+
+        assertEquals(16, bytes.length);
+        assertEquals(id, Ids.fromBytes(bytes));
+        assertThrows(IllegalArgumentException.class, () -> Ids.fromBytes(new byte[15]));
+    }
+}
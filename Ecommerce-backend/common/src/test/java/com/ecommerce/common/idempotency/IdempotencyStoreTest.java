@@ -0,0 +1,206 @@
+package com.ecommerce.common.idempotency;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdempotencyStoreTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private DataSourceTransactionManager transactionManager;
+    private final AtomicInteger runs = new AtomicInteger();
+
+    @BeforeEach
+    void database() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionManager = new DataSourceTransactionManager(dataSource);
+        jdbcTemplate.execute("create table payment (id varchar(36) primary key, amount int)");
+    }
+
+    @Test
+    void retryReplaysTheStoredResponseWithoutRunningAgain() {
+        IdempotencyStore store = store(Duration.ofHours(1));
+
+        ResponseEntity<Payment> first = store.execute("k1", Map.of("amount", 5), Payment.class, () -> pay(5));
+        ResponseEntity<Payment> retry = store.execute("k1", Map.of("amount", 5), Payment.class, () -> pay(5));
+        // A fresh store has an empty cache and replays from the table
+        ResponseEntity<Payment> elsewhere = store(Duration.ofHours(1))
+                .execute("k1", Map.of("amount", 5), Payment.class, () -> pay(5));
+
+        assertEquals(1, runs.get());
+        assertEquals(1, count("payment"));
+        assertEquals(HttpStatus.CREATED, retry.getStatusCode());
+        assertEquals(first.getBody(), retry.getBody());
+        assertEquals(first.getBody(), elsewhere.getBody());
+        assertNull(first.getHeaders().getFirst(IdempotencyStore.REPLAYED_HEADER));
+        assertEquals("true", retry.getHeaders().getFirst(IdempotencyStore.REPLAYED_HEADER));
+    }
+
+    @Test
+    void keyReusedForAnotherRequestIsAConflict() {
+        IdempotencyStore store = store(Duration.ofHours(1));
+        store.execute("k1", Map.of("amount", 5), Payment.class, () -> pay(5));
+
+        assertThrows(IdempotencyConflictException.class,
+                () -> store.execute("k1", Map.of("amount", 6), Payment.class, () -> pay(6)));
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void concurrentDuplicatesRunOnce() throws Exception {
+        IdempotencyStore store = store(Duration.ofHours(1));
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<ResponseEntity<Payment>>> responses = new ArrayList<>();
+            for (int i = 0; i < 8; i++)
+                responses.add(pool.submit(() -> {
+                    start.await();
+                    return store.execute("k1", Map.of("amount", 5), Payment.class, () -> {
+                        sleep(100);
+                        return pay(5);
+                    });
+                }));
+            start.countDown();
+
+            String id = responses.get(0).get().getBody().id();
+            for (Future<ResponseEntity<Payment>> response : responses)
+                assertEquals(id, response.get().getBody().id());
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(1, runs.get());
+        assertEquals(1, count("payment"));
+    }
+
+    @Test
+    void unreadableStoredResponseIsNotAConflict() {
+        store(Duration.ofHours(1)).execute("k1", Map.of("amount", 5), Payment.class, () -> pay(5));
+        jdbcTemplate.update("update idempotency_key set response_body = '{not json'");
+
+        assertThrows(IdempotencyStoreException.class, () -> store(Duration.ofHours(1))
+                .execute("k1", Map.of("amount", 5), Payment.class, () -> pay(5)));
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void failedRequestLeavesTheKeyFree() {
+        IdempotencyStore store = store(Duration.ofHours(1));
+
+        assertThrows(IllegalStateException.class, () -> store.execute("k1", Map.of("amount", 5), Payment.class, () -> {
+            pay(5);
+            throw new IllegalStateException("Card declined");
+        }));
+        assertEquals(0, count("payment"));
+        assertEquals(0, count("idempotency_key"));
+
+        store.execute("k1", Map.of("amount", 5), Payment.class, () -> pay(5));
+        assertEquals(1, count("payment"));
+    }
+
+    @Test
+    void reservedIdOutlivesAFailedHandler() {
+        IdempotencyStore store = store(Duration.ofHours(1));
+        List<String> ids = new ArrayList<>();
+
+        // Written, then the caller gave up waiting for the confirmation
+        assertThrows(IllegalStateException.class, () -> store.executeReserved("k1", Map.of("amount", 5), Payment.class,
+                () -> UUID.randomUUID().toString(), id -> {
+                    ids.add(id);
+                    jdbcTemplate.update("insert into payment (id, amount) values (?, ?)", id, 5);
+                    throw new IllegalStateException("Timed out");
+                }));
+        assertEquals(1, count("idempotency_key"));
+        assertThrows(IdempotencyConflictException.class,
+                () -> store.execute("k1", Map.of("amount", 5), Payment.class, () -> pay(5)));
+
+        ResponseEntity<Payment> retry = store.executeReserved("k1", Map.of("amount", 5), Payment.class,
+                () -> UUID.randomUUID().toString(), id -> {
+                    ids.add(id);
+                    return ResponseEntity.ok(new Payment(id, 5));
+                });
+        assertEquals(ids.get(0), ids.get(1));
+        assertEquals(ids.get(0), retry.getBody().id());
+        assertEquals(1, count("payment"));
+
+        ResponseEntity<Payment> replayed = store.executeReserved("k1", Map.of("amount", 5), Payment.class,
+                () -> UUID.randomUUID().toString(), id -> {
+                    throw new AssertionError("Ran again");
+                });
+        assertEquals("true", replayed.getHeaders().getFirst(IdempotencyStore.REPLAYED_HEADER));
+        assertEquals(ids.get(0), replayed.getBody().id());
+    }
+
+    @Test
+    void expiredKeyRunsAgainAndIsPurged() throws Exception {
+        IdempotencyStore store = store(Duration.ofMillis(50));
+        store.execute("k1", Map.of("amount", 5), Payment.class, () -> pay(5));
+        store.execute("k2", Map.of("amount", 5), Payment.class, () -> pay(5));
+        Thread.sleep(100);
+
+        store.execute("k1", Map.of("amount", 5), Payment.class, () -> pay(5));
+        assertEquals(3, runs.get());
+
+        Thread.sleep(100);
+        assertEquals(2, store.purgeExpired());
+        assertEquals(0, count("idempotency_key"));
+    }
+
+    @Test
+    void requestsWithoutAKeyAlwaysRun() {
+        IdempotencyStore store = store(Duration.ofHours(1));
+        store.execute(null, Map.of("amount", 5), Payment.class, () -> pay(5));
+        store.execute(null, Map.of("amount", 5), Payment.class, () -> pay(5));
+
+        assertEquals(2, count("payment"));
+        assertEquals(0, count("idempotency_key"));
+        assertThrows(IllegalArgumentException.class,
+                () -> store.execute("k".repeat(256), Map.of(), Payment.class, () -> pay(5)));
+    }
+
+    private IdempotencyStore store(Duration ttl) {
+        return new IdempotencyStore("payment", jdbcTemplate, transactionManager, new ObjectMapper(), ttl, 100, Duration.ofSeconds(10));
+    }
+
+    private ResponseEntity<Payment> pay(int amount) {
+        runs.incrementAndGet();
+        Payment payment = new Payment(UUID.randomUUID().toString(), amount);
+        jdbcTemplate.update("insert into payment (id, amount) values (?, ?)", payment.id(), payment.amount());
+        return ResponseEntity.status(HttpStatus.CREATED).body(payment);
+    }
+
+    private long count(String table) {
+        return jdbcTemplate.queryForObject("select count(*) from " + table, Long.class);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    record Payment(String id, int amount) {
+    }
+}
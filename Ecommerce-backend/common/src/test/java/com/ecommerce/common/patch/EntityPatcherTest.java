@@ -0,0 +1,81 @@
+package com.ecommerce.common.patch;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EntityPatcherTest {
+
+    private final EntityPatcher<SampleEntity> patcher = EntityPatcher.of(SampleEntity.class);
+
+    @Test
+    void convertsJsonValuesToFieldTypes() {
+        Map<String, Object> updates = new HashMap<>();
+        updates.put("name", "Wallet");
+        updates.put("amount", 19.99);
+        updates.put("quantity", 3L);
+        updates.put("stock", 7);
+        updates.put("active", "true");
+        updates.put("expiryDate", "2030-01-31");
+        updates.put("updatedAt", "2024-05-01T10:15:30+02:00");
+
+        SampleEntity entity = patcher.apply(new SampleEntity(), updates);
+
+        assertEquals("Wallet", entity.getName());
+        assertEquals(new BigDecimal("19.99"), entity.getAmount());
+        assertEquals(3, entity.getQuantity());
+        assertEquals(7, entity.getStock());
+        assertTrue(entity.isActive());
+        assertEquals(LocalDate.of(2030, 1, 31), entity.getExpiryDate().toLocalDate());
+        assertEquals(Timestamp.from(Instant.parse("2024-05-01T08:15:30Z")), entity.getUpdatedAt());
+    }
+
+    @Test
+    void nullClearsObjectFieldsButNotPrimitives() {
+        SampleEntity entity = new SampleEntity();
+        entity.setAmount(BigDecimal.TEN);
+        entity.setExpiryDate(Date.valueOf("2030-01-31"));
+        Map<String, Object> updates = new HashMap<>();
+        updates.put("amount", null);
+        updates.put("expiryDate", null);
+
+        patcher.apply(entity, updates);
+
+        assertNull(entity.getAmount());
+        assertNull(entity.getExpiryDate());
+        Map<String, Object> stock = new HashMap<>();
+        stock.put("stock", null);
+        assertThrows(IllegalArgumentException.class, () -> patcher.apply(entity, stock));
+    }
+
+    @Test
+    void rejectsUnknownFieldsAndBadValues() {
+        SampleEntity entity = new SampleEntity();
+
+        assertEquals("Invalid update field: color",
+                assertThrows(IllegalArgumentException.class, () -> patcher.apply(entity, Map.of("color", "red"))).getMessage());
+        assertEquals("Invalid format for updatedAt TimeStamp field",
+                assertThrows(IllegalArgumentException.class, () -> patcher.apply(entity, Map.of("updatedAt", "yesterday"))).getMessage());
+        assertEquals("Invalid format for expiryDate Date field",
+                assertThrows(IllegalArgumentException.class, () -> patcher.apply(entity, Map.of("expiryDate", "31/01/2030"))).getMessage());
+        assertEquals("Invalid value for quantity field",
+                assertThrows(IllegalArgumentException.class, () -> patcher.apply(entity, Map.of("quantity", 2.5))).getMessage());
+        assertEquals("Invalid value for stock field",
+                assertThrows(IllegalArgumentException.class, () -> patcher.apply(entity, Map.of("stock", 1L << 40))).getMessage());
+        assertEquals("Invalid value for active field",
+                assertThrows(IllegalArgumentException.class, () -> patcher.apply(entity, Map.of("active", "yes"))).getMessage());
+    }
+
+    @Test
+    void patcherIsBuiltOncePerClass() {
+        assertSame(patcher, EntityPatcher.of(SampleEntity.class));
+    }
+}
@@ -0,0 +1,96 @@
+package com.ecommerce.common.patch;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request cost of applying a typical PATCH body: the reflection loop every service used
+ * (copied from CardServiceImpl/InvoiceServiceImpl) against {@link EntityPatcher}.
+ * Not a unit test; run {@link #main} from the IDE, or {@code org.openjdk.jmh.Main PatchBenchmark}
+ * on the common module's test classpath after {@code mvn -pl common test-compile}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PatchBenchmark {
+
+    private static final EntityPatcher<SampleEntity> PATCHER = EntityPatcher.of(SampleEntity.class);
+
+    // One field of each kind, the way a client sends it
+    private final Map<String, Object> updates = new LinkedHashMap<>();
+
+    @Setup
+    public void setUp() {
+        updates.put("name", "Wallet");
+        updates.put("amount", 1999);
+        updates.put("quantity", 3);
+        updates.put("active", true);
+        updates.put("expiryDate", "2030-01-31");
+        updates.put("updatedAt", "2024-05-01T10:15:30+02:00");
+    }
+
+    @Benchmark
+    public SampleEntity reflectionLoop() {
+        SampleEntity entity = new SampleEntity();
+        updates.forEach((key, value) -> {
+            try {
+                Field field = SampleEntity.class.getDeclaredField(key);
+                field.setAccessible(true);
+                if (field.getType() == Timestamp.class) {
+                    try {
+                        OffsetDateTime odt = OffsetDateTime.parse((String) value);
+                        field.set(entity, Timestamp.from(odt.toInstant()));
+                    } catch (DateTimeParseException e) {
+                        throw new IllegalArgumentException("Invalid format for " + key + " TimeStamp field");
+                    }
+                } else if (field.getType() == java.sql.Date.class) {
+                    try {
+                        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
+                        dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+                        java.util.Date utilDate = dateFormat.parse((String) value);
+                        field.set(entity, new java.sql.Date(utilDate.getTime()));
+                    } catch (ParseException e) {
+                        throw new IllegalArgumentException("Invalid format for " + key + " Date field");
+                    }
+                } else if (field.getType() == BigDecimal.class) {
+                    field.set(entity, new BigDecimal((Integer) value));
+                } else {
+                    field.set(entity, value);
+                }
+            } catch (NoSuchFieldException | IllegalAccessException e) {
+                throw new IllegalArgumentException("Invalid update field: " + key);
+            }
+        });
+        return entity;
+    }
+
+    @Benchmark
+    public SampleEntity entityPatcher() {
+        return PATCHER.apply(new SampleEntity(), updates);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(PatchBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,20 @@
+package com.ecommerce.common.patch;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+
+// Covers every converter; shaped like the service entities (Card, Invoice, Product)
+@Data
+public class SampleEntity {
+    private String id;
+    private String name;
+    private BigDecimal amount;
+    private Integer quantity;
+    private int stock;
+    private boolean active;
+    private Date expiryDate;
+    private Timestamp updatedAt;
+}
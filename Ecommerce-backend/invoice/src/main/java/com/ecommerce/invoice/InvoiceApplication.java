@@ -1,9 +1,12 @@
 package com.ecommerce.invoice;
 
+import com.ecommerce.common.idempotency.IdempotencyConfig;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Import;
 
 @SpringBootApplication
+@Import(IdempotencyConfig.class)
 public class InvoiceApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,262 @@
+package com.ecommerce.invoice.backfill;
+
+import com.ecommerce.common.id.Ids;
+import com.ecommerce.invoice.entity.InvoiceBackfillCheckpoint;
+import com.ecommerce.invoice.repository.InvoiceBackfillCheckpointRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Creates the missing invoice of every transaction that has none, e.g. after an outage of the
+ * invoice service. The transactions are cut into keyset chunks of chunk-size transaction IDs,
+ * (lo, hi], by one walk over the primary key. parallelism workers each take a chunk, find its
+ * uninvoiced transactions with an anti-join against idx_invoices_transaction_id and write their
+ * invoices as one batched insert in one transaction. Nothing stops POST /invoices from invoicing
+ * a transaction between a chunk's read and its commit, which leaves it with two invoices that
+ * the reconciliation reports as DUPLICATE_INVOICE; run the job once invoices are no longer being
+ * posted for the transactions it covers.
+ * <p>
+ * Chunks finish out of order, so the checkpoint only moves past a chunk once every chunk before
+ * it has committed. A stopped, failed or restarted job resumes after the checkpoint; chunks past
+ * it that did commit are found to be invoiced already. The run covers the transactions that
+ * existed when it started.
+ */
+@Component
+public class InvoiceBackfill {
+
+    private static final Logger log = LoggerFactory.getLogger(InvoiceBackfill.class);
+
+    static final String JOB_NAME = "uninvoiced-transactions";
+
+    // The chunk-size'th key after lo, read from the primary key index alone
+    private static final String NEXT_BOUNDARY_SQL = """
+            SELECT transaction_id FROM transactions
+            WHERE transaction_id > ? AND transaction_id <= ?
+            ORDER BY transaction_id
+            LIMIT 1 OFFSET ?
+            """;
+    private static final String LAST_ID_SQL = "SELECT MAX(transaction_id) FROM transactions";
+    // NOT EXISTS runs as an antijoin probing idx_invoices_transaction_id once per transaction
+    private static final String UNINVOICED_SQL = """
+            SELECT t.transaction_id, t.amount, t.transaction_date FROM transactions t
+            WHERE t.transaction_id > ? AND t.transaction_id <= ?
+              AND NOT EXISTS (SELECT 1 FROM invoices i WHERE i.transaction_id = t.transaction_id)
+            ORDER BY t.transaction_id
+            """;
+    private static final String INSERT_SQL = """
+            INSERT INTO invoices (invoice_id, transaction_id, payment_amount, payment_date)
+            VALUES (?, ?, ?, ?)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final InvoiceBackfillCheckpointRepository checkpointRepository;
+    private final int chunkSize;
+    private final int parallelism;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile boolean stopRequested;
+    private final LongAdder chunks = new LongAdder();
+    private final LongAdder uninvoicedFound = new LongAdder();
+    private final LongAdder createdThisRun = new LongAdder();
+    private volatile InvoiceBackfillCheckpoint checkpoint;
+    private volatile String lastTransactionId;
+    private volatile long startedAt;
+    private volatile long finishedAt;
+    private volatile String lastError;
+
+    public InvoiceBackfill(JdbcTemplate jdbcTemplate,
+                           TransactionTemplate transactionTemplate,
+                           InvoiceBackfillCheckpointRepository checkpointRepository,
+                           @Value("${invoice.backfill.chunk-size:1000}") int chunkSize,
+                           @Value("${invoice.backfill.parallelism:4}") int parallelism) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.checkpointRepository = checkpointRepository;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Runs the job on a background thread. With restart the checkpoint is ignored and every
+     * transaction is looked at again.
+     */
+    public Map<String, Object> start(boolean restart) {
+        begin();
+        Thread coordinator = new Thread(() -> runAndFinish(restart), "invoice-backfill");
+        coordinator.setDaemon(true);
+        coordinator.start();
+        return stats();
+    }
+
+    // Chunks already handed out still commit; the checkpoint is written before the run ends
+    public Map<String, Object> stop() {
+        if (running.get())
+            stopRequested = true;
+        return stats();
+    }
+
+    // Runs the job on the calling thread; returns the number of invoices created
+    long run(boolean restart) {
+        begin();
+        runAndFinish(restart);
+        return createdThisRun.sum();
+    }
+
+    public Map<String, Object> stats() {
+        InvoiceBackfillCheckpoint current = checkpoint != null ? checkpoint
+                : checkpointRepository.findById(JOB_NAME).orElse(null);
+        long created = createdThisRun.sum();
+        long elapsed = (running.get() ? System.currentTimeMillis() : finishedAt) - startedAt;
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("running", running.get());
+        result.put("stopRequested", stopRequested);
+        result.put("chunkSize", chunkSize);
+        result.put("parallelism", parallelism);
+        result.put("checkpoint", current == null ? null : current.getLastTransactionId());
+        result.put("lastTransactionId", lastTransactionId);
+        result.put("invoicesCreated", current == null ? 0 : current.getInvoicesCreated());
+        result.put("chunks", chunks.sum());
+        result.put("uninvoicedFound", uninvoicedFound.sum());
+        result.put("createdThisRun", created);
+        result.put("invoicesPerMinute", startedAt == 0 || elapsed <= 0 ? 0 : created * 60_000 / elapsed);
+        result.put("startedAt", startedAt == 0 ? null : new Timestamp(startedAt));
+        result.put("finishedAt", finishedAt == 0 ? null : new Timestamp(finishedAt));
+        result.put("lastError", lastError);
+        return result;
+    }
+
+    private void begin() {
+        if (!running.compareAndSet(false, true))
+            throw new IllegalStateException("Invoice backfill is already running");
+        stopRequested = false;
+        chunks.reset();
+        uninvoicedFound.reset();
+        createdThisRun.reset();
+        lastError = null;
+        startedAt = System.currentTimeMillis();
+        finishedAt = 0;
+    }
+
+    private void runAndFinish(boolean restart) {
+        try {
+            backfill(restart);
+        } catch (RuntimeException e) {
+            lastError = e.getMessage();
+            log.warn("Invoice backfill failed", e);
+        } finally {
+            finishedAt = System.currentTimeMillis();
+            running.set(false);
+            log.info("Invoice backfill created {} invoices in {} ms, checkpoint {}",
+                    createdThisRun.sum(), finishedAt - startedAt, checkpoint == null ? null : checkpoint.getLastTransactionId());
+        }
+    }
+
+    private void backfill(boolean restart) {
+        InvoiceBackfillCheckpoint saved = restart ? null : checkpointRepository.findById(JOB_NAME).orElse(null);
+        checkpoint = saved != null ? saved
+                : new InvoiceBackfillCheckpoint(JOB_NAME, "", 0, new Timestamp(System.currentTimeMillis()));
+        lastTransactionId = jdbcTemplate.queryForObject(LAST_ID_SQL, String.class);
+        if (lastTransactionId == null)
+            return;
+
+        AtomicInteger threads = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(parallelism, task -> {
+            Thread thread = new Thread(task, "invoice-backfill-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Twice the workers, so a worker finishing a chunk always finds the next one queued
+        int maxInFlight = parallelism * 2;
+        Deque<Chunk> inFlight = new ArrayDeque<>();
+        boolean failed = false;
+        try {
+            String lo = checkpoint.getLastTransactionId();
+            boolean last = false;
+            while (!last && !stopRequested && !failed) {
+                String hi = jdbcTemplate.queryForList(NEXT_BOUNDARY_SQL, String.class, lo, lastTransactionId, chunkSize - 1)
+                        .stream().findFirst().orElse(null);
+                last = hi == null;
+                if (last)
+                    hi = lastTransactionId;
+                String from = lo;
+                String to = hi;
+                inFlight.add(new Chunk(to, workers.submit(() -> backfillChunk(from, to))));
+                lo = hi;
+                while (inFlight.size() >= maxInFlight)
+                    failed |= !complete(inFlight.poll(), failed);
+            }
+            while (!inFlight.isEmpty())
+                failed |= !complete(inFlight.poll(), failed);
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    // Waits for the oldest chunk and moves the checkpoint past it, unless an earlier chunk failed
+    private boolean complete(Chunk chunk, boolean failedBefore) {
+        try {
+            long created = chunk.result().get();
+            if (!failedBefore) {
+                checkpoint = checkpointRepository.save(new InvoiceBackfillCheckpoint(JOB_NAME, chunk.hi(),
+                        checkpoint.getInvoicesCreated() + created, new Timestamp(System.currentTimeMillis())));
+            }
+            return true;
+        } catch (ExecutionException e) {
+            lastError = e.getCause().getMessage();
+            log.warn("Invoice backfill chunk up to {} failed", chunk.hi(), e.getCause());
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            stopRequested = true;
+            return false;
+        }
+    }
+
+    // Returns the number of invoices written for transactions in (lo, hi]
+    private long backfillChunk(String lo, String hi) {
+        Long created = transactionTemplate.execute(status -> {
+            Timestamp now = new Timestamp(System.currentTimeMillis());
+            List<Object[]> invoices = jdbcTemplate.query(UNINVOICED_SQL, (rs, rowNum) -> {
+                BigDecimal amount = rs.getBigDecimal("amount");
+                Timestamp paidAt = rs.getTimestamp("transaction_date");
+                return new Object[]{Ids.next(), rs.getString("transaction_id"), amount, paidAt != null ? paidAt : now};
+            }, lo, hi);
+            uninvoicedFound.add(invoices.size());
+            if (invoices.isEmpty())
+                return 0L;
+            long rows = 0;
+            // A rewritten multi-row insert reports SUCCESS_NO_INFO per row instead of a count
+            for (int count : jdbcTemplate.batchUpdate(INSERT_SQL, invoices))
+                rows += count == Statement.SUCCESS_NO_INFO ? 1 : count;
+            return rows;
+        });
+        long rows = created == null ? 0 : created;
+        chunks.increment();
+        createdThisRun.add(rows);
+        return rows;
+    }
+
+    private record Chunk(String hi, Future<Long> result) {
+    }
+}
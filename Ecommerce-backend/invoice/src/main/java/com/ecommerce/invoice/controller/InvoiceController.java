@@ -1,18 +1,26 @@
 package com.ecommerce.invoice.controller;
 
+import com.ecommerce.common.export.ExportFormat;
+import com.ecommerce.common.idempotency.IdempotencyConflictException;
+import com.ecommerce.common.idempotency.IdempotencyStore;
 import com.ecommerce.invoice.entity.Invoice;
+import com.ecommerce.invoice.entity.ReconciliationIssue;
 import com.ecommerce.invoice.service.InvoiceService;
 import jakarta.validation.Valid;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDate;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -20,9 +28,11 @@ import java.util.Map;
 public class InvoiceController {
 
     private final InvoiceService invoiceService;
+    private final IdempotencyStore idempotencyStore;
 
-    public InvoiceController(InvoiceService invoiceService) {
+    public InvoiceController(InvoiceService invoiceService, IdempotencyStore idempotencyStore) {
         this.invoiceService = invoiceService;
+        this.idempotencyStore = idempotencyStore;
     }
 
     @GetMapping
@@ -38,6 +48,60 @@ public class InvoiceController {
         return ResponseEntity.ok(invoices);
     }
 
+    // Progress of the backfill: checkpoint, invoices created and invoices per minute
+    @GetMapping("/backfill")
+    public ResponseEntity<Map<String, Object>> getBackfillStats() {
+        return ResponseEntity.ok(invoiceService.getBackfillStats());
+    }
+
+    // Starts invoicing every transaction without an invoice, resuming from the checkpoint unless restart
+    @PostMapping("/backfill")
+    public ResponseEntity<Map<String, Object>> startBackfill(@RequestParam(defaultValue = "false") boolean restart) {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(invoiceService.startBackfill(restart));
+    }
+
+    @DeleteMapping("/backfill")
+    public ResponseEntity<Map<String, Object>> stopBackfill() {
+        return ResponseEntity.ok(invoiceService.stopBackfill());
+    }
+
+    // Progress of the running reconciliation, or the outcome and issue counts of the last one
+    @GetMapping("/reconciliation")
+    public ResponseEntity<Map<String, Object>> getReconciliationStats() {
+        return ResponseEntity.ok(invoiceService.getReconciliationStats());
+    }
+
+    // Starts checking orders, transactions and invoices against each other
+    @PostMapping("/reconciliation")
+    public ResponseEntity<Map<String, Object>> startReconciliation() {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(invoiceService.startReconciliation());
+    }
+
+    @DeleteMapping("/reconciliation")
+    public ResponseEntity<Map<String, Object>> stopReconciliation() {
+        return ResponseEntity.ok(invoiceService.stopReconciliation());
+    }
+
+    // A page of a run's issues; pass the last issueId as after for the next page
+    @GetMapping("/reconciliation/issues")
+    public ResponseEntity<List<ReconciliationIssue>> getReconciliationIssues(
+            @RequestParam(required = false) String runId,
+            @RequestParam(required = false) ReconciliationIssue.Kind kind,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "100") int size) {
+        return ResponseEntity.ok(invoiceService.getReconciliationIssues(runId, kind, after, size));
+    }
+
+    // Invoices paid from from to to, both inclusive and optional, streamed as CSV or NDJSON
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportInvoices(
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return invoiceService.exportInvoices(ExportFormat.of(format), gzip, from, to);
+    }
+
     @GetMapping("/{invoiceId}")
     public ResponseEntity<Invoice> getInvoiceById(@PathVariable String invoiceId) {
         Invoice invoice = invoiceService.getInvoiceById(invoiceId);
@@ -45,9 +109,10 @@ public class InvoiceController {
     }
 
     @PostMapping
-    public ResponseEntity<Invoice> createInvoice(@RequestBody @Valid Invoice invoice) {
-        Invoice createdInvoice = invoiceService.createInvoice(invoice);
-        return ResponseEntity.ok(createdInvoice);
+    public ResponseEntity<Invoice> createInvoice(@RequestBody @Valid Invoice invoice,
+                                                 @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey) {
+        return idempotencyStore.execute(idempotencyKey, invoice, Invoice.class,
+                () -> ResponseEntity.ok(invoiceService.createInvoice(invoice)));
     }
 
     @PutMapping("/{invoiceId}")
@@ -84,4 +149,19 @@ public class InvoiceController {
                 errors.put(error.getField(), error.getDefaultMessage()));
         return new ResponseEntity<>(errors, HttpStatus.BAD_REQUEST);
     }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> handleInvalidRequest(IllegalArgumentException ex) {
+        return new ResponseEntity<>(Map.of("error", ex.getMessage()), HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(IllegalStateException.class)
+    public ResponseEntity<Map<String, String>> handleConflict(IllegalStateException ex) {
+        return new ResponseEntity<>(Map.of("error", ex.getMessage()), HttpStatus.CONFLICT);
+    }
+
+    @ExceptionHandler(IdempotencyConflictException.class)
+    public ResponseEntity<Map<String, String>> handleIdempotencyConflict(IdempotencyConflictException ex) {
+        return new ResponseEntity<>(Map.of("error", ex.getMessage()), HttpStatus.CONFLICT);
+    }
 }
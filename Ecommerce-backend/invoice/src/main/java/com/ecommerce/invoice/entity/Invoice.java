@@ -16,7 +16,10 @@ import java.sql.Timestamp;
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
-@Table(name = "invoices")
+@Table(name = "invoices", indexes = {
+        @Index(name = "idx_invoices_transaction_id", columnList = "transaction_id"), // invoices of a transaction
+        @Index(name = "idx_invoices_payment_date", columnList = "payment_date") // date-range exports
+})
 public class Invoice {
 
     @Id
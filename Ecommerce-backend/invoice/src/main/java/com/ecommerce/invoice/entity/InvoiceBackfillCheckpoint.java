@@ -0,0 +1,32 @@
+package com.ecommerce.invoice.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.sql.Timestamp;
+
+/**
+ * How far InvoiceBackfill has got: every transaction up to lastTransactionId has been looked at.
+ * One row per job, rewritten as chunks complete.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table(name = "invoice_backfill_checkpoint")
+public class InvoiceBackfillCheckpoint {
+
+    @Id
+    private String jobName;
+
+    private String lastTransactionId;
+
+    @Column(nullable = false)
+    private long invoicesCreated;
+
+    private Timestamp updatedAt;
+}
@@ -0,0 +1,57 @@
+package com.ecommerce.invoice.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * A disagreement found by a reconciliation run. Which IDs are set depends on the kind; the
+ * amounts are set for the mismatches only.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table(name = "reconciliation_issue", indexes = {
+        // A run's issues in the order they were found, all or of one kind
+        @Index(name = "idx_reconciliation_issue_run_id_kind", columnList = "run_id, kind, issue_id"),
+        @Index(name = "idx_reconciliation_issue_run_id", columnList = "run_id, issue_id")
+})
+public class ReconciliationIssue {
+
+    public enum Kind {
+        ORDER_WITHOUT_TRANSACTION,   // Past pending, so it should have been paid
+        TRANSACTION_WITHOUT_ORDER,
+        DUPLICATE_TRANSACTION,       // A further transaction for an order that already has one
+        ORDER_AMOUNT_MISMATCH,       // Order total against the sum of its transactions
+        TRANSACTION_WITHOUT_INVOICE,
+        INVOICE_WITHOUT_TRANSACTION,
+        DUPLICATE_INVOICE,           // A further invoice for a transaction that already has one
+        INVOICE_AMOUNT_MISMATCH      // Invoice payment amount against its transaction's amount
+    }
+
+    @Id
+    private String issueId;
+
+    @Column(nullable = false)
+    private String runId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 32)
+    private Kind kind;
+
+    private String orderId;
+
+    private String transactionId;
+
+    private String invoiceId;
+
+    private BigDecimal expectedAmount;
+
+    private BigDecimal actualAmount;
+}
@@ -0,0 +1,42 @@
+package com.ecommerce.invoice.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.sql.Timestamp;
+
+/**
+ * One pass of the reconciliation over orders, transactions and invoices; its findings are the
+ * reconciliation_issue rows with the same run ID.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table(name = "reconciliation_run", indexes = @Index(name = "idx_reconciliation_run_started_at", columnList = "started_at"))
+public class ReconciliationRun {
+
+    @Id
+    private String runId;
+
+    @Column(nullable = false)
+    private String status; // running, completed, stopped or failed
+
+    private Timestamp startedAt;
+
+    private Timestamp finishedAt;
+
+    private long ordersChecked;
+
+    private long transactionsChecked;
+
+    private long invoicesChecked;
+
+    private long issues;
+
+    private String error;
+}
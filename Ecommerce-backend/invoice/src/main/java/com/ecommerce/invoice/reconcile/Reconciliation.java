@@ -0,0 +1,360 @@
+package com.ecommerce.invoice.reconcile;
+
+import com.ecommerce.common.export.JdbcExport;
+import com.ecommerce.common.id.Ids;
+import com.ecommerce.invoice.entity.ReconciliationIssue.Kind;
+import com.ecommerce.invoice.entity.ReconciliationRun;
+import com.ecommerce.invoice.repository.ReconciliationIssueRepository;
+import com.ecommerce.invoice.repository.ReconciliationRunRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Checks that orders, transactions and invoices agree, in two sort-merge joins that each stream
+ * both of their tables ordered by the join key: orders against transactions on order_id, then
+ * transactions against invoices on transaction_id. Each side is a forward-only cursor on its own
+ * connection, so memory stays constant whatever the table sizes: the merge holds the current
+ * row of each side and a running sum for the current key. Every query is served in key order by
+ * an index, the primary keys, idx_transactions_order_id and idx_invoices_transaction_id, so the
+ * database does not sort either.
+ * <p>
+ * An order is expected to have been paid once it is past pending, unless cancelled, and its
+ * total to equal the sum of its transactions. A transaction is expected to have exactly one
+ * invoice for its own amount. Issues are written in batches to reconciliation_issue under the
+ * run's ID. Rows newer than settle-time are not reported as missing their counterpart: it is
+ * most likely still being written, and the two cursors of a join do not start at the same instant.
+ */
+@Component
+public class Reconciliation {
+
+    private static final Logger log = LoggerFactory.getLogger(Reconciliation.class);
+
+    private static final int MAX_ERROR_LENGTH = 255;
+    private static final Set<String> UNPAID_STATUSES = Set.of("pending", "cancelled");
+
+    private static final String ORDERS_SQL = """
+            SELECT order_id, total_amount, status, order_date FROM orders ORDER BY order_id
+            """;
+    private static final String TRANSACTIONS_BY_ORDER_SQL = """
+            SELECT order_id, transaction_id, amount, transaction_date FROM transactions ORDER BY order_id
+            """;
+    private static final String TRANSACTIONS_SQL = """
+            SELECT transaction_id, amount, transaction_date FROM transactions ORDER BY transaction_id
+            """;
+    private static final String INVOICES_SQL = """
+            SELECT transaction_id, invoice_id, payment_amount, payment_date FROM invoices ORDER BY transaction_id
+            """;
+    private static final String INSERT_ISSUE_SQL = """
+            INSERT INTO reconciliation_issue (issue_id, run_id, kind, order_id, transaction_id, invoice_id, expected_amount, actual_amount)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final ReconciliationRunRepository runRepository;
+    private final ReconciliationIssueRepository issueRepository;
+    private final int fetchSize;
+    private final int issueBatchSize;
+    private final Duration settleTime;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile boolean stopRequested;
+    private volatile ReconciliationRun run;
+    private volatile String phase;
+    private final LongAdder ordersChecked = new LongAdder();
+    private final LongAdder transactionsChecked = new LongAdder();
+    private final LongAdder invoicesChecked = new LongAdder();
+    private final Map<Kind, LongAdder> issues = new EnumMap<>(Kind.class);
+    private final List<Object[]> pendingIssues = new ArrayList<>();
+
+    public Reconciliation(DataSource dataSource,
+                          JdbcTemplate jdbcTemplate,
+                          ReconciliationRunRepository runRepository,
+                          ReconciliationIssueRepository issueRepository,
+                          @Value("${reconciliation.fetch-size:1000}") int fetchSize,
+                          @Value("${reconciliation.issue-batch-size:500}") int issueBatchSize,
+                          @Value("${reconciliation.settle-time:10m}") Duration settleTime) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = jdbcTemplate;
+        this.runRepository = runRepository;
+        this.issueRepository = issueRepository;
+        this.fetchSize = JdbcExport.streamingFetchSize(dataSource, fetchSize);
+        this.issueBatchSize = Math.max(1, issueBatchSize);
+        this.settleTime = settleTime;
+        for (Kind kind : Kind.values())
+            issues.put(kind, new LongAdder());
+    }
+
+    // Runs the reconciliation on a background thread
+    public Map<String, Object> start() {
+        ReconciliationRun started = begin();
+        Thread worker = new Thread(() -> reconcile(started), "reconciliation");
+        worker.setDaemon(true);
+        worker.start();
+        return stats();
+    }
+
+    // The run ends after the row it is on, as stopped, keeping the issues found so far
+    public Map<String, Object> stop() {
+        if (running.get())
+            stopRequested = true;
+        return stats();
+    }
+
+    // Runs the reconciliation on the calling thread
+    ReconciliationRun run() {
+        ReconciliationRun started = begin();
+        reconcile(started);
+        return run;
+    }
+
+    /**
+     * Progress of the running reconciliation, or the outcome of the last one.
+     */
+    public Map<String, Object> stats() {
+        ReconciliationRun current = running.get() ? snapshot(run) : runRepository.findFirstByOrderByStartedAtDesc().orElse(null);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("running", running.get());
+        if (current == null)
+            return result;
+        long end = current.getFinishedAt() != null ? current.getFinishedAt().getTime() : System.currentTimeMillis();
+        long seconds = Math.max(1, (end - current.getStartedAt().getTime()) / 1000);
+        result.put("runId", current.getRunId());
+        result.put("status", current.getStatus());
+        result.put("phase", running.get() ? phase : null);
+        result.put("startedAt", current.getStartedAt());
+        result.put("finishedAt", current.getFinishedAt());
+        result.put("ordersChecked", current.getOrdersChecked());
+        result.put("transactionsChecked", current.getTransactionsChecked());
+        result.put("invoicesChecked", current.getInvoicesChecked());
+        result.put("rowsPerSecond", (current.getOrdersChecked() + current.getTransactionsChecked() + current.getInvoicesChecked()) / seconds);
+        result.put("issues", current.getIssues());
+        result.put("issuesByKind", running.get() ? issueCounts() : issueCounts(current.getRunId()));
+        result.put("error", current.getError());
+        return result;
+    }
+
+    private ReconciliationRun begin() {
+        if (!running.compareAndSet(false, true))
+            throw new IllegalStateException("Reconciliation is already running");
+        stopRequested = false;
+        ordersChecked.reset();
+        transactionsChecked.reset();
+        invoicesChecked.reset();
+        issues.values().forEach(LongAdder::reset);
+        pendingIssues.clear();
+        try {
+            run = runRepository.save(ReconciliationRun.builder()
+                    .runId(Ids.next())
+                    .status("running")
+                    .startedAt(new Timestamp(System.currentTimeMillis()))
+                    .build());
+            return run;
+        } catch (RuntimeException e) {
+            running.set(false);
+            throw e;
+        }
+    }
+
+    private void reconcile(ReconciliationRun started) {
+        Timestamp settledBefore = new Timestamp(started.getStartedAt().getTime() - settleTime.toMillis());
+        String status = "completed";
+        String error = null;
+        try {
+            phase = "orders-transactions";
+            ordersAgainstTransactions(settledBefore);
+            if (!stopRequested) {
+                phase = "transactions-invoices";
+                transactionsAgainstInvoices(settledBefore);
+            }
+            flushIssues();
+            if (stopRequested)
+                status = "stopped";
+        } catch (RuntimeException e) {
+            status = "failed";
+            error = e.getMessage() == null || e.getMessage().length() <= MAX_ERROR_LENGTH
+                    ? e.getMessage() : e.getMessage().substring(0, MAX_ERROR_LENGTH);
+            log.warn("Reconciliation {} failed", started.getRunId(), e);
+        } finally {
+            ReconciliationRun finished = snapshot(started);
+            finished.setStatus(status);
+            finished.setError(error);
+            finished.setFinishedAt(new Timestamp(System.currentTimeMillis()));
+            try {
+                run = runRepository.save(finished);
+            } finally {
+                running.set(false);
+            }
+            log.info("Reconciliation {} {}: {} orders, {} transactions, {} invoices, {} issues", finished.getRunId(), status,
+                    finished.getOrdersChecked(), finished.getTransactionsChecked(), finished.getInvoicesChecked(), finished.getIssues());
+        }
+    }
+
+    private void ordersAgainstTransactions(Timestamp settledBefore) {
+        try (SortedCursor<OrderRow> orders = new SortedCursor<>(dataSource, fetchSize, "orders", ORDERS_SQL,
+                (rs, rowNum) -> new OrderRow(rs.getString("order_id"), rs.getBigDecimal("total_amount"),
+                        rs.getString("status"), rs.getTimestamp("order_date")), OrderRow::orderId);
+             SortedCursor<TransactionRow> transactions = new SortedCursor<>(dataSource, fetchSize, "transactions by order",
+                     TRANSACTIONS_BY_ORDER_SQL,
+                     (rs, rowNum) -> new TransactionRow(rs.getString("order_id"), rs.getString("transaction_id"),
+                             rs.getBigDecimal("amount"), rs.getTimestamp("transaction_date")), TransactionRow::orderId)) {
+            while (!stopRequested && (orders.peek() != null || transactions.peek() != null)) {
+                OrderRow order = orders.peek();
+                TransactionRow transaction = transactions.peek();
+                int compared = order == null ? 1 : transaction == null ? -1
+                        : SortedCursor.KEY_ORDER.compare(order.orderId(), transaction.orderId());
+                if (compared < 0) {
+                    orders.next();
+                    ordersChecked.increment();
+                    if (!UNPAID_STATUSES.contains(order.status().toLowerCase(Locale.ROOT)) && settled(order.orderDate(), settledBefore))
+                        issue(Kind.ORDER_WITHOUT_TRANSACTION, order.orderId(), null, null, order.totalAmount(), null);
+                } else if (compared > 0) {
+                    transactions.next();
+                    if (settled(transaction.transactionDate(), settledBefore))
+                        issue(Kind.TRANSACTION_WITHOUT_ORDER, transaction.orderId(), transaction.transactionId(), null, null, transaction.amount());
+                } else {
+                    orders.next();
+                    ordersChecked.increment();
+                    matchTransactions(order, transactions);
+                }
+            }
+        }
+    }
+
+    // Consumes the transactions of order, which the cursor is on
+    private void matchTransactions(OrderRow order, SortedCursor<TransactionRow> transactions) {
+        BigDecimal paid = BigDecimal.ZERO;
+        String onlyTransactionId = null;
+        int count = 0;
+        while (transactions.peek() != null && SortedCursor.KEY_ORDER.compare(transactions.peek().orderId(), order.orderId()) == 0) {
+            TransactionRow transaction = transactions.next();
+            if (count++ == 0)
+                onlyTransactionId = transaction.transactionId();
+            else {
+                onlyTransactionId = null;
+                issue(Kind.DUPLICATE_TRANSACTION, order.orderId(), transaction.transactionId(), null, order.totalAmount(), transaction.amount());
+            }
+            paid = paid.add(transaction.amount());
+        }
+        if (paid.compareTo(order.totalAmount()) != 0)
+            issue(Kind.ORDER_AMOUNT_MISMATCH, order.orderId(), onlyTransactionId, null, order.totalAmount(), paid);
+    }
+
+    private void transactionsAgainstInvoices(Timestamp settledBefore) {
+        try (SortedCursor<TransactionRow> transactions = new SortedCursor<>(dataSource, fetchSize, "transactions", TRANSACTIONS_SQL,
+                (rs, rowNum) -> new TransactionRow(null, rs.getString("transaction_id"), rs.getBigDecimal("amount"),
+                        rs.getTimestamp("transaction_date")), TransactionRow::transactionId);
+             SortedCursor<InvoiceRow> invoices = new SortedCursor<>(dataSource, fetchSize, "invoices", INVOICES_SQL,
+                     (rs, rowNum) -> new InvoiceRow(rs.getString("transaction_id"), rs.getString("invoice_id"),
+                             rs.getBigDecimal("payment_amount"), rs.getTimestamp("payment_date")), InvoiceRow::transactionId)) {
+            while (!stopRequested && (transactions.peek() != null || invoices.peek() != null)) {
+                TransactionRow transaction = transactions.peek();
+                InvoiceRow invoice = invoices.peek();
+                int compared = transaction == null ? 1 : invoice == null ? -1
+                        : SortedCursor.KEY_ORDER.compare(transaction.transactionId(), invoice.transactionId());
+                if (compared < 0) {
+                    transactions.next();
+                    transactionsChecked.increment();
+                    if (settled(transaction.transactionDate(), settledBefore))
+                        issue(Kind.TRANSACTION_WITHOUT_INVOICE, null, transaction.transactionId(), null, transaction.amount(), null);
+                } else if (compared > 0) {
+                    invoices.next();
+                    invoicesChecked.increment();
+                    if (settled(invoice.paymentDate(), settledBefore))
+                        issue(Kind.INVOICE_WITHOUT_TRANSACTION, null, invoice.transactionId(), invoice.invoiceId(), null, invoice.paymentAmount());
+                } else {
+                    transactions.next();
+                    transactionsChecked.increment();
+                    matchInvoices(transaction, invoices);
+                }
+            }
+        }
+    }
+
+    // Consumes the invoices of transaction, which the cursor is on
+    private void matchInvoices(TransactionRow transaction, SortedCursor<InvoiceRow> invoices) {
+        int count = 0;
+        while (invoices.peek() != null
+                && SortedCursor.KEY_ORDER.compare(invoices.peek().transactionId(), transaction.transactionId()) == 0) {
+            InvoiceRow invoice = invoices.next();
+            invoicesChecked.increment();
+            if (count++ > 0)
+                issue(Kind.DUPLICATE_INVOICE, null, transaction.transactionId(), invoice.invoiceId(), transaction.amount(), invoice.paymentAmount());
+            if (invoice.paymentAmount().compareTo(transaction.amount()) != 0)
+                issue(Kind.INVOICE_AMOUNT_MISMATCH, null, transaction.transactionId(), invoice.invoiceId(), transaction.amount(), invoice.paymentAmount());
+        }
+    }
+
+    private static boolean settled(Timestamp createdAt, Timestamp settledBefore) {
+        return createdAt == null || createdAt.before(settledBefore);
+    }
+
+    private void issue(Kind kind, String orderId, String transactionId, String invoiceId, BigDecimal expected, BigDecimal actual) {
+        issues.get(kind).increment();
+        pendingIssues.add(new Object[]{Ids.next(), run.getRunId(), kind.name(), orderId, transactionId, invoiceId, expected, actual});
+        if (pendingIssues.size() >= issueBatchSize)
+            flushIssues();
+    }
+
+    private void flushIssues() {
+        if (pendingIssues.isEmpty())
+            return;
+        jdbcTemplate.batchUpdate(INSERT_ISSUE_SQL, pendingIssues);
+        pendingIssues.clear();
+    }
+
+    private ReconciliationRun snapshot(ReconciliationRun current) {
+        return ReconciliationRun.builder()
+                .runId(current.getRunId())
+                .status(current.getStatus())
+                .startedAt(current.getStartedAt())
+                .finishedAt(current.getFinishedAt())
+                .ordersChecked(ordersChecked.sum())
+                .transactionsChecked(transactionsChecked.sum())
+                .invoicesChecked(invoicesChecked.sum())
+                .issues(issues.values().stream().mapToLong(LongAdder::sum).sum())
+                .error(current.getError())
+                .build();
+    }
+
+    private Map<String, Long> issueCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        issues.forEach((kind, count) -> counts.put(kind.name(), count.sum()));
+        return counts;
+    }
+
+    private Map<String, Long> issueCounts(String runId) {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (Kind kind : Kind.values())
+            counts.put(kind.name(), 0L);
+        for (Object[] row : issueRepository.countByKind(runId))
+            counts.put(((Kind) row[0]).name(), (Long) row[1]);
+        return counts;
+    }
+
+    private record OrderRow(String orderId, BigDecimal totalAmount, String status, Timestamp orderDate) {
+    }
+
+    private record TransactionRow(String orderId, String transactionId, BigDecimal amount, Timestamp transactionDate) {
+    }
+
+    private record InvoiceRow(String transactionId, String invoiceId, BigDecimal paymentAmount, Timestamp paymentDate) {
+    }
+}
@@ -0,0 +1,115 @@
+package com.ecommerce.invoice.reconcile;
+
+import org.springframework.jdbc.UncategorizedSQLException;
+import org.springframework.jdbc.core.RowMapper;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Comparator;
+import java.util.function.Function;
+
+/**
+ * One side of a merge join: a forward-only query on its own connection, read a row at a time
+ * with one row of lookahead. The query must be ordered by the key; the cursor checks that every
+ * key sorts at or after the one before it under {@link #KEY_ORDER}, so a database collation that
+ * orders differently stops the run instead of producing false issues.
+ */
+final class SortedCursor<T> implements AutoCloseable {
+
+    // The default MySQL collations compare IDs ignoring case
+    static final Comparator<String> KEY_ORDER = String.CASE_INSENSITIVE_ORDER;
+
+    private final String name;
+    private final String sql;
+    private final RowMapper<T> mapper;
+    private final Function<T, String> key;
+    private final Connection connection;
+    private PreparedStatement statement;
+    private ResultSet resultSet;
+    private T current;
+    private String lastKey;
+    private long rows;
+
+    SortedCursor(DataSource dataSource, int fetchSize, String name, String sql, RowMapper<T> mapper, Function<T, String> key) {
+        this.name = name;
+        this.sql = sql;
+        this.mapper = mapper;
+        this.key = key;
+        try {
+            this.connection = dataSource.getConnection();
+        } catch (SQLException e) {
+            throw new UncategorizedSQLException("Open " + name, sql, e);
+        }
+        try {
+            statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
+            resultSet = statement.executeQuery();
+            advance();
+        } catch (SQLException e) {
+            close();
+            throw new UncategorizedSQLException("Open " + name, sql, e);
+        } catch (RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    // The next row without consuming it; null once the query is exhausted
+    T peek() {
+        return current;
+    }
+
+    T next() {
+        T row = current;
+        try {
+            advance();
+        } catch (SQLException e) {
+            throw new UncategorizedSQLException("Read " + name, sql, e);
+        }
+        return row;
+    }
+
+    long rows() {
+        return rows;
+    }
+
+    @Override
+    public void close() {
+        try {
+            // Closing a streaming MySQL result early would read the rest of it first
+            if (current != null && statement != null)
+                statement.cancel();
+        } catch (SQLException ignored) {
+        }
+        try {
+            if (resultSet != null)
+                resultSet.close();
+        } catch (SQLException ignored) {
+        }
+        try {
+            if (statement != null)
+                statement.close();
+        } catch (SQLException ignored) {
+        }
+        try {
+            connection.close();
+        } catch (SQLException ignored) {
+        }
+    }
+
+    private void advance() throws SQLException {
+        if (!resultSet.next()) {
+            current = null;
+            return;
+        }
+        current = mapper.mapRow(resultSet, (int) rows);
+        rows++;
+        String currentKey = key.apply(current);
+        if (lastKey != null && KEY_ORDER.compare(currentKey, lastKey) < 0)
+            throw new IllegalStateException(name + " is not in key order: " + currentKey + " came after " + lastKey);
+        lastKey = currentKey;
+    }
+}
@@ -0,0 +1,9 @@
+package com.ecommerce.invoice.repository;
+
+import com.ecommerce.invoice.entity.InvoiceBackfillCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface InvoiceBackfillCheckpointRepository extends JpaRepository<InvoiceBackfillCheckpoint, String> {
+}
@@ -0,0 +1,24 @@
+package com.ecommerce.invoice.repository;
+
+import com.ecommerce.invoice.entity.ReconciliationIssue;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ReconciliationIssueRepository extends JpaRepository<ReconciliationIssue, String> {
+
+    // Keyset pages over idx_reconciliation_issue_run_id
+    List<ReconciliationIssue> findByRunIdAndIssueIdGreaterThanOrderByIssueId(String runId, String after, Pageable limit);
+
+    // Keyset pages over idx_reconciliation_issue_run_id_kind
+    List<ReconciliationIssue> findByRunIdAndKindAndIssueIdGreaterThanOrderByIssueId(String runId, ReconciliationIssue.Kind kind,
+                                                                                   String after, Pageable limit);
+
+    @Query("select i.kind, count(i) from ReconciliationIssue i where i.runId = :runId group by i.kind")
+    List<Object[]> countByKind(@Param("runId") String runId);
+}
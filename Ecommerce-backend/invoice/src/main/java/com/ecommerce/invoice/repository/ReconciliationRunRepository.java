@@ -0,0 +1,12 @@
+package com.ecommerce.invoice.repository;
+
+import com.ecommerce.invoice.entity.ReconciliationRun;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface ReconciliationRunRepository extends JpaRepository<ReconciliationRun, String> {
+    Optional<ReconciliationRun> findFirstByOrderByStartedAtDesc();
+}
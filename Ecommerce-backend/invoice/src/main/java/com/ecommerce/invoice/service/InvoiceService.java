@@ -1,16 +1,30 @@
 package com.ecommerce.invoice.service;
 
+import com.ecommerce.common.export.ExportFormat;
 import com.ecommerce.invoice.entity.Invoice;
+import com.ecommerce.invoice.entity.ReconciliationIssue;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDate;
+import java.util.List;
 import java.util.Map;
 
 public interface InvoiceService {
     Page<Invoice> getInvoices(Pageable pageable);
+    ResponseEntity<StreamingResponseBody> exportInvoices(ExportFormat format, boolean gzip, LocalDate from, LocalDate to);
     Invoice getInvoiceById(String invoiceId);
     Invoice createInvoice(Invoice invoice);
     Invoice updateInvoice(Invoice invoice);
     void patchInvoice(String invoiceId, Map<String, Object> updates);
     void deleteInvoice(String invoiceId);
+    Map<String, Object> startBackfill(boolean restart);
+    Map<String, Object> stopBackfill();
+    Map<String, Object> getBackfillStats();
+    Map<String, Object> startReconciliation();
+    Map<String, Object> stopReconciliation();
+    Map<String, Object> getReconciliationStats();
+    List<ReconciliationIssue> getReconciliationIssues(String runId, ReconciliationIssue.Kind kind, String after, int size);
 }
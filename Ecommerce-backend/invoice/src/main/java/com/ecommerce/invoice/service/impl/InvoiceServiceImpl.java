@@ -1,35 +1,89 @@
 package com.ecommerce.invoice.service.impl;
 
+import com.ecommerce.common.export.ExportFormat;
+import com.ecommerce.common.export.JdbcExport;
+import com.ecommerce.common.id.Ids;
+import com.ecommerce.common.patch.EntityPatcher;
+import com.ecommerce.invoice.backfill.InvoiceBackfill;
 import com.ecommerce.invoice.entity.Invoice;
+import com.ecommerce.invoice.entity.ReconciliationIssue;
+import com.ecommerce.invoice.entity.ReconciliationRun;
+import com.ecommerce.invoice.reconcile.Reconciliation;
 import com.ecommerce.invoice.repository.InvoiceRepository;
+import com.ecommerce.invoice.repository.ReconciliationIssueRepository;
+import com.ecommerce.invoice.repository.ReconciliationRunRepository;
 import com.ecommerce.invoice.service.InvoiceService;
 import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.lang.reflect.Field;
-import java.math.BigDecimal;
 import java.sql.Timestamp;
-import java.time.OffsetDateTime;
-import java.time.format.DateTimeParseException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.UUID;
 
 @Service
 @Transactional
 public class InvoiceServiceImpl implements InvoiceService {
 
+    private static final EntityPatcher<Invoice> PATCHER = EntityPatcher.of(Invoice.class);
+    private static final int MAX_ISSUES_PAGE = 1000;
+
+    private static final List<String> EXPORT_FIELDS = List.of("invoiceId", "transactionId", "paymentAmount", "paymentDate");
+    // Follows idx_invoices_payment_date, which ends in the primary key, so rows come out without a sort
+    private static final String EXPORT_SQL = "SELECT invoice_id, transaction_id, payment_amount, payment_date FROM invoices";
+    private static final String EXPORT_ORDER = " ORDER BY payment_date, invoice_id";
+
     @Autowired
     private InvoiceRepository invoiceRepository;
 
+    @Autowired
+    private JdbcExport jdbcExport;
+
+    @Autowired
+    private InvoiceBackfill invoiceBackfill;
+
+    @Autowired
+    private Reconciliation reconciliation;
+
+    @Autowired
+    private ReconciliationRunRepository reconciliationRunRepository;
+
+    @Autowired
+    private ReconciliationIssueRepository reconciliationIssueRepository;
+
     @Override
     public Page<Invoice> getInvoices(Pageable pageable) {
         return invoiceRepository.findAll(pageable);
     }
 
+    // Rows are read while the response is written, after this method has returned
+    @Override
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public ResponseEntity<StreamingResponseBody> exportInvoices(ExportFormat format, boolean gzip, LocalDate from, LocalDate to) {
+        if (from != null && to != null && from.isAfter(to))
+            throw new IllegalArgumentException("From must not be after to");
+        StringBuilder sql = new StringBuilder(EXPORT_SQL);
+        List<Object> args = new ArrayList<>();
+        if (from != null) {
+            sql.append(" WHERE payment_date >= ?");
+            args.add(Timestamp.valueOf(from.atStartOfDay()));
+        }
+        if (to != null) {
+            sql.append(from == null ? " WHERE " : " AND ").append("payment_date < ?");
+            args.add(Timestamp.valueOf(to.plusDays(1).atStartOfDay()));
+        }
+        sql.append(EXPORT_ORDER);
+        return jdbcExport.response("invoices", format, gzip, EXPORT_FIELDS, sql.toString(), args.toArray());
+    }
+
     @Override
     public Invoice getInvoiceById(String invoiceId) {
         Optional<Invoice> optionalInvoice = invoiceRepository.findById(invoiceId);
@@ -39,7 +93,7 @@ public class InvoiceServiceImpl implements InvoiceService {
     @Override
     public Invoice createInvoice(Invoice invoice) {
         if (invoice.getInvoiceId() == null)
-            invoice.setInvoiceId(UUID.randomUUID().toString());
+            invoice.setInvoiceId(Ids.next());
         else {
             Optional<Invoice> existingInvoice = invoiceRepository.findById(invoice.getInvoiceId());
             if (existingInvoice.isPresent()) {
@@ -59,30 +113,7 @@ public class InvoiceServiceImpl implements InvoiceService {
         Invoice existingInvoice = invoiceRepository.findById(invoiceId)
                 .orElseThrow(() -> new RuntimeException("Invoice not found"));
 
-        updates.forEach((key, value) -> {
-            try {
-                Field field = Invoice.class.getDeclaredField(key);
-                field.setAccessible(true);
-                if (field.getType() == Timestamp.class) {
-                    try {
-                        OffsetDateTime odt = OffsetDateTime.parse((String) value);
-                        Timestamp timestampValue = Timestamp.from(odt.toInstant());
-                        field.set(existingInvoice, timestampValue);
-                    } catch (DateTimeParseException e) {
-                        throw new IllegalArgumentException("Invalid format for " + key + " TimeStamp field");
-                    }
-                }
-                else if (field.getType().equals(BigDecimal.class)) {
-                    value = new BigDecimal((Integer) value);
-                    field.set(existingInvoice, value);
-                }
-                else {
-                    field.set(existingInvoice, value);
-                }
-            } catch (NoSuchFieldException | IllegalAccessException e) {
-                throw new IllegalArgumentException("Invalid update field: " + key);
-            }
-        });
+        PATCHER.apply(existingInvoice, updates);
 
         invoiceRepository.save(existingInvoice);
     }
@@ -91,4 +122,60 @@ public class InvoiceServiceImpl implements InvoiceService {
     public void deleteInvoice(String invoiceId) {
         invoiceRepository.deleteById(invoiceId);
     }
+
+    // The job commits chunk by chunk on its own threads
+    @Override
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public Map<String, Object> startBackfill(boolean restart) {
+        return invoiceBackfill.start(restart);
+    }
+
+    @Override
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public Map<String, Object> stopBackfill() {
+        return invoiceBackfill.stop();
+    }
+
+    @Override
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public Map<String, Object> getBackfillStats() {
+        return invoiceBackfill.stats();
+    }
+
+    // The reconciliation reads on its own connections and thread
+    @Override
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public Map<String, Object> startReconciliation() {
+        return reconciliation.start();
+    }
+
+    @Override
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public Map<String, Object> stopReconciliation() {
+        return reconciliation.stop();
+    }
+
+    @Override
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public Map<String, Object> getReconciliationStats() {
+        return reconciliation.stats();
+    }
+
+    // Issues of runId, or of the latest run, after the issue ID after, in the order they were found
+    @Override
+    public List<ReconciliationIssue> getReconciliationIssues(String runId, ReconciliationIssue.Kind kind, String after, int size) {
+        if (size < 1 || size > MAX_ISSUES_PAGE)
+            throw new IllegalArgumentException("Size must be between 1 and " + MAX_ISSUES_PAGE);
+        if (runId == null) {
+            Optional<ReconciliationRun> latest = reconciliationRunRepository.findFirstByOrderByStartedAtDesc();
+            if (latest.isEmpty())
+                return List.of();
+            runId = latest.get().getRunId();
+        }
+        String from = after == null ? "" : after;
+        PageRequest limit = PageRequest.of(0, size);
+        return kind == null
+                ? reconciliationIssueRepository.findByRunIdAndIssueIdGreaterThanOrderByIssueId(runId, from, limit)
+                : reconciliationIssueRepository.findByRunIdAndKindAndIssueIdGreaterThanOrderByIssueId(runId, kind, from, limit);
+    }
 }
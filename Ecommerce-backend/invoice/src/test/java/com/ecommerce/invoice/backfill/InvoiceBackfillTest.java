@@ -0,0 +1,121 @@
+package com.ecommerce.invoice.backfill;
+
+import com.ecommerce.common.id.Ids;
+import com.ecommerce.invoice.entity.InvoiceBackfillCheckpoint;
+import com.ecommerce.invoice.repository.InvoiceBackfillCheckpointRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The transactions table belongs to the transaction service, so the test creates it.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:invoicebackfill;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "invoice.backfill.chunk-size=40",
+        "invoice.backfill.parallelism=3"
+})
+class InvoiceBackfillTest {
+
+    @Autowired
+    private InvoiceBackfill backfill;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private InvoiceBackfillCheckpointRepository checkpointRepository;
+
+    @BeforeEach
+    void emptyTables() {
+        jdbcTemplate.execute("""
+                create table if not exists transactions (
+                    transaction_id varchar(50) primary key,
+                    order_id varchar(50) not null,
+                    card_id varchar(50) not null,
+                    amount decimal(10, 2) not null,
+                    transaction_date timestamp)
+                """);
+        jdbcTemplate.update("delete from transactions");
+        jdbcTemplate.update("delete from invoices");
+        checkpointRepository.deleteAll();
+    }
+
+    @Test
+    void invoicesEveryUninvoicedTransactionOnce() {
+        List<String> ids = transactions(250);
+        for (String id : ids.subList(0, 50))
+            invoice(id);
+
+        assertEquals(200, backfill.run(false));
+
+        assertEquals(250, count("select count(*) from invoices"));
+        assertEquals(250, count("select count(distinct transaction_id) from invoices"));
+        assertEquals(0, count("""
+                select count(*) from transactions t join invoices i on i.transaction_id = t.transaction_id
+                where i.payment_amount <> t.amount or i.payment_date <> t.transaction_date
+                """));
+        InvoiceBackfillCheckpoint checkpoint = checkpointRepository.findById(InvoiceBackfill.JOB_NAME).orElseThrow();
+        assertEquals(ids.get(ids.size() - 1), checkpoint.getLastTransactionId());
+        assertEquals(200, checkpoint.getInvoicesCreated());
+        assertEquals(7L, backfill.stats().get("chunks"));
+
+        assertEquals(0, backfill.run(false));
+    }
+
+    @Test
+    void resumesAfterTheCheckpointUnlessRestarted() {
+        List<String> ids = transactions(100);
+        checkpointRepository.save(new InvoiceBackfillCheckpoint(InvoiceBackfill.JOB_NAME, ids.get(59), 60,
+                new Timestamp(System.currentTimeMillis())));
+
+        assertEquals(40, backfill.run(false));
+        assertEquals(0, count("select count(*) from invoices where transaction_id <= '" + ids.get(59) + "'"));
+        assertEquals(100, checkpointRepository.findById(InvoiceBackfill.JOB_NAME).orElseThrow().getInvoicesCreated());
+
+        assertEquals(60, backfill.run(true));
+        assertEquals(100, count("select count(*) from invoices"));
+    }
+
+    @Test
+    void emptyTableIsANoOp() {
+        assertEquals(0, backfill.run(false));
+        assertFalse((boolean) backfill.stats().get("running"));
+    }
+
+    private List<String> transactions(int count) {
+        List<Object[]> rows = new ArrayList<>();
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String id = Ids.next();
+            ids.add(id);
+            rows.add(new Object[]{id, "o" + i, "c1", BigDecimal.valueOf(10 + i), new Timestamp(System.currentTimeMillis() - i * 1000L)});
+        }
+        jdbcTemplate.batchUpdate("insert into transactions (transaction_id, order_id, card_id, amount, transaction_date) values (?, ?, ?, ?, ?)", rows);
+        return ids;
+    }
+
+    private void invoice(String transactionId) {
+        jdbcTemplate.update("""
+                insert into invoices (invoice_id, transaction_id, payment_amount, payment_date)
+                select ?, transaction_id, amount, transaction_date from transactions where transaction_id = ?
+                """, Ids.next(), transactionId);
+    }
+
+    private long count(String sql) {
+        return jdbcTemplate.queryForObject(sql, Long.class);
+    }
+}
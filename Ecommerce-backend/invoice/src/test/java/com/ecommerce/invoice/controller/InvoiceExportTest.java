@@ -0,0 +1,99 @@
+package com.ecommerce.invoice.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:invoiceexport;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+@AutoConfigureMockMvc
+class InvoiceExportTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void invoices() {
+        jdbcTemplate.update("delete from invoices");
+        invoice("i1", "2024-02-29T23:59:59", "5.00");
+        invoice("i2", "2024-03-01T00:00:00", "12.50");
+        invoice("i3", "2024-03-31T12:00:00", "7.25");
+        invoice("i4", "2024-04-01T00:00:00", "1.00");
+    }
+
+    @Test
+    void csvExportCoversThePaymentDateRangeInDateOrder() throws Exception {
+        MvcResult started = mockMvc.perform(get("/invoices/export").param("from", "2024-03-01").param("to", "2024-03-31"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String csv = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"invoices.csv\""))
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+
+        String[] lines = csv.split("\r\n");
+        assertEquals(3, lines.length);
+        assertEquals("invoiceId,transactionId,paymentAmount,paymentDate", lines[0]);
+        assertTrue(lines[1].startsWith("i2,t-i2,12.50,"));
+        assertTrue(lines[2].startsWith("i3,t-i3,7.25,"));
+    }
+
+    @Test
+    void gzippedNdjsonExportOfEverything() throws Exception {
+        MvcResult started = mockMvc.perform(get("/invoices/export").param("format", "ndjson").param("gzip", "true"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        byte[] body = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        String ndjson;
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            ndjson = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        String[] lines = ndjson.split("\n");
+        assertEquals(4, lines.length);
+        assertTrue(lines[0].startsWith("{\"invoiceId\":\"i1\",\"transactionId\":\"t-i1\",\"paymentAmount\":5.00,"));
+        assertTrue(lines[3].startsWith("{\"invoiceId\":\"i4\""));
+    }
+
+    @Test
+    void invalidRequestsAreRejectedBeforeStreaming() throws Exception {
+        mockMvc.perform(get("/invoices/export").param("format", "xml"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/invoices/export").param("from", "2024-04-01").param("to", "2024-03-01"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private void invoice(String id, String date, String amount) {
+        jdbcTemplate.update("insert into invoices (invoice_id, transaction_id, payment_amount, payment_date) values (?, ?, ?, ?)",
+                id, "t-" + id, new BigDecimal(amount), Timestamp.valueOf(LocalDateTime.parse(date)));
+    }
+}
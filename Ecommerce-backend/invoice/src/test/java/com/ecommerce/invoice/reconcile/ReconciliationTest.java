@@ -0,0 +1,180 @@
+package com.ecommerce.invoice.reconcile;
+
+import com.ecommerce.invoice.entity.ReconciliationIssue;
+import com.ecommerce.invoice.entity.ReconciliationIssue.Kind;
+import com.ecommerce.invoice.entity.ReconciliationRun;
+import com.ecommerce.invoice.repository.ReconciliationIssueRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The orders and transactions tables belong to other services, so the test creates them.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:reconciliation;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "reconciliation.fetch-size=2",
+        "reconciliation.issue-batch-size=3",
+        "reconciliation.settle-time=1h"
+})
+class ReconciliationTest {
+
+    private final Timestamp old = new Timestamp(System.currentTimeMillis() - Duration.ofDays(2).toMillis());
+    private final Timestamp recent = new Timestamp(System.currentTimeMillis());
+
+    @Autowired
+    private Reconciliation reconciliation;
+
+    @Autowired
+    private ReconciliationIssueRepository issueRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void emptyTables() {
+        jdbcTemplate.execute("""
+                create table if not exists orders (
+                    order_id varchar(50) primary key,
+                    user_id varchar(50) not null,
+                    order_date timestamp,
+                    total_amount decimal(10, 2) not null,
+                    status varchar(20) not null)
+                """);
+        jdbcTemplate.execute("""
+                create table if not exists transactions (
+                    transaction_id varchar(50) primary key,
+                    order_id varchar(50) not null,
+                    card_id varchar(50) not null,
+                    amount decimal(10, 2) not null,
+                    transaction_date timestamp)
+                """);
+        jdbcTemplate.update("delete from orders");
+        jdbcTemplate.update("delete from transactions");
+        jdbcTemplate.update("delete from invoices");
+    }
+
+    @Test
+    void reportsEveryKindOfDisagreement() {
+        // Agree throughout
+        order("o1", "20.00", "delivered", old);
+        transaction("t1", "o1", "20.00", old);
+        invoice("i1", "t1", "20.00", old);
+        // Invoiced twice
+        order("o2b", "8.00", "delivered", old);
+        transaction("t2b", "o2b", "8.00", old);
+        invoice("i2b", "t2b", "8.00", old);
+        invoice("i2c", "t2b", "8.00", old);
+        // Unpaid but still pending or cancelled: fine
+        order("o2", "5.00", "pending", old);
+        order("o3", "5.00", "Cancelled", old);
+        // Shipped without a payment
+        order("o4", "7.00", "shipped", old);
+        // Paid twice, so duplicated and over the total
+        order("o5", "10.00", "processing", old);
+        transaction("t5a", "o5", "10.00", old);
+        transaction("t5b", "o5", "10.00", old);
+        invoice("i5a", "t5a", "10.00", old);
+        invoice("i5b", "t5b", "10.00", old);
+        // Paid the wrong amount, invoiced for yet another
+        order("o6", "30.00", "delivered", old);
+        transaction("t6", "o6", "25.00", old);
+        invoice("i6", "t6", "26.00", old);
+        // A payment for no order, not invoiced either
+        transaction("t7", "o-missing", "3.00", old);
+        // An invoice for no transaction
+        invoice("i8", "t-missing", "4.00", old);
+        // Too recent to be reported as missing anything, t9 neither its order nor its invoice
+        order("o9", "9.00", "processing", recent);
+        transaction("t9", "o-late", "9.00", recent);
+
+        ReconciliationRun run = reconciliation.run();
+
+        assertEquals("completed", run.getStatus());
+        assertEquals(8, run.getOrdersChecked());
+        assertEquals(7, run.getTransactionsChecked());
+        assertEquals(7, run.getInvoicesChecked());
+        assertEquals(9, run.getIssues());
+
+        List<ReconciliationIssue> issues = issueRepository.findByRunIdAndIssueIdGreaterThanOrderByIssueId(run.getRunId(), "",
+                PageRequest.of(0, 100));
+        assertEquals(9, issues.size());
+        assertIssue(issues, Kind.ORDER_WITHOUT_TRANSACTION, "o4", null, null);
+        // Either payment of o5 may be the one read second
+        assertTrue(issues.stream().anyMatch(issue -> issue.getKind() == Kind.DUPLICATE_TRANSACTION && "o5".equals(issue.getOrderId())));
+        assertIssue(issues, Kind.ORDER_AMOUNT_MISMATCH, "o5", null, null);
+        assertIssue(issues, Kind.ORDER_AMOUNT_MISMATCH, "o6", "t6", null);
+        assertIssue(issues, Kind.TRANSACTION_WITHOUT_ORDER, "o-missing", "t7", null);
+        assertIssue(issues, Kind.TRANSACTION_WITHOUT_INVOICE, null, "t7", null);
+        assertIssue(issues, Kind.INVOICE_AMOUNT_MISMATCH, null, "t6", "i6");
+        assertIssue(issues, Kind.INVOICE_WITHOUT_TRANSACTION, null, "t-missing", "i8");
+        // Either invoice of t2b may be the one read second
+        assertTrue(issues.stream().anyMatch(issue -> issue.getKind() == Kind.DUPLICATE_INVOICE && "t2b".equals(issue.getTransactionId())));
+
+        ReconciliationIssue overpaid = issues.stream().filter(issue -> "o5".equals(issue.getOrderId())
+                && issue.getKind() == Kind.ORDER_AMOUNT_MISMATCH).findFirst().orElseThrow();
+        assertEquals(0, new BigDecimal("10.00").compareTo(overpaid.getExpectedAmount()));
+        assertEquals(0, new BigDecimal("20.00").compareTo(overpaid.getActualAmount()));
+
+        Map<String, Object> stats = reconciliation.stats();
+        assertEquals(run.getRunId(), stats.get("runId"));
+        @SuppressWarnings("unchecked")
+        Map<String, Long> byKind = (Map<String, Long>) stats.get("issuesByKind");
+        assertEquals(2L, byKind.get(Kind.ORDER_AMOUNT_MISMATCH.name()));
+        assertEquals(1L, byKind.get(Kind.DUPLICATE_INVOICE.name()));
+    }
+
+    @Test
+    void agreeingTablesHaveNoIssues() {
+        for (int i = 0; i < 10; i++) {
+            order("o" + i, "1" + i + ".00", "delivered", old);
+            transaction("t" + i, "o" + i, "1" + i + ".00", old);
+            invoice("i" + i, "t" + i, "1" + i + ".00", old);
+        }
+
+        ReconciliationRun run = reconciliation.run();
+
+        assertEquals("completed", run.getStatus());
+        assertEquals(10, run.getOrdersChecked());
+        assertEquals(0, run.getIssues());
+    }
+
+    private static void assertIssue(List<ReconciliationIssue> issues, Kind kind, String orderId, String transactionId, String invoiceId) {
+        assertTrue(issues.stream().anyMatch(issue -> issue.getKind() == kind
+                        && Objects.equals(issue.getOrderId(), orderId)
+                        && Objects.equals(issue.getTransactionId(), transactionId)
+                        && Objects.equals(issue.getInvoiceId(), invoiceId)),
+                kind + " " + orderId + " " + transactionId + " " + invoiceId + " in " + issues);
+    }
+
+    private void order(String id, String total, String status, Timestamp date) {
+        jdbcTemplate.update("insert into orders (order_id, user_id, order_date, total_amount, status) values (?, ?, ?, ?, ?)",
+                id, "u1", date, new BigDecimal(total), status);
+    }
+
+    private void transaction(String id, String orderId, String amount, Timestamp date) {
+        jdbcTemplate.update("insert into transactions (transaction_id, order_id, card_id, amount, transaction_date) values (?, ?, ?, ?, ?)",
+                id, orderId, "c1", new BigDecimal(amount), date);
+    }
+
+    private void invoice(String id, String transactionId, String amount, Timestamp date) {
+        jdbcTemplate.update("insert into invoices (invoice_id, transaction_id, payment_amount, payment_date) values (?, ?, ?, ?)",
+                id, transactionId, new BigDecimal(amount), date);
+    }
+}
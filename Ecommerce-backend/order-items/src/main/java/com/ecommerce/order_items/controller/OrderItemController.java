@@ -7,9 +7,11 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -39,6 +41,12 @@ public class OrderItemController {
         return ResponseEntity.ok(orderItem);
     }
 
+    @GetMapping("/order/{orderId}")
+    public ResponseEntity<List<OrderItem>> getOrderItemsByOrderId(@PathVariable String orderId) {
+        List<OrderItem> orderItems = orderItemService.getOrderItemsByOrderId(orderId);
+        return ResponseEntity.ok(orderItems);
+    }
+
     @PostMapping
     public ResponseEntity<OrderItem> createOrderItem(@RequestBody @Valid OrderItem orderItem) {
         OrderItem createdOrderItem = orderItemService.createOrderItem(orderItem);
@@ -71,5 +79,10 @@ public class OrderItemController {
         orderItemService.deleteOrderItem(id);
         return ResponseEntity.ok("Order item deleted successfully!");
     }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> handleInvalidRequest(IllegalArgumentException ex) {
+        return new ResponseEntity<>(Map.of("error", ex.getMessage()), HttpStatus.BAD_REQUEST);
+    }
 }
 
@@ -4,7 +4,11 @@ import com.ecommerce.order_items.entity.OrderItem;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
 public interface OrderItemRepository extends JpaRepository<OrderItem, String> {
+
+    List<OrderItem> findByOrderId(String orderId);
 }
 
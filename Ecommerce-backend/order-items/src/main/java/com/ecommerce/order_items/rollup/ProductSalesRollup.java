@@ -0,0 +1,52 @@
+package com.ecommerce.order_items.rollup;
+
+import com.ecommerce.order_items.entity.OrderItem;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.util.List;
+
+/**
+ * Adds order item changes to product_daily_sales, dated by the item's order. The table and its
+ * backfill belong to the order service's sales rollups but live in the same schema. Callers run
+ * inside their own transaction, so the rollup commits or rolls back with the item.
+ * <p>
+ * The day is read from the stored order_date, as the backfill reads it, so every change to an
+ * item lands on the day it was first counted under. Items written before their order row are
+ * saved but not counted; the backfill picks them up once the order exists.
+ */
+@Component
+public class ProductSalesRollup {
+
+    private static final String ORDER_DAY_SQL = "SELECT CAST(order_date AS DATE) FROM orders WHERE order_id = ?";
+    private static final String ADD_PRODUCT_SQL = """
+            INSERT INTO product_daily_sales (sales_date, product_id, units, revenue) VALUES (?, ?, ?, ?)
+            ON DUPLICATE KEY UPDATE units = units + VALUES(units), revenue = revenue + VALUES(revenue)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ProductSalesRollup(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void added(OrderItem item) {
+        add(item, 1);
+    }
+
+    public void removed(OrderItem item) {
+        add(item, -1);
+    }
+
+    private void add(OrderItem item, int sign) {
+        List<Date> orderDay = jdbcTemplate.queryForList(ORDER_DAY_SQL, Date.class, item.getOrderId());
+        // Undated orders are not counted by the backfill either
+        if (orderDay.isEmpty() || orderDay.get(0) == null)
+            return;
+        Date day = orderDay.get(0);
+        int units = sign * item.getQuantity();
+        jdbcTemplate.update(ADD_PRODUCT_SQL, day, item.getProductId(), units, item.getPrice().multiply(BigDecimal.valueOf(units)));
+    }
+}
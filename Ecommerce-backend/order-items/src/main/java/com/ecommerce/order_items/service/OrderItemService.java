@@ -12,6 +12,7 @@ import java.util.Map;
 public interface OrderItemService {
     Page<OrderItem> getOrderItems(Pageable pageable);
     OrderItem getOrderItemById(String id);
+    List<OrderItem> getOrderItemsByOrderId(String orderId);
     OrderItem createOrderItem(OrderItem orderItem);
     OrderItem updateOrderItem(OrderItem orderItem);
     void deleteOrderItem(String id);
@@ -1,7 +1,10 @@
 package com.ecommerce.order_items.service.impl;
 
+import com.ecommerce.common.id.Ids;
+import com.ecommerce.common.patch.EntityPatcher;
 import com.ecommerce.order_items.entity.OrderItem;
 import com.ecommerce.order_items.repository.OrderItemRepository;
+import com.ecommerce.order_items.rollup.ProductSalesRollup;
 import com.ecommerce.order_items.service.OrderItemService;
 import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -9,21 +12,22 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
-import java.lang.reflect.Field;
-import java.sql.Timestamp;
-import java.time.OffsetDateTime;
-import java.time.format.DateTimeParseException;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.UUID;
 
 @Service
 @Transactional
 public class OrderItemServiceImpl implements OrderItemService {
 
+    private static final EntityPatcher<OrderItem> PATCHER = EntityPatcher.of(OrderItem.class);
+
     @Autowired
     private OrderItemRepository orderItemRepository;
 
+    @Autowired
+    private ProductSalesRollup productSalesRollup;
+
     @Override
     public Page<OrderItem> getOrderItems(Pageable pageable) {
         return orderItemRepository.findAll(pageable);
@@ -35,45 +39,63 @@ public class OrderItemServiceImpl implements OrderItemService {
         return optionalOrderItem.orElse(null);
     }
 
+    @Override
+    public List<OrderItem> getOrderItemsByOrderId(String orderId) {
+        return orderItemRepository.findByOrderId(orderId);
+    }
+
     @Override
     public OrderItem createOrderItem(OrderItem orderItem) {
         if(orderItem.getOrderItemId() == null)
-            orderItem.setOrderItemId(UUID.randomUUID().toString());
+            orderItem.setOrderItemId(Ids.next());
         else {
             Optional<OrderItem> existingOrderItem = orderItemRepository.findById(orderItem.getOrderItemId());
             if (existingOrderItem.isPresent()) {
                 throw new RuntimeException("OrderItem with ID " + orderItem.getOrderItemId() + " already exists.");
             }
         }
-        return orderItemRepository.saveAndFlush(orderItem);
+        OrderItem createdOrderItem = orderItemRepository.saveAndFlush(orderItem);
+        productSalesRollup.added(createdOrderItem);
+        return createdOrderItem;
     }
 
+    // The rollups take the old item out and the new one in, which also covers a changed product
     @Override
     public OrderItem updateOrderItem(OrderItem orderItem) {
-        return orderItemRepository.saveAndFlush(orderItem);
+        orderItemRepository.findById(orderItem.getOrderItemId()).ifPresent(existing -> productSalesRollup.removed(copyOf(existing)));
+        OrderItem updatedOrderItem = orderItemRepository.saveAndFlush(orderItem);
+        productSalesRollup.added(updatedOrderItem);
+        return updatedOrderItem;
     }
 
     @Override
     public void deleteOrderItem(String id) {
-        orderItemRepository.deleteById(id);
+        orderItemRepository.findById(id).ifPresent(orderItem -> {
+            orderItemRepository.delete(orderItem);
+            productSalesRollup.removed(orderItem);
+        });
     }
 
     @Override
     public void patchOrderItem(String orderItemId, Map<String, Object> updates) {
         OrderItem existingOrderItem = orderItemRepository.findById(orderItemId).orElseThrow(() -> new RuntimeException("Order Item not found"));
 
-        updates.forEach((key, value) -> {
-            try {
-                // Use reflection or property accessors to update specific fields based on the key
-                Field field = OrderItem.class.getDeclaredField(key);
-                field.setAccessible(true);
-                field.set(existingOrderItem, value);
-            } catch (NoSuchFieldException | IllegalAccessException e) {
-                // Handle potential exceptions (e.g., invalid field name)
-                throw new IllegalArgumentException("Invalid update field: " + key);
-            }
-        });
+        OrderItem previous = copyOf(existingOrderItem);
+        PATCHER.apply(existingOrderItem, updates);
+
+        orderItemRepository.saveAndFlush(existingOrderItem);
+        productSalesRollup.removed(previous);
+        productSalesRollup.added(existingOrderItem);
+    }
 
-        orderItemRepository.save(existingOrderItem);
+    // Saving copies the new state onto the managed item, so the old one is kept aside
+    private static OrderItem copyOf(OrderItem orderItem) {
+        return OrderItem.builder()
+                .orderItemId(orderItem.getOrderItemId())
+                .orderId(orderItem.getOrderId())
+                .productId(orderItem.getProductId())
+                .quantity(orderItem.getQuantity())
+                .price(orderItem.getPrice())
+                .build();
     }
 }
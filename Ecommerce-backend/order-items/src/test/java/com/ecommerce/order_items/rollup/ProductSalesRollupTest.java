@@ -0,0 +1,108 @@
+package com.ecommerce.order_items.rollup;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:productsalesrollup;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+@AutoConfigureMockMvc
+class ProductSalesRollupTest {
+
+    private final LocalDate yesterday = LocalDate.now().minusDays(1);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void emptyTables() {
+        // orders and product_daily_sales belong to the order service; order_date keeps whole seconds, as in MySQL
+        jdbcTemplate.execute("create table if not exists orders (order_id varchar(255) primary key, order_date timestamp(0))");
+        jdbcTemplate.execute("create table if not exists product_daily_sales (sales_date date, product_id varchar(50), units bigint, revenue decimal(14,2), primary key (sales_date, product_id))");
+        for (String table : List.of("orders", "order_items", "product_daily_sales"))
+            jdbcTemplate.update("delete from " + table);
+    }
+
+    @Test
+    void itemChangesStayOnTheirOrdersDay() throws Exception {
+        // Late in the evening, so a day taken in another zone than the order service's would differ
+        jdbcTemplate.update("insert into orders (order_id, order_date) values (?, ?)",
+                "o1", Timestamp.valueOf(yesterday.atTime(23, 30)));
+
+        mockMvc.perform(post("/order-items")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"orderItemId\": \"i1\", \"orderId\": \"o1\", \"productId\": \"p1\", \"quantity\": 2, \"price\": 10.00}"))
+                .andExpect(status().isOk());
+        assertSales(yesterday, 2, "20.00");
+
+        mockMvc.perform(patch("/order-items/{id}", "i1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"quantity\": 3}"))
+                .andExpect(status().isOk());
+        assertSales(yesterday, 3, "30.00");
+
+        mockMvc.perform(delete("/order-items/{id}", "i1")).andExpect(status().isOk());
+        assertSales(yesterday, 0, "0.00");
+        assertEquals(1, count("select count(*) from product_daily_sales"));
+    }
+
+    @Test
+    void orderInTheLastHalfSecondOfADayIsStoredUnderTheNext() throws Exception {
+        jdbcTemplate.update("insert into orders (order_id, order_date) values (?, ?)",
+                "o1", Timestamp.valueOf(yesterday.atTime(23, 59, 59, 700_000_000)));
+
+        mockMvc.perform(post("/order-items")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"orderItemId\": \"i1\", \"orderId\": \"o1\", \"productId\": \"p1\", \"quantity\": 2, \"price\": 10.00}"))
+                .andExpect(status().isOk());
+        assertSales(yesterday.plusDays(1), 2, "20.00");
+    }
+
+    @Test
+    void itemForAnOrderNotWrittenYetIsSavedUncounted() throws Exception {
+        mockMvc.perform(post("/order-items")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"orderItemId\": \"i1\", \"orderId\": \"o-later\", \"productId\": \"p1\", \"quantity\": 2, \"price\": 10.00}"))
+                .andExpect(status().isOk());
+
+        assertEquals(1, count("select count(*) from order_items"));
+        assertEquals(0, count("select count(*) from product_daily_sales"));
+    }
+
+    private void assertSales(LocalDate day, long units, String revenue) {
+        Map<String, Object> row = jdbcTemplate.queryForMap(
+                "select units, revenue from product_daily_sales where sales_date = ? and product_id = 'p1'", Date.valueOf(day));
+        assertEquals(units, ((Number) row.get("units")).longValue());
+        assertEquals(0, new BigDecimal(revenue).compareTo((BigDecimal) row.get("revenue")));
+    }
+
+    private long count(String sql) {
+        return jdbcTemplate.queryForObject(sql, Long.class);
+    }
+}
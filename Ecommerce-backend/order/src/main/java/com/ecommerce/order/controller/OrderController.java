@@ -1,14 +1,38 @@
 package com.ecommerce.order.controller;
 
+import com.ecommerce.common.etag.ETags;
+import com.ecommerce.common.etag.PreconditionFailedException;
+import com.ecommerce.common.idempotency.IdempotencyConflictException;
+import com.ecommerce.common.idempotency.IdempotencyStore;
+import com.ecommerce.order.dto.BulkStatusTransition;
+import com.ecommerce.order.dto.BulkTransitionResult;
+import com.ecommerce.order.dto.CheckoutRequest;
+import com.ecommerce.order.dto.CheckoutResult;
+import com.ecommerce.order.dto.CursorPage;
+import com.ecommerce.order.dto.OrderWithItems;
+import com.ecommerce.order.dto.SalesStats;
+import com.ecommerce.order.dto.StatusTransition;
 import com.ecommerce.order.entity.Order;
+import com.ecommerce.order.entity.OrderStatus;
+import com.ecommerce.order.repository.OrderRepository.OrderItemLine;
+import com.ecommerce.order.service.CheckoutService;
 import com.ecommerce.order.service.OrderService;
+import jakarta.validation.Valid;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -16,9 +40,13 @@ import java.util.Map;
 public class OrderController {
 
     private final OrderService orderService;
+    private final CheckoutService checkoutService;
+    private final IdempotencyStore idempotencyStore;
 
-    public OrderController(OrderService orderService) {
+    public OrderController(OrderService orderService, CheckoutService checkoutService, IdempotencyStore idempotencyStore) {
         this.orderService = orderService;
+        this.checkoutService = checkoutService;
+        this.idempotencyStore = idempotencyStore;
     }
 
     @GetMapping
@@ -32,37 +60,138 @@ public class OrderController {
         return ResponseEntity.ok(orders);
     }
 
+    // One user's orders, newest first, optionally of one status
+    @GetMapping(params = "userId")
+    public ResponseEntity<CursorPage<Order>> getOrderHistory(
+            @RequestParam String userId,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String cursor, // Opaque token from a previous nextCursor
+            @RequestParam(defaultValue = "10") int size) {
+        CursorPage<Order> orders = orderService.getOrderHistory(userId, status, cursor, size);
+        return ResponseEntity.ok(orders);
+    }
+
+    // Order history: each order with its items, loaded with one query for the whole page
+    @GetMapping("/with-items")
+    public ResponseEntity<Page<OrderWithItems>> getOrdersWithItems(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "desc") String sortDirection) {
+        Sort sort = Sort.by(sortDirection.equalsIgnoreCase("asc") ? Sort.Direction.ASC : Sort.Direction.DESC, "orderDate");
+        Pageable pageable = PageRequest.of(page, size, sort);
+        Page<OrderWithItems> orders = orderService.getOrdersWithItems(pageable);
+        return ResponseEntity.ok(orders);
+    }
+
+    // Items of several orders at once, keyed by order ID
+    @GetMapping("/items")
+    public ResponseEntity<Map<String, List<OrderItemLine>>> getItemsOfOrders(@RequestParam List<String> orderIds) {
+        Map<String, List<OrderItemLine>> items = orderService.getOrderItems(orderIds);
+        return ResponseEntity.ok(items);
+    }
+
+    @GetMapping("/{orderId}/items")
+    public ResponseEntity<List<OrderItemLine>> getOrderItems(@PathVariable String orderId) {
+        List<OrderItemLine> items = orderService.getOrderItems(orderId);
+        if (items == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(items);
+    }
+
+    // Read from the daily rollups, never from orders or order_items; defaults to the last 30 days
+    @GetMapping("/stats")
+    public ResponseEntity<SalesStats> getSalesStats(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String productId,
+            @RequestParam(defaultValue = "10") int top) {
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end.minusDays(29);
+        SalesStats stats = orderService.getSalesStats(start, end, productId, top);
+        return ResponseEntity.ok(stats);
+    }
+
+    // Rebuilds the rollups of closed days from orders and order_items, e.g. for data older than the rollups
+    @PostMapping("/stats/backfill")
+    public ResponseEntity<Map<String, Integer>> backfillSalesStats(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        int days = orderService.backfillSalesStats(from, to);
+        return ResponseEntity.ok(Map.of("days", days));
+    }
+
     @GetMapping("/{id}")
-    public ResponseEntity<Order> getOrderById(@PathVariable String id) {
+    public ResponseEntity<Order> getOrderById(@PathVariable String id,
+                                              @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        // A matching If-None-Match is answered from the version alone, without loading or serializing the order
+        if (ifNoneMatch != null) {
+            String eTag = orderService.getOrderETag(id);
+            if (ETags.matchesIfNoneMatch(ifNoneMatch, eTag))
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+        }
         Order order = orderService.getOrderById(id);
-        return ResponseEntity.ok(order);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (order != null)
+            response.eTag(ETags.of(order.getOrderId(), order.getVersion()));
+        return response.body(order);
     }
 
+    // A retry with the same Idempotency-Key gets the first response instead of a second order
     @PostMapping
-    public ResponseEntity<Order> createOrder(@RequestBody Order order) {
-        Order createdOrder = orderService.createOrder(order);
-        return ResponseEntity.ok(createdOrder);
+    public ResponseEntity<Order> createOrder(@RequestBody Order order,
+                                             @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey) {
+        return idempotencyStore.execute(idempotencyKey, order, Order.class,
+                () -> ResponseEntity.ok(orderService.createOrder(order)));
+    }
+
+    // Order, items, payment and invoice in one transaction, priced from the product table
+    @PostMapping("/checkout")
+    public ResponseEntity<CheckoutResult> checkout(@RequestBody @Valid CheckoutRequest request,
+                                                   @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey) {
+        return idempotencyStore.execute(idempotencyKey, request, CheckoutResult.class,
+                () -> ResponseEntity.ok(checkoutService.checkout(request)));
     }
 
     @PutMapping("/{orderId}")
-    public ResponseEntity<Order> updateOrder(@PathVariable String orderId, @RequestBody Order order) {
+    public ResponseEntity<Order> updateOrder(@PathVariable String orderId, @RequestBody Order order,
+                                             @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         order.setOrderId(orderId);
-        Order updatedOrder = orderService.updateOrder(order);
+        Order updatedOrder = orderService.updateOrder(order, ifMatch);
         if (updatedOrder == null) {
             return ResponseEntity.notFound().build();
         }
-        return ResponseEntity.ok(updatedOrder);
+        return ResponseEntity.ok().eTag(ETags.of(orderId, updatedOrder.getVersion())).body(updatedOrder);
     }
 
     @PatchMapping("/{orderId}")
-    public ResponseEntity<Order> patchOrder(@PathVariable String orderId, @RequestBody Map<String, Object> updates) {
+    public ResponseEntity<Order> patchOrder(@PathVariable String orderId, @RequestBody Map<String, Object> updates,
+                                            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         Order existingOrder = orderService.getOrderById(orderId);
         if (existingOrder == null) {
             return ResponseEntity.notFound().build();
         }
-        orderService.patchOrder(orderId, updates);
+        orderService.patchOrder(orderId, updates, ifMatch);
         Order updatedOrder = orderService.getOrderById(orderId);
-        return ResponseEntity.ok(updatedOrder);
+        return ResponseEntity.ok().eTag(ETags.of(orderId, updatedOrder.getVersion())).body(updatedOrder);
+    }
+
+    // Moves the status with one conditional update; 409 when the order's status does not allow it
+    @PostMapping("/{orderId}/transitions")
+    public ResponseEntity<Map<String, String>> transitionStatus(@PathVariable String orderId,
+                                                                @RequestBody @Valid StatusTransition transition) {
+        OrderStatus status = orderService.transitionStatus(orderId, transition);
+        if (status == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(Map.of("orderId", orderId, "status", status.value()));
+    }
+
+    // Moves many orders at once, committing in chunks; orders that cannot move are counted as skipped
+    @PostMapping("/transitions")
+    public ResponseEntity<BulkTransitionResult> transitionStatuses(@RequestBody @Valid BulkStatusTransition transition) {
+        BulkTransitionResult result = orderService.transitionStatus(transition);
+        return ResponseEntity.ok(result);
     }
 
     @DeleteMapping("/{id}")
@@ -70,4 +199,38 @@ public class OrderController {
         orderService.deleteOrder(id);
         return ResponseEntity.ok("Order deleted successfully!");
     }
+
+    @ExceptionHandler(MethodArgumentNotValidException.class)
+    public ResponseEntity<Map<String, String>> handleValidationExceptions(MethodArgumentNotValidException ex) {
+        Map<String, String> errors = new HashMap<>();
+        ex.getBindingResult().getFieldErrors().forEach(error ->
+                errors.put(error.getField(), error.getDefaultMessage()));
+        return new ResponseEntity<>(errors, HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> handleInvalidRequest(IllegalArgumentException ex) {
+        return new ResponseEntity<>(Map.of("error", ex.getMessage()), HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(IllegalStateException.class)
+    public ResponseEntity<Map<String, String>> handleStatusConflict(IllegalStateException ex) {
+        return new ResponseEntity<>(Map.of("error", ex.getMessage()), HttpStatus.CONFLICT);
+    }
+
+    @ExceptionHandler(IdempotencyConflictException.class)
+    public ResponseEntity<Map<String, String>> handleIdempotencyConflict(IdempotencyConflictException ex) {
+        return new ResponseEntity<>(Map.of("error", ex.getMessage()), HttpStatus.CONFLICT);
+    }
+
+    @ExceptionHandler(PreconditionFailedException.class)
+    public ResponseEntity<Map<String, String>> handlePreconditionFailed(PreconditionFailedException ex) {
+        return new ResponseEntity<>(Map.of("error", ex.getMessage()), HttpStatus.PRECONDITION_FAILED);
+    }
+
+    // Another write committed between loading the order and flushing this one
+    @ExceptionHandler(ObjectOptimisticLockingFailureException.class)
+    public ResponseEntity<Map<String, String>> handleConcurrentUpdate(ObjectOptimisticLockingFailureException ex) {
+        return new ResponseEntity<>(Map.of("error", "Order was modified concurrently, retry"), HttpStatus.CONFLICT);
+    }
 }
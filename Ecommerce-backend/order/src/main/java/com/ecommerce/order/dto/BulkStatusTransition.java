@@ -0,0 +1,28 @@
+package com.ecommerce.order.dto;
+
+import com.ecommerce.order.entity.OrderStatus;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BulkStatusTransition {
+
+    @NotEmpty(message = "Order IDs cannot be empty")
+    @Size(max = 100000, message = "At most 100000 orders can be moved at once")
+    private List<String> orderIds;
+
+    private OrderStatus from;
+
+    @NotNull(message = "Target status cannot be null")
+    private OrderStatus to;
+}
@@ -0,0 +1,17 @@
+package com.ecommerce.order.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BulkTransitionResult {
+    private int requested;
+    private int moved;   // Orders that were in an allowed status and now have the target status
+    private int skipped; // Missing orders and orders whose status does not allow the move
+    private int chunks;  // Each chunk committed on its own
+}
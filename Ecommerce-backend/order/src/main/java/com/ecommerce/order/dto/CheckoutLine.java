@@ -0,0 +1,19 @@
+package com.ecommerce.order.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CheckoutLine {
+    private String orderItemId;
+    private String productId;
+    private Integer quantity;
+    private BigDecimal price; // Unit price charged, product.discounted_price at checkout
+}
@@ -0,0 +1,34 @@
+package com.ecommerce.order.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * What the client knows at checkout. Prices are not part of it: every item is charged the
+ * product's current discounted price.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CheckoutRequest {
+
+    @NotBlank(message = "User ID cannot be blank")
+    private String userId;
+
+    @NotBlank(message = "Card ID cannot be blank")
+    private String cardId;
+
+    @Valid
+    @NotEmpty(message = "An order needs at least one item")
+    @Size(max = 100, message = "At most 100 items can be ordered at once")
+    private List<CheckoutItem> items;
+}
@@ -0,0 +1,20 @@
+package com.ecommerce.order.dto;
+
+import com.ecommerce.order.entity.Order;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CheckoutResult {
+    private Order order;
+    private List<CheckoutLine> items;
+    private String transactionId;
+    private String invoiceId;
+}
@@ -0,0 +1,32 @@
+package com.ecommerce.order.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.Base64;
+
+/**
+ * Seek position in a user's order history, which runs newest first over (orderDate, orderId).
+ * Encoded as an opaque url-safe token so clients never build one by hand.
+ */
+public record OrderCursor(Timestamp orderDate, String orderId) {
+
+    private static final String SEPARATOR = "|";
+
+    public String encode() {
+        String raw = orderDate + SEPARATOR + orderId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static OrderCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\" + SEPARATOR, 2);
+            if (parts.length != 2)
+                throw new IllegalArgumentException("Invalid cursor: " + token);
+            return new OrderCursor(Timestamp.valueOf(parts[0]), parts[1]);
+        } catch (IllegalArgumentException e) {
+            // Timestamp.valueOf rejects a malformed date with an IllegalArgumentException as well
+            throw new IllegalArgumentException("Invalid cursor: " + token);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.ecommerce.order.dto;
+
+import com.ecommerce.order.entity.Order;
+import com.ecommerce.order.repository.OrderRepository.OrderItemLine;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OrderWithItems {
+    private Order order;
+    private List<OrderItemLine> items;
+}
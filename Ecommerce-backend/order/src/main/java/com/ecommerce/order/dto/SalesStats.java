@@ -0,0 +1,27 @@
+package com.ecommerce.order.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Sales between two dates, both inclusive: totals, one entry per day that had orders, and the
+ * products with the most revenue.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SalesStats {
+    private LocalDate from;
+    private LocalDate to;
+    private long orders;
+    private BigDecimal revenue;
+    private List<DaySales> days;
+    private List<ProductSales> products;
+}
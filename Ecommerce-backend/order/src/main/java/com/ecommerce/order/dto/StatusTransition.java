@@ -0,0 +1,24 @@
+package com.ecommerce.order.dto;
+
+import com.ecommerce.order.entity.OrderStatus;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Moves an order to {@code to}. With {@code from} the move happens only if the order is still
+ * in that status; without it, from whichever status may move to {@code to}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StatusTransition {
+
+    private OrderStatus from;
+
+    @NotNull(message = "Target status cannot be null")
+    private OrderStatus to;
+}
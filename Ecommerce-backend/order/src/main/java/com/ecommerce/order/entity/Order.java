@@ -6,6 +6,7 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
 
 import java.math.BigDecimal;
@@ -16,7 +17,11 @@ import java.sql.Timestamp;
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        // A user's history, newest first; InnoDB appends order_id, the tiebreaker of the seek
+        @Index(name = "idx_orders_user_id_order_date", columnList = "user_id, order_date"),
+        @Index(name = "idx_orders_order_date", columnList = "order_date") // date ranges: listing by date, rollup backfill
+})
 public class Order {
 
     @Id
@@ -37,6 +42,10 @@ public class Order {
     private BigDecimal totalAmount;
 
     @Column(nullable = false)
-    @NotBlank(message = "Status cannot be blank")
-    private String status;
+    @NotNull(message = "Status cannot be null")
+    private OrderStatus status; // Changes only through the transitions in OrderStatus
+
+    @Version
+    @ColumnDefault("0")
+    private long version; // Backs the ETag and If-Match checks
 }
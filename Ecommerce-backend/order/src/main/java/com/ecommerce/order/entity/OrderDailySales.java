@@ -0,0 +1,45 @@
+package com.ecommerce.order.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Orders and revenue per day, kept up to date by SalesRollup. A day is spread over a few slots
+ * so concurrent orders do not all wait on one row lock; readers sum the slots.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table(name = "order_daily_sales")
+@IdClass(OrderDailySales.Key.class)
+public class OrderDailySales {
+
+    @Id
+    private LocalDate salesDate;
+
+    @Id
+    private int slot;
+
+    @Column(nullable = false)
+    private long orderCount;
+
+    @Column(nullable = false, precision = 14, scale = 2)
+    private BigDecimal revenue;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private LocalDate salesDate;
+        private int slot;
+    }
+}
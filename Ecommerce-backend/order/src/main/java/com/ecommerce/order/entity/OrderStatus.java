@@ -0,0 +1,58 @@
+package com.ecommerce.order.entity;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * The lifecycle of an order. Stored and serialized in lower case, as the existing rows are;
+ * parsing ignores case, so the schema's old 'Pending' default still reads.
+ */
+public enum OrderStatus {
+    PENDING,
+    PROCESSING,
+    SHIPPED,
+    DELIVERED,
+    CANCELLED;
+
+    // Which statuses an order may move to from each status; delivered and cancelled are final
+    static {
+        PENDING.next = EnumSet.of(PROCESSING, CANCELLED);
+        PROCESSING.next = EnumSet.of(SHIPPED, CANCELLED);
+        SHIPPED.next = EnumSet.of(DELIVERED);
+        DELIVERED.next = EnumSet.noneOf(OrderStatus.class);
+        CANCELLED.next = EnumSet.noneOf(OrderStatus.class);
+    }
+
+    private Set<OrderStatus> next;
+
+    public boolean canMoveTo(OrderStatus target) {
+        return next.contains(target);
+    }
+
+    // The statuses an order may be in to move to target, the guard of a compare-and-set update
+    public static Set<OrderStatus> sourcesOf(OrderStatus target) {
+        Set<OrderStatus> sources = EnumSet.noneOf(OrderStatus.class);
+        for (OrderStatus status : values())
+            if (status.canMoveTo(target))
+                sources.add(status);
+        return sources;
+    }
+
+    @JsonValue
+    public String value() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    @JsonCreator
+    public static OrderStatus of(String value) {
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid order status: " + value);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.ecommerce.order.entity;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+@Converter(autoApply = true)
+public class OrderStatusConverter implements AttributeConverter<OrderStatus, String> {
+
+    @Override
+    public String convertToDatabaseColumn(OrderStatus status) {
+        return status == null ? null : status.value();
+    }
+
+    @Override
+    public OrderStatus convertToEntityAttribute(String value) {
+        return value == null ? null : OrderStatus.of(value);
+    }
+}
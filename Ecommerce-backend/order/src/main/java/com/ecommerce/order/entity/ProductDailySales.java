@@ -0,0 +1,45 @@
+package com.ecommerce.order.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Units and revenue per product per day, dated by the order. Kept up to date by SalesRollup here
+ * and by the order-items service, which writes order items too.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table(name = "product_daily_sales")
+@IdClass(ProductDailySales.Key.class)
+public class ProductDailySales {
+
+    @Id
+    private LocalDate salesDate;
+
+    @Id
+    private String productId;
+
+    @Column(nullable = false)
+    private long units;
+
+    @Column(nullable = false, precision = 14, scale = 2)
+    private BigDecimal revenue;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private LocalDate salesDate;
+        private String productId;
+    }
+}
@@ -1,10 +1,97 @@
 package com.ecommerce.order.repository;
 
 import com.ecommerce.order.entity.Order;
+import com.ecommerce.order.entity.OrderStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
 @Repository
 public interface OrderRepository extends JpaRepository<Order, String> {
+
+    // Conditional GET and If-Match without loading the row
+    @Query("select o.version from Order o where o.orderId = :orderId")
+    Optional<Long> findVersion(@Param("orderId") String orderId);
+
+    @Query("select o.status from Order o where o.orderId = :orderId")
+    Optional<OrderStatus> findStatus(@Param("orderId") String orderId);
+
+    // Compare-and-set status changes: one statement each, no read first. The status guard makes
+    // concurrent moves safe, and the version bump makes them visible to ETag and If-Match checks.
+    @Modifying
+    @Query("update Order o set o.status = :to, o.version = o.version + 1 " +
+            "where o.orderId = :orderId and o.status in :sources")
+    int transition(@Param("orderId") String orderId,
+                   @Param("sources") Collection<OrderStatus> sources,
+                   @Param("to") OrderStatus to);
+
+    @Modifying
+    @Query("update Order o set o.status = :to, o.version = o.version + 1 " +
+            "where o.orderId in :orderIds and o.status in :sources")
+    int transitionAll(@Param("orderIds") Collection<String> orderIds,
+                      @Param("sources") Collection<OrderStatus> sources,
+                      @Param("to") OrderStatus to);
+
+    // A user's order history as keyset (seek) pages over idx_orders_user_id_order_date, newest
+    // first. Slices fetch size + 1 rows and never COUNT, so a page costs the same however many
+    // orders the user, or the table, has. A null status matches every order.
+    @Query("select o from Order o where o.userId = :userId and (:status is null or o.status = :status) " +
+            "order by o.orderDate desc, o.orderId desc")
+    Slice<Order> findHistory(@Param("userId") String userId,
+                             @Param("status") OrderStatus status,
+                             Pageable pageable);
+
+    @Query("select o from Order o where o.userId = :userId and (:status is null or o.status = :status) " +
+            "and (o.orderDate < :orderDate or (o.orderDate = :orderDate and o.orderId < :orderId)) " +
+            "order by o.orderDate desc, o.orderId desc")
+    Slice<Order> findHistoryBefore(@Param("userId") String userId,
+                                   @Param("status") OrderStatus status,
+                                   @Param("orderDate") Timestamp orderDate,
+                                   @Param("orderId") String orderId,
+                                   Pageable pageable);
+
+    // Checkout prices items and checks the card itself. product and card belong to other
+    // services but live in the same schema, hence the native queries.
+    @Query(value = "select p.product_id as productId, p.discounted_price as price from product p where p.product_id in (:productIds)",
+            nativeQuery = true)
+    List<ProductPrice> findProductPrices(@Param("productIds") Collection<String> productIds);
+
+    @Query(value = "select c.user_id from card c where c.card_id = :cardId", nativeQuery = true)
+    Optional<String> findCardOwner(@Param("cardId") String cardId);
+
+    // Items of a page of orders in one statement over idx_order_items_order_id, instead of one
+    // lookup per order. order_items belongs to the order-items service but lives in the same schema.
+    @Query(value = "select i.order_item_id as orderItemId, i.order_id as orderId, i.product_id as productId,"
+            + " i.quantity as quantity, i.price as price from order_items i where i.order_id in (:orderIds)",
+            nativeQuery = true)
+    List<OrderItemLine> findItems(@Param("orderIds") Collection<String> orderIds);
+
+    interface OrderItemLine {
+        String getOrderItemId();
+
+        String getOrderId();
+
+        String getProductId();
+
+        Integer getQuantity();
+
+        BigDecimal getPrice();
+    }
+
+    interface ProductPrice {
+        String getProductId();
+
+        BigDecimal getPrice();
+    }
 }
 
@@ -0,0 +1,155 @@
+package com.ecommerce.order.rollup;
+
+import com.ecommerce.order.dto.CheckoutLine;
+import com.ecommerce.order.dto.DaySales;
+import com.ecommerce.order.dto.ProductSales;
+import com.ecommerce.order.dto.SalesStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Keeps order_daily_sales and product_daily_sales in step with orders and order_items, so sales
+ * questions read a few summary rows instead of scanning both tables. Writers call it inside
+ * their own transaction, so a rollup change commits or rolls back with the order it counts.
+ * Changes are deltas, added with an upsert; the rows are never read back on the write path.
+ * Each day of order counts is spread over order.rollup.slots rows, picked at random per write,
+ * so concurrent orders rarely wait on the same row lock.
+ * <p>
+ * {@link #backfill} rebuilds whole days from the source tables, for data written before the
+ * rollups existed. A day is rebuilt in one transaction, so orders committed while their own day
+ * is being rebuilt may be counted twice or not at all; run it for closed days.
+ */
+@Component
+public class SalesRollup {
+
+    private static final String ADD_ORDERS_SQL = """
+            INSERT INTO order_daily_sales (sales_date, slot, order_count, revenue) VALUES (?, ?, ?, ?)
+            ON DUPLICATE KEY UPDATE order_count = order_count + VALUES(order_count), revenue = revenue + VALUES(revenue)
+            """;
+    private static final String ADD_PRODUCT_SQL = """
+            INSERT INTO product_daily_sales (sales_date, product_id, units, revenue) VALUES (?, ?, ?, ?)
+            ON DUPLICATE KEY UPDATE units = units + VALUES(units), revenue = revenue + VALUES(revenue)
+            """;
+
+    // A day's source rows are found over idx_orders_order_date
+    private static final String CLEAR_ORDERS_SQL = "DELETE FROM order_daily_sales WHERE sales_date = ?";
+    private static final String REBUILD_ORDERS_SQL = """
+            INSERT INTO order_daily_sales (sales_date, slot, order_count, revenue)
+            SELECT ?, 0, COUNT(*), SUM(total_amount) FROM orders
+            WHERE order_date >= ? AND order_date < ?
+            HAVING COUNT(*) > 0
+            """;
+    private static final String CLEAR_PRODUCTS_SQL = "DELETE FROM product_daily_sales WHERE sales_date = ?";
+    private static final String REBUILD_PRODUCTS_SQL = """
+            INSERT INTO product_daily_sales (sales_date, product_id, units, revenue)
+            SELECT ?, i.product_id, SUM(i.quantity), SUM(i.quantity * i.price)
+            FROM orders o JOIN order_items i ON i.order_id = o.order_id
+            WHERE o.order_date >= ? AND o.order_date < ?
+            GROUP BY i.product_id
+            """;
+
+    private static final String DAYS_SQL = """
+            SELECT sales_date, SUM(order_count) AS order_count, SUM(revenue) AS revenue FROM order_daily_sales
+            WHERE sales_date BETWEEN ? AND ?
+            GROUP BY sales_date ORDER BY sales_date
+            """;
+    private static final String TOP_PRODUCTS_SQL = """
+            SELECT product_id, SUM(units) AS units, SUM(revenue) AS revenue FROM product_daily_sales
+            WHERE sales_date BETWEEN ? AND ?
+            GROUP BY product_id ORDER BY SUM(revenue) DESC, product_id LIMIT ?
+            """;
+    private static final String PRODUCT_SQL = """
+            SELECT product_id, SUM(units) AS units, SUM(revenue) AS revenue FROM product_daily_sales
+            WHERE sales_date BETWEEN ? AND ? AND product_id = ?
+            GROUP BY product_id
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int slots;
+
+    public SalesRollup(JdbcTemplate jdbcTemplate,
+                       TransactionTemplate transactionTemplate,
+                       @Value("${order.rollup.slots:16}") int slots) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.slots = Math.max(1, slots);
+    }
+
+    // orders is +1 for a new order, -1 for a deleted one and 0 when only the amount changed
+    public void addOrders(Timestamp orderDate, int orders, BigDecimal revenue) {
+        if (orders == 0 && revenue.signum() == 0)
+            return;
+        jdbcTemplate.update(ADD_ORDERS_SQL, day(orderDate), ThreadLocalRandom.current().nextInt(slots), orders, revenue);
+    }
+
+    public void addItems(Timestamp orderDate, List<CheckoutLine> lines) {
+        Date day = day(orderDate);
+        jdbcTemplate.batchUpdate(ADD_PRODUCT_SQL, lines, lines.size(), (ps, line) -> {
+            ps.setDate(1, day);
+            ps.setString(2, line.getProductId());
+            ps.setInt(3, line.getQuantity());
+            ps.setBigDecimal(4, line.getPrice().multiply(BigDecimal.valueOf(line.getQuantity())));
+        });
+    }
+
+    // Rebuilds every day from from to to, both inclusive; returns the number of days rebuilt
+    public int backfill(LocalDate from, LocalDate to) {
+        int days = 0;
+        for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+            Date day = Date.valueOf(date);
+            Timestamp start = Timestamp.valueOf(date.atStartOfDay());
+            Timestamp end = Timestamp.valueOf(date.plusDays(1).atStartOfDay());
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.update(CLEAR_ORDERS_SQL, day);
+                jdbcTemplate.update(REBUILD_ORDERS_SQL, day, start, end);
+                jdbcTemplate.update(CLEAR_PRODUCTS_SQL, day);
+                jdbcTemplate.update(REBUILD_PRODUCTS_SQL, day, start, end);
+            });
+            days++;
+        }
+        return days;
+    }
+
+    // With a productId, products holds just that product; otherwise the top ones by revenue
+    public SalesStats stats(LocalDate from, LocalDate to, String productId, int top) {
+        Date start = Date.valueOf(from);
+        Date end = Date.valueOf(to);
+        List<DaySales> days = jdbcTemplate.query(DAYS_SQL, (rs, rowNum) -> new DaySales(
+                rs.getDate("sales_date").toLocalDate(), rs.getLong("order_count"), rs.getBigDecimal("revenue")), start, end);
+        List<ProductSales> products = productId == null
+                ? jdbcTemplate.query(TOP_PRODUCTS_SQL, this::productSales, start, end, top)
+                : jdbcTemplate.query(PRODUCT_SQL, this::productSales, start, end, productId);
+
+        long orders = 0;
+        BigDecimal revenue = BigDecimal.ZERO;
+        for (DaySales day : days) {
+            orders += day.getOrders();
+            revenue = revenue.add(day.getRevenue());
+        }
+        return new SalesStats(from, to, orders, revenue, days, products);
+    }
+
+    private ProductSales productSales(ResultSet rs, int rowNum) throws SQLException {
+        return new ProductSales(rs.getString("product_id"), rs.getLong("units"), rs.getBigDecimal("revenue"));
+    }
+
+    // orders.order_date holds whole seconds and MySQL rounds the fraction away on insert, so an
+    // order in the last half second of a day is stored, and backfilled, under the next one
+    private static Date day(Timestamp orderDate) {
+        LocalDateTime stored = (orderDate == null ? new Timestamp(System.currentTimeMillis()) : orderDate).toLocalDateTime();
+        return Date.valueOf(stored.plusNanos(500_000_000).toLocalDate());
+    }
+}
@@ -0,0 +1,8 @@
+package com.ecommerce.order.service;
+
+import com.ecommerce.order.dto.CheckoutRequest;
+import com.ecommerce.order.dto.CheckoutResult;
+
+public interface CheckoutService {
+    CheckoutResult checkout(CheckoutRequest request);
+}
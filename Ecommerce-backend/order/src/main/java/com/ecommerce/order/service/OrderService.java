@@ -1,16 +1,36 @@
 package com.ecommerce.order.service;
 
+import com.ecommerce.order.dto.BulkStatusTransition;
+import com.ecommerce.order.dto.BulkTransitionResult;
+import com.ecommerce.order.dto.CursorPage;
+import com.ecommerce.order.dto.OrderWithItems;
+import com.ecommerce.order.dto.SalesStats;
+import com.ecommerce.order.dto.StatusTransition;
 import com.ecommerce.order.entity.Order;
+import com.ecommerce.order.entity.OrderStatus;
+import com.ecommerce.order.repository.OrderRepository.OrderItemLine;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 
 public interface OrderService {
     Page<Order> getOrders(Pageable pageable);
+    Page<OrderWithItems> getOrdersWithItems(Pageable pageable);
+    CursorPage<Order> getOrderHistory(String userId, String status, String cursor, int size);
+    List<OrderItemLine> getOrderItems(String orderId);
+    Map<String, List<OrderItemLine>> getOrderItems(Collection<String> orderIds);
     Order getOrderById(String id);
+    String getOrderETag(String id);
     Order createOrder(Order order);
-    Order updateOrder(Order updatedOrder);
-    void patchOrder(String orderId, Map<String, Object> updates);
+    Order updateOrder(Order updatedOrder, String ifMatch);
+    void patchOrder(String orderId, Map<String, Object> updates, String ifMatch);
+    OrderStatus transitionStatus(String orderId, StatusTransition transition);
+    BulkTransitionResult transitionStatus(BulkStatusTransition transition);
+    SalesStats getSalesStats(LocalDate from, LocalDate to, String productId, int top);
+    int backfillSalesStats(LocalDate from, LocalDate to);
     void deleteOrder(String id);
 }
@@ -0,0 +1,108 @@
+package com.ecommerce.order.service.impl;
+
+import com.ecommerce.common.id.Ids;
+import com.ecommerce.order.dto.CheckoutItem;
+import com.ecommerce.order.dto.CheckoutLine;
+import com.ecommerce.order.dto.CheckoutRequest;
+import com.ecommerce.order.dto.CheckoutResult;
+import com.ecommerce.order.entity.Order;
+import com.ecommerce.order.entity.OrderStatus;
+import com.ecommerce.order.repository.OrderRepository;
+import com.ecommerce.order.repository.OrderRepository.ProductPrice;
+import com.ecommerce.order.rollup.SalesRollup;
+import com.ecommerce.order.service.CheckoutService;
+import jakarta.transaction.Transactional;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Places an order in one local transaction. The order, its items, the payment transaction and
+ * the invoice are written together or not at all, where the client used to call four services
+ * that each committed on their own. order_items, transactions and invoices belong to those
+ * services but live in the same schema, so they are written here with plain SQL, the items as
+ * one JDBC batch.
+ */
+@Service
+@Transactional
+public class CheckoutServiceImpl implements CheckoutService {
+
+    private static final OrderStatus PAID_STATUS = OrderStatus.PROCESSING; // Paid, not yet shipped
+
+    private static final String INSERT_ORDER_SQL =
+            "INSERT INTO orders (order_id, user_id, order_date, total_amount, status, version) VALUES (?, ?, ?, ?, ?, 0)";
+    private static final String INSERT_ITEM_SQL =
+            "INSERT INTO order_items (order_item_id, order_id, product_id, quantity, price) VALUES (?, ?, ?, ?, ?)";
+    private static final String INSERT_TRANSACTION_SQL =
+            "INSERT INTO transactions (transaction_id, order_id, card_id, amount, transaction_date) VALUES (?, ?, ?, ?, ?)";
+    private static final String INSERT_INVOICE_SQL =
+            "INSERT INTO invoices (invoice_id, transaction_id, payment_amount, payment_date) VALUES (?, ?, ?, ?)";
+
+    private final OrderRepository orderRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final SalesRollup salesRollup;
+
+    public CheckoutServiceImpl(OrderRepository orderRepository, JdbcTemplate jdbcTemplate, SalesRollup salesRollup) {
+        this.orderRepository = orderRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.salesRollup = salesRollup;
+    }
+
+    @Override
+    public CheckoutResult checkout(CheckoutRequest request) {
+        String cardOwner = orderRepository.findCardOwner(request.getCardId())
+                .orElseThrow(() -> new IllegalArgumentException("Card " + request.getCardId() + " not found"));
+        if (!cardOwner.equals(request.getUserId()))
+            throw new IllegalArgumentException("Card " + request.getCardId() + " does not belong to user " + request.getUserId());
+
+        // Items are charged the current price, never one sent by the client
+        Map<String, BigDecimal> prices = new HashMap<>();
+        orderRepository.findProductPrices(request.getItems().stream().map(CheckoutItem::getProductId).distinct().toList())
+                .forEach(product -> prices.put(product.getProductId(), product.getPrice()));
+
+        String orderId = Ids.next();
+        List<CheckoutLine> lines = new ArrayList<>(request.getItems().size());
+        BigDecimal total = BigDecimal.ZERO;
+        for (CheckoutItem item : request.getItems()) {
+            BigDecimal price = prices.get(item.getProductId());
+            if (price == null)
+                throw new IllegalArgumentException("Product " + item.getProductId() + " not found");
+            lines.add(new CheckoutLine(Ids.next(), item.getProductId(), item.getQuantity(), price));
+            total = total.add(price.multiply(BigDecimal.valueOf(item.getQuantity())));
+        }
+        if (total.signum() <= 0)
+            throw new IllegalArgumentException("Total amount must be greater than zero");
+
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        Order order = Order.builder()
+                .orderId(orderId)
+                .userId(request.getUserId())
+                .orderDate(now)
+                .totalAmount(total)
+                .status(PAID_STATUS)
+                .build();
+        String transactionId = Ids.next();
+        String invoiceId = Ids.next();
+
+        jdbcTemplate.update(INSERT_ORDER_SQL, orderId, order.getUserId(), now, total, PAID_STATUS.value());
+        jdbcTemplate.batchUpdate(INSERT_ITEM_SQL, lines, lines.size(), (ps, line) -> {
+            ps.setString(1, line.getOrderItemId());
+            ps.setString(2, orderId);
+            ps.setString(3, line.getProductId());
+            ps.setInt(4, line.getQuantity());
+            ps.setBigDecimal(5, line.getPrice());
+        });
+        jdbcTemplate.update(INSERT_TRANSACTION_SQL, transactionId, orderId, request.getCardId(), total, now);
+        jdbcTemplate.update(INSERT_INVOICE_SQL, invoiceId, transactionId, total, now);
+        salesRollup.addOrders(now, 1, total);
+        salesRollup.addItems(now, lines);
+
+        return new CheckoutResult(order, lines, transactionId, invoiceId);
+    }
+}
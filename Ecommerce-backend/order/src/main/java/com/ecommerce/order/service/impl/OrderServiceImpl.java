@@ -1,85 +1,269 @@
 package com.ecommerce.order.service.impl;
 
+import com.ecommerce.common.etag.ETags;
+import com.ecommerce.common.id.Ids;
+import com.ecommerce.common.patch.EntityPatcher;
+import com.ecommerce.order.dto.BulkStatusTransition;
+import com.ecommerce.order.dto.BulkTransitionResult;
+import com.ecommerce.order.dto.CursorPage;
+import com.ecommerce.order.dto.OrderCursor;
+import com.ecommerce.order.dto.OrderWithItems;
+import com.ecommerce.order.dto.SalesStats;
+import com.ecommerce.order.dto.StatusTransition;
 import com.ecommerce.order.entity.Order;
+import com.ecommerce.order.entity.OrderStatus;
 import com.ecommerce.order.repository.OrderRepository;
+import com.ecommerce.order.repository.OrderRepository.OrderItemLine;
+import com.ecommerce.order.rollup.SalesRollup;
 import com.ecommerce.order.service.OrderService;
 import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.lang.reflect.Field;
+import java.math.BigDecimal;
 import java.sql.Timestamp;
-import java.time.OffsetDateTime;
-import java.time.format.DateTimeParseException;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.UUID;
+import java.util.Set;
+import java.util.TreeMap;
 
 @Service
 @Transactional
 public class OrderServiceImpl implements OrderService {
 
+    private static final EntityPatcher<Order> PATCHER = EntityPatcher.of(Order.class);
+    private static final int MAX_ITEM_LOOKUP_ORDERS = 100; // Bounds the IN list
+    private static final int MAX_HISTORY_PAGE_SIZE = 100;
+    private static final int MAX_STATS_DAYS = 366;
+    private static final int MAX_TOP_PRODUCTS = 100;
+    private static final String STATUS_CHANGE_MESSAGE = "Status changes go through POST /orders/{orderId}/transitions";
+
     @Autowired
     private OrderRepository orderRepository;
 
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private SalesRollup salesRollup;
+
+    @Value("${order.status.bulk-chunk-size:1000}")
+    private int bulkChunkSize;
+
     @Override
     public Page<Order> getOrders(Pageable pageable) {
         return orderRepository.findAll(pageable);
     }
 
+    // The page (plus its count) and then its items, one statement per MAX_ITEM_LOOKUP_ORDERS orders
+    @Override
+    public Page<OrderWithItems> getOrdersWithItems(Pageable pageable) {
+        Page<Order> orders = orderRepository.findAll(pageable);
+        Map<String, List<OrderItemLine>> items = findItems(orders.map(Order::getOrderId).getContent());
+        return orders.map(order -> new OrderWithItems(order, items.get(order.getOrderId())));
+    }
+
+    @Override
+    public CursorPage<Order> getOrderHistory(String userId, String statusFilter, String cursor, int size) {
+        if (size < 1 || size > MAX_HISTORY_PAGE_SIZE)
+            throw new IllegalArgumentException("Size must be between 1 and " + MAX_HISTORY_PAGE_SIZE);
+        OrderStatus status = statusFilter == null || statusFilter.isBlank() ? null : OrderStatus.of(statusFilter);
+        OrderCursor position = cursor == null || cursor.isBlank() ? null : OrderCursor.decode(cursor);
+        // The queries carry their own order by, matching the index
+        Pageable pageable = PageRequest.of(0, size);
+        Slice<Order> slice = position == null
+                ? orderRepository.findHistory(userId, status, pageable)
+                : orderRepository.findHistoryBefore(userId, status, position.orderDate(), position.orderId(), pageable);
+
+        List<Order> content = slice.getContent();
+        String nextCursor = null;
+        if (slice.hasNext()) {
+            Order last = content.get(content.size() - 1);
+            nextCursor = new OrderCursor(last.getOrderDate(), last.getOrderId()).encode();
+        }
+        return new CursorPage<>(content, content.size(), nextCursor);
+    }
+
+    @Override
+    public List<OrderItemLine> getOrderItems(String orderId) {
+        List<OrderItemLine> items = orderRepository.findItems(List.of(orderId));
+        if (items.isEmpty() && !orderRepository.existsById(orderId))
+            return null;
+        return items;
+    }
+
+    @Override
+    public Map<String, List<OrderItemLine>> getOrderItems(Collection<String> orderIds) {
+        if (orderIds.size() > MAX_ITEM_LOOKUP_ORDERS)
+            throw new IllegalArgumentException("At most " + MAX_ITEM_LOOKUP_ORDERS + " orders can be looked up at once");
+        return findItems(orderIds);
+    }
+
+    // Grouped by order in the order the IDs were given; an order without items maps to an empty list.
+    // MySQL compares IDs case-insensitively, so an item can come back under a differently cased ID
+    // than the one asked for; IDs differing only in case share one list.
+    private Map<String, List<OrderItemLine>> findItems(Collection<String> orderIds) {
+        Map<String, List<OrderItemLine>> byId = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        Map<String, List<OrderItemLine>> items = new LinkedHashMap<>();
+        orderIds.forEach(orderId -> items.put(orderId, byId.computeIfAbsent(orderId, id -> new ArrayList<>())));
+
+        List<String> ids = new ArrayList<>(byId.keySet());
+        for (int from = 0; from < ids.size(); from += MAX_ITEM_LOOKUP_ORDERS) {
+            List<String> chunk = ids.subList(from, Math.min(from + MAX_ITEM_LOOKUP_ORDERS, ids.size()));
+            for (OrderItemLine item : orderRepository.findItems(chunk)) {
+                List<OrderItemLine> lines = byId.get(item.getOrderId());
+                if (lines != null)
+                    lines.add(item);
+            }
+        }
+        return items;
+    }
+
     @Override
     public Order getOrderById(String id) {
         Optional<Order> optionalOrder = orderRepository.findById(id);
         return optionalOrder.orElse(null);
     }
 
+    @Override
+    public String getOrderETag(String id) {
+        return orderRepository.findVersion(id).map(version -> ETags.of(id, version)).orElse(null);
+    }
+
     @Override
     public Order createOrder(Order order) {
+        if (order.getStatus() == null)
+            order.setStatus(OrderStatus.PENDING);
         if(order.getOrderId() == null)
-            order.setOrderId(UUID.randomUUID().toString());
+            order.setOrderId(Ids.next());
         else {
             Optional<Order> existingOrder = orderRepository.findById(order.getOrderId());
             if (existingOrder.isPresent()) {
                 throw new RuntimeException("Order with ID " + order.getOrderId() + " already exists.");
             }
         }
-        return orderRepository.saveAndFlush(order);
+        Order createdOrder = orderRepository.saveAndFlush(order);
+        salesRollup.addOrders(createdOrder.getOrderDate(), 1, createdOrder.getTotalAmount());
+        return createdOrder;
     }
 
     @Override
-    public Order updateOrder(Order updatedOrder) {
-        return orderRepository.saveAndFlush(updatedOrder);
+    public Order updateOrder(Order updatedOrder, String ifMatch) {
+        Order existingOrder = orderRepository.findById(updatedOrder.getOrderId()).orElse(null);
+        if (existingOrder == null) {
+            ETags.checkIfMatch(ifMatch, updatedOrder.getOrderId(), null);
+            Order createdOrder = orderRepository.saveAndFlush(updatedOrder);
+            salesRollup.addOrders(createdOrder.getOrderDate(), 1, createdOrder.getTotalAmount());
+            return createdOrder;
+        }
+        ETags.checkIfMatch(ifMatch, updatedOrder.getOrderId(), existingOrder.getVersion());
+        if (updatedOrder.getStatus() != existingOrder.getStatus())
+            throw new IllegalArgumentException(STATUS_CHANGE_MESSAGE);
+        // Saving copies the body onto existingOrder, so take what the rollup needs first
+        Timestamp orderDate = existingOrder.getOrderDate();
+        BigDecimal previousAmount = existingOrder.getTotalAmount();
+        // The body replaces the content, not the version; concurrent writers are caught by If-Match or at flush
+        updatedOrder.setVersion(existingOrder.getVersion());
+        Order savedOrder = orderRepository.saveAndFlush(updatedOrder);
+        salesRollup.addOrders(orderDate, 0, savedOrder.getTotalAmount().subtract(previousAmount));
+        return savedOrder;
     }
 
     @Override
-    public void patchOrder(String orderId, Map<String, Object> updates) {
+    public void patchOrder(String orderId, Map<String, Object> updates, String ifMatch) {
+        if (updates.containsKey("status"))
+            throw new IllegalArgumentException(STATUS_CHANGE_MESSAGE);
         Order existingOrder = orderRepository.findById(orderId).orElseThrow(() -> new RuntimeException("Order not found"));
-        updates.forEach((key, value) -> {
-            try {
-                Field field = Order.class.getDeclaredField(key);
-                field.setAccessible(true);
-                if (field.getType() == Timestamp.class) {
-                    try {
-                        OffsetDateTime odt = OffsetDateTime.parse((String) value);
-                        Timestamp timestampValue = Timestamp.from(odt.toInstant());
-                        field.set(existingOrder, timestampValue);
-                    } catch (DateTimeParseException e) {
-                        throw new IllegalArgumentException("Invalid format for " + key + " TimeStamp field");
-                    }
-                } else {
-                    field.set(existingOrder, value);
-                }
-            } catch (NoSuchFieldException | IllegalAccessException e) {
-                throw new IllegalArgumentException("Invalid update field: " + key);
-            }
-        });
-        orderRepository.save(existingOrder);
+        ETags.checkIfMatch(ifMatch, orderId, existingOrder.getVersion());
+        BigDecimal previousAmount = existingOrder.getTotalAmount();
+        PATCHER.apply(existingOrder, updates);
+        orderRepository.saveAndFlush(existingOrder);
+        salesRollup.addOrders(existingOrder.getOrderDate(), 0, existingOrder.getTotalAmount().subtract(previousAmount));
+    }
+
+    @Override
+    public OrderStatus transitionStatus(String orderId, StatusTransition transition) {
+        OrderStatus to = transition.getTo();
+        if (orderRepository.transition(orderId, sources(transition.getFrom(), to), to) == 1)
+            return to;
+        // Only a refused move reads the order, to tell a missing order from one in the wrong status
+        OrderStatus current = orderRepository.findStatus(orderId).orElse(null);
+        if (current == null || current == to)
+            return current; // Already there: a retried move succeeds
+        throw new IllegalStateException("Order " + orderId + " is " + current.value() + " and cannot move to " + to.value());
+    }
+
+    // Chunk by chunk, each committed on its own, so a large move never holds thousands of row locks
+    @Override
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public BulkTransitionResult transitionStatus(BulkStatusTransition transition) {
+        OrderStatus to = transition.getTo();
+        Set<OrderStatus> sources = sources(transition.getFrom(), to);
+        List<String> orderIds = transition.getOrderIds().stream().distinct().toList();
+        int moved = 0;
+        int chunks = 0;
+        for (int start = 0; start < orderIds.size(); start += bulkChunkSize) {
+            List<String> chunk = orderIds.subList(start, Math.min(start + bulkChunkSize, orderIds.size()));
+            Integer updated = transactionTemplate.execute(status -> orderRepository.transitionAll(chunk, sources, to));
+            moved += updated == null ? 0 : updated;
+            chunks++;
+        }
+        return new BulkTransitionResult(orderIds.size(), moved, orderIds.size() - moved, chunks);
+    }
+
+    private static Set<OrderStatus> sources(OrderStatus from, OrderStatus to) {
+        if (from != null) {
+            if (!from.canMoveTo(to))
+                throw new IllegalArgumentException("An order cannot move from " + from.value() + " to " + to.value());
+            return EnumSet.of(from);
+        }
+        Set<OrderStatus> sources = OrderStatus.sourcesOf(to);
+        if (sources.isEmpty())
+            throw new IllegalArgumentException("No order can move to " + to.value());
+        return sources;
     }
 
     @Override
     public void deleteOrder(String id) {
-        orderRepository.deleteById(id);
+        orderRepository.findById(id).ifPresent(order -> {
+            orderRepository.delete(order);
+            salesRollup.addOrders(order.getOrderDate(), -1, order.getTotalAmount().negate());
+        });
+    }
+
+    @Override
+    public SalesStats getSalesStats(LocalDate from, LocalDate to, String productId, int top) {
+        checkRange(from, to);
+        if (top < 1 || top > MAX_TOP_PRODUCTS)
+            throw new IllegalArgumentException("Top must be between 1 and " + MAX_TOP_PRODUCTS);
+        return salesRollup.stats(from, to, productId, top);
+    }
+
+    // Every day commits on its own
+    @Override
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public int backfillSalesStats(LocalDate from, LocalDate to) {
+        checkRange(from, to);
+        return salesRollup.backfill(from, to);
+    }
+
+    private static void checkRange(LocalDate from, LocalDate to) {
+        if (from.isAfter(to))
+            throw new IllegalArgumentException("From must not be after to");
+        if (ChronoUnit.DAYS.between(from, to) >= MAX_STATS_DAYS)
+            throw new IllegalArgumentException("At most " + MAX_STATS_DAYS + " days can be covered at once");
     }
 }
@@ -0,0 +1,150 @@
+package com.ecommerce.order.controller;
+
+import com.ecommerce.common.idempotency.IdempotencyStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * product, card, order_items, transactions and invoices belong to other services; the test
+ * creates the columns checkout touches.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:checkout;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+@AutoConfigureMockMvc
+class CheckoutTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private String userId;
+    private String cardId;
+
+    @BeforeEach
+    void customerWithCard() {
+        jdbcTemplate.execute("create table if not exists product (product_id varchar(255) primary key, discounted_price decimal(10,2))");
+        jdbcTemplate.execute("create table if not exists card (card_id varchar(255) primary key, user_id varchar(255) not null)");
+        jdbcTemplate.execute("create table if not exists order_items (order_item_id varchar(255) primary key, order_id varchar(255), product_id varchar(255), quantity int, price decimal(10,2))");
+        jdbcTemplate.execute("create table if not exists transactions (transaction_id varchar(255) primary key, order_id varchar(255), card_id varchar(255), amount decimal(10,2), transaction_date timestamp)");
+        jdbcTemplate.execute("create table if not exists invoices (invoice_id varchar(255) primary key, transaction_id varchar(255), payment_amount decimal(10,2), payment_date timestamp)");
+        jdbcTemplate.update("merge into product key (product_id) values ('p1', 10.50), ('p2', 4.00)");
+
+        userId = UUID.randomUUID().toString();
+        cardId = UUID.randomUUID().toString();
+        jdbcTemplate.update("insert into card (card_id, user_id) values (?, ?)", cardId, userId);
+    }
+
+    @Test
+    void writesOrderItemsPaymentAndInvoiceTogether() throws Exception {
+        String body = checkout(cardId, item("p1", 2), item("p2", 3))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.order.totalAmount").value(33.0))
+                .andExpect(jsonPath("$.order.status").value("processing"))
+                .andExpect(jsonPath("$.items.length()").value(2))
+                .andExpect(jsonPath("$.items[0].price").value(10.5))
+                .andReturn().getResponse().getContentAsString();
+        Map<?, ?> result = objectMapper.readValue(body, Map.class);
+        String orderId = (String) ((Map<?, ?>) result.get("order")).get("orderId");
+
+        assertEquals(0, new BigDecimal("33.00").compareTo(
+                jdbcTemplate.queryForObject("select total_amount from orders where order_id = ?", BigDecimal.class, orderId)));
+        assertEquals(2, count("select count(*) from order_items where order_id = ?", orderId));
+        assertEquals(1, count("select count(*) from transactions where order_id = ? and card_id = ? and amount = 33.00", orderId, cardId));
+        assertEquals(1, count("select count(*) from invoices where transaction_id = ? and payment_amount = 33.00", result.get("transactionId")));
+    }
+
+    @Test
+    void unknownProductWritesNothing() throws Exception {
+        long orders = count("select count(*) from orders");
+
+        checkout(cardId, item("p1", 1), item("missing", 1))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Product missing not found"));
+
+        assertEquals(orders, count("select count(*) from orders"));
+        assertEquals(0, count("select count(*) from transactions where card_id = ?", cardId));
+    }
+
+    @Test
+    void cardMustBelongToTheUser() throws Exception {
+        String otherCard = UUID.randomUUID().toString();
+        jdbcTemplate.update("insert into card (card_id, user_id) values (?, ?)", otherCard, "someone-else");
+
+        checkout(otherCard, item("p1", 1))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Card " + otherCard + " does not belong to user " + userId));
+        checkout(cardId, item("p1", 0))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$['items[0].quantity']").value("Quantity must be at least 1"));
+    }
+
+    @Test
+    void retryWithTheSameIdempotencyKeyChecksOutOnce() throws Exception {
+        String key = UUID.randomUUID().toString();
+        String first = checkout(key, cardId, item("p1", 1))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(IdempotencyStore.REPLAYED_HEADER))
+                .andReturn().getResponse().getContentAsString();
+        String retry = checkout(key, cardId, item("p1", 1))
+                .andExpect(status().isOk())
+                .andExpect(header().string(IdempotencyStore.REPLAYED_HEADER, "true"))
+                .andReturn().getResponse().getContentAsString();
+
+        assertEquals(objectMapper.readTree(first), objectMapper.readTree(retry));
+        assertEquals(1, count("select count(*) from transactions where card_id = ?", cardId));
+        checkout(key, cardId, item("p1", 2))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.error").value(IdempotencyStore.HEADER + " " + key + " was already used for a different request"));
+    }
+
+    private ResultActions checkout(String card, Map<?, ?>... items) throws Exception {
+        return checkout(null, card, items);
+    }
+
+    private ResultActions checkout(String idempotencyKey, String card, Map<?, ?>... items) throws Exception {
+        MockHttpServletRequestBuilder request = post("/orders/checkout")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(Map.of("userId", userId, "cardId", card, "items", List.of(items))));
+        if (idempotencyKey != null)
+            request.header(IdempotencyStore.HEADER, idempotencyKey);
+        return mockMvc.perform(request);
+    }
+
+    private Map<String, ?> item(String productId, int quantity) {
+        return Map.of("productId", productId, "quantity", quantity);
+    }
+
+    private long count(String sql, Object... args) {
+        return jdbcTemplate.queryForObject(sql, Long.class, args);
+    }
+}
@@ -0,0 +1,120 @@
+package com.ecommerce.order.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:orderhistory;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+@AutoConfigureMockMvc
+class OrderHistoryTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private String userId;
+
+    @BeforeEach
+    void newUser() {
+        userId = UUID.randomUUID().toString();
+    }
+
+    @Test
+    void walksTheHistoryNewestFirstAcrossEqualDates() throws Exception {
+        Timestamp sameDay = Timestamp.valueOf("2026-01-01 10:00:00");
+        for (int i = 0; i < 5; i++)
+            order(userId, sameDay, "pending");
+        for (int i = 1; i <= 4; i++)
+            order(userId, Timestamp.valueOf("2026-01-0" + (i + 1) + " 10:00:00"), i % 2 == 0 ? "delivered" : "pending");
+        order("someone-else", Timestamp.valueOf("2026-02-01 10:00:00"), "pending");
+
+        List<String> seen = new ArrayList<>();
+        Timestamp previous = null;
+        String cursor = null;
+        do {
+            JsonNode page = page(history().param("size", "2").param("cursor", cursor == null ? "" : cursor));
+            for (JsonNode order : page.get("content")) {
+                Timestamp date = Timestamp.valueOf(order.get("orderDate").asText().replace('T', ' ').substring(0, 19));
+                assertTrue(previous == null || !date.after(previous));
+                previous = date;
+                seen.add(order.get("orderId").asText());
+            }
+            cursor = page.get("nextCursor").isNull() ? null : page.get("nextCursor").asText();
+        } while (cursor != null);
+
+        assertEquals(9, seen.size());
+        assertEquals(9, seen.stream().distinct().count());
+    }
+
+    @Test
+    void filtersByStatus() throws Exception {
+        for (int i = 1; i <= 6; i++)
+            order(userId, Timestamp.valueOf("2026-03-0" + i + " 10:00:00"), i % 3 == 0 ? "shipped" : "pending");
+
+        mockMvc.perform(history().param("status", "shipped"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(2))
+                .andExpect(jsonPath("$.content[0].orderDate").value(startsWith("2026-03-06")))
+                .andExpect(jsonPath("$.nextCursor").isEmpty());
+    }
+
+    @Test
+    void rejectsABadCursorOrSize() throws Exception {
+        mockMvc.perform(history().param("cursor", "not-a-cursor"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Invalid cursor: not-a-cursor"));
+        mockMvc.perform(history().param("size", "1000"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void historySeeksTheUserDateIndex() {
+        String plan = jdbcTemplate.queryForObject("explain select * from orders where user_id = 'u1' "
+                + "and (order_date < timestamp '2026-01-01 00:00:00' or (order_date = timestamp '2026-01-01 00:00:00' and order_id < 'x')) "
+                + "order by order_date desc, order_id desc limit 11", String.class);
+        assertTrue(plan.toLowerCase().contains("idx_orders_user_id_order_date"), plan);
+    }
+
+    private MockHttpServletRequestBuilder history() {
+        return get("/orders").param("userId", userId);
+    }
+
+    private JsonNode page(MockHttpServletRequestBuilder request) throws Exception {
+        String body = mockMvc.perform(request).andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body);
+    }
+
+    private void order(String user, Timestamp orderDate, String status) {
+        jdbcTemplate.update("insert into orders (order_id, user_id, order_date, total_amount, status, version) values (?, ?, ?, 10, ?, 0)",
+                UUID.randomUUID().toString(), user, orderDate, status);
+    }
+}
@@ -0,0 +1,153 @@
+package com.ecommerce.order.controller;
+
+import com.ecommerce.order.entity.Order;
+import com.ecommerce.order.entity.OrderStatus;
+import com.ecommerce.order.repository.OrderRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        // IGNORECASE compares VARCHARs like MySQL's default collation
+        "spring.datasource.url=jdbc:h2:mem:orderitems;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;IGNORECASE=TRUE",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@AutoConfigureMockMvc
+class OrderItemsLookupTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @BeforeEach
+    void emptyOrders() {
+        // order_items belongs to the order-items service
+        jdbcTemplate.execute("create table if not exists order_items (order_item_id varchar(255) primary key, order_id varchar(255), product_id varchar(255), quantity int, price decimal(10,2))");
+        jdbcTemplate.update("delete from order_items");
+        orderRepository.deleteAll();
+    }
+
+    @Test
+    void returnsTheItemsOfOneOrder() throws Exception {
+        String orderId = order();
+        String empty = order();
+        item(orderId, "p1");
+        item(orderId, "p2");
+
+        mockMvc.perform(get("/orders/{orderId}/items", orderId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].orderId").value(orderId))
+                .andExpect(jsonPath("$[0].quantity").value(2));
+        mockMvc.perform(get("/orders/{orderId}/items", empty))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(0));
+        mockMvc.perform(get("/orders/{orderId}/items", "missing"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void groupsTheItemsOfSeveralOrders() throws Exception {
+        String first = order();
+        String second = order();
+        item(first, "p1");
+        item(second, "p2");
+        item(second, "p3");
+
+        mockMvc.perform(get("/orders/items").param("orderIds", first, second, "missing"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$['" + first + "'].length()").value(1))
+                .andExpect(jsonPath("$['" + second + "'].length()").value(2))
+                .andExpect(jsonPath("$.missing.length()").value(0));
+    }
+
+    @Test
+    void loadsTheItemsOfAPageWithOneQuery() throws Exception {
+        for (int i = 0; i < 8; i++) {
+            String orderId = order();
+            item(orderId, "p1");
+            item(orderId, "p2");
+        }
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        mockMvc.perform(get("/orders/with-items").param("size", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(5))
+                .andExpect(jsonPath("$.content[4].items.length()").value(2))
+                .andExpect(jsonPath("$.totalElements").value(8));
+
+        // The page, its count and the items of all five orders
+        assertEquals(3, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void pageLargerThanTheLookupLimitIsLoadedInChunks() throws Exception {
+        for (int i = 0; i < 150; i++)
+            item(order(), "p1");
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        mockMvc.perform(get("/orders/with-items").param("size", "200"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(150))
+                .andExpect(jsonPath("$.content[149].items.length()").value(1));
+
+        // The page and two chunks of items; the page is short, so no count is needed
+        assertEquals(3, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void itemsStoredUnderADifferentlyCasedIdStillGroup() throws Exception {
+        String orderId = order();
+        item(orderId.toUpperCase(), "p1");
+
+        mockMvc.perform(get("/orders/items").param("orderIds", orderId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$['" + orderId + "'].length()").value(1));
+        mockMvc.perform(get("/orders/with-items"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].items.length()").value(1));
+    }
+
+    private String order() {
+        return orderRepository.save(Order.builder()
+                .orderId(UUID.randomUUID().toString())
+                .userId("u1")
+                .totalAmount(BigDecimal.TEN)
+                .status(OrderStatus.PENDING)
+                .build()).getOrderId();
+    }
+
+    private void item(String orderId, String productId) {
+        jdbcTemplate.update("insert into order_items (order_item_id, order_id, product_id, quantity, price) values (?, ?, ?, 2, 5.00)",
+                UUID.randomUUID().toString(), orderId, productId);
+    }
+}
@@ -0,0 +1,136 @@
+package com.ecommerce.order.controller;
+
+import com.ecommerce.order.entity.Order;
+import com.ecommerce.order.entity.OrderStatus;
+import com.ecommerce.order.repository.OrderRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:orderstatus;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "order.status.bulk-chunk-size=4"
+})
+@AutoConfigureMockMvc
+class OrderStatusTransitionTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void movesWithOneConditionalUpdate() throws Exception {
+        String orderId = order(OrderStatus.PENDING);
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        transition(orderId, Map.of("to", "processing"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("processing"));
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        Order order = orderRepository.findById(orderId).orElseThrow();
+        assertEquals(OrderStatus.PROCESSING, order.getStatus());
+        assertEquals(1, order.getVersion());
+    }
+
+    @Test
+    void refusesMovesTheTransitionTableDoesNotAllow() throws Exception {
+        String delivered = order(OrderStatus.DELIVERED);
+        String shipped = order(OrderStatus.SHIPPED);
+
+        transition(delivered, Map.of("to", "cancelled"))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.error").value("Order " + delivered + " is delivered and cannot move to cancelled"));
+        transition(shipped, Map.of("from", "pending", "to", "shipped"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("An order cannot move from pending to shipped"));
+        transition("missing", Map.of("to", "shipped"))
+                .andExpect(status().isNotFound());
+        // A retried move to the status the order already has succeeds
+        transition(shipped, Map.of("from", "processing", "to", "shipped"))
+                .andExpect(status().isOk());
+        assertEquals(OrderStatus.DELIVERED, orderRepository.findStatus(delivered).orElseThrow());
+    }
+
+    @Test
+    void patchCannotSetTheStatus() throws Exception {
+        String orderId = order(OrderStatus.PENDING);
+
+        mockMvc.perform(patch("/orders/{orderId}", orderId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"status\":\"delivered\"}"))
+                .andExpect(status().isBadRequest());
+        assertEquals(OrderStatus.PENDING, orderRepository.findStatus(orderId).orElseThrow());
+    }
+
+    @Test
+    void bulkMoveCommitsInChunksAndSkipsOrdersThatCannotMove() throws Exception {
+        List<String> orderIds = new ArrayList<>();
+        for (int i = 0; i < 10; i++)
+            orderIds.add(order(OrderStatus.PROCESSING));
+        String cancelled = order(OrderStatus.CANCELLED);
+        orderIds.add(cancelled);
+        orderIds.add("missing");
+
+        mockMvc.perform(post("/orders/transitions")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Map.of("orderIds", orderIds, "to", "shipped"))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.requested").value(12))
+                .andExpect(jsonPath("$.moved").value(10))
+                .andExpect(jsonPath("$.skipped").value(2))
+                .andExpect(jsonPath("$.chunks").value(3));
+
+        assertEquals(OrderStatus.SHIPPED, orderRepository.findStatus(orderIds.get(0)).orElseThrow());
+        assertEquals(OrderStatus.CANCELLED, orderRepository.findStatus(cancelled).orElseThrow());
+    }
+
+    private ResultActions transition(String orderId, Map<String, String> body) throws Exception {
+        return mockMvc.perform(post("/orders/{orderId}/transitions", orderId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(body)));
+    }
+
+    private String order(OrderStatus status) {
+        return orderRepository.save(Order.builder()
+                .orderId(UUID.randomUUID().toString())
+                .userId("u1")
+                .totalAmount(BigDecimal.TEN)
+                .status(status)
+                .build()).getOrderId();
+    }
+}
@@ -0,0 +1,132 @@
+package com.ecommerce.order.rollup;
+
+import com.ecommerce.order.dto.SalesStats;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:salesrollup;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "order.rollup.slots=4"
+})
+@AutoConfigureMockMvc
+class SalesRollupTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SalesRollup salesRollup;
+
+    private final LocalDate today = LocalDate.now();
+
+    @BeforeEach
+    void emptyTables() {
+        // product, card and order_items belong to other services
+        jdbcTemplate.execute("create table if not exists product (product_id varchar(255) primary key, discounted_price decimal(10,2))");
+        jdbcTemplate.execute("create table if not exists card (card_id varchar(255) primary key, user_id varchar(255) not null)");
+        jdbcTemplate.execute("create table if not exists order_items (order_item_id varchar(255) primary key, order_id varchar(255), product_id varchar(255), quantity int, price decimal(10,2))");
+        jdbcTemplate.execute("create table if not exists transactions (transaction_id varchar(255) primary key, order_id varchar(255), card_id varchar(255), amount decimal(10,2), transaction_date timestamp)");
+        jdbcTemplate.execute("create table if not exists invoices (invoice_id varchar(255) primary key, transaction_id varchar(255), payment_amount decimal(10,2), payment_date timestamp)");
+        jdbcTemplate.update("merge into product key (product_id) values ('p1', 10.00), ('p2', 2.50)");
+        jdbcTemplate.update("merge into card key (card_id) values ('c1', 'u1')");
+        for (String table : List.of("orders", "order_items", "order_daily_sales", "product_daily_sales"))
+            jdbcTemplate.update("delete from " + table);
+    }
+
+    @Test
+    void followsOrderWritesAndAnswersFromTheRollups() throws Exception {
+        String first = createOrder("10.00");
+        createOrder("20.00");
+        mockMvc.perform(patch("/orders/{orderId}", first)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"totalAmount\": 15.00}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/orders/checkout")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Map.of("userId", "u1", "cardId", "c1", "items",
+                                List.of(Map.of("productId", "p1", "quantity", 2), Map.of("productId", "p2", "quantity", 4))))))
+                .andExpect(status().isOk());
+        mockMvc.perform(delete("/orders/{orderId}", first)).andExpect(status().isOk());
+
+        mockMvc.perform(get("/orders/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.orders").value(2))
+                .andExpect(jsonPath("$.revenue").value(50.0))
+                .andExpect(jsonPath("$.days[0].date").value(today.toString()))
+                .andExpect(jsonPath("$.products[0].productId").value("p1"))
+                .andExpect(jsonPath("$.products[0].units").value(2))
+                .andExpect(jsonPath("$.products[1].revenue").value(10.0));
+        mockMvc.perform(get("/orders/stats").param("productId", "p2"))
+                .andExpect(jsonPath("$.products.length()").value(1))
+                .andExpect(jsonPath("$.products[0].units").value(4));
+    }
+
+    @Test
+    void backfillRebuildsWhatTheIncrementalPathBuilt() throws Exception {
+        createOrder("12.50");
+        createOrder("7.50");
+        jdbcTemplate.update("insert into order_items values ('i1', (select min(order_id) from orders), 'p1', 3, 10.00)");
+        SalesStats before = salesRollup.stats(today, today, null, 10);
+
+        jdbcTemplate.update("delete from order_daily_sales");
+        jdbcTemplate.update("delete from product_daily_sales");
+        mockMvc.perform(post("/orders/stats/backfill")
+                        .param("from", today.minusDays(2).toString())
+                        .param("to", today.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.days").value(3));
+
+        SalesStats after = salesRollup.stats(today, today, null, 10);
+        assertEquals(before.getOrders(), after.getOrders());
+        assertEquals(0, before.getRevenue().compareTo(after.getRevenue()));
+        assertEquals(new BigDecimal("20.00"), after.getRevenue());
+        assertEquals(3, after.getProducts().get(0).getUnits());
+    }
+
+    @Test
+    void rejectsAnInvertedRange() throws Exception {
+        mockMvc.perform(get("/orders/stats").param("from", "2026-02-01").param("to", "2026-01-01"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("From must not be after to"));
+    }
+
+    private String createOrder(String amount) throws Exception {
+        String orderId = UUID.randomUUID().toString();
+        mockMvc.perform(post("/orders")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Map.of("orderId", orderId, "userId", "u1", "totalAmount", amount))))
+                .andExpect(status().isOk());
+        return orderId;
+    }
+}
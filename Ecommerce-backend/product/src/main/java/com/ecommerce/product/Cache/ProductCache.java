@@ -0,0 +1,116 @@
+package com.ecommerce.product.Cache;
+
+import com.ecommerce.product.Entity.Product;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Bounded read-through cache of products keyed by id. Caffeine's W-TinyLFU policy keeps
+ * frequently read products resident even when a scan touches many cold ones.
+ * Lookups by name go through a secondary name -> id index that is pruned whenever an
+ * entry leaves the cache, and is re-checked against the cached name on every hit. A name
+ * miss only resolves the id and loads the product through the id path, so an invalidation
+ * racing the load waits for it and then removes it, never leaving a stale product behind.
+ */
+@Component
+public class ProductCache {
+
+    private final Cache<String, Product> productsById;
+    private final Map<String, String> productIdsByName = new ConcurrentHashMap<>();
+    private final LongAdder nameHits = new LongAdder();
+    private final LongAdder nameMisses = new LongAdder();
+
+    public ProductCache(@Value("${product.cache.maximum-size:10000}") long maximumSize,
+                        @Value("${product.cache.expire-after-write:10m}") Duration expireAfterWrite) {
+        this.productsById = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .executor(Runnable::run) // Prune the name index on the calling thread, not in the background
+                .removalListener((String productId, Product product, RemovalCause cause) -> {
+                    if (product != null && product.getProductName() != null)
+                        productIdsByName.remove(product.getProductName(), productId);
+                })
+                .build();
+    }
+
+    public Product getById(String productId, Function<String, Optional<Product>> loader) {
+        return productsById.get(productId, id -> {
+            Optional<Product> loaded = loader.apply(id);
+            loaded.ifPresent(this::indexName);
+            return loaded.orElse(null);
+        });
+    }
+
+    public Product getIfPresent(String productId) {
+        return productsById.getIfPresent(productId);
+    }
+
+    public Product getByName(String productName, Function<String, Optional<String>> idLoader,
+                             Function<String, Optional<Product>> loader) {
+        String productId = productIdsByName.get(productName);
+        if (productId != null) {
+            // Quiet read so the id-path statistics are not skewed by name lookups
+            Product cached = productsById.policy().getIfPresentQuietly(productId);
+            if (cached != null && productName.equals(cached.getProductName())) {
+                nameHits.increment();
+                return cached;
+            }
+        }
+        nameMisses.increment();
+        Optional<String> loadedId = idLoader.apply(productName);
+        if (loadedId.isEmpty())
+            return null;
+        Product loaded = productsById.get(loadedId.get(), id -> {
+            Optional<Product> product = loader.apply(id);
+            product.ifPresent(this::indexName);
+            return product.orElse(null);
+        });
+        // Renamed between the two reads
+        return loaded != null && productName.equals(loaded.getProductName()) ? loaded : null;
+    }
+
+    public void put(Product product) {
+        productsById.put(product.getProductId(), product);
+        indexName(product);
+    }
+
+    public void invalidate(String productId) {
+        productsById.invalidate(productId);
+    }
+
+    public void invalidateAll() {
+        productsById.invalidateAll();
+        productIdsByName.clear();
+    }
+
+    public Map<String, Object> stats() {
+        CacheStats stats = productsById.stats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        long hits = stats.hitCount() + nameHits.sum();
+        long misses = stats.missCount() + nameMisses.sum();
+        result.put("size", productsById.estimatedSize());
+        result.put("hits", hits);
+        result.put("misses", misses);
+        result.put("hitRate", hits + misses == 0 ? 1.0 : (double) hits / (hits + misses));
+        result.put("evictions", stats.evictionCount());
+        return result;
+    }
+
+    private void indexName(Product product) {
+        if (product.getProductName() != null)
+            productIdsByName.put(product.getProductName(), product.getProductId());
+    }
+}
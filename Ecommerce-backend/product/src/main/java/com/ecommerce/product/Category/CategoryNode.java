@@ -0,0 +1,17 @@
+package com.ecommerce.product.Category;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CategoryNode {
+    private String name;
+    private String path;
+    private int count;
+    private List<CategoryNode> children;
+}
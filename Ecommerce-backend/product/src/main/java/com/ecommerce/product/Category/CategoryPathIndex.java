@@ -0,0 +1,83 @@
+package com.ecommerce.product.Category;
+
+import com.ecommerce.product.Entity.Product;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * Maintains product_category, the table behind category filters too large for a primary-key IN
+ * list. Each product has a row for every path in its categories and every ancestor of one, so
+ * "products under a category" is an equality match on the indexed path. Callers write it in the
+ * same transaction as the product row.
+ */
+@Component
+public class CategoryPathIndex {
+
+    // (category_path, product_id) is the primary key; at 4 bytes a utf8mb4 character, 500 + 255
+    // characters is the most that fits InnoDB's 3072 byte key limit
+    public static final int MAX_PATH_LENGTH = 500;
+
+    private static final String DELETE_SQL = "DELETE FROM product_category WHERE product_id = ?";
+    private static final String INSERT_SQL = "INSERT INTO product_category (category_path, product_id) VALUES (?, ?)";
+    private static final String INDEXED_SQL = "SELECT DISTINCT product_id FROM product_category WHERE product_id IN (%s)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CategoryPathIndex(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void index(Product product) {
+        index(List.of(product));
+    }
+
+    public void index(List<Product> products) {
+        if (products.isEmpty())
+            return;
+        jdbcTemplate.batchUpdate(DELETE_SQL, products, products.size(), (ps, product) -> ps.setString(1, product.getProductId()));
+        List<Object[]> rows = new ArrayList<>();
+        for (Product product : products)
+            for (String path : paths(product.getCategories()))
+                rows.add(new Object[]{path, product.getProductId()});
+        if (!rows.isEmpty())
+            jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+    }
+
+    public void remove(String productId) {
+        jdbcTemplate.update(DELETE_SQL, productId);
+    }
+
+    // Products written before the table existed have no rows yet; ones that do are left alone
+    public void backfill(List<Product> products) {
+        if (products.isEmpty())
+            return;
+        String placeholders = String.join(", ", Collections.nCopies(products.size(), "?"));
+        Set<String> indexed = new HashSet<>(jdbcTemplate.queryForList(String.format(INDEXED_SQL, placeholders), String.class,
+                products.stream().map(Product::getProductId).toArray()));
+        index(products.stream().filter(product -> !indexed.contains(product.getProductId())).toList());
+    }
+
+    // Paths deeper than the column holds are left out, so only shorter ones can be filtered on here
+    public static boolean covers(String path) {
+        return CategoryTree.normalize(path).length() <= MAX_PATH_LENGTH;
+    }
+
+    // Every path and each of its ancestors, spelled as CategoryTree.normalize spells them
+    static Set<String> paths(String categories) {
+        Set<String> paths = new LinkedHashSet<>();
+        for (List<String> segments : CategoryTree.parse(categories)) {
+            StringBuilder path = new StringBuilder();
+            for (String segment : segments) {
+                if (!path.isEmpty())
+                    path.append(' ').append(CategoryTree.SEPARATOR).append(' ');
+                path.append(segment);
+                if (path.length() > MAX_PATH_LENGTH)
+                    break;
+                paths.add(path.toString());
+            }
+        }
+        return paths;
+    }
+}
@@ -0,0 +1,249 @@
+package com.ecommerce.product.Category;
+
+import com.ecommerce.product.Entity.Product;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Trie of the category paths stored in Product.categories, e.g.
+ * {@code ["Clothing >> Women's Clothing >> Western Wear"]}. Every node carries the number of
+ * distinct products at or below it. Product ids are kept only on the node where a path ends,
+ * so a subtree's ids are gathered on demand instead of being duplicated at every level.
+ */
+@Component
+public class CategoryTree {
+
+    public static final String SEPARATOR = ">>";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final Node root = new Node("", null);
+    // productId -> nodes where that product's paths end, used to undo a product on update/delete
+    private final Map<String, List<Node>> terminals = new HashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public void index(Product product) {
+        if (product == null || product.getProductId() == null)
+            return;
+        List<List<String>> paths = parse(product.getCategories());
+
+        lock.writeLock().lock();
+        try {
+            removeInternal(product.getProductId());
+            if (paths.isEmpty())
+                return;
+
+            // A product listed under two paths sharing a prefix is counted once on the shared nodes
+            Set<Node> touched = Collections.newSetFromMap(new IdentityHashMap<>());
+            List<Node> ends = new ArrayList<>();
+            for (List<String> path : paths) {
+                Node node = root;
+                touched.add(node);
+                for (String segment : path) {
+                    Node parent = node;
+                    node = parent.children.computeIfAbsent(segment, name -> new Node(name, parent));
+                    touched.add(node);
+                }
+                if (node.productIds.add(product.getProductId()))
+                    ends.add(node);
+            }
+            touched.forEach(node -> node.count++);
+            terminals.put(product.getProductId(), ends);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String productId) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            root.children.clear();
+            root.productIds.clear();
+            root.count = 0;
+            terminals.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Snapshot of the indexed product ids
+    public Set<String> indexedIds() {
+        lock.readLock().lock();
+        try {
+            return new HashSet<>(terminals.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the node at {@code path} (root when blank) with its children expanded
+     * {@code depth} levels, or null when the path does not exist.
+     */
+    public CategoryNode browse(String path, int depth) {
+        lock.readLock().lock();
+        try {
+            List<String> segments = split(path);
+            Node node = find(segments);
+            return node == null ? null : toView(node, String.join(" " + SEPARATOR + " ", segments), depth);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The smallest product count among the paths' nodes, 0 when one does not exist. It bounds the
+     * size of {@link #productIds} without gathering the ids.
+     */
+    public int count(Collection<String> paths) {
+        lock.readLock().lock();
+        try {
+            int count = Integer.MAX_VALUE;
+            for (String path : paths) {
+                Node node = find(split(path));
+                if (node == null)
+                    return 0;
+                count = Math.min(count, node.count);
+            }
+            return count == Integer.MAX_VALUE ? 0 : count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * All product ids at or below {@code path}; several paths are intersected, so a product
+     * must sit under each of them.
+     */
+    public Set<String> productIds(Collection<String> paths) {
+        lock.readLock().lock();
+        try {
+            Set<String> result = null;
+            for (String path : paths) {
+                Node node = find(split(path));
+                if (node == null)
+                    return Collections.emptySet();
+                Set<String> ids = new HashSet<>(node.count);
+                collect(node, ids);
+                if (result == null) {
+                    result = ids;
+                } else {
+                    result.retainAll(ids);
+                }
+                if (result.isEmpty())
+                    return result;
+            }
+            return result == null ? Collections.emptySet() : result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void removeInternal(String productId) {
+        List<Node> ends = terminals.remove(productId);
+        if (ends == null)
+            return;
+        Set<Node> touched = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Node end : ends) {
+            end.productIds.remove(productId);
+            for (Node node = end; node != null; node = node.parent)
+                touched.add(node);
+        }
+        for (Node node : touched) {
+            node.count--;
+            if (node.count == 0 && node.parent != null)
+                node.parent.children.remove(node.name);
+        }
+    }
+
+    private Node find(List<String> segments) {
+        Node node = root;
+        for (String segment : segments) {
+            node = node.children.get(segment);
+            if (node == null)
+                return null;
+        }
+        return node;
+    }
+
+    private static void collect(Node node, Set<String> ids) {
+        ids.addAll(node.productIds);
+        for (Node child : node.children.values())
+            collect(child, ids);
+    }
+
+    private static CategoryNode toView(Node node, String path, int depth) {
+        List<CategoryNode> children = new ArrayList<>();
+        if (depth > 0) {
+            for (Node child : node.children.values()) {
+                String childPath = path.isEmpty() ? child.name : path + " " + SEPARATOR + " " + child.name;
+                children.add(toView(child, childPath, depth - 1));
+            }
+            children.sort(Comparator.comparingInt(CategoryNode::getCount).reversed());
+        }
+        return new CategoryNode(node.name, path, node.count, children);
+    }
+
+    // The path spelled as the crawl stores it, e.g. "Clothing >> Women's Clothing"
+    public static String normalize(String path) {
+        return String.join(" " + SEPARATOR + " ", split(path));
+    }
+
+    static List<List<String>> parse(String categories) {
+        if (categories == null || categories.isBlank())
+            return Collections.emptyList();
+        List<String> raw;
+        try {
+            raw = MAPPER.readValue(categories, new TypeReference<List<String>>() {});
+        } catch (JsonProcessingException e) {
+            // Not a JSON array; treat the whole value as a single path
+            raw = List.of(categories);
+        }
+        List<List<String>> paths = new ArrayList<>();
+        for (String path : raw) {
+            List<String> segments = split(path);
+            if (!segments.isEmpty())
+                paths.add(segments);
+        }
+        return paths;
+    }
+
+    static List<String> split(String path) {
+        List<String> segments = new ArrayList<>();
+        if (path == null)
+            return segments;
+        for (String segment : path.split(SEPARATOR)) {
+            String trimmed = segment.trim();
+            if (!trimmed.isEmpty())
+                segments.add(trimmed);
+        }
+        return segments;
+    }
+
+    private static final class Node {
+        private final String name;
+        private final Node parent;
+        private final Map<String, Node> children = new HashMap<>();
+        private final Set<String> productIds = new HashSet<>();
+        private int count;
+
+        private Node(String name, Node parent) {
+            this.name = name;
+            this.parent = parent;
+        }
+    }
+}
@@ -1,14 +1,29 @@
 package com.ecommerce.product.Controller;
 
+import com.ecommerce.common.etag.ETags;
+import com.ecommerce.common.etag.PreconditionFailedException;
+import com.ecommerce.product.Category.CategoryNode;
+import com.ecommerce.product.Dto.CursorPage;
+import com.ecommerce.product.Dto.ProductFilter;
 import com.ecommerce.product.Entity.Product;
+import com.ecommerce.product.Ingest.IngestReport;
+import com.ecommerce.product.Ingest.ProductIngestService;
 import com.ecommerce.product.Service.ProductService;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -16,28 +31,59 @@ import java.util.Map;
 public class ProductController {
 
     private final ProductService productService;
+    private final ProductIngestService productIngestService;
 
-    public ProductController(ProductService productService) {
+    public ProductController(ProductService productService, ProductIngestService productIngestService) {
         this.productService = productService;
+        this.productIngestService = productIngestService;
     }
 
     @GetMapping
-    public ResponseEntity<Page<Product>> getProducts(
+    public ResponseEntity<Page<Map<String, Object>>> getProducts(
             @RequestParam(defaultValue = "0") int page,  // Default to page 0
             @RequestParam(defaultValue = "10") int size, // Default to 10 items per page
-            @RequestParam(defaultValue = "desc") String sortDirection) {
+            @RequestParam(defaultValue = "desc") String sortDirection,
+            @RequestParam(required = false) List<String> fields, // Sparse fieldset, summary columns when absent
+            ProductFilter filter, // minPrice, maxPrice, minDiscountedPrice, maxDiscountedPrice, brand, inStock
+            WebRequest request) {
 
         Sort sort = Sort.by(sortDirection.equalsIgnoreCase("asc") ? Sort.Direction.ASC : Sort.Direction.DESC, "retailPrice"); // Example: sorting by productName
         Pageable pageable = PageRequest.of(page, size, sort);
 
-        Page<Product> products = productService.getProducts(pageable);
+        filter.setCategories(categories(request));
+        Page<Map<String, Object>> products = productService.getProducts(pageable, fields, filter);
+        return ResponseEntity.ok(products);
+    }
+
+    @GetMapping(params = "mode=cursor")
+    public ResponseEntity<CursorPage<Map<String, Object>>> getProductsByCursor(
+            @RequestParam(required = false) String cursor, // Opaque token from a previous nextCursor/prevCursor
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "desc") String sortDirection,
+            @RequestParam(required = false) List<String> fields,
+            ProductFilter filter,
+            WebRequest request) {
+
+        Sort.Direction direction = sortDirection.equalsIgnoreCase("asc") ? Sort.Direction.ASC : Sort.Direction.DESC;
+        filter.setCategories(categories(request));
+        CursorPage<Map<String, Object>> products = productService.getProducts(cursor, size, direction, fields, filter);
         return ResponseEntity.ok(products);
     }
 
     @GetMapping("id/{id}")
-    public ResponseEntity<Product> getProductById(@PathVariable String id){
+    public ResponseEntity<Product> getProductById(@PathVariable String id,
+                                                  @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch){
+        // A matching If-None-Match is answered from the version alone, without loading or serializing the product
+        if (ifNoneMatch != null) {
+            String eTag = productService.getProductETag(id);
+            if (ETags.matchesIfNoneMatch(ifNoneMatch, eTag))
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+        }
         Product product = productService.getProductById(id);
-        return ResponseEntity.ok(product);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (product != null)
+            response.eTag(ETags.of(product.getProductId(), product.getVersion()));
+        return response.body(product);
     }
 
     @GetMapping("productName")
@@ -46,31 +92,66 @@ public class ProductController {
         return ResponseEntity.ok(product);
     }
 
+    @GetMapping("/search")
+    public ResponseEntity<List<Map<String, Object>>> searchProducts(
+            @RequestParam("q") String query,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "true") boolean prefix, // Treat the last word as a prefix while typing
+            @RequestParam(required = false) List<String> fields) {
+        List<Map<String, Object>> products = productService.searchProducts(query, size, prefix, fields);
+        return ResponseEntity.ok(products);
+    }
+
+    @GetMapping("categories")
+    public ResponseEntity<CategoryNode> getCategories(
+            @RequestParam(defaultValue = "") String path, // Root when empty
+            @RequestParam(defaultValue = "1") int depth) {
+        CategoryNode node = productService.getCategories(path, depth);
+        if (node == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(node);
+    }
+
+    @GetMapping("cache/stats")
+    public ResponseEntity<Map<String, Object>> getCacheStats() {
+        return ResponseEntity.ok(productService.getCacheStats());
+    }
+
     @PostMapping
     public ResponseEntity<Product> createProduct(@RequestBody Product product){
         Product createdProduct = productService.createProduct(product);
         return ResponseEntity.ok(createdProduct);
     }
 
+    // Body is the crawl's JSON array, streamed; resumeFrom comes from the report of a failed run
+    @PostMapping("/ingest")
+    public ResponseEntity<IngestReport> ingestProducts(InputStream body,
+                                                       @RequestParam(defaultValue = "0") long resumeFrom) throws IOException {
+        IngestReport report = productIngestService.ingest(body, resumeFrom);
+        return ResponseEntity.ok(report);
+    }
+
     @PutMapping("/{productId}")
-    public ResponseEntity<Product> updateProduct(@PathVariable String productId, @RequestBody Product product) {
+    public ResponseEntity<Product> updateProduct(@PathVariable String productId, @RequestBody Product product,
+                                                 @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
 //        product.setProductId(productId); // Ensure ID matches path variable
-        Product updatedProduct = productService.updateProduct(product);
+        Product updatedProduct = productService.updateProduct(product, ifMatch);
         if (updatedProduct == null) {
             return ResponseEntity.notFound().build();
         }
-        return ResponseEntity.ok(updatedProduct);
+        return ResponseEntity.ok().eTag(ETags.of(updatedProduct.getProductId(), updatedProduct.getVersion())).body(updatedProduct);
     }
 
     @PatchMapping("/{productId}")
-    public ResponseEntity<Product> patchProduct(@PathVariable String productId, @RequestBody Map<String, Object> updates) {
+    public ResponseEntity<Product> patchProduct(@PathVariable String productId, @RequestBody Map<String, Object> updates,
+                                                @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         Product existingProduct = productService.getProductById(productId);
         if (existingProduct == null) {
             return ResponseEntity.notFound().build();
         }
-        productService.patchProduct(productId, updates); // Delegate patching logic to service
-        Product updatedProduct = productService.getProductById(productId); // Refetch after patching
-        return ResponseEntity.ok(updatedProduct);
+        Product updatedProduct = productService.patchProduct(productId, updates, ifMatch); // Delegate patching logic to service
+        return ResponseEntity.ok().eTag(ETags.of(productId, updatedProduct.getVersion())).body(updatedProduct);
     }
 
     @DeleteMapping("{id}")
@@ -79,4 +160,28 @@ public class ProductController {
         return ResponseEntity.ok("product deleted successfully!.");
     }
 
+    // Repeatable category=<path prefix> filter, e.g. "Clothing >> Women's Clothing". Read raw because
+    // a List<String> binding would split on the commas that category names contain ("Bags, Wallets & Belts")
+    private static List<String> categories(WebRequest request) {
+        String[] values = request.getParameterValues("category");
+        return values == null ? null : Arrays.asList(values);
+    }
+
+    // A tampered cursor or an unknown field in a sparse fieldset
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> handleInvalidRequest(IllegalArgumentException ex) {
+        return new ResponseEntity<>(Map.of("error", ex.getMessage()), HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(PreconditionFailedException.class)
+    public ResponseEntity<Map<String, String>> handlePreconditionFailed(PreconditionFailedException ex) {
+        return new ResponseEntity<>(Map.of("error", ex.getMessage()), HttpStatus.PRECONDITION_FAILED);
+    }
+
+    // Another write committed between loading the product and flushing this one
+    @ExceptionHandler(ObjectOptimisticLockingFailureException.class)
+    public ResponseEntity<Map<String, String>> handleConcurrentUpdate(ObjectOptimisticLockingFailureException ex) {
+        return new ResponseEntity<>(Map.of("error", "Product was modified concurrently, retry"), HttpStatus.CONFLICT);
+    }
+
 }
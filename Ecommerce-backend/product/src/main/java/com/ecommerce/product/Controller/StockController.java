@@ -0,0 +1,91 @@
+package com.ecommerce.product.Controller;
+
+import com.ecommerce.product.Entity.Product;
+import com.ecommerce.product.Entity.StockReservation;
+import com.ecommerce.product.Service.StockService;
+import com.ecommerce.product.Stock.InsufficientStockException;
+import com.ecommerce.product.Stock.NotFoundException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Duration;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/products")
+public class StockController {
+
+    private final StockService stockService;
+
+    public StockController(StockService stockService) {
+        this.stockService = stockService;
+    }
+
+    @PostMapping("/{productId}/reservations")
+    public ResponseEntity<StockReservation> reserve(@PathVariable String productId,
+                                                    @RequestParam(defaultValue = "1") int quantity,
+                                                    @RequestParam(required = false) Long ttlSeconds) { // Configured default when absent
+        StockReservation reservation = stockService.reserve(productId, quantity, ttlSeconds == null ? null : Duration.ofSeconds(ttlSeconds));
+        return ResponseEntity.ok(reservation);
+    }
+
+    @GetMapping("/reservations/{reservationId}")
+    public ResponseEntity<StockReservation> getReservation(@PathVariable String reservationId) {
+        StockReservation reservation = stockService.getReservation(reservationId);
+        if (reservation == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(reservation);
+    }
+
+    @PostMapping("/reservations/{reservationId}/confirm")
+    public ResponseEntity<StockReservation> confirm(@PathVariable String reservationId) {
+        if (stockService.getReservation(reservationId) == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(stockService.confirm(reservationId));
+    }
+
+    @PostMapping("/reservations/{reservationId}/release")
+    public ResponseEntity<StockReservation> release(@PathVariable String reservationId) {
+        if (stockService.getReservation(reservationId) == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(stockService.release(reservationId));
+    }
+
+    // Adds units to the product's stock; PUT and PATCH on the product leave stock alone
+    @PostMapping("/{productId}/stock")
+    public ResponseEntity<Product> restock(@PathVariable String productId, @RequestParam int quantity) {
+        Product product = stockService.restock(productId, quantity);
+        return ResponseEntity.ok(product);
+    }
+
+    // Spread a hot product's stock over N sub-counter rows; 0 folds it back into the product row
+    @PutMapping("/{productId}/stock/shards")
+    public ResponseEntity<Product> shardStock(@PathVariable String productId, @RequestParam int count) {
+        Product product = stockService.shardStock(productId, count);
+        return ResponseEntity.ok(product);
+    }
+
+    @ExceptionHandler(NotFoundException.class)
+    public ResponseEntity<Map<String, String>> handleNotFound(NotFoundException ex) {
+        return new ResponseEntity<>(Map.of("error", ex.getMessage()), HttpStatus.NOT_FOUND);
+    }
+
+    @ExceptionHandler(InsufficientStockException.class)
+    public ResponseEntity<Map<String, String>> handleInsufficientStock(InsufficientStockException ex) {
+        return new ResponseEntity<>(Map.of("error", ex.getMessage()), HttpStatus.CONFLICT);
+    }
+
+    @ExceptionHandler(IllegalStateException.class)
+    public ResponseEntity<Map<String, String>> handleInactiveReservation(IllegalStateException ex) {
+        return new ResponseEntity<>(Map.of("error", ex.getMessage()), HttpStatus.CONFLICT);
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> handleInvalidRequest(IllegalArgumentException ex) {
+        return new ResponseEntity<>(Map.of("error", ex.getMessage()), HttpStatus.BAD_REQUEST);
+    }
+}
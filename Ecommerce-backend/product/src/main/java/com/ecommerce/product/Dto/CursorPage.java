@@ -0,0 +1,22 @@
+package com.ecommerce.product.Dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * A slice of results addressed by opaque cursors instead of page numbers.
+ * There is deliberately no total count; {@code nextCursor}/{@code prevCursor}
+ * are null when there is nothing further in that direction.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> {
+    private List<T> content;
+    private int size;
+    private String nextCursor;
+    private String prevCursor;
+}
@@ -0,0 +1,35 @@
+package com.ecommerce.product.Dto;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Seek position for keyset pagination over (retailPrice, productId). retailPrice is null for
+ * products without a price, which MySQL sorts before every price.
+ * Encoded as an opaque url-safe token so clients never build one by hand.
+ */
+public record ProductCursor(BigDecimal retailPrice, String productId, boolean backward) {
+
+    private static final String SEPARATOR = "|";
+
+    public String encode() {
+        String raw = (backward ? "p" : "n") + SEPARATOR
+                + (retailPrice == null ? "" : retailPrice.toPlainString()) + SEPARATOR + productId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static ProductCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\" + SEPARATOR, 3);
+            if (parts.length != 3 || !(parts[0].equals("n") || parts[0].equals("p")))
+                throw new IllegalArgumentException("Invalid cursor: " + token);
+            BigDecimal retailPrice = parts[1].isEmpty() ? null : new BigDecimal(parts[1]);
+            return new ProductCursor(retailPrice, parts[2], parts[0].equals("p"));
+        } catch (IllegalArgumentException e) {
+            // NumberFormatException is an IllegalArgumentException as well
+            throw new IllegalArgumentException("Invalid cursor: " + token);
+        }
+    }
+}
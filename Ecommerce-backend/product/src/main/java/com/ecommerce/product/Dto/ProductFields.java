@@ -0,0 +1,50 @@
+package com.ecommerce.product.Dto;
+
+import com.ecommerce.product.Entity.Product;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Column sets for list endpoints. Listings default to a summary that leaves out the large
+ * TEXT columns (url, categories, image urls, description, specifications); clients can ask
+ * for any other attributes with a {@code fields=} sparse fieldset.
+ */
+public final class ProductFields {
+
+    public static final List<String> SUMMARY = List.of(
+            "productId", "productName", "brand", "retailPrice", "discountedPrice",
+            "productRating", "overallRating", "stockQuantity", "quantityUnit");
+
+    private static final Set<String> ATTRIBUTES = Arrays.stream(Product.class.getDeclaredFields())
+            .filter(field -> !Modifier.isStatic(field.getModifiers()))
+            .map(Field::getName)
+            .collect(Collectors.toUnmodifiableSet());
+
+    private ProductFields() {
+    }
+
+    /**
+     * Validates the requested attributes and returns them in request order, always including
+     * productId plus any {@code required} attributes the caller needs (e.g. cursor keys).
+     */
+    public static List<String> resolve(List<String> requested, String... required) {
+        if (requested == null || requested.isEmpty())
+            requested = SUMMARY;
+
+        LinkedHashSet<String> fields = new LinkedHashSet<>();
+        fields.add("productId");
+        for (String field : requested) {
+            String name = field.trim();
+            if (name.isEmpty())
+                continue;
+            if (!ATTRIBUTES.contains(name))
+                throw new IllegalArgumentException("Invalid field: " + name);
+            fields.add(name);
+        }
+        fields.addAll(Arrays.asList(required));
+        return new ArrayList<>(fields);
+    }
+}
@@ -0,0 +1,28 @@
+package com.ecommerce.product.Dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Optional filters of GET /products, bound from the query string. Every criterion maps to a
+ * secondary index on the product table, so any combination stays an index scan.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProductFilter {
+    private BigDecimal minPrice; // retailPrice, inclusive
+    private BigDecimal maxPrice;
+    private BigDecimal minDiscountedPrice;
+    private BigDecimal maxDiscountedPrice;
+    private List<String> brand; // Exact brand names, any of them
+    private Boolean inStock; // stockQuantity > 0 when true
+    private List<String> categories; // Category path prefixes, intersected
+
+}
@@ -5,7 +5,9 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.math.BigDecimal;
 import java.sql.Timestamp;
@@ -15,7 +17,14 @@ import java.sql.Timestamp;
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
-@Table(name = "product")
+@DynamicUpdate // A patch writes only the columns it changed, never a stale stock_quantity over a reservation
+@Table(name = "product", indexes = {
+        @Index(name = "idx_product_retail_price_id", columnList = "retail_price, product_id"), // keyset pagination
+        // Filters on GET /products; brand leads so an equality match still walks retail_price in order
+        @Index(name = "idx_product_brand_retail_price", columnList = "brand, retail_price, product_id"),
+        @Index(name = "idx_product_discounted_price", columnList = "discounted_price"),
+        @Index(name = "idx_product_stock_quantity", columnList = "stock_quantity")
+})
 public class Product {
     @Id
     private String productId;
@@ -36,13 +45,22 @@ public class Product {
     private String productDescription;
     private String productRating;
     private String overallRating;
+    @Column(length = 255) // Short enough to be indexed in full under utf8mb4
     private String brand;
     @Column(length = 65535)
     private String productSpecifications;
     private int stockQuantity;
+    // 0: stockQuantity is the live counter. N: stock lives in N product_stock_shard rows and
+    // stockQuantity is their sum as of the last reservation sweep
+    @ColumnDefault("0")
+    private int stockShards;
     private String quantityUnit;
     @CreationTimestamp
     private Timestamp createdAt;
+    // Bumped by every write, including the stock statements in ProductRepository; backs the ETag
+    @Version
+    @ColumnDefault("0")
+    private long version;
 
 }
 
@@ -0,0 +1,39 @@
+package com.ecommerce.product.Entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * A category path a product sits at or below, one row per ancestor, so filtering on a category
+ * is an equality seek on the primary key. Written by CategoryPathIndex, never through JPA.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@IdClass(ProductCategory.Key.class)
+@Table(name = "product_category", indexes = @Index(name = "idx_product_category_product_id", columnList = "product_id"))
+public class ProductCategory {
+    @Id
+    @Column(length = 500)
+    private String categoryPath;
+    @Id
+    private String productId;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private String categoryPath;
+        private String productId;
+    }
+}
@@ -0,0 +1,8 @@
+package com.ecommerce.product.Entity;
+
+public enum ReservationStatus {
+    RESERVED,  // Units held, waiting for checkout
+    CONFIRMED, // Units sold; terminal
+    RELEASED,  // Given back by the caller; terminal
+    EXPIRED    // Given back by the sweeper after the TTL; terminal
+}
@@ -0,0 +1,33 @@
+package com.ecommerce.product.Entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.sql.Timestamp;
+
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table(name = "stock_reservation", indexes = {
+        @Index(name = "idx_stock_reservation_status_expires_at", columnList = "status, expires_at") // expiry sweep
+})
+public class StockReservation {
+    @Id
+    private String reservationId;
+    private String productId;
+    private int quantity;
+    private Integer shard; // Shard the units came from, null when taken from product.stock_quantity
+    @Enumerated(EnumType.STRING)
+    @Column(length = 16)
+    private ReservationStatus status;
+    private Timestamp expiresAt;
+    @CreationTimestamp
+    private Timestamp createdAt;
+
+}
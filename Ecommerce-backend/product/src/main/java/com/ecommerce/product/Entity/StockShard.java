@@ -0,0 +1,37 @@
+package com.ecommerce.product.Entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * One of N sub-counters holding a hot product's stock. Concurrent reservations start on a random
+ * shard, so they queue on N row locks instead of all on the product row.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@IdClass(StockShard.Key.class)
+@Table(name = "product_stock_shard")
+public class StockShard {
+    @Id
+    private String productId;
+    @Id
+    private int shard;
+    private int quantity;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private String productId;
+        private int shard;
+    }
+}
@@ -0,0 +1,62 @@
+package com.ecommerce.product.Ingest;
+
+import java.util.ArrayList;
+import java.util.TreeMap;
+
+/**
+ * Chunks commit out of order on the worker pool. This keeps track of which record ranges are
+ * durable so the reported resume offset only ever covers a contiguous committed prefix.
+ */
+class ChunkTracker {
+
+    private static final int MAX_SKIPPED_REPORTED = 100;
+
+    private final TreeMap<Long, Long> pending = new TreeMap<>();
+    private long committedThrough;
+    private long rowsWritten;
+    private long chunksWritten;
+    private long recordsSkipped;
+    // Chunks finish out of order; keyed by position so the report lists the first skipped records
+    private final TreeMap<Long, String> skipped = new TreeMap<>();
+    private String error;
+
+    ChunkTracker(long resumeFrom) {
+        this.committedThrough = resumeFrom;
+    }
+
+    synchronized void committed(long start, long end, long written) {
+        rowsWritten += written;
+        chunksWritten++;
+        pending.put(start, end);
+        while (!pending.isEmpty() && pending.firstKey() == committedThrough)
+            committedThrough = pending.pollFirstEntry().getValue();
+    }
+
+    synchronized void failed(long start, long end, Exception e) {
+        if (error == null)
+            error = "Chunk of records " + start + "-" + (end - 1) + " failed: " + e.getMessage();
+    }
+
+    synchronized void skipped(long position, Exception e) {
+        recordsSkipped++;
+        skipped.put(position, "Record " + position + ": " + e.getMessage());
+        if (skipped.size() > MAX_SKIPPED_REPORTED)
+            skipped.pollLastEntry();
+    }
+
+    // Reading stopped at a record that is not a product; the chunks before it were handed over
+    synchronized void rejected(String reason) {
+        if (error == null)
+            error = reason;
+    }
+
+    synchronized boolean hasFailed() {
+        return error != null;
+    }
+
+    synchronized IngestReport report(long elapsedMs) {
+        double rowsPerSecond = elapsedMs == 0 ? rowsWritten : rowsWritten * 1000.0 / elapsedMs;
+        return new IngestReport(rowsWritten, chunksWritten, elapsedMs, rowsPerSecond, error == null, committedThrough, error,
+                recordsSkipped, new ArrayList<>(skipped.values()));
+    }
+}
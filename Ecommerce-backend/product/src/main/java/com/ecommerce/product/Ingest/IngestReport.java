@@ -0,0 +1,24 @@
+package com.ecommerce.product.Ingest;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IngestReport {
+    private long rowsWritten;
+    private long chunksWritten;
+    private long elapsedMs;
+    private double rowsPerSecond;
+    private boolean completed;
+    // Record offset to pass back as resumeFrom; everything before it is committed
+    private long resumeFrom;
+    private String error;
+    private long recordsSkipped;
+    // The first skipped records with the reason, e.g. "Record 12: Missing uniq_id"
+    private List<String> skipped;
+}
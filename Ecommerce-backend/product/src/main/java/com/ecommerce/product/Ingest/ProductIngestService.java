@@ -0,0 +1,294 @@
+package com.ecommerce.product.Ingest;
+
+import com.ecommerce.product.Cache.ProductCache;
+import com.ecommerce.product.Category.CategoryPathIndex;
+import com.ecommerce.product.Category.CategoryTree;
+import com.ecommerce.product.Entity.Product;
+import com.ecommerce.product.Search.ProductSearchIndex;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Streams a Flipkart-style crawl (a JSON array of product objects) into the product table.
+ * The array is tokenized on the calling thread; converting records and writing them as
+ * batched upserts happens on a bounded worker pool. When the pool's queue is full the
+ * reader converts the chunk itself, so memory stays bounded by the queue capacity.
+ * Upserts make a re-run of an already committed range harmless, which is what resuming relies on.
+ */
+@Service
+public class ProductIngestService {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductIngestService.class);
+
+    // Same format the population script parses with "%Y-%m-%d %H:%M:%S %z"
+    private static final DateTimeFormatter CRAWL_TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss Z");
+
+    // Stock and creation time belong to us, not the crawl, so a re-ingest leaves them alone
+    private static final String UPSERT_SQL = """
+            INSERT INTO product (
+                product_id, crawl_timestamp, product_url, product_name, categories, pid,
+                retail_price, discounted_price, image_urls, is_fk_advantage_product, product_description,
+                product_rating, overall_rating, brand, product_specifications, stock_quantity, quantity_unit, created_at
+            ) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            ON DUPLICATE KEY UPDATE
+                crawl_timestamp = VALUES(crawl_timestamp), product_url = VALUES(product_url),
+                product_name = VALUES(product_name), categories = VALUES(categories), pid = VALUES(pid),
+                retail_price = VALUES(retail_price), discounted_price = VALUES(discounted_price),
+                image_urls = VALUES(image_urls), is_fk_advantage_product = VALUES(is_fk_advantage_product),
+                product_description = VALUES(product_description), product_rating = VALUES(product_rating),
+                overall_rating = VALUES(overall_rating), brand = VALUES(brand),
+                product_specifications = VALUES(product_specifications), version = version + 1
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final ProductSearchIndex productSearchIndex;
+    private final ProductCache productCache;
+    private final CategoryTree categoryTree;
+    private final CategoryPathIndex categoryPathIndex;
+    private final int threads;
+    private final int chunkSize;
+
+    public ProductIngestService(JdbcTemplate jdbcTemplate,
+                                TransactionTemplate transactionTemplate,
+                                ObjectMapper objectMapper,
+                                ProductSearchIndex productSearchIndex,
+                                ProductCache productCache,
+                                CategoryTree categoryTree,
+                                CategoryPathIndex categoryPathIndex,
+                                @Value("${product.ingest.threads:4}") int threads,
+                                @Value("${product.ingest.chunk-size:1000}") int chunkSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.productSearchIndex = productSearchIndex;
+        this.productCache = productCache;
+        this.categoryTree = categoryTree;
+        this.categoryPathIndex = categoryPathIndex;
+        this.threads = threads;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Ingests the array, skipping the first {@code resumeFrom} records. On failure no further
+     * chunks are started and the report's resumeFrom tells the caller where to pick up again.
+     * Records that cannot be converted to a product are skipped and listed in the report.
+     */
+    public IngestReport ingest(InputStream input, long resumeFrom) throws IOException {
+        long start = System.currentTimeMillis();
+        ChunkTracker tracker = new ChunkTracker(resumeFrom);
+        ThreadPoolExecutor workers = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads * 2), new ThreadPoolExecutor.CallerRunsPolicy());
+        String rejection = null;
+
+        try (JsonParser parser = objectMapper.getFactory().createParser(input)) {
+            if (firstToken(parser) != JsonToken.START_ARRAY)
+                throw new IllegalArgumentException("Expected a JSON array of products");
+
+            long position = 0;
+            long chunkStart = resumeFrom;
+            List<JsonNode> chunk = new ArrayList<>(chunkSize);
+            try {
+                JsonToken token;
+                while ((token = parser.nextToken()) != JsonToken.END_ARRAY && !tracker.hasFailed()) {
+                    if (token != JsonToken.START_OBJECT) {
+                        // The records before it still go in; resumeFrom stops at it
+                        rejection = "Record " + position + " is " + token + ", not a product object" + at(parser);
+                        break;
+                    }
+                    if (position < resumeFrom) {
+                        parser.skipChildren();
+                        position++;
+                        continue;
+                    }
+                    chunk.add(objectMapper.readTree(parser));
+                    position++;
+                    if (chunk.size() == chunkSize) {
+                        submit(workers, tracker, chunkStart, chunk);
+                        chunkStart = position;
+                        chunk = new ArrayList<>(chunkSize);
+                    }
+                }
+            } catch (JsonProcessingException e) {
+                // Truncated or malformed input; what was read before it is still written
+                rejection = "Record " + position + " is not valid JSON" + at(parser) + ": " + e.getOriginalMessage();
+            }
+            if (!chunk.isEmpty() && !tracker.hasFailed())
+                submit(workers, tracker, chunkStart, chunk);
+        } finally {
+            workers.shutdown();
+            awaitTermination(workers);
+        }
+        if (rejection != null)
+            tracker.rejected(rejection);
+
+        IngestReport report = tracker.report(System.currentTimeMillis() - start);
+        log.info("Product ingest finished: {} rows in {} ms ({} rows/s), resumeFrom={}, error={}",
+                report.getRowsWritten(), report.getElapsedMs(), Math.round(report.getRowsPerSecond()),
+                report.getResumeFrom(), report.getError());
+        return report;
+    }
+
+    private void submit(ExecutorService workers, ChunkTracker tracker, long chunkStart, List<JsonNode> chunk) {
+        long chunkEnd = chunkStart + chunk.size();
+        workers.execute(() -> {
+            if (tracker.hasFailed())
+                return;
+            try {
+                // A record that cannot be converted is skipped and reported, resuming would only hit it again
+                List<Product> products = new ArrayList<>(chunk.size());
+                for (int i = 0; i < chunk.size(); i++) {
+                    try {
+                        products.add(toProduct(chunk.get(i)));
+                    } catch (IllegalArgumentException e) {
+                        tracker.skipped(chunkStart + i, e);
+                    }
+                }
+                if (!products.isEmpty())
+                    transactionTemplate.executeWithoutResult(status -> {
+                        jdbcTemplate.batchUpdate(UPSERT_SQL, products, products.size(), this::bind);
+                        categoryPathIndex.index(products);
+                    });
+                products.forEach(product -> {
+                    productCache.invalidate(product.getProductId());
+                    productSearchIndex.index(product);
+                    categoryTree.index(product);
+                });
+                tracker.committed(chunkStart, chunkEnd, products.size());
+            } catch (Exception e) {
+                log.warn("Product ingest chunk {}-{} failed", chunkStart, chunkEnd - 1, e);
+                tracker.failed(chunkStart, chunkEnd, e);
+            }
+        });
+    }
+
+    private Product toProduct(JsonNode node) {
+        String productId = text(node, "uniq_id");
+        if (productId == null)
+            throw new IllegalArgumentException("Missing uniq_id");
+
+        return Product.builder()
+                .productId(productId)
+                .crawlTimestamp(crawlTimestamp(text(node, "crawl_timestamp")))
+                .productUrl(text(node, "product_url"))
+                .productName(text(node, "product_name"))
+                .categories(text(node, "product_category_tree"))
+                .pid(text(node, "pid"))
+                .retailPrice(price(node, "retail_price"))
+                .discountedPrice(price(node, "discounted_price"))
+                .imageUrls(images(text(node, "image")))
+                .isFkAdvantageProduct("TRUE".equals(text(node, "is_FK_Advantage_product")))
+                .productDescription(text(node, "description"))
+                .productRating(text(node, "product_rating"))
+                .overallRating(text(node, "overall_rating"))
+                .brand(text(node, "brand"))
+                .productSpecifications(text(node, "product_specifications"))
+                .stockQuantity(0)
+                .quantityUnit("pcs")
+                .createdAt(new Timestamp(System.currentTimeMillis()))
+                .build();
+    }
+
+    private void bind(PreparedStatement ps, Product product) throws SQLException {
+        ps.setString(1, product.getProductId());
+        ps.setTimestamp(2, product.getCrawlTimestamp());
+        ps.setString(3, product.getProductUrl());
+        ps.setString(4, product.getProductName());
+        ps.setString(5, product.getCategories());
+        ps.setString(6, product.getPid());
+        ps.setBigDecimal(7, product.getRetailPrice());
+        ps.setBigDecimal(8, product.getDiscountedPrice());
+        ps.setString(9, product.getImageUrls());
+        ps.setBoolean(10, product.isFkAdvantageProduct());
+        ps.setString(11, product.getProductDescription());
+        ps.setString(12, product.getProductRating());
+        ps.setString(13, product.getOverallRating());
+        ps.setString(14, product.getBrand());
+        ps.setString(15, product.getProductSpecifications());
+        ps.setInt(16, product.getStockQuantity());
+        ps.setString(17, product.getQuantityUnit());
+        ps.setTimestamp(18, product.getCreatedAt());
+    }
+
+    private static JsonToken firstToken(JsonParser parser) throws IOException {
+        try {
+            return parser.nextToken();
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Expected a JSON array of products");
+        }
+    }
+
+    private static String at(JsonParser parser) {
+        return " at line " + parser.currentLocation().getLineNr() + ", column " + parser.currentLocation().getColumnNr();
+    }
+
+    private static String text(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        return value == null || value.isNull() ? null : value.asText();
+    }
+
+    private static Timestamp crawlTimestamp(String value) {
+        if (value == null)
+            return null;
+        try {
+            return Timestamp.from(OffsetDateTime.parse(value, CRAWL_TIMESTAMP).toInstant());
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid crawl_timestamp: " + value);
+        }
+    }
+
+    private static BigDecimal price(JsonNode node, String field) {
+        String value = text(node, field);
+        if (value == null || value.isBlank())
+            return BigDecimal.ZERO;
+        try {
+            return new BigDecimal(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + field + ": " + value);
+        }
+    }
+
+    // The crawl stores image urls as a JSON string; re-serialize it so the column always holds valid JSON
+    private String images(String value) {
+        if (value == null || value.isBlank())
+            return "[]";
+        try {
+            return objectMapper.writeValueAsString(objectMapper.readTree(value));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Invalid image list: " + value);
+        }
+    }
+
+    private static void awaitTermination(ExecutorService workers) {
+        try {
+            if (!workers.awaitTermination(1, TimeUnit.HOURS))
+                workers.shutdownNow();
+        } catch (InterruptedException e) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,16 +1,64 @@
 package com.ecommerce.product.Repository;
 
 import com.ecommerce.product.Entity.Product;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, String> {
+public interface ProductRepository extends JpaRepository<Product, String>, ProductRepositoryCustom {
 
 //    @Query("select p from Product p where p.productName = :productName")
 //    Optional<Product> findByProductName(@Param("productName") String productName);
 
     Optional<Product> findByProductName(String productName);
+
+    // Name lookups resolve the id first, so the product itself is always cached through its id
+    @Query("select p.productId from Product p where p.productName = :productName")
+    Optional<String> findIdByProductName(@Param("productName") String productName);
+
+    // Keyset (seek) pagination over productId, which is never null. Slice results fetch size + 1 rows
+    // and never issue a COUNT, so the cost of a page does not depend on how deep it is.
+    @Query("select p from Product p")
+    Slice<Product> findSlice(Pageable pageable);
+
+    @Query("select p from Product p where p.productId > :productId")
+    Slice<Product> findSliceAfter(@Param("productId") String productId, Pageable pageable);
+
+    // Conditional GET and If-Match without loading the row
+    @Query("select p.version from Product p where p.productId = :productId")
+    Optional<Long> findVersion(@Param("productId") String productId);
+
+    // Stock reservations. The conditional decrement is a single atomic statement, so concurrent
+    // buyers can never drive stock below zero; a 0 return means not enough stock (or the product is sharded).
+    // Bulk updates skip Hibernate's versioning, so each one bumps the version itself.
+    @Modifying
+    @Query("update Product p set p.stockQuantity = p.stockQuantity - :quantity, p.version = p.version + 1 " +
+            "where p.productId = :productId and p.stockShards = 0 and p.stockQuantity >= :quantity")
+    int decrementStock(@Param("productId") String productId, @Param("quantity") int quantity);
+
+    @Modifying
+    @Query("update Product p set p.stockQuantity = p.stockQuantity + :quantity, p.version = p.version + 1 " +
+            "where p.productId = :productId and p.stockShards = 0")
+    int incrementStock(@Param("productId") String productId, @Param("quantity") int quantity);
+
+    @Modifying
+    @Query("update Product p set p.stockQuantity = :quantity, p.version = p.version + 1 " +
+            "where p.productId = :productId and p.stockShards > 0 and p.stockQuantity <> :quantity")
+    int refreshShardedStock(@Param("productId") String productId, @Param("quantity") int quantity);
+
+    @Query("select p.stockShards from Product p where p.productId = :productId")
+    Optional<Integer> findStockShards(@Param("productId") String productId);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select p from Product p where p.productId = :productId")
+    Optional<Product> findByIdForUpdate(@Param("productId") String productId);
 }
@@ -0,0 +1,25 @@
+package com.ecommerce.product.Repository;
+
+import com.ecommerce.product.Entity.Product;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Projection queries that select only the requested product attributes instead of
+ * hydrating whole entities. Each row is returned as an attribute -> value map in the
+ * order the fields were requested.
+ */
+public interface ProductRepositoryCustom {
+
+    Page<Map<String, Object>> findProjected(Specification<Product> spec, List<String> fields, Pageable pageable);
+
+    // Fetches one extra row to detect a following slice instead of running a COUNT
+    Slice<Map<String, Object>> findProjectedSlice(Specification<Product> spec, List<String> fields, Pageable pageable);
+
+    List<Map<String, Object>> findProjected(Specification<Product> spec, List<String> fields);
+}
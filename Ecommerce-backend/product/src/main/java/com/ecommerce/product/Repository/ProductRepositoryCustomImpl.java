@@ -0,0 +1,89 @@
+package com.ecommerce.product.Repository;
+
+import com.ecommerce.product.Entity.Product;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+public class ProductRepositoryCustomImpl implements ProductRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Page<Map<String, Object>> findProjected(Specification<Product> spec, List<String> fields, Pageable pageable) {
+        List<Map<String, Object>> content = select(spec, fields, pageable, pageable.getPageSize());
+        return PageableExecutionUtils.getPage(content, pageable, () -> count(spec));
+    }
+
+    @Override
+    public Slice<Map<String, Object>> findProjectedSlice(Specification<Product> spec, List<String> fields, Pageable pageable) {
+        List<Map<String, Object>> content = select(spec, fields, pageable, pageable.getPageSize() + 1);
+        boolean hasNext = content.size() > pageable.getPageSize();
+        if (hasNext)
+            content.remove(content.size() - 1);
+        return new SliceImpl<>(content, pageable, hasNext);
+    }
+
+    @Override
+    public List<Map<String, Object>> findProjected(Specification<Product> spec, List<String> fields) {
+        return select(spec, fields, Pageable.unpaged(), -1);
+    }
+
+    private List<Map<String, Object>> select(Specification<Product> spec, List<String> fields, Pageable pageable, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Product> root = query.from(Product.class);
+
+        query.multiselect(fields.stream().<Selection<?>>map(field -> root.get(field).alias(field)).toList());
+        Predicate predicate = spec == null ? null : spec.toPredicate(root, query, cb);
+        if (predicate != null)
+            query.where(predicate);
+        Sort sort = pageable.getSort();
+        if (sort.isSorted())
+            query.orderBy(QueryUtils.toOrders(sort, root, cb));
+
+        TypedQuery<Tuple> typedQuery = entityManager.createQuery(query);
+        if (pageable.isPaged())
+            typedQuery.setFirstResult((int) pageable.getOffset());
+        if (limit > 0)
+            typedQuery.setMaxResults(limit);
+
+        return typedQuery.getResultList().stream().map(tuple -> {
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (String field : fields)
+                row.put(field, tuple.get(field));
+            return row;
+        }).collect(Collectors.toList());
+    }
+
+    private long count(Specification<Product> spec) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<Product> root = query.from(Product.class);
+        query.select(cb.count(root));
+        Predicate predicate = spec == null ? null : spec.toPredicate(root, query, cb);
+        if (predicate != null)
+            query.where(predicate);
+        return entityManager.createQuery(query).getSingleResult();
+    }
+}
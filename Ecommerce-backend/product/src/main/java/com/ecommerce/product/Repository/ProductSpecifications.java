@@ -0,0 +1,79 @@
+package com.ecommerce.product.Repository;
+
+import com.ecommerce.product.Category.CategoryTree;
+import com.ecommerce.product.Entity.Product;
+import com.ecommerce.product.Entity.ProductCategory;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+public final class ProductSpecifications {
+
+    private ProductSpecifications() {
+    }
+
+    // Rows strictly after (retailPrice, productId) in ascending order; expanded form so MySQL can range-scan the index.
+    // MySQL sorts a null price before every other, so a null-priced seek point still has every priced row after it.
+    public static Specification<Product> after(BigDecimal retailPrice, String productId) {
+        if (retailPrice == null)
+            return (root, query, cb) -> cb.or(
+                    cb.isNotNull(root.get("retailPrice")),
+                    cb.and(cb.isNull(root.get("retailPrice")), cb.greaterThan(root.get("productId"), productId)));
+        return (root, query, cb) -> cb.or(
+                cb.greaterThan(root.get("retailPrice"), retailPrice),
+                cb.and(cb.equal(root.get("retailPrice"), retailPrice), cb.greaterThan(root.get("productId"), productId)));
+    }
+
+    public static Specification<Product> before(BigDecimal retailPrice, String productId) {
+        if (retailPrice == null)
+            return (root, query, cb) -> cb.and(cb.isNull(root.get("retailPrice")), cb.lessThan(root.get("productId"), productId));
+        return (root, query, cb) -> cb.or(
+                cb.lessThan(root.get("retailPrice"), retailPrice),
+                cb.and(cb.equal(root.get("retailPrice"), retailPrice), cb.lessThan(root.get("productId"), productId)),
+                cb.isNull(root.get("retailPrice")));
+    }
+
+    public static Specification<Product> idIn(Collection<String> productIds) {
+        return (root, query, cb) -> root.get("productId").in(productIds);
+    }
+
+    // Products at or below the path, through product_category's (category_path, product_id) key.
+    // Used where an id list from the category tree would be too long.
+    public static Specification<Product> categoryUnder(String path) {
+        String normalized = CategoryTree.normalize(path);
+        if (normalized.isEmpty())
+            return (root, query, cb) -> null;
+        return (root, query, cb) -> {
+            Subquery<String> productIds = query.subquery(String.class);
+            Root<ProductCategory> category = productIds.from(ProductCategory.class);
+            productIds.select(category.get("productId")).where(cb.equal(category.get("categoryPath"), normalized));
+            return root.get("productId").in(productIds);
+        };
+    }
+
+    // Inclusive range on a price column; an open bound is simply left out
+    public static Specification<Product> priceBetween(String attribute, BigDecimal min, BigDecimal max) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>(2);
+            if (min != null)
+                predicates.add(cb.greaterThanOrEqualTo(root.get(attribute), min));
+            if (max != null)
+                predicates.add(cb.lessThanOrEqualTo(root.get(attribute), max));
+            return predicates.isEmpty() ? null : cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    public static Specification<Product> brandIn(Collection<String> brands) {
+        return (root, query, cb) -> brands == null || brands.isEmpty() ? null : root.get("brand").in(brands);
+    }
+
+    public static Specification<Product> inStock() {
+        return (root, query, cb) -> cb.greaterThan(root.get("stockQuantity"), 0);
+    }
+}
@@ -0,0 +1,35 @@
+package com.ecommerce.product.Repository;
+
+import com.ecommerce.product.Entity.ReservationStatus;
+import com.ecommerce.product.Entity.StockReservation;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+@Repository
+public interface StockReservationRepository extends JpaRepository<StockReservation, String> {
+
+    // Compare-and-set on the status, so a reservation is confirmed, released or expired exactly once
+    @Modifying
+    @Query("update StockReservation r set r.status = :to where r.reservationId = :reservationId and r.status = :from")
+    int transition(@Param("reservationId") String reservationId,
+                   @Param("from") ReservationStatus from,
+                   @Param("to") ReservationStatus to);
+
+    @Modifying
+    @Query("update StockReservation r set r.status = com.ecommerce.product.Entity.ReservationStatus.CONFIRMED " +
+            "where r.reservationId = :reservationId " +
+            "and r.status = com.ecommerce.product.Entity.ReservationStatus.RESERVED and r.expiresAt > :now")
+    int confirm(@Param("reservationId") String reservationId, @Param("now") Timestamp now);
+
+    @Query("select r from StockReservation r " +
+            "where r.status = com.ecommerce.product.Entity.ReservationStatus.RESERVED and r.expiresAt <= :now " +
+            "order by r.expiresAt")
+    List<StockReservation> findExpired(@Param("now") Timestamp now, Pageable pageable);
+}
@@ -0,0 +1,40 @@
+package com.ecommerce.product.Repository;
+
+import com.ecommerce.product.Entity.StockShard;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface StockShardRepository extends JpaRepository<StockShard, StockShard.Key> {
+
+    @Modifying
+    @Query("update StockShard s set s.quantity = s.quantity - :quantity " +
+            "where s.productId = :productId and s.shard = :shard and s.quantity >= :quantity")
+    int decrement(@Param("productId") String productId, @Param("shard") int shard, @Param("quantity") int quantity);
+
+    @Modifying
+    @Query("update StockShard s set s.quantity = s.quantity + :quantity where s.productId = :productId and s.shard = :shard")
+    int increment(@Param("productId") String productId, @Param("shard") int shard, @Param("quantity") int quantity);
+
+    @Query("select coalesce(sum(s.quantity), 0) from StockShard s where s.productId = :productId")
+    long sumQuantity(@Param("productId") String productId);
+
+    // productId, sum(quantity) per sharded product
+    @Query("select s.productId, sum(s.quantity) from StockShard s group by s.productId")
+    List<Object[]> sumQuantityByProduct();
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select s from StockShard s where s.productId = :productId order by s.shard")
+    List<StockShard> findByProductIdForUpdate(@Param("productId") String productId);
+
+    @Modifying
+    @Query("delete from StockShard s where s.productId = :productId")
+    int deleteByProductId(@Param("productId") String productId);
+}
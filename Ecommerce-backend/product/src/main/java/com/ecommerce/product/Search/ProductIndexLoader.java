@@ -0,0 +1,80 @@
+package com.ecommerce.product.Search;
+
+import com.ecommerce.product.Category.CategoryPathIndex;
+import com.ecommerce.product.Category.CategoryTree;
+import com.ecommerce.product.Entity.Product;
+import com.ecommerce.product.Repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Rebuilds the in-memory product indexes (search index and category tree) from MySQL once the
+ * application is up, and fills in product_category for products written before that table
+ * existed. Rows are read in keyset-ordered batches so the rebuild never degrades into deep
+ * OFFSET scans.
+ *
+ * <p>The indexes stay live while they are rebuilt: each product is upserted in place rather than
+ * clearing first, so searches and category filters never see a half-loaded index. Products that
+ * were indexed when the rebuild started but are no longer in MySQL are removed at the end;
+ * products indexed by writes during the rebuild are left alone.
+ */
+@Component
+public class ProductIndexLoader {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductIndexLoader.class);
+    private static final int BATCH_SIZE = 1000;
+
+    private final ProductRepository productRepository;
+    private final ProductSearchIndex productSearchIndex;
+    private final CategoryTree categoryTree;
+    private final CategoryPathIndex categoryPathIndex;
+
+    public ProductIndexLoader(ProductRepository productRepository, ProductSearchIndex productSearchIndex,
+                              CategoryTree categoryTree, CategoryPathIndex categoryPathIndex) {
+        this.productRepository = productRepository;
+        this.productSearchIndex = productSearchIndex;
+        this.categoryTree = categoryTree;
+        this.categoryPathIndex = categoryPathIndex;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        Set<String> stale = new HashSet<>(productSearchIndex.indexedIds());
+        stale.addAll(categoryTree.indexedIds());
+
+        // Ordered by the primary key alone: a keyset on nullable columns such as retailPrice would end the walk early
+        Pageable batch = PageRequest.of(0, BATCH_SIZE, Sort.by(Sort.Direction.ASC, "productId"));
+        Slice<Product> slice = productRepository.findSlice(batch);
+        while (true) {
+            List<Product> products = slice.getContent();
+            for (Product product : products) {
+                productSearchIndex.index(product);
+                categoryTree.index(product);
+                stale.remove(product.getProductId());
+            }
+            categoryPathIndex.backfill(products);
+            if (!slice.hasNext())
+                break;
+            slice = productRepository.findSliceAfter(products.get(products.size() - 1).getProductId(), batch);
+        }
+        // Only reached once every row was read; a failed read throws before anything is removed
+        for (String productId : stale) {
+            productSearchIndex.remove(productId);
+            categoryTree.remove(productId);
+        }
+        log.info("Product indexes rebuilt with {} products in {} ms",
+                productSearchIndex.size(), System.currentTimeMillis() - start);
+    }
+}
@@ -0,0 +1,193 @@
+package com.ecommerce.product.Search;
+
+import com.ecommerce.product.Entity.Product;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over productName, brand, categories and productDescription,
+ * ranked with BM25. Fields are weighted so a hit in the name outranks one buried in the
+ * description. The term dictionary is sorted, which makes prefix expansion a range scan.
+ */
+@Component
+public class ProductSearchIndex {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int MAX_PREFIX_EXPANSIONS = 64;
+
+    private static final double NAME_WEIGHT = 3.0;
+    private static final double BRAND_WEIGHT = 2.0;
+    private static final double CATEGORY_WEIGHT = 1.5;
+    private static final double DESCRIPTION_WEIGHT = 1.0;
+
+    // term -> (productId -> weighted term frequency)
+    private final NavigableMap<String, Map<String, Double>> postings = new TreeMap<>();
+    // productId -> (term -> weighted term frequency), kept so a product can be removed without a rescan
+    private final Map<String, Map<String, Double>> documents = new HashMap<>();
+    private final Map<String, Double> documentLengths = new HashMap<>();
+    private double totalLength;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public void index(Product product) {
+        if (product == null || product.getProductId() == null)
+            return;
+
+        Map<String, Double> terms = new HashMap<>();
+        addField(terms, product.getProductName(), NAME_WEIGHT);
+        addField(terms, product.getBrand(), BRAND_WEIGHT);
+        addField(terms, product.getCategories(), CATEGORY_WEIGHT);
+        addField(terms, product.getProductDescription(), DESCRIPTION_WEIGHT);
+
+        lock.writeLock().lock();
+        try {
+            removeInternal(product.getProductId());
+            if (terms.isEmpty())
+                return;
+            double length = 0;
+            for (Map.Entry<String, Double> term : terms.entrySet()) {
+                postings.computeIfAbsent(term.getKey(), k -> new HashMap<>()).put(product.getProductId(), term.getValue());
+                length += term.getValue();
+            }
+            documents.put(product.getProductId(), terms);
+            documentLengths.put(product.getProductId(), length);
+            totalLength += length;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String productId) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documents.clear();
+            documentLengths.clear();
+            totalLength = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Snapshot of the indexed product ids
+    public Set<String> indexedIds() {
+        lock.readLock().lock();
+        try {
+            return new HashSet<>(documents.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns up to {@code limit} product ids ordered by descending score. Every query term
+     * must match exactly, except the last one which also matches as a prefix when
+     * {@code prefix} is set (search-as-you-type).
+     */
+    public List<SearchHit> search(String query, int limit, boolean prefix) {
+        List<String> queryTerms = Tokenizer.tokenize(query);
+        if (queryTerms.isEmpty() || limit <= 0)
+            return Collections.emptyList();
+
+        lock.readLock().lock();
+        try {
+            int documentCount = documents.size();
+            if (documentCount == 0)
+                return Collections.emptyList();
+            double averageLength = totalLength / documentCount;
+
+            Map<String, Double> scores = new HashMap<>();
+            for (int i = 0; i < queryTerms.size(); i++) {
+                String queryTerm = queryTerms.get(i);
+                boolean expand = prefix && i == queryTerms.size() - 1;
+
+                // A prefix can expand to several terms; a document keeps its best match per query term
+                Map<String, Double> termScores = new HashMap<>();
+                for (Map.Entry<String, Map<String, Double>> posting : matchingPostings(queryTerm, expand)) {
+                    double idf = idf(documentCount, posting.getValue().size());
+                    for (Map.Entry<String, Double> entry : posting.getValue().entrySet()) {
+                        double tf = entry.getValue();
+                        double norm = K1 * (1 - B + B * documentLengths.get(entry.getKey()) / averageLength);
+                        double score = idf * tf * (K1 + 1) / (tf + norm);
+                        termScores.merge(entry.getKey(), score, Math::max);
+                    }
+                }
+                termScores.forEach((productId, score) -> scores.merge(productId, score, Double::sum));
+            }
+
+            PriorityQueue<SearchHit> top = new PriorityQueue<>(Comparator.comparingDouble(SearchHit::score));
+            for (Map.Entry<String, Double> entry : scores.entrySet()) {
+                top.offer(new SearchHit(entry.getKey(), entry.getValue()));
+                if (top.size() > limit)
+                    top.poll();
+            }
+            List<SearchHit> hits = new ArrayList<>(top);
+            hits.sort(Comparator.comparingDouble(SearchHit::score).reversed());
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<Map.Entry<String, Map<String, Double>>> matchingPostings(String term, boolean expand) {
+        if (!expand) {
+            Map<String, Double> posting = postings.get(term);
+            return posting == null ? Collections.emptyList() : List.of(Map.entry(term, posting));
+        }
+        List<Map.Entry<String, Map<String, Double>>> matches = new ArrayList<>();
+        for (Map.Entry<String, Map<String, Double>> entry : postings.subMap(term, true, term + Character.MAX_VALUE, false).entrySet()) {
+            matches.add(entry);
+            if (matches.size() == MAX_PREFIX_EXPANSIONS)
+                break;
+        }
+        return matches;
+    }
+
+    private void removeInternal(String productId) {
+        Map<String, Double> terms = documents.remove(productId);
+        if (terms == null)
+            return;
+        for (String term : terms.keySet()) {
+            Map<String, Double> posting = postings.get(term);
+            if (posting != null) {
+                posting.remove(productId);
+                if (posting.isEmpty())
+                    postings.remove(term);
+            }
+        }
+        totalLength -= documentLengths.remove(productId);
+    }
+
+    private static void addField(Map<String, Double> terms, String text, double weight) {
+        for (String token : Tokenizer.tokenize(text))
+            terms.merge(token, weight, Double::sum);
+    }
+
+    private static double idf(int documentCount, int documentFrequency) {
+        return Math.log(1 + (documentCount - documentFrequency + 0.5) / (documentFrequency + 0.5));
+    }
+
+    public record SearchHit(String productId, double score) {
+    }
+}
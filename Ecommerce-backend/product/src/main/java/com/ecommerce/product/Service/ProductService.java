@@ -1,20 +1,32 @@
 package com.ecommerce.product.Service;
 
+import com.ecommerce.product.Category.CategoryNode;
+import com.ecommerce.product.Dto.CursorPage;
+import com.ecommerce.product.Dto.ProductFilter;
 import com.ecommerce.product.Entity.Product;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
 import java.util.Map;
 
 @Service
 public interface ProductService {
-    public Page<Product> getProducts(Pageable pageable);
+    public Page<Map<String, Object>> getProducts(Pageable pageable, List<String> fields, ProductFilter filter);
+    public CursorPage<Map<String, Object>> getProducts(String cursor, int size, Sort.Direction direction, List<String> fields, ProductFilter filter);
     public Product getProductById(String Id);
+    public String getProductETag(String Id);
     public Product getProductByProductName(String productName);
+    public List<Map<String, Object>> searchProducts(String query, int size, boolean prefix, List<String> fields);
     public Product createProduct(Product product);
     public void deleteProduct(String Id);
 
-    public Product updateProduct(Product updatedProduct);
-    public void patchProduct(String productId, Map<String, Object> updates);
+    public Product updateProduct(Product updatedProduct, String ifMatch);
+    public Product patchProduct(String productId, Map<String, Object> updates, String ifMatch);
+
+    public CategoryNode getCategories(String path, int depth);
+
+    public Map<String, Object> getCacheStats();
 }
@@ -0,0 +1,21 @@
+package com.ecommerce.product.Service;
+
+import com.ecommerce.product.Entity.Product;
+import com.ecommerce.product.Entity.StockReservation;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+
+@Service
+public interface StockService {
+    public StockReservation reserve(String productId, int quantity, Duration ttl);
+    public StockReservation getReservation(String reservationId);
+    public StockReservation confirm(String reservationId);
+    public StockReservation release(String reservationId);
+
+    public int expireReservations();
+    public void refreshShardedStock();
+
+    public Product restock(String productId, int quantity);
+    public Product shardStock(String productId, int shards);
+}
@@ -1,103 +1,287 @@
 package com.ecommerce.product.Service.impl;
 
+import com.ecommerce.common.etag.ETags;
+import com.ecommerce.common.id.Ids;
+import com.ecommerce.common.patch.EntityPatcher;
+import com.ecommerce.product.Cache.ProductCache;
+import com.ecommerce.product.Category.CategoryNode;
+import com.ecommerce.product.Category.CategoryPathIndex;
+import com.ecommerce.product.Category.CategoryTree;
+import com.ecommerce.product.Dto.CursorPage;
+import com.ecommerce.product.Dto.ProductCursor;
+import com.ecommerce.product.Dto.ProductFields;
+import com.ecommerce.product.Dto.ProductFilter;
 import com.ecommerce.product.Entity.Product;
 import com.ecommerce.product.Repository.ProductRepository;
+import com.ecommerce.product.Repository.ProductSpecifications;
+import com.ecommerce.product.Search.ProductSearchIndex;
 import com.ecommerce.product.Service.ProductService;
+import com.ecommerce.product.Service.StockService;
+import com.ecommerce.product.Stock.StockPreCheck;
 import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 
-import java.lang.reflect.Field;
-import java.sql.Timestamp;
-import java.time.OffsetDateTime;
-import java.time.format.DateTimeParseException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.UUID;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @Transactional
 public class ProductServiceImpl implements ProductService {
 
+    private static final EntityPatcher<Product> PATCHER = EntityPatcher.of(Product.class);
+
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private ProductCache productCache;
+
+    @Autowired
+    private CategoryTree categoryTree;
+
+    @Autowired
+    private CategoryPathIndex categoryPathIndex;
+
+    @Autowired
+    private StockPreCheck stockPreCheck;
+
+    @Autowired
+    private StockService stockService;
+
+    @Value("${product.filter.max-category-ids:10000}")
+    private int maxCategoryIds;
+
     @Override
-    public Page<Product> getProducts(Pageable pageable) {
-        return productRepository.findAll(pageable);
+    public Page<Map<String, Object>> getProducts(Pageable pageable, List<String> fields, ProductFilter filter) {
+        Specification<Product> spec = toSpecification(filter);
+        if (spec == NO_MATCH)
+            return new PageImpl<>(Collections.emptyList(), pageable, 0);
+        return productRepository.findProjected(spec, ProductFields.resolve(fields), pageable);
+    }
+
+    @Override
+    public CursorPage<Map<String, Object>> getProducts(String cursor, int size, Sort.Direction direction, List<String> fields, ProductFilter filter) {
+        ProductCursor position = cursor == null || cursor.isBlank() ? null : ProductCursor.decode(cursor);
+        boolean backward = position != null && position.backward();
+
+        // Walking backwards means scanning the index in the opposite order and flipping the rows afterwards
+        Sort.Direction scan = backward ? (direction == Sort.Direction.ASC ? Sort.Direction.DESC : Sort.Direction.ASC) : direction;
+        Pageable pageable = PageRequest.of(0, size, Sort.by(scan, "retailPrice", "productId"));
+
+        Specification<Product> spec = toSpecification(filter);
+        if (spec == NO_MATCH)
+            return new CursorPage<>(Collections.emptyList(), 0, null, null);
+
+        Specification<Product> seek = null;
+        if (position != null)
+            seek = scan == Sort.Direction.ASC
+                    ? ProductSpecifications.after(position.retailPrice(), position.productId())
+                    : ProductSpecifications.before(position.retailPrice(), position.productId());
+        // The cursor is built from retailPrice and productId, so they are always selected
+        Slice<Map<String, Object>> slice = productRepository.findProjectedSlice(
+                Specification.where(spec).and(seek), ProductFields.resolve(fields, "retailPrice"), pageable);
+
+        List<Map<String, Object>> content = new ArrayList<>(slice.getContent());
+        if (backward)
+            Collections.reverse(content);
+        if (content.isEmpty())
+            return new CursorPage<>(content, 0, null, null);
+
+        Map<String, Object> first = content.get(0);
+        Map<String, Object> last = content.get(content.size() - 1);
+        boolean hasNext = backward || slice.hasNext();
+        boolean hasPrev = backward ? slice.hasNext() : position != null;
+
+        String nextCursor = hasNext ? cursorOf(last, false).encode() : null;
+        String prevCursor = hasPrev ? cursorOf(first, true).encode() : null;
+        return new CursorPage<>(content, content.size(), nextCursor, prevCursor);
+    }
+
+    // Sentinel for "the category filter matched nothing", so the caller can skip the query entirely
+    private static final Specification<Product> NO_MATCH = (root, query, cb) -> cb.disjunction();
+
+    private Specification<Product> toSpecification(ProductFilter filter) {
+        if (filter == null)
+            return null;
+        Specification<Product> spec = Specification
+                .where(ProductSpecifications.priceBetween("retailPrice", filter.getMinPrice(), filter.getMaxPrice()))
+                .and(ProductSpecifications.priceBetween("discountedPrice", filter.getMinDiscountedPrice(), filter.getMaxDiscountedPrice()))
+                .and(ProductSpecifications.brandIn(filter.getBrand()));
+        if (Boolean.TRUE.equals(filter.getInStock()))
+            spec = spec.and(ProductSpecifications.inStock());
+
+        // The trie resolves small category matches to an id list; MySQL only sees a primary-key IN list.
+        // MySQL takes at most 65,535 placeholders a statement, so a larger match, judged by the node
+        // counts before any ids are gathered, seeks product_category's path index instead.
+        List<String> categories = filter.getCategories();
+        if (categories != null && !categories.isEmpty()) {
+            int count = categoryTree.count(categories);
+            if (count == 0)
+                return NO_MATCH;
+            if (count <= maxCategoryIds || !categories.stream().allMatch(CategoryPathIndex::covers)) {
+                Set<String> productIds = categoryTree.productIds(categories);
+                if (productIds.isEmpty())
+                    return NO_MATCH;
+                spec = spec.and(ProductSpecifications.idIn(productIds));
+            } else {
+                for (String category : categories)
+                    spec = spec.and(ProductSpecifications.categoryUnder(category));
+            }
+        }
+        return spec;
+    }
+
+    private static ProductCursor cursorOf(Map<String, Object> row, boolean backward) {
+        return new ProductCursor((BigDecimal) row.get("retailPrice"), (String) row.get("productId"), backward);
     }
 
     @Override
     public Product getProductById(String Id) {
-        Optional<Product> optionalProduct = productRepository.findById(Id);
-        return optionalProduct.orElse(null);
+        return productCache.getById(Id, productRepository::findById);
+    }
+
+    // A cached product is current: every write invalidates it after commit
+    @Override
+    public String getProductETag(String Id) {
+        Product cached = productCache.getIfPresent(Id);
+        if (cached != null)
+            return ETags.of(Id, cached.getVersion());
+        return productRepository.findVersion(Id).map(version -> ETags.of(Id, version)).orElse(null);
     }
 
     @Override
     public Product getProductByProductName(String productName){
-        Optional<Product> optionalProduct = productRepository.findByProductName(productName);
-//        return optionalProduct.orElse(null);
-        if(optionalProduct.isEmpty())
-            return null;
-        return optionalProduct.get();
+        return productCache.getByName(productName, productRepository::findIdByProductName, productRepository::findById);
+    }
+
+    @Override
+    public List<Map<String, Object>> searchProducts(String query, int size, boolean prefix, List<String> fields) {
+        List<ProductSearchIndex.SearchHit> hits = productSearchIndex.search(query, size, prefix);
+        if (hits.isEmpty())
+            return Collections.emptyList();
+
+        Map<String, Map<String, Object>> rows = productRepository
+                .findProjected(ProductSpecifications.idIn(hits.stream().map(ProductSearchIndex.SearchHit::productId).toList()), ProductFields.resolve(fields))
+                .stream().collect(Collectors.toMap(row -> (String) row.get("productId"), Function.identity()));
+        // Keep the ranking order; ids deleted since the hit was produced are skipped
+        return hits.stream().map(hit -> rows.get(hit.productId())).filter(Objects::nonNull).toList();
     }
 
     @Override
     public Product createProduct(Product product) {
         if(product.getProductId() == null)
-            product.setProductId(UUID.randomUUID().toString());
+            product.setProductId(Ids.next());
         else {
             Optional<Product> existingProduct = productRepository.findById(product.getProductId());
             if (existingProduct.isPresent()) {
                 throw new RuntimeException("Product with ID " + product.getProductId() + " already exists.");
             }
         }
-        return productRepository.saveAndFlush(product);
+        Product createdProduct = insert(product);
+        categoryPathIndex.index(createdProduct);
+        AfterCommit.run(() -> {
+            productSearchIndex.index(createdProduct);
+            categoryTree.index(createdProduct);
+        });
+        return createdProduct;
     }
 
 
+    // A sharded product keeps its stock in shard rows; the stock service spreads the body's quantity over them
+    private Product insert(Product product) {
+        int shards = product.getStockShards();
+        product.setStockShards(0);
+        Product inserted = productRepository.saveAndFlush(product);
+        return shards == 0 ? inserted : stockService.shardStock(inserted.getProductId(), shards);
+    }
+
     @Override
     public void deleteProduct(String Id) {
         productRepository.deleteById(Id);
+        categoryPathIndex.remove(Id);
+        AfterCommit.run(() -> {
+            productCache.invalidate(Id);
+            productSearchIndex.remove(Id);
+            categoryTree.remove(Id);
+        });
     }
 
     @Override
-    public Product updateProduct(Product updatedProduct) {
-        Product product = productRepository.saveAndFlush(updatedProduct);
+    public Product updateProduct(Product updatedProduct, String ifMatch) {
+        Product existing = productRepository.findById(updatedProduct.getProductId()).orElse(null);
+        ETags.checkIfMatch(ifMatch, updatedProduct.getProductId(), existing == null ? null : existing.getVersion());
+        Product product;
+        if (existing == null) {
+            product = insert(updatedProduct);
+        } else {
+            // The body replaces the content, not the version; concurrent writers are caught by If-Match or at flush.
+            // Stock is owned by the stock service: a full replace must not undo reservations or switch sharding off
+            updatedProduct.setVersion(existing.getVersion());
+            updatedProduct.setStockQuantity(existing.getStockQuantity());
+            updatedProduct.setStockShards(existing.getStockShards());
+            product = productRepository.saveAndFlush(updatedProduct);
+        }
+        categoryPathIndex.index(product);
+        AfterCommit.run(() -> {
+            stockPreCheck.clear(product.getProductId());
+            productCache.invalidate(product.getProductId());
+            productSearchIndex.index(product);
+            categoryTree.index(product);
+        });
         return product;
     }
 
     @Override
-    public void patchProduct(String productId, Map<String, Object> updates) {
+    public Product patchProduct(String productId, Map<String, Object> updates, String ifMatch) {
         Product existingProduct = productRepository.findById(productId).orElseThrow(() -> new RuntimeException("Product not found"));
+        ETags.checkIfMatch(ifMatch, productId, existingProduct.getVersion());
 
-        updates.forEach((key, value) -> {
-            try {
-                // Use reflection or property accessors to update specific fields based on the key
-                Field field = Product.class.getDeclaredField(key);
-                field.setAccessible(true);
-                if (field.getType() == Timestamp.class) {
-                    try {
-                        // Use OffsetDateTime to parse the ISO 8601 format
-                        OffsetDateTime odt = OffsetDateTime.parse((String) value);
-                        Timestamp timestampValue = Timestamp.from(odt.toInstant());
-                        field.set(existingProduct, timestampValue);
-                    } catch (DateTimeParseException e) {
-                        throw new IllegalArgumentException("Invalid format for "+key+" TimeStamp field");
-                    }
-                } else {
-                    // Set other field types as usual
-                    field.set(existingProduct, value);
-                }
-            } catch (NoSuchFieldException | IllegalAccessException e) {
-                // Handle potential exceptions (e.g., invalid field name)
-                throw new IllegalArgumentException("Invalid update field: " + key);
-            }
+        if (updates.containsKey("stockQuantity"))
+            throw new IllegalArgumentException("stockQuantity is changed through POST /products/{productId}/stock and reservations");
+        if (updates.containsKey("stockShards"))
+            throw new IllegalArgumentException("stockShards is changed through PUT /products/{productId}/stock/shards");
+        PATCHER.apply(existingProduct, updates);
+
+        Product patchedProduct = productRepository.saveAndFlush(existingProduct);
+        if (updates.containsKey("categories"))
+            categoryPathIndex.index(patchedProduct);
+        AfterCommit.run(() -> {
+            stockPreCheck.clear(productId);
+            productCache.invalidate(productId);
+            productSearchIndex.index(patchedProduct);
+            categoryTree.index(patchedProduct);
         });
+        return patchedProduct;
+    }
+
+    @Override
+    public CategoryNode getCategories(String path, int depth) {
+        return categoryTree.browse(path, depth);
+    }
 
-        productRepository.save(existingProduct);
+    @Override
+    public Map<String, Object> getCacheStats() {
+        return productCache.stats();
     }
 
 }
@@ -0,0 +1,292 @@
+package com.ecommerce.product.Service.impl;
+
+import com.ecommerce.common.id.Ids;
+import com.ecommerce.product.Cache.ProductCache;
+import com.ecommerce.product.Entity.Product;
+import com.ecommerce.product.Entity.ReservationStatus;
+import com.ecommerce.product.Entity.StockReservation;
+import com.ecommerce.product.Entity.StockShard;
+import com.ecommerce.product.Repository.ProductRepository;
+import com.ecommerce.product.Repository.StockReservationRepository;
+import com.ecommerce.product.Repository.StockShardRepository;
+import com.ecommerce.product.Service.StockService;
+import com.ecommerce.product.Stock.InsufficientStockException;
+import com.ecommerce.product.Stock.NotFoundException;
+import com.ecommerce.product.Stock.StockPreCheck;
+import jakarta.transaction.Transactional;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Reserving and sweeping run their own short transactions through the TransactionTemplate, so
+ * unlike the other services only the remaining writes are annotated @Transactional.
+ */
+@Service
+public class StockServiceImpl implements StockService {
+
+    private static final int MAX_SHARDS = 64;
+    private static final int SWEEP_BATCH = 500;
+    private static final int PRODUCT_ROW = -1;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private StockShardRepository stockShardRepository;
+
+    @Autowired
+    private StockReservationRepository stockReservationRepository;
+
+    @Autowired
+    private StockPreCheck stockPreCheck;
+
+    @Autowired
+    private ProductCache productCache;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${product.stock.reservation-ttl:15m}")
+    private Duration defaultTtl;
+
+    @Override
+    public StockReservation reserve(String productId, int quantity, Duration ttl) {
+        if (quantity <= 0)
+            throw new IllegalArgumentException("Quantity must be positive");
+        if (ttl != null && (ttl.isNegative() || ttl.isZero()))
+            throw new IllegalArgumentException("TTL must be positive");
+        if (stockPreCheck.isSoldOut(productId))
+            throw new InsufficientStockException(productId, quantity, 0);
+        Timestamp expiresAt = Timestamp.from(Instant.now().plus(ttl == null ? defaultTtl : ttl));
+
+        // Fast path: a single conditional decrement on the product row or on one random shard. It never
+        // waits for a lock while holding another, so any number of buyers can run it without deadlocking
+        StockReservation reservation = transactionTemplate.execute(status -> {
+            Integer taken = takeOne(productId, stockShards(productId), quantity);
+            return taken == null ? null : createReservation(productId, quantity, taken, expiresAt);
+        });
+        // Slow path, in a fresh transaction: the product was resharded meanwhile, the chosen shard ran dry,
+        // or the request is bigger than any one shard. Shards are locked in ascending order, so slow paths
+        // queue behind each other; a non-locking sum keeps sold-out requests off it entirely
+        if (reservation == null)
+            reservation = transactionTemplate.execute(status -> {
+                if (available(productId) < quantity)
+                    return null;
+                int shards = stockShards(productId);
+                Integer taken = shards == 0 ? takeOne(productId, 0, quantity) : takeAcrossShards(productId, quantity);
+                return taken == null ? null : createReservation(productId, quantity, taken, expiresAt);
+            });
+        if (reservation == null) {
+            long available = available(productId);
+            if (available == 0)
+                stockPreCheck.markSoldOut(productId);
+            throw new InsufficientStockException(productId, quantity, available);
+        }
+        return reservation;
+    }
+
+    private StockReservation createReservation(String productId, int quantity, int taken, Timestamp expiresAt) {
+        StockReservation reservation = StockReservation.builder()
+                .reservationId(Ids.next())
+                .productId(productId)
+                .quantity(quantity)
+                .shard(taken == PRODUCT_ROW ? null : taken)
+                .status(ReservationStatus.RESERVED)
+                .expiresAt(expiresAt)
+                .build();
+        StockReservation createdReservation = stockReservationRepository.save(reservation);
+        AfterCommit.run(() -> productCache.invalidate(productId));
+        return createdReservation;
+    }
+
+    @Override
+    public StockReservation getReservation(String reservationId) {
+        return stockReservationRepository.findById(reservationId).orElse(null);
+    }
+
+    // The units were taken at reserve time, so confirming only makes the reservation permanent
+    @Override
+    @Transactional
+    public StockReservation confirm(String reservationId) {
+        if (stockReservationRepository.confirm(reservationId, Timestamp.from(Instant.now())) == 0)
+            throw notActive(reservationId);
+        return stockReservationRepository.findById(reservationId).orElseThrow();
+    }
+
+    @Override
+    @Transactional
+    public StockReservation release(String reservationId) {
+        if (stockReservationRepository.transition(reservationId, ReservationStatus.RESERVED, ReservationStatus.RELEASED) == 0)
+            throw notActive(reservationId);
+        StockReservation reservation = stockReservationRepository.findById(reservationId).orElseThrow();
+        giveBack(reservation);
+        return reservation;
+    }
+
+    // Each reservation gets its own short transaction so the sweep never holds many stock rows locked at once
+    @Override
+    public int expireReservations() {
+        int expired = 0;
+        List<StockReservation> batch;
+        do {
+            batch = stockReservationRepository.findExpired(Timestamp.from(Instant.now()), PageRequest.of(0, SWEEP_BATCH));
+            for (StockReservation reservation : batch) {
+                Boolean won = transactionTemplate.execute(status -> {
+                    if (stockReservationRepository.transition(reservation.getReservationId(),
+                            ReservationStatus.RESERVED, ReservationStatus.EXPIRED) == 0)
+                        return false; // Confirmed or released meanwhile
+                    giveBack(reservation);
+                    return true;
+                });
+                if (Boolean.TRUE.equals(won))
+                    expired++;
+            }
+        } while (batch.size() == SWEEP_BATCH);
+        return expired;
+    }
+
+    @Override
+    @Transactional
+    public void refreshShardedStock() {
+        List<String> refreshed = new ArrayList<>();
+        for (Object[] row : stockShardRepository.sumQuantityByProduct()) {
+            String productId = (String) row[0];
+            if (productRepository.refreshShardedStock(productId, ((Number) row[1]).intValue()) == 1)
+                refreshed.add(productId);
+        }
+        AfterCommit.run(() -> refreshed.forEach(productCache::invalidate));
+    }
+
+    @Override
+    @Transactional
+    public Product shardStock(String productId, int shards) {
+        if (shards < 0 || shards > MAX_SHARDS)
+            throw new IllegalArgumentException("Shard count must be between 0 and " + MAX_SHARDS);
+        Product product = productRepository.findByIdForUpdate(productId).orElseThrow(() -> productNotFound(productId));
+        List<StockShard> existing = stockShardRepository.findByProductIdForUpdate(productId);
+        int total = product.getStockShards() == 0
+                ? product.getStockQuantity()
+                : existing.stream().mapToInt(StockShard::getQuantity).sum();
+
+        redistribute(productId, existing, shards, total);
+        product.setStockShards(shards);
+        product.setStockQuantity(total);
+        Product shardedProduct = productRepository.save(product);
+        AfterCommit.run(() -> {
+            stockPreCheck.clear(productId);
+            productCache.invalidate(productId);
+        });
+        return shardedProduct;
+    }
+
+    // Stock only ever moves by deltas, so a restock cannot overwrite units reserved meanwhile
+    @Override
+    @Transactional
+    public Product restock(String productId, int quantity) {
+        if (quantity <= 0)
+            throw new IllegalArgumentException("Quantity must be positive");
+        int shards = stockShards(productId);
+        putBack(productId, shards == 0 ? null : ThreadLocalRandom.current().nextInt(shards), quantity);
+        return productRepository.findById(productId).orElseThrow(() -> productNotFound(productId));
+    }
+
+    private int stockShards(String productId) {
+        return productRepository.findStockShards(productId).orElseThrow(() -> productNotFound(productId));
+    }
+
+    private static NotFoundException productNotFound(String productId) {
+        return new NotFoundException("Product " + productId + " not found");
+    }
+
+    // Returns the shard the units came from, PRODUCT_ROW for an unsharded product, or null when it had too few
+    private Integer takeOne(String productId, int shards, int quantity) {
+        if (shards == 0)
+            return productRepository.decrementStock(productId, quantity) == 1 ? PRODUCT_ROW : null;
+        // A random shard spreads concurrent buyers over the sub-counter rows
+        int shard = ThreadLocalRandom.current().nextInt(shards);
+        return stockShardRepository.decrement(productId, shard, quantity) == 1 ? shard : null;
+    }
+
+    // Lock every shard (ascending, by primary key) and drain them in turn until the request is covered.
+    // The reservation records the first shard drained, so a release puts all units back there
+    private Integer takeAcrossShards(String productId, int quantity) {
+        List<StockShard> shards = stockShardRepository.findByProductIdForUpdate(productId);
+        if (shards.stream().mapToInt(StockShard::getQuantity).sum() < quantity)
+            return null;
+        int remaining = quantity;
+        Integer first = null;
+        for (StockShard shard : shards) {
+            int taken = Math.min(remaining, shard.getQuantity());
+            if (taken == 0)
+                continue;
+            shard.setQuantity(shard.getQuantity() - taken);
+            if (first == null)
+                first = shard.getShard();
+            remaining -= taken;
+            if (remaining == 0)
+                break;
+        }
+        stockShardRepository.flush();
+        return first;
+    }
+
+    private void redistribute(String productId, List<StockShard> existing, int shards, int total) {
+        List<StockShard> removed = new ArrayList<>();
+        StockShard[] rows = new StockShard[shards];
+        for (StockShard row : existing) {
+            if (row.getShard() < shards) {
+                rows[row.getShard()] = row;
+            } else {
+                removed.add(row);
+            }
+        }
+        for (int shard = 0; shard < shards; shard++) {
+            if (rows[shard] == null)
+                rows[shard] = new StockShard(productId, shard, 0);
+            rows[shard].setQuantity(total / shards + (shard < total % shards ? 1 : 0));
+        }
+        stockShardRepository.deleteAll(removed);
+        stockShardRepository.saveAll(List.of(rows));
+    }
+
+    private long available(String productId) {
+        return stockShards(productId) == 0
+                ? productRepository.findById(productId).map(Product::getStockQuantity).orElse(0)
+                : stockShardRepository.sumQuantity(productId);
+    }
+
+    private void giveBack(StockReservation reservation) {
+        putBack(reservation.getProductId(), reservation.getShard(), reservation.getQuantity());
+    }
+
+    private void putBack(String productId, Integer shard, int quantity) {
+        // The product may have been resharded since the shard was picked; fall back to whatever holds its stock now
+        boolean restored = shard != null && stockShardRepository.increment(productId, shard, quantity) == 1;
+        if (!restored)
+            restored = productRepository.incrementStock(productId, quantity) == 1;
+        if (!restored)
+            stockShardRepository.increment(productId, 0, quantity); // Shard 0 exists whenever the product is sharded
+        AfterCommit.run(() -> {
+            stockPreCheck.clear(productId);
+            productCache.invalidate(productId);
+        });
+    }
+
+    private RuntimeException notActive(String reservationId) {
+        StockReservation reservation = stockReservationRepository.findById(reservationId)
+                .orElseThrow(() -> new NotFoundException("Reservation " + reservationId + " not found"));
+        if (reservation.getStatus() == ReservationStatus.RESERVED)
+            return new IllegalStateException("Reservation " + reservationId + " has expired");
+        return new IllegalStateException("Reservation " + reservationId + " is already " + reservation.getStatus());
+    }
+}
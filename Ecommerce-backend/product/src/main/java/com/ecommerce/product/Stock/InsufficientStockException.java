@@ -0,0 +1,8 @@
+package com.ecommerce.product.Stock;
+
+public class InsufficientStockException extends RuntimeException {
+
+    public InsufficientStockException(String productId, int requested, long available) {
+        super("Insufficient stock for product " + productId + ": requested " + requested + ", available " + available);
+    }
+}
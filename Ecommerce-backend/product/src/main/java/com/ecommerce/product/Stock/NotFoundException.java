@@ -0,0 +1,8 @@
+package com.ecommerce.product.Stock;
+
+public class NotFoundException extends RuntimeException {
+
+    public NotFoundException(String message) {
+        super(message);
+    }
+}
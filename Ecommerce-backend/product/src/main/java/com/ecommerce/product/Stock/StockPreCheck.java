@@ -0,0 +1,44 @@
+package com.ecommerce.product.Stock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers products that were just found sold out, so the rest of a flash-sale crowd is turned
+ * away in memory instead of each queueing on the row lock to learn the same thing. The map is
+ * lock-striped per bin, so unrelated products never contend. A mark is cleared when stock comes
+ * back through this instance and expires on its own after a short TTL, which bounds how long a
+ * restock made through another instance can go unnoticed.
+ */
+@Component
+public class StockPreCheck {
+
+    private final Map<String, Long> soldOutUntil = new ConcurrentHashMap<>();
+    private final long ttlNanos;
+
+    public StockPreCheck(@Value("${product.stock.sold-out-ttl:2s}") Duration ttl) {
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    public boolean isSoldOut(String productId) {
+        Long until = soldOutUntil.get(productId);
+        if (until == null)
+            return false;
+        if (until - System.nanoTime() > 0)
+            return true;
+        soldOutUntil.remove(productId, until);
+        return false;
+    }
+
+    public void markSoldOut(String productId) {
+        soldOutUntil.put(productId, System.nanoTime() + ttlNanos);
+    }
+
+    public void clear(String productId) {
+        soldOutUntil.remove(productId);
+    }
+}
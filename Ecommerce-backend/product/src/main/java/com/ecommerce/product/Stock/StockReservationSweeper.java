@@ -0,0 +1,31 @@
+package com.ecommerce.product.Stock;
+
+import com.ecommerce.product.Service.StockService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Gives back the stock of reservations whose TTL ran out and refreshes the displayed
+ * stock_quantity of sharded products.
+ */
+@Component
+public class StockReservationSweeper {
+
+    private static final Logger log = LoggerFactory.getLogger(StockReservationSweeper.class);
+
+    private final StockService stockService;
+
+    public StockReservationSweeper(StockService stockService) {
+        this.stockService = stockService;
+    }
+
+    @Scheduled(fixedDelayString = "${product.stock.sweep-interval-ms:30000}")
+    public void sweep() {
+        int expired = stockService.expireReservations();
+        stockService.refreshShardedStock();
+        if (expired > 0)
+            log.info("Expired {} stock reservations", expired);
+    }
+}
@@ -0,0 +1,95 @@
+package com.ecommerce.product.Cache;
+
+import com.ecommerce.product.Entity.Product;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductCacheTest {
+
+    private final ProductCache cache = new ProductCache(100, Duration.ofMinutes(10));
+
+    @Test
+    void readsThroughOnceAndCountsHits() {
+        AtomicInteger loads = new AtomicInteger();
+        Product product = product("p1", "Sofa Bed");
+
+        cache.getById("p1", id -> { loads.incrementAndGet(); return Optional.of(product); });
+        Product cached = cache.getById("p1", id -> { loads.incrementAndGet(); return Optional.of(product); });
+
+        assertSame(product, cached);
+        assertEquals(1, loads.get());
+        assertEquals(1L, cache.stats().get("hits"));
+        assertEquals(1L, cache.stats().get("misses"));
+    }
+
+    @Test
+    void nameLookupUsesSecondaryIndex() {
+        cache.getById("p1", id -> Optional.of(product("p1", "Sofa Bed")));
+
+        Product byName = cache.getByName("Sofa Bed", name -> fail("should be served from cache"),
+                id -> fail("should be served from cache"));
+
+        assertEquals("p1", byName.getProductId());
+    }
+
+    @Test
+    void invalidationDropsNameIndexEntry() {
+        cache.getById("p1", id -> Optional.of(product("p1", "Sofa Bed")));
+        cache.invalidate("p1");
+
+        AtomicInteger loads = new AtomicInteger();
+        cache.getByName("Sofa Bed", name -> Optional.of("p1"),
+                id -> { loads.incrementAndGet(); return Optional.of(product("p1", "Sofa Bed")); });
+
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void staleNamePointerIsNotServed() {
+        cache.put(product("p1", "Sofa Bed"));
+        cache.put(product("p1", "Recliner"));
+
+        assertNull(cache.getByName("Sofa Bed", name -> Optional.empty(), id -> fail("no product has the name")));
+        assertEquals("p1", cache.getByName("Recliner", name -> fail("should be served from cache"),
+                id -> fail("should be served from cache")).getProductId());
+    }
+
+    @Test
+    void invalidationDuringANameLoadIsNotLost() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        // A write commits and invalidates while the read is still loading the old row
+        Thread writer = new Thread(() -> {
+            try {
+                loading.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            cache.invalidate("p1");
+        });
+        writer.start();
+
+        Product byName = cache.getByName("Sofa Bed", name -> Optional.of("p1"), id -> {
+            loading.countDown();
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return Optional.of(product("p1", "Sofa Bed"));
+        });
+        writer.join();
+
+        assertEquals("p1", byName.getProductId());
+        assertNull(cache.getIfPresent("p1"));
+    }
+
+    private static Product product(String id, String name) {
+        return Product.builder().productId(id).productName(name).build();
+    }
+}
@@ -0,0 +1,73 @@
+package com.ecommerce.product.Category;
+
+import com.ecommerce.product.Entity.Product;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CategoryTreeTest {
+
+    private final CategoryTree tree = new CategoryTree();
+
+    @Test
+    void countsDistinctProductsAtEveryLevel() {
+        tree.index(product("p1", "[\"Clothing >> Women's Clothing >> Western Wear\"]"));
+        tree.index(product("p2", "[\"Clothing >> Women's Clothing >> Lingerie\"]"));
+        tree.index(product("p3", "[\"Clothing >> Men's Clothing\"]"));
+        // Two paths under the same parent still count once there
+        tree.index(product("p4", "[\"Clothing >> Women's Clothing >> Western Wear\", \"Clothing >> Women's Clothing >> Lingerie\"]"));
+
+        CategoryNode clothing = tree.browse("Clothing", 2);
+
+        assertEquals(4, clothing.getCount());
+        assertEquals("Women's Clothing", clothing.getChildren().get(0).getName());
+        assertEquals(3, clothing.getChildren().get(0).getCount());
+        assertEquals(2, clothing.getChildren().get(0).getChildren().size());
+        assertEquals(1, clothing.getChildren().get(1).getCount());
+    }
+
+    @Test
+    void prefixFilterCollectsSubtreeAndIntersects() {
+        tree.index(product("p1", "[\"Clothing >> Women's Clothing >> Western Wear\"]"));
+        tree.index(product("p2", "[\"Clothing >> Men's Clothing\"]"));
+        tree.index(product("p3", "[\"Clothing >> Women's Clothing\", \"Sale >> Clearance\"]"));
+
+        assertEquals(Set.of("p1", "p3"), tree.productIds(List.of("Clothing >> Women's Clothing")));
+        assertEquals(Set.of("p3"), tree.productIds(List.of("Clothing >> Women's Clothing", "Sale")));
+        assertTrue(tree.productIds(List.of("Furniture")).isEmpty());
+
+        // The node counts bound the match without gathering ids
+        assertEquals(2, tree.count(List.of("Clothing >> Women's Clothing")));
+        assertEquals(1, tree.count(List.of("Clothing >> Women's Clothing", "Sale")));
+        assertEquals(0, tree.count(List.of("Clothing", "Furniture")));
+    }
+
+    @Test
+    void pathIndexRowsCoverEveryAncestor() {
+        assertEquals(Set.of("Clothing", "Clothing >> Women's Clothing", "Clothing >> Women's Clothing >> Western Wear", "Sale"),
+                CategoryPathIndex.paths("[\"Clothing>>Women's Clothing >> Western Wear\", \"Clothing >> Women's Clothing\", \"Sale\"]"));
+        assertEquals(Set.of("Clothing"), CategoryPathIndex.paths("[\"Clothing >> " + "x".repeat(CategoryPathIndex.MAX_PATH_LENGTH) + "\"]"));
+        assertFalse(CategoryPathIndex.covers("Clothing >> " + "x".repeat(CategoryPathIndex.MAX_PATH_LENGTH)));
+    }
+
+    @Test
+    void reindexingMovesProductAndPrunesEmptyBranches() {
+        tree.index(product("p1", "[\"Watches >> Wrist Watches\"]"));
+        tree.index(product("p1", "[\"Footwear >> Ballerinas\"]"));
+
+        assertNull(tree.browse("Watches", 1));
+        assertEquals(1, tree.browse("", 1).getCount());
+
+        tree.remove("p1");
+
+        assertEquals(0, tree.browse("", 1).getCount());
+        assertTrue(tree.browse("", 1).getChildren().isEmpty());
+    }
+
+    private static Product product(String id, String categories) {
+        return Product.builder().productId(id).categories(categories).build();
+    }
+}
@@ -0,0 +1,106 @@
+package com.ecommerce.product.Controller;
+
+import com.ecommerce.product.Repository.ProductRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * With the id list capped at one, every category filter goes through product_category, which
+ * product writes must keep in step.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:categoryfilter;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "product.stock.sweep-interval-ms=3600000",
+        "product.filter.max-category-ids=1"
+})
+@AutoConfigureMockMvc
+class ProductCategoryFilterTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void products() throws Exception {
+        productRepository.deleteAll();
+        jdbcTemplate.update("delete from product_category");
+        create("c1", "Clothing >> Women's Clothing >> Western Wear");
+        create("c2", "Clothing >> Women's Clothing");
+        create("c3", "Clothing >> Men's Clothing");
+        create("f1", "Footwear >> Women's Footwear");
+    }
+
+    @Test
+    void largeMatchesAreFilteredThroughTheCategoryTable() throws Exception {
+        assertEquals(List.of("c1", "c2", "c3"), ids("Clothing"));
+        assertEquals(List.of("c1", "c2"), ids("Clothing >> Women's Clothing"));
+        // At or under the cap the tree's id list is used
+        assertEquals(List.of("f1"), ids("Footwear"));
+        assertEquals(List.of(), ids("Furniture"));
+    }
+
+    @Test
+    void writesMoveAndDropProducts() throws Exception {
+        mockMvc.perform(patch("/products/{id}", "c2")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"categories\": \"[\\\"Footwear >> Women's Footwear\\\"]\"}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(delete("/products/{id}", "c3")).andExpect(status().isOk());
+
+        assertEquals(List.of("c1"), ids("Clothing"));
+        assertEquals(List.of("c2", "f1"), ids("Footwear"));
+    }
+
+    private List<String> ids(String category) throws Exception {
+        String body = mockMvc.perform(get("/products")
+                        .param("category", category)
+                        .param("fields", "productId")
+                        .param("size", "50"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        List<String> ids = new ArrayList<>();
+        for (JsonNode product : objectMapper.readTree(body).get("content"))
+            ids.add(product.get("productId").asText());
+        ids.sort(null);
+        return ids;
+    }
+
+    private void create(String productId, String category) throws Exception {
+        String body = objectMapper.writeValueAsString(Map.of(
+                "productId", productId,
+                "productName", productId,
+                "categories", objectMapper.writeValueAsString(List.of(category)),
+                "retailPrice", 10,
+                "stockQuantity", 1));
+        mockMvc.perform(post("/products").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isOk());
+    }
+}
@@ -0,0 +1,184 @@
+package com.ecommerce.product.Controller;
+
+import com.ecommerce.product.Dto.ProductCursor;
+import com.ecommerce.product.Entity.Product;
+import com.ecommerce.product.Repository.ProductRepository;
+import com.ecommerce.product.Repository.ProductSpecifications;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Keyset pagination over (retailPrice, productId): walking GET /products?mode=cursor forward and
+ * back must visit every product exactly once, in order, however many share a price or have none.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:cursorpaging;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "product.stock.sweep-interval-ms=3600000"
+})
+@AutoConfigureMockMvc
+class ProductCursorPagingTest {
+
+    private static final String BRAND = "CursorPaging";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    // In (retailPrice, productId) order; three have no price, which sorts first, three share the lowest and two the next
+    private final List<String> ascending = List.of("p-x", "p-y", "p-z", "p-a", "p-b", "p-c", "p-d", "p-e", "p-f", "p-g");
+
+    @BeforeEach
+    void products() {
+        productRepository.deleteAll();
+        save("p-c", "10.00");
+        save("p-g", "40.00");
+        save("p-a", "10.00");
+        save("p-e", "20.00");
+        save("p-b", "10.00");
+        save("p-f", "30.00");
+        save("p-d", "20.00");
+        save("p-y", null);
+        save("p-z", null);
+        save("p-x", null);
+    }
+
+    @Test
+    void walksForwardAndBackAcrossTies() throws Exception {
+        List<JsonNode> pages = new ArrayList<>();
+        String cursor = null;
+        do {
+            JsonNode page = page(cursor, "asc");
+            pages.add(page);
+            cursor = text(page, "nextCursor");
+        } while (cursor != null);
+
+        assertEquals(List.of(List.of("p-x", "p-y", "p-z"), List.of("p-a", "p-b", "p-c"), List.of("p-d", "p-e", "p-f"), List.of("p-g")),
+                pages.stream().map(ProductCursorPagingTest::ids).toList());
+        assertNull(text(pages.get(0), "prevCursor"));
+
+        // Back from the last page, each prevCursor returns the page before it
+        JsonNode page = pages.get(pages.size() - 1);
+        for (int i = pages.size() - 2; i >= 0; i--) {
+            page = page(text(page, "prevCursor"), "asc");
+            assertEquals(ids(pages.get(i)), ids(page));
+        }
+        assertNull(text(page, "prevCursor"));
+        assertNotNull(text(page, "nextCursor"));
+    }
+
+    @Test
+    void descendingOrderReversesTheWalk() throws Exception {
+        List<String> visited = new ArrayList<>();
+        String cursor = null;
+        do {
+            JsonNode page = page(cursor, "desc");
+            visited.addAll(ids(page));
+            cursor = text(page, "nextCursor");
+        } while (cursor != null);
+
+        List<String> descending = new ArrayList<>(ascending);
+        Collections.reverse(descending);
+        assertEquals(descending, visited);
+    }
+
+    @Test
+    void seekSpecificationsBreakPriceTiesOnProductId() {
+        Sort ascendingOrder = Sort.by(Sort.Direction.ASC, "retailPrice", "productId");
+        Sort descendingOrder = Sort.by(Sort.Direction.DESC, "retailPrice", "productId");
+
+        assertEquals(List.of("p-c", "p-d", "p-e"),
+                ids(ProductSpecifications.after(new BigDecimal("10.00"), "p-b"), ascendingOrder));
+        assertEquals(List.of("p-b", "p-a", "p-z"),
+                ids(ProductSpecifications.before(new BigDecimal("10.00"), "p-c"), descendingOrder));
+        assertEquals(List.of("p-e", "p-d", "p-c"),
+                ids(ProductSpecifications.before(new BigDecimal("30.00"), "p-f"), descendingOrder));
+        assertEquals(List.of("p-z", "p-a", "p-b"),
+                ids(ProductSpecifications.after(null, "p-y"), ascendingOrder));
+        assertEquals(List.of("p-z", "p-y", "p-x"),
+                ids(ProductSpecifications.before(new BigDecimal("10.00"), "p-a"), descendingOrder));
+        assertEquals(List.of("p-x"),
+                ids(ProductSpecifications.before(null, "p-y"), descendingOrder));
+    }
+
+    @Test
+    void cursorRoundTripsAndRejectsTampering() throws Exception {
+        ProductCursor cursor = new ProductCursor(new BigDecimal("10.50"), "p|with|separators", true);
+        assertEquals(cursor, ProductCursor.decode(cursor.encode()));
+        ProductCursor unpriced = new ProductCursor(null, "p-x", false);
+        assertEquals(unpriced, ProductCursor.decode(unpriced.encode()));
+
+        assertThrows(IllegalArgumentException.class, () -> ProductCursor.decode("not a cursor"));
+        mockMvc.perform(request("bm90fGEgY3Vyc29y", "asc")).andExpect(status().isBadRequest());
+    }
+
+    private JsonNode page(String cursor, String sortDirection) throws Exception {
+        String body = mockMvc.perform(request(cursor, sortDirection))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body);
+    }
+
+    private static MockHttpServletRequestBuilder request(String cursor, String sortDirection) {
+        MockHttpServletRequestBuilder request = get("/products")
+                .param("mode", "cursor")
+                .param("size", "3")
+                .param("sortDirection", sortDirection)
+                .param("brand", BRAND);
+        return cursor == null ? request : request.param("cursor", cursor);
+    }
+
+    private static List<String> ids(JsonNode page) {
+        List<String> ids = new ArrayList<>();
+        page.get("content").forEach(product -> ids.add(product.get("productId").asText()));
+        return ids;
+    }
+
+    private List<String> ids(Specification<Product> seek, Sort sort) {
+        return productRepository.findProjectedSlice(Specification.where(ProductSpecifications.brandIn(List.of(BRAND))).and(seek),
+                        List.of("productId"), PageRequest.of(0, 3, sort))
+                .getContent().stream().map(row -> (String) row.get("productId")).toList();
+    }
+
+    private static String text(JsonNode page, String field) {
+        JsonNode value = page.get(field);
+        return value == null || value.isNull() ? null : value.asText();
+    }
+
+    private void save(String productId, String retailPrice) {
+        productRepository.saveAndFlush(Product.builder()
+                .productId(productId)
+                .productName(productId)
+                .brand(BRAND)
+                .retailPrice(retailPrice == null ? null : new BigDecimal(retailPrice))
+                .stockQuantity(1)
+                .build());
+    }
+}
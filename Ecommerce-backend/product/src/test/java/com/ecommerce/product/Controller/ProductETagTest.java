@@ -0,0 +1,130 @@
+package com.ecommerce.product.Controller;
+
+import com.ecommerce.product.Cache.ProductCache;
+import com.ecommerce.product.Entity.Product;
+import com.ecommerce.product.Repository.ProductRepository;
+import com.ecommerce.product.Service.StockService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:etag;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "product.stock.sweep-interval-ms=3600000"
+})
+@AutoConfigureMockMvc
+class ProductETagTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductCache productCache;
+
+    @Autowired
+    private StockService stockService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private String productId;
+
+    @BeforeEach
+    void createProduct() {
+        productId = UUID.randomUUID().toString();
+        productRepository.saveAndFlush(Product.builder()
+                .productId(productId)
+                .productName("ETag " + productId)
+                .retailPrice(BigDecimal.TEN)
+                .discountedPrice(BigDecimal.ONE)
+                .stockQuantity(5)
+                .build());
+    }
+
+    @Test
+    void matchingIfNoneMatchIsAnsweredWithoutLoadingTheProduct() throws Exception {
+        String eTag = eTag();
+        productCache.invalidateAll();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        long loads = statistics.getEntityLoadCount();
+
+        mockMvc.perform(get("/products/id/{id}", productId).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, eTag))
+                .andExpect(content().string(""));
+
+        assertEquals(loads, statistics.getEntityLoadCount());
+        assertNull(productCache.getIfPresent(productId));
+    }
+
+    @Test
+    void stockChangesInvalidateTheTag() throws Exception {
+        String eTag = eTag();
+
+        stockService.reserve(productId, 1, Duration.ofMinutes(5));
+
+        mockMvc.perform(get("/products/id/{id}", productId).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.stockQuantity").value(4));
+        assertNotEquals(eTag, eTag());
+    }
+
+    @Test
+    void ifMatchGuardsPatchAndPut() throws Exception {
+        String eTag = eTag();
+
+        String patched = mockMvc.perform(patch("/products/{id}", productId).header(HttpHeaders.IF_MATCH, eTag)
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"brand\":\"Acme\"}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotEquals(eTag, patched);
+        assertEquals(patched, eTag());
+
+        // The first tag is stale now
+        mockMvc.perform(patch("/products/{id}", productId).header(HttpHeaders.IF_MATCH, eTag)
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"brand\":\"Other\"}"))
+                .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(put("/products/{id}", productId).header(HttpHeaders.IF_MATCH, eTag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"productId\":\"" + productId + "\",\"productName\":\"Replaced\",\"stockQuantity\":5}"))
+                .andExpect(status().isPreconditionFailed());
+        assertEquals("Acme", productRepository.findById(productId).orElseThrow().getBrand());
+
+        // Without If-Match a full replace still works; the body's missing version is not taken as stale
+        mockMvc.perform(put("/products/{id}", productId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"productId\":\"" + productId + "\",\"productName\":\"Replaced\",\"stockQuantity\":5}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.productName").value("Replaced"));
+    }
+
+    private String eTag() throws Exception {
+        return mockMvc.perform(get("/products/id/{id}", productId))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    }
+}
@@ -0,0 +1,105 @@
+package com.ecommerce.product.Controller;
+
+import com.ecommerce.product.Entity.StockReservation;
+import com.ecommerce.product.Repository.ProductRepository;
+import com.ecommerce.product.Repository.StockShardRepository;
+import com.ecommerce.product.Service.StockService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:stockcontroller;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "product.stock.sweep-interval-ms=3600000"
+})
+@AutoConfigureMockMvc
+class StockControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private StockService stockService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private StockShardRepository stockShardRepository;
+
+    private String productId;
+
+    @BeforeEach
+    void productId() {
+        productId = UUID.randomUUID().toString();
+    }
+
+    @Test
+    void unknownProductsAndReservationsAreNotFound() throws Exception {
+        mockMvc.perform(post("/products/{id}/reservations", "missing"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.error").value("Product missing not found"));
+        mockMvc.perform(put("/products/{id}/stock/shards", "missing").param("count", "2"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(post("/products/{id}/stock", "missing").param("quantity", "2"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(post("/products/reservations/{id}/confirm", "missing"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void shardedProductIsCreatedWithItsShards() throws Exception {
+        create(10, 4);
+
+        assertEquals(4, productRepository.findById(productId).orElseThrow().getStockShards());
+        assertEquals(4, stockShardRepository.count());
+        assertEquals(10, stockShardRepository.sumQuantity(productId));
+        StockReservation reservation = stockService.reserve(productId, 7, null);
+        assertEquals(3, stockShardRepository.sumQuantity(productId));
+        assertEquals(7, reservation.getQuantity());
+    }
+
+    @Test
+    void putAndPatchLeaveReservedStockAlone() throws Exception {
+        create(5, 0);
+        stockService.reserve(productId, 2, null);
+
+        mockMvc.perform(put("/products/{id}", productId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"productId\":\"" + productId + "\",\"productName\":\"Replaced\",\"stockQuantity\":5}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.stockQuantity").value(3));
+        mockMvc.perform(patch("/products/{id}", productId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"stockQuantity\":5}"))
+                .andExpect(status().isBadRequest());
+        assertEquals(3, productRepository.findById(productId).orElseThrow().getStockQuantity());
+
+        mockMvc.perform(post("/products/{id}/stock", productId).param("quantity", "4"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.stockQuantity").value(7));
+    }
+
+    private void create(int stock, int shards) throws Exception {
+        mockMvc.perform(post("/products")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"productId\":\"" + productId + "\",\"productName\":\"Stock " + productId
+                                + "\",\"retailPrice\":10,\"stockQuantity\":" + stock + ",\"stockShards\":" + shards + "}"))
+                .andExpect(status().isOk());
+    }
+}
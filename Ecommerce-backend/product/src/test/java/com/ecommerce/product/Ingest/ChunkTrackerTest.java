@@ -0,0 +1,77 @@
+package com.ecommerce.product.Ingest;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChunkTrackerTest {
+
+    @Test
+    void resumeOffsetOnlyCoversAContiguousCommittedPrefix() {
+        ChunkTracker tracker = new ChunkTracker(0);
+
+        tracker.committed(100, 200, 100);
+        assertEquals(0, tracker.report(0).getResumeFrom());
+        tracker.committed(0, 100, 100);
+        assertEquals(200, tracker.report(0).getResumeFrom());
+        tracker.committed(300, 400, 100);
+        assertEquals(200, tracker.report(0).getResumeFrom());
+
+        tracker.failed(200, 300, new IllegalArgumentException("Record without uniq_id"));
+        IngestReport report = tracker.report(1000);
+        assertFalse(report.isCompleted());
+        assertEquals(200, report.getResumeFrom());
+        assertEquals(300, report.getRowsWritten());
+        assertEquals(3, report.getChunksWritten());
+        assertEquals("Chunk of records 200-299 failed: Record without uniq_id", report.getError());
+    }
+
+    @Test
+    void resumedRunContinuesFromItsOffset() {
+        ChunkTracker tracker = new ChunkTracker(500);
+
+        tracker.committed(600, 700, 100);
+        assertEquals(500, tracker.report(0).getResumeFrom());
+        tracker.committed(500, 600, 100);
+
+        IngestReport report = tracker.report(0);
+        assertTrue(report.isCompleted());
+        assertEquals(700, report.getResumeFrom());
+        assertEquals(200, report.getRowsWritten());
+    }
+
+    @Test
+    void firstFailureIsTheOneReported() {
+        ChunkTracker tracker = new ChunkTracker(0);
+        tracker.committed(0, 10, 10);
+
+        tracker.rejected("Record 10 is VALUE_STRING, not a product object at line 1, column 42");
+        tracker.failed(10, 20, new IllegalStateException("Deadlock"));
+
+        IngestReport report = tracker.report(0);
+        assertTrue(tracker.hasFailed());
+        assertEquals(10, report.getResumeFrom());
+        assertEquals("Record 10 is VALUE_STRING, not a product object at line 1, column 42", report.getError());
+    }
+
+    @Test
+    void skippedRecordsDoNotStopTheRun() {
+        ChunkTracker tracker = new ChunkTracker(0);
+
+        // Reported in record order whichever chunk finished first
+        tracker.skipped(12, new IllegalArgumentException("Invalid retail_price: 12,99"));
+        tracker.committed(10, 20, 9);
+        tracker.skipped(3, new IllegalArgumentException("Missing uniq_id"));
+        tracker.committed(0, 10, 9);
+
+        IngestReport report = tracker.report(0);
+        assertFalse(tracker.hasFailed());
+        assertTrue(report.isCompleted());
+        assertEquals(20, report.getResumeFrom());
+        assertEquals(18, report.getRowsWritten());
+        assertEquals(2, report.getRecordsSkipped());
+        assertEquals(List.of("Record 3: Missing uniq_id", "Record 12: Invalid retail_price: 12,99"), report.getSkipped());
+    }
+}
@@ -0,0 +1,118 @@
+package com.ecommerce.product.Ingest;
+
+import com.ecommerce.product.Repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Input the ingest cannot write must still come back as a report whose resumeFrom covers exactly
+ * the records that were committed.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:productingest;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "product.stock.sweep-interval-ms=3600000",
+        "product.ingest.chunk-size=2"
+})
+class ProductIngestServiceTest {
+
+    @Autowired
+    private ProductIngestService productIngestService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @BeforeEach
+    void emptyTable() {
+        productRepository.deleteAll();
+    }
+
+    @Test
+    void truncatedArrayKeepsTheRecordsBeforeIt() throws IOException {
+        IngestReport report = ingest("[" + record("p0") + ",\n" + record("p1") + ",\n" + record("p2") + ",\n{\"uniq_id\": \"p3\"");
+
+        assertFalse(report.isCompleted());
+        assertEquals(3, report.getRowsWritten());
+        assertEquals(3, report.getResumeFrom());
+        assertTrue(report.getError().startsWith("Record 3 is not valid JSON at line 4, column "), report.getError());
+        assertEquals(3, productRepository.count());
+    }
+
+    @Test
+    void malformedRecordStopsTheRunAtIt() throws IOException {
+        IngestReport report = ingest("[" + record("p0") + ", {\"uniq_id\": \"p1\" \"brand\": \"x\"}, " + record("p2") + "]");
+
+        assertFalse(report.isCompleted());
+        assertEquals(1, report.getResumeFrom());
+        assertTrue(report.getError().startsWith("Record 1 is not valid JSON at line 1, column "), report.getError());
+        assertFalse(productRepository.existsById("p2"));
+    }
+
+    @Test
+    void nonObjectElementStopsTheRunAtIt() throws IOException {
+        IngestReport report = ingest("[" + record("p0") + ", \"p1\", " + record("p2") + "]");
+
+        assertFalse(report.isCompleted());
+        assertEquals(1, report.getRowsWritten());
+        assertEquals(1, report.getResumeFrom());
+        assertTrue(report.getError().startsWith("Record 1 is VALUE_STRING, not a product object at line 1, column "), report.getError());
+        assertFalse(productRepository.existsById("p2"));
+    }
+
+    @Test
+    void badRecordIsSkippedAndTheRunCompletes() throws IOException {
+        IngestReport report = ingest("[" + record("p0") + ", {\"product_name\": \"No id\"}, "
+                + record("p2") + ", {\"uniq_id\": \"p3\", \"retail_price\": \"12,99\"}, " + record("p4") + "]");
+
+        assertTrue(report.isCompleted());
+        assertNull(report.getError());
+        assertEquals(5, report.getResumeFrom());
+        assertEquals(3, report.getRowsWritten());
+        assertEquals(2, report.getRecordsSkipped());
+        assertEquals(List.of("Record 1: Missing uniq_id", "Record 3: Invalid retail_price: 12,99"), report.getSkipped());
+        assertEquals(3, productRepository.count());
+    }
+
+    @Test
+    void resumedRunPicksUpAfterTheFailure() throws IOException {
+        String written = record("p0") + ", " + record("p1");
+        assertEquals(2, ingest("[" + written + ", 42]").getResumeFrom());
+
+        IngestReport report = ingest("[" + written + ", " + record("p2") + "]", 2);
+        assertTrue(report.isCompleted());
+        assertEquals(1, report.getRowsWritten());
+        assertEquals(3, report.getResumeFrom());
+        assertEquals(3, productRepository.count());
+    }
+
+    @Test
+    void bodyThatIsNotAnArrayIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> ingest("{\"uniq_id\": \"p0\"}"));
+        assertThrows(IllegalArgumentException.class, () -> ingest("not json"));
+    }
+
+    private IngestReport ingest(String body) throws IOException {
+        return ingest(body, 0);
+    }
+
+    private IngestReport ingest(String body, long resumeFrom) throws IOException {
+        return productIngestService.ingest(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), resumeFrom);
+    }
+
+    private static String record(String id) {
+        return "{\"uniq_id\": \"" + id + "\", \"product_name\": \"Product " + id + "\", \"retail_price\": \"999\","
+                + " \"product_category_tree\": \"[\\\"Clothing >> Women's Clothing\\\"]\"}";
+    }
+}
@@ -0,0 +1,88 @@
+package com.ecommerce.product.Repository;
+
+import com.ecommerce.product.Category.CategoryPathIndex;
+import com.ecommerce.product.Category.CategoryTree;
+import com.ecommerce.product.Entity.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Large category matches are filtered through product_category instead of a primary-key IN
+ * list; both must select the same products.
+ */
+@DataJpaTest
+class ProductCategorySpecificationTest {
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final CategoryTree categoryTree = new CategoryTree();
+
+    @BeforeEach
+    void products() {
+        save("p1", "[\"Clothing >> Women's Clothing >> Western Wear\"]");
+        save("p2", "[\"Clothing >> Women's Clothing\"]");
+        save("p3", "[\"Clothing >> Women's Clothing Sets\"]");
+        save("p4", "[\"Footwear >> Women's Footwear\", \"Clothing >> Women's Clothing >> Sleepwear\"]");
+        save("p5", "[\"Home >> 100% Cotton >> Bedsheets\"]");
+        save("p6", "[\"Home >> 100_ Cotton\"]");
+    }
+
+    @Test
+    void storedTextMatchesTheSameProductsAsTheTree() {
+        for (String path : List.of("Clothing", "Clothing >> Women's Clothing", "Clothing>>Women's Clothing >>Western Wear",
+                "Footwear", "Home >> 100% Cotton", "Home >> 100_ Cotton", "Clothing >> Women's"))
+            assertEquals(categoryTree.productIds(List.of(path)), ids(ProductSpecifications.categoryUnder(path)), path);
+    }
+
+    @Test
+    void rewrittenProductMovesCategory() {
+        CategoryPathIndex categoryPathIndex = new CategoryPathIndex(jdbcTemplate);
+        Product product = productRepository.findById("p2").orElseThrow();
+        product.setCategories("[\"Footwear >> Women's Footwear\"]");
+        categoryPathIndex.index(product);
+        assertEquals(Set.of("p4", "p2"), ids(ProductSpecifications.categoryUnder("Footwear")));
+        assertEquals(Set.of("p1", "p4"), ids(ProductSpecifications.categoryUnder("Clothing >> Women's Clothing")));
+
+        categoryPathIndex.remove("p4");
+        assertEquals(Set.of("p2"), ids(ProductSpecifications.categoryUnder("Footwear")));
+    }
+
+    @Test
+    void severalPathsAreIntersected() {
+        List<String> paths = List.of("Clothing >> Women's Clothing", "Footwear");
+        assertEquals(Set.of("p4"), ids(ProductSpecifications.categoryUnder(paths.get(0)).and(ProductSpecifications.categoryUnder(paths.get(1)))));
+        assertEquals(Set.of("p4"), categoryTree.productIds(paths));
+    }
+
+    private Set<String> ids(Specification<Product> spec) {
+        return productRepository.findProjected(spec, List.of("productId")).stream()
+                .map(row -> (String) row.get("productId")).collect(Collectors.toSet());
+    }
+
+    private void save(String productId, String categories) {
+        Product product = productRepository.saveAndFlush(Product.builder()
+                .productId(productId)
+                .productName(productId)
+                .categories(categories)
+                .retailPrice(BigDecimal.TEN)
+                .stockQuantity(1)
+                .build());
+        categoryTree.index(product);
+        new CategoryPathIndex(jdbcTemplate).index(product);
+    }
+}
@@ -0,0 +1,127 @@
+package com.ecommerce.product.Repository;
+
+import com.ecommerce.product.Dto.ProductFields;
+import com.ecommerce.product.Entity.Product;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Guards the secondary indexes behind the GET /products filters: the SQL Hibernate generates for
+ * every filter combination is run through EXPLAIN on the schema built from the entity mapping, and
+ * must seek one of the indexes declared on the entity. H2 stands in for MySQL, so this catches a dropped index or a
+ * predicate that stops being sargable, not MySQL's cost-based choice between indexes.
+ */
+@DataJpaTest(properties = {
+        // Literals inline so the captured SQL can be explained as is
+        "spring.jpa.properties.hibernate.criteria.value_handling_mode=inline",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.ecommerce.product.Repository.ProductFilterQueryPlanTest$CapturingInspector"
+})
+class ProductFilterQueryPlanTest {
+
+    private static final Pattern INDEX_LOOKUP = Pattern.compile("/\\* PUBLIC\\.IDX_\\w+: ");
+    // product_category's primary key leads with category_path
+    private static final Pattern CATEGORY_LOOKUP = Pattern.compile("/\\* PUBLIC\\.PRIMARY_KEY_\\w+: CATEGORY_PATH = ");
+    private static final List<String> CAPTURED = Collections.synchronizedList(new ArrayList<>());
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void clearCaptured() {
+        CAPTURED.clear();
+    }
+
+    enum Filter {
+        PRICE(ProductSpecifications.priceBetween("retailPrice", new BigDecimal("100"), new BigDecimal("500"))),
+        DISCOUNTED_PRICE(ProductSpecifications.priceBetween("discountedPrice", new BigDecimal("50"), new BigDecimal("400"))),
+        BRAND(ProductSpecifications.brandIn(List.of("Alisha"))),
+        IN_STOCK(ProductSpecifications.inStock());
+
+        private final Specification<Product> spec;
+
+        Filter(Specification<Product> spec) {
+            this.spec = spec;
+        }
+    }
+
+    // Every non-empty subset of the filters
+    static Stream<Set<Filter>> filterCombinations() {
+        Filter[] filters = Filter.values();
+        return IntStream.range(1, 1 << filters.length).mapToObj(mask -> {
+            Set<Filter> combination = EnumSet.noneOf(Filter.class);
+            for (Filter filter : filters)
+                if ((mask & 1 << filter.ordinal()) != 0)
+                    combination.add(filter);
+            return combination;
+        });
+    }
+
+    @ParameterizedTest
+    @MethodSource("filterCombinations")
+    void filterCombinationUsesAnIndex(Set<Filter> combination) {
+        Specification<Product> spec = Specification.where(null);
+        for (Filter filter : combination)
+            spec = spec.and(filter.spec);
+
+        productRepository.findProjectedSlice(spec, ProductFields.resolve(null),
+                PageRequest.of(0, 10, Sort.by(Sort.Direction.ASC, "retailPrice", "productId")));
+
+        String sql = CAPTURED.stream().filter(statement -> statement.contains("from product")).findFirst().orElseThrow();
+        String plan = explain(sql);
+        // H2 annotates an index lookup as "/* PUBLIC.IDX_NAME: <condition> */"; a bare index name
+        // (walking an index only for its order) or "tableScan" means every row is read
+        assertTrue(INDEX_LOOKUP.matcher(plan).find(), combination + " does not seek an index: " + plan);
+    }
+
+    @Test
+    void categoryFilterSeeksThePathIndex() {
+        productRepository.findProjectedSlice(ProductSpecifications.categoryUnder("Clothing >> Women's Clothing"),
+                ProductFields.resolve(null), PageRequest.of(0, 10, Sort.by(Sort.Direction.ASC, "retailPrice", "productId")));
+
+        String sql = CAPTURED.stream().filter(statement -> statement.contains("from product")).findFirst().orElseThrow();
+        String plan = explain(sql);
+        assertTrue(CATEGORY_LOOKUP.matcher(plan).find(), "category filter does not seek product_category: " + plan);
+    }
+
+    private String explain(String sql) {
+        // Only the row limit is still a bind parameter
+        Object[] limits = new Object[(int) sql.chars().filter(c -> c == '?').count()];
+        Arrays.fill(limits, 11);
+        return jdbcTemplate.queryForList("EXPLAIN " + sql, limits).stream()
+                .map(Map::values).map(Object::toString).reduce("", String::concat);
+    }
+
+    public static class CapturingInspector implements StatementInspector {
+        @Override
+        public String inspect(String sql) {
+            CAPTURED.add(sql);
+            return sql;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.ecommerce.product.Repository;
+
+import com.ecommerce.product.Dto.ProductFields;
+import com.ecommerce.product.Entity.Product;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Sparse fieldsets: GET /products selects only the requested attributes, as a tuple query, and
+ * always includes productId.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:productprojection;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "product.stock.sweep-interval-ms=3600000"
+})
+@AutoConfigureMockMvc
+class ProductProjectionTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @BeforeEach
+    void products() {
+        productRepository.deleteAll();
+        productRepository.saveAndFlush(Product.builder()
+                .productId("p1")
+                .productName("Sofa Bed")
+                .brand("Alisha")
+                .retailPrice(new BigDecimal("999.00"))
+                .productDescription("A long description that listings leave out")
+                .stockQuantity(3)
+                .build());
+    }
+
+    @Test
+    void repositorySelectsTheFieldsInRequestOrder() {
+        Page<Map<String, Object>> page = productRepository.findProjected(null, List.of("brand", "productId", "retailPrice"),
+                PageRequest.of(0, 10, Sort.by("retailPrice")));
+
+        assertEquals(1, page.getTotalElements());
+        Map<String, Object> row = page.getContent().get(0);
+        assertEquals(List.of("brand", "productId", "retailPrice"), new ArrayList<>(row.keySet()));
+        assertEquals("Alisha", row.get("brand"));
+        assertEquals(0, new BigDecimal("999.00").compareTo((BigDecimal) row.get("retailPrice")));
+    }
+
+    @Test
+    void requestedFieldsComeBackWithProductId() throws Exception {
+        JsonNode product = first(mockMvc.perform(get("/products").param("fields", "productName,brand"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+
+        assertEquals(List.of("productId", "productName", "brand"), names(product));
+        assertEquals("p1", product.get("productId").asText());
+        assertEquals("Sofa Bed", product.get("productName").asText());
+    }
+
+    @Test
+    void listingsDefaultToTheSummary() throws Exception {
+        JsonNode product = first(mockMvc.perform(get("/products"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+
+        assertEquals(ProductFields.SUMMARY, names(product));
+        assertFalse(product.has("productDescription"));
+    }
+
+    @Test
+    void cursorModeAlsoSelectsItsSortKey() throws Exception {
+        JsonNode content = objectMapper.readTree(mockMvc.perform(get("/products").param("mode", "cursor").param("fields", "brand"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString()).get("content");
+
+        assertEquals(List.of("productId", "brand", "retailPrice"), names(content.get(0)));
+    }
+
+    @Test
+    void unknownFieldIsABadRequest() throws Exception {
+        mockMvc.perform(get("/products").param("fields", "productName,password"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Invalid field: password"));
+        mockMvc.perform(get("/products").param("mode", "cursor").param("fields", "PRODUCTNAME"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private JsonNode first(String page) throws Exception {
+        return objectMapper.readTree(page).get("content").get(0);
+    }
+
+    private static List<String> names(JsonNode product) {
+        List<String> names = new ArrayList<>();
+        product.fieldNames().forEachRemaining(names::add);
+        return names;
+    }
+}
@@ -0,0 +1,87 @@
+package com.ecommerce.product.Search;
+
+import com.ecommerce.product.Category.CategoryPathIndex;
+import com.ecommerce.product.Category.CategoryTree;
+import com.ecommerce.product.Entity.Product;
+import com.ecommerce.product.Repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * The rebuild walks the whole table, including products without a price, while the indexes
+ * keep serving searches.
+ */
+@DataJpaTest
+class ProductIndexLoaderTest {
+
+    // More than one batch, and enough without a price that a batch ends on one
+    private static final int UNPRICED = 1050;
+    private static final int PRICED = 50;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final ProductSearchIndex index = new ProductSearchIndex();
+    private final CategoryTree categoryTree = new CategoryTree();
+
+    @Test
+    void rebuildReachesEveryProductAndDropsOnlyDeletedOnes() {
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < UNPRICED + PRICED; i++)
+            products.add(product(String.format("p%04d", i), "Sofa Bed " + i, i < UNPRICED ? null : new BigDecimal(i)));
+        productRepository.saveAllAndFlush(products);
+
+        Product last = products.get(products.size() - 1);
+        index(product(last.getProductId(), "Recliner", BigDecimal.ONE));
+        index(product("gone", "Bookshelf", BigDecimal.TEN));
+
+        ProductRepository repository = mock(ProductRepository.class, delegatesTo(productRepository));
+        doAnswer(invocation -> {
+            // Halfway through, products not reloaded yet are still searchable
+            assertEquals(last.getProductId(), index.search("recliner", 10, false).get(0).productId());
+            assertTrue(categoryTree.productIds(List.of("Furniture")).contains("gone"));
+            return productRepository.findSliceAfter(invocation.getArgument(0), invocation.getArgument(1));
+        }).when(repository).findSliceAfter(any(), any());
+
+        new ProductIndexLoader(repository, index, categoryTree, new CategoryPathIndex(jdbcTemplate)).rebuild();
+
+        assertEquals(UNPRICED + PRICED, index.size());
+        assertFalse(index.indexedIds().contains("gone"));
+        assertTrue(index.search("bookshelf", 10, false).isEmpty());
+        assertTrue(index.search("recliner", 10, false).isEmpty());
+        assertEquals(UNPRICED + PRICED, categoryTree.productIds(List.of("Furniture")).size());
+        // Products saved without going through the service are backfilled into product_category
+        assertEquals(UNPRICED + PRICED, jdbcTemplate.queryForObject(
+                "select count(*) from product_category where category_path = 'Furniture >> Sofa Beds'", Integer.class));
+    }
+
+    private void index(Product product) {
+        index.index(product);
+        categoryTree.index(product);
+    }
+
+    private static Product product(String id, String name, BigDecimal retailPrice) {
+        return Product.builder()
+                .productId(id)
+                .productName(name)
+                .retailPrice(retailPrice)
+                .categories("[\"Furniture >> Sofa Beds\"]")
+                .stockQuantity(1)
+                .build();
+    }
+}
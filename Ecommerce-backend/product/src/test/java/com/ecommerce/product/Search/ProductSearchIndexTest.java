@@ -0,0 +1,66 @@
+package com.ecommerce.product.Search;
+
+import com.ecommerce.product.Entity.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductSearchIndexTest {
+
+    private ProductSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new ProductSearchIndex();
+        index.index(product("p1", "Alisha Solid Women's Cycling Shorts", "Alisha",
+                "[\"Clothing >> Women's Clothing >> Lingerie, Sleep & Swimwear >> Shorts\"]", "Cotton cycling shorts"));
+        index.index(product("p2", "FabHomeDecor Fabric Double Sofa Bed", "FabHomeDecor",
+                "[\"Furniture >> Living Room Furniture >> Sofa Beds & Futons\"]", "Finish color honey brown"));
+        index.index(product("p3", "AW Bellies", "AW",
+                "[\"Footwear >> Women's Footwear >> Ballerinas\"]", "Comfortable bellies for women, cycling not advised"));
+    }
+
+    @Test
+    void ranksNameMatchesAboveDescriptionMatches() {
+        List<ProductSearchIndex.SearchHit> hits = index.search("cycling", 10, false);
+
+        assertEquals(List.of("p1", "p3"), hits.stream().map(ProductSearchIndex.SearchHit::productId).toList());
+        assertTrue(hits.get(0).score() > hits.get(1).score());
+    }
+
+    @Test
+    void expandsLastTermAsPrefix() {
+        assertTrue(index.search("sof", 10, false).isEmpty());
+        assertEquals("p2", index.search("sof", 10, true).get(0).productId());
+    }
+
+    @Test
+    void keepsApostropheWordsTogether() {
+        assertEquals(List.of("p1", "p3"), index.search("women's", 10, false).stream()
+                .map(ProductSearchIndex.SearchHit::productId).sorted().toList());
+    }
+
+    @Test
+    void reindexAndRemoveAreIncremental() {
+        index.index(product("p2", "FabHomeDecor Recliner", "FabHomeDecor", "[\"Furniture\"]", "Leather"));
+        assertTrue(index.search("sofa", 10, false).isEmpty());
+        assertEquals("p2", index.search("recliner", 10, false).get(0).productId());
+
+        index.remove("p2");
+        assertTrue(index.search("fabhomedecor", 10, false).isEmpty());
+        assertEquals(2, index.size());
+    }
+
+    private static Product product(String id, String name, String brand, String categories, String description) {
+        return Product.builder()
+                .productId(id)
+                .productName(name)
+                .brand(brand)
+                .categories(categories)
+                .productDescription(description)
+                .build();
+    }
+}
@@ -0,0 +1,132 @@
+package com.ecommerce.product.Stock;
+
+import com.ecommerce.product.Entity.Product;
+import com.ecommerce.product.Entity.ReservationStatus;
+import com.ecommerce.product.Entity.StockReservation;
+import com.ecommerce.product.Repository.ProductRepository;
+import com.ecommerce.product.Repository.StockShardRepository;
+import com.ecommerce.product.Service.StockService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Many buyers racing for the last units of one product must never oversell, with or without
+ * sharding. Runs against in-memory H2 so every reservation really commits.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:stock;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "product.stock.sweep-interval-ms=3600000"
+})
+class StockReservationTest {
+
+    private static final int BUYERS = 200;
+    private static final int STOCK = 25;
+
+    @Autowired
+    private StockService stockService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private StockShardRepository stockShardRepository;
+
+    @Test
+    void concurrentBuyersNeverOversell() throws Exception {
+        String productId = product(STOCK);
+
+        assertEquals(STOCK, race(productId));
+        assertEquals(0, productRepository.findById(productId).orElseThrow().getStockQuantity());
+    }
+
+    @Test
+    void concurrentBuyersNeverOversellAcrossShards() throws Exception {
+        String productId = product(STOCK);
+        stockService.shardStock(productId, 4);
+
+        assertEquals(STOCK, race(productId));
+        assertEquals(0, stockShardRepository.sumQuantity(productId));
+        stockService.refreshShardedStock();
+        assertEquals(0, productRepository.findById(productId).orElseThrow().getStockQuantity());
+    }
+
+    @Test
+    void requestLargerThanAnyShardDrainsSeveralShards() {
+        String productId = product(8);
+        stockService.shardStock(productId, 4); // 2 units per shard
+
+        StockReservation reservation = stockService.reserve(productId, 7, null);
+
+        assertEquals(ReservationStatus.RESERVED, reservation.getStatus());
+        assertEquals(1, stockShardRepository.sumQuantity(productId));
+    }
+
+    @Test
+    void releaseAndExpiryGiveStockBackOnce() throws Exception {
+        String productId = product(5);
+        StockReservation released = stockService.reserve(productId, 2, null);
+        StockReservation expiring = stockService.reserve(productId, 3, Duration.ofMillis(1));
+        assertEquals(0, productRepository.findById(productId).orElseThrow().getStockQuantity());
+
+        stockService.release(released.getReservationId());
+        assertThrows(IllegalStateException.class, () -> stockService.release(released.getReservationId()));
+        Thread.sleep(5);
+        assertThrows(IllegalStateException.class, () -> stockService.confirm(expiring.getReservationId()));
+        stockService.expireReservations();
+
+        assertEquals(ReservationStatus.EXPIRED, stockService.getReservation(expiring.getReservationId()).getStatus());
+        assertEquals(5, productRepository.findById(productId).orElseThrow().getStockQuantity());
+    }
+
+    private int race(String productId) throws Exception {
+        ExecutorService buyers = Executors.newFixedThreadPool(32);
+        try {
+            List<Future<Boolean>> attempts = new ArrayList<>();
+            for (int i = 0; i < BUYERS; i++) {
+                attempts.add(buyers.submit(() -> {
+                    try {
+                        stockService.reserve(productId, 1, null);
+                        return true;
+                    } catch (InsufficientStockException e) {
+                        return false;
+                    }
+                }));
+            }
+            int reserved = 0;
+            for (Future<Boolean> attempt : attempts)
+                if (attempt.get())
+                    reserved++;
+            return reserved;
+        } finally {
+            buyers.shutdown();
+        }
+    }
+
+    private String product(int stock) {
+        String productId = UUID.randomUUID().toString();
+        productRepository.saveAndFlush(Product.builder()
+                .productId(productId)
+                .productName("Flash sale " + productId)
+                .retailPrice(BigDecimal.TEN)
+                .discountedPrice(BigDecimal.ONE)
+                .stockQuantity(stock)
+                .build());
+        return productId;
+    }
+}
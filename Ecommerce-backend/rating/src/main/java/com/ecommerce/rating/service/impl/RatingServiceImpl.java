@@ -1,5 +1,7 @@
 package com.ecommerce.rating.service.impl;
 
+import com.ecommerce.common.id.Ids;
+import com.ecommerce.common.patch.EntityPatcher;
 import com.ecommerce.rating.entity.Rating;
 import com.ecommerce.rating.repository.RatingRepository;
 import com.ecommerce.rating.service.RatingService;
@@ -9,18 +11,15 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
-import java.lang.reflect.Field;
-import java.sql.Timestamp;
-import java.time.OffsetDateTime;
-import java.time.format.DateTimeParseException;
 import java.util.Map;
 import java.util.Optional;
-import java.util.UUID;
 
 @Service
 @Transactional
 public class RatingServiceImpl implements RatingService {
 
+    private static final EntityPatcher<Rating> PATCHER = EntityPatcher.of(Rating.class);
+
     @Autowired
     private RatingRepository ratingRepository;
 
@@ -38,7 +37,7 @@ public class RatingServiceImpl implements RatingService {
     @Override
     public Rating createRating(Rating rating) {
         if (rating.getRatingId() == null)
-            rating.setRatingId(UUID.randomUUID().toString());
+            rating.setRatingId(Ids.next());
         else {
             Optional<Rating> existingRating = ratingRepository.findById(rating.getRatingId());
             if (existingRating.isPresent()) {
@@ -58,25 +57,7 @@ public class RatingServiceImpl implements RatingService {
         Rating existingRating = ratingRepository.findById(ratingId)
                 .orElseThrow(() -> new RuntimeException("Rating not found"));
 
-        updates.forEach((key, value) -> {
-            try {
-                Field field = Rating.class.getDeclaredField(key);
-                field.setAccessible(true);
-                if (field.getType() == Timestamp.class) {
-                    try {
-                        OffsetDateTime odt = OffsetDateTime.parse((String) value);
-                        Timestamp timestampValue = Timestamp.from(odt.toInstant());
-                        field.set(existingRating, timestampValue);
-                    } catch (DateTimeParseException e) {
-                        throw new IllegalArgumentException("Invalid format for " + key + " TimeStamp field");
-                    }
-                } else {
-                    field.set(existingRating, value);
-                }
-            } catch (NoSuchFieldException | IllegalAccessException e) {
-                throw new IllegalArgumentException("Invalid update field: " + key);
-            }
-        });
+        PATCHER.apply(existingRating, updates);
 
         ratingRepository.save(existingRating);
     }
@@ -0,0 +1,17 @@
+package com.ecommerce.transaction.config;
+
+import com.ecommerce.common.export.JdbcExport;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+@Configuration
+public class ExportConfig {
+
+    @Bean
+    public JdbcExport jdbcExport(DataSource dataSource, @Value("${export.fetch-size:1000}") int fetchSize) {
+        return new JdbcExport(dataSource, fetchSize);
+    }
+}
@@ -1,17 +1,26 @@
 package com.ecommerce.transaction.controller;
 
+import com.ecommerce.common.export.ExportFormat;
+import com.ecommerce.common.id.Ids;
+import com.ecommerce.common.idempotency.IdempotencyConflictException;
+import com.ecommerce.common.idempotency.IdempotencyStore;
 import com.ecommerce.transaction.entity.Transaction;
+import com.ecommerce.transaction.ingest.IngestOverloadedException;
 import com.ecommerce.transaction.service.TransactionService;
 import jakarta.validation.Valid;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -20,9 +29,11 @@ import java.util.Map;
 public class TransactionController {
 
     private final TransactionService transactionService;
+    private final IdempotencyStore idempotencyStore;
 
-    public TransactionController(TransactionService transactionService) {
+    public TransactionController(TransactionService transactionService, IdempotencyStore idempotencyStore) {
         this.transactionService = transactionService;
+        this.idempotencyStore = idempotencyStore;
     }
 
     @GetMapping
@@ -38,6 +49,26 @@ public class TransactionController {
         return ResponseEntity.ok(transactions);
     }
 
+    // Counters of the group-commit ingest; not found when transactions are written one by one
+    @GetMapping("/ingest/stats")
+    public ResponseEntity<Map<String, Object>> getIngestStats() {
+        Map<String, Object> stats = transactionService.getIngestStats();
+        if (stats == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(stats);
+    }
+
+    // Transactions dated from from to to, both inclusive and optional, streamed as CSV or NDJSON
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportTransactions(
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return transactionService.exportTransactions(ExportFormat.of(format), gzip, from, to);
+    }
+
     @GetMapping("/{transactionId}")
     public ResponseEntity<Transaction> getTransactionById(@PathVariable String transactionId) {
         Transaction transaction = transactionService.getTransactionById(transactionId);
@@ -45,9 +76,18 @@ public class TransactionController {
     }
 
     @PostMapping
-    public ResponseEntity<Transaction> createTransaction(@RequestBody @Valid Transaction transaction) {
-        Transaction createdTransaction = transactionService.createTransaction(transaction);
-        return ResponseEntity.ok(createdTransaction);
+    public ResponseEntity<Transaction> createTransaction(@RequestBody @Valid Transaction transaction,
+                                                         @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey) {
+        if (idempotencyKey == null)
+            return ResponseEntity.ok(transactionService.createTransaction(transaction));
+        // The ID, the client's or a generated one, is reserved with the key before anything is written,
+        // so a retry after a timeout is handed the same ID and gets back the payment the first attempt wrote
+        return idempotencyStore.executeReserved(idempotencyKey, transaction, Transaction.class,
+                () -> transaction.getTransactionId() != null ? transaction.getTransactionId() : Ids.next(),
+                transactionId -> {
+                    transaction.setTransactionId(transactionId);
+                    return ResponseEntity.ok(transactionService.createReservedTransaction(transaction));
+                });
     }
 
     @PutMapping("/{transactionId}")
@@ -84,4 +124,21 @@ public class TransactionController {
                 errors.put(error.getField(), error.getDefaultMessage()));
         return new ResponseEntity<>(errors, HttpStatus.BAD_REQUEST);
     }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> handleInvalidRequest(IllegalArgumentException ex) {
+        return new ResponseEntity<>(Map.of("error", ex.getMessage()), HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(IdempotencyConflictException.class)
+    public ResponseEntity<Map<String, String>> handleIdempotencyConflict(IdempotencyConflictException ex) {
+        return new ResponseEntity<>(Map.of("error", ex.getMessage()), HttpStatus.CONFLICT);
+    }
+
+    @ExceptionHandler(IngestOverloadedException.class)
+    public ResponseEntity<Map<String, String>> handleIngestOverloaded(IngestOverloadedException ex) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(Map.of("error", ex.getMessage()));
+    }
 }
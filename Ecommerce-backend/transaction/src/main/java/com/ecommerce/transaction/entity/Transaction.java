@@ -16,11 +16,16 @@ import java.sql.Timestamp;
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
-@Table(name = "transactions")
+@Table(name = "transactions", indexes = {
+        @Index(name = "idx_transactions_transaction_date", columnList = "transaction_date"), // date-range exports
+        // Covers the reconciliation's scan of transactions in order_id order
+        @Index(name = "idx_transactions_order_id", columnList = "order_id, amount, transaction_date")
+})
 public class Transaction {
 
+    // Optional on create, where a missing one is generated
     @Id
-    @NotBlank(message = "Transaction ID cannot be blank")
+    @Pattern(regexp = ".*\\S.*", message = "Transaction ID cannot be blank")
     private String transactionId;
 
     @NotBlank(message = "Order ID cannot be blank")
@@ -0,0 +1,12 @@
+package com.ecommerce.transaction.ingest;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class IngestOverloadedException extends RuntimeException {
+
+    public IngestOverloadedException(String message) {
+        super(message);
+    }
+}
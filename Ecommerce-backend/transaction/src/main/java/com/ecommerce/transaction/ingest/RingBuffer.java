@@ -0,0 +1,81 @@
+package com.ecommerce.transaction.ingest;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded ring buffer for many producers and one consumer, without locks. A producer claims the
+ * next position with a compare-and-set on the tail, then publishes its item by advancing the
+ * slot's sequence; the consumer takes a slot once its sequence shows it published and hands it
+ * back a lap later. A full buffer fails the offer instead of blocking, so the caller picks the
+ * backpressure.
+ */
+final class RingBuffer<T> {
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<T> items;
+    // Slot i is free for position p when its sequence is p, and holds position p's item at p + 1
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head; // Written by the consumer only
+
+    RingBuffer(int capacity) {
+        if (capacity < 2 || capacity > 1 << 30)
+            throw new IllegalArgumentException("Invalid ring buffer capacity " + capacity);
+        this.capacity = Integer.highestOneBit(capacity - 1) << 1;
+        this.mask = this.capacity - 1;
+        this.items = new AtomicReferenceArray<>(this.capacity);
+        this.sequences = new AtomicLongArray(this.capacity);
+        for (int i = 0; i < this.capacity; i++)
+            sequences.set(i, i);
+    }
+
+    boolean offer(T item) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) (position & mask);
+            long lag = sequences.get(index) - position;
+            if (lag == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    items.set(index, item);
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (lag < 0) {
+                return false; // The consumer has not freed this slot from the previous lap
+            } else {
+                position = tail.get(); // Another producer took it
+            }
+        }
+    }
+
+    // Consumer only: moves up to max published items to sink in offer order
+    int drainTo(List<T> sink, int max) {
+        long position = head;
+        int drained = 0;
+        while (drained < max) {
+            int index = (int) (position & mask);
+            if (sequences.get(index) != position + 1)
+                break;
+            sink.add(items.get(index));
+            items.set(index, null);
+            sequences.set(index, position + capacity);
+            position++;
+            drained++;
+        }
+        head = position;
+        return drained;
+    }
+
+    int size() {
+        return (int) Math.max(0, tail.get() - head);
+    }
+
+    int capacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,227 @@
+package com.ecommerce.transaction.ingest;
+
+import com.ecommerce.common.id.Ids;
+import com.ecommerce.transaction.entity.Transaction;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Group-commit path for POST /transactions, switched on with transaction.ingest.enabled.
+ * Accepted transactions go into a bounded {@link RingBuffer}; one writer thread drains whatever
+ * has queued up, up to max-batch-size, and writes it as a single batched insert (one multi-row
+ * INSERT with rewriteBatchedStatements) in one transaction. The callers of a batch share its
+ * commit, and so its fsync, and each is answered only once that commit has returned. While a
+ * batch commits the next one queues, so batches grow with load and stay at one row when idle.
+ * <p>
+ * Backpressure: when the buffer is full a caller waits up to offer-timeout-ms for room, then
+ * gets {@link IngestOverloadedException} (503) without anything being written. A caller whose
+ * batch has not committed within commit-timeout-ms also gets a 503, but that transaction may
+ * still be written; clients retry with the same Idempotency-Key or transaction ID.
+ * <p>
+ * The writer has its own single-connection pool, so requests holding connections from the main
+ * pool while they wait can never starve it. The existence check of the direct path is left to
+ * the primary key: a batch that hits a duplicate is written again row by row, and only the
+ * duplicate fails.
+ */
+@Component
+@ConditionalOnProperty(name = "transaction.ingest.enabled", havingValue = "true")
+public class TransactionIngest {
+
+    private static final Logger log = LoggerFactory.getLogger(TransactionIngest.class);
+
+    private static final long FULL_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private static final String INSERT_SQL = """
+            INSERT INTO transactions (transaction_id, order_id, card_id, amount, transaction_date)
+            VALUES (?, ?, ?, ?, ?)
+            """;
+
+    private final HikariDataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final RingBuffer<Pending> ring;
+    private final int maxBatchSize;
+    private final long offerTimeoutNanos;
+    private final long commitTimeoutMillis;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder rowsWritten = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private volatile int largestBatch;
+    private volatile long lastBatchMillis;
+
+    public TransactionIngest(DataSourceProperties dataSourceProperties,
+                             @Value("${transaction.ingest.capacity:8192}") int capacity,
+                             @Value("${transaction.ingest.max-batch-size:500}") int maxBatchSize,
+                             @Value("${transaction.ingest.offer-timeout-ms:100}") long offerTimeoutMillis,
+                             @Value("${transaction.ingest.commit-timeout-ms:5000}") long commitTimeoutMillis) {
+        this.dataSource = dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        this.dataSource.setPoolName("transaction-ingest");
+        this.dataSource.setMaximumPoolSize(1);
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        this.ring = new RingBuffer<>(capacity);
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.offerTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(offerTimeoutMillis);
+        this.commitTimeoutMillis = commitTimeoutMillis;
+        this.writer = new Thread(this::writeLoop, "transaction-ingest-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Queues a transaction and returns it once the batch holding it has committed.
+     */
+    public Transaction submit(Transaction transaction) {
+        if (transaction.getTransactionId() == null)
+            transaction.setTransactionId(Ids.next());
+        if (transaction.getTransactionDate() == null)
+            transaction.setTransactionDate(new Timestamp(System.currentTimeMillis()));
+        Pending pending = new Pending(transaction, new CompletableFuture<>());
+        offer(pending);
+
+        try {
+            return pending.done().get(commitTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause)
+                throw cause;
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new IngestOverloadedException("Transaction " + transaction.getTransactionId() + " is not confirmed yet, retry");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IngestOverloadedException("Interrupted waiting for transaction " + transaction.getTransactionId());
+        }
+    }
+
+    public Map<String, Object> stats() {
+        long batchCount = batches.sum();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("capacity", ring.capacity());
+        result.put("queued", ring.size());
+        result.put("accepted", accepted.sum());
+        result.put("rejected", rejected.sum());
+        result.put("batches", batchCount);
+        result.put("rowsWritten", rowsWritten.sum());
+        result.put("failed", failed.sum());
+        result.put("averageBatch", batchCount == 0 ? 0 : rowsWritten.sum() / batchCount);
+        result.put("largestBatch", largestBatch);
+        result.put("lastBatchMs", lastBatchMillis);
+        return result;
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(writer);
+        writer.join(commitTimeoutMillis);
+        dataSource.close();
+    }
+
+    private void offer(Pending pending) {
+        if (!running)
+            throw new IngestOverloadedException("Transaction ingest is shutting down");
+        long deadline = System.nanoTime() + offerTimeoutNanos;
+        while (!ring.offer(pending)) {
+            if (System.nanoTime() - deadline >= 0) {
+                rejected.increment();
+                throw new IngestOverloadedException("Too many transactions in flight, retry later");
+            }
+            LockSupport.parkNanos(FULL_PARK_NANOS);
+        }
+        accepted.increment();
+        LockSupport.unpark(writer);
+    }
+
+    private void writeLoop() {
+        List<Pending> batch = new ArrayList<>(maxBatchSize);
+        boolean drainedEmpty = false;
+        while (running || ring.size() > 0) {
+            if (ring.drainTo(batch, maxBatchSize) == 0) {
+                // offer() and close() unpark the writer, and a permit given before it parks is kept, so an
+                // idle writer sleeps until there is work; a second look first catches a caller just arriving
+                if (drainedEmpty)
+                    LockSupport.park(this);
+                else
+                    Thread.onSpinWait();
+                drainedEmpty = !drainedEmpty;
+                continue;
+            }
+            drainedEmpty = false;
+            long start = System.currentTimeMillis();
+            try {
+                write(batch);
+            } catch (RuntimeException e) {
+                // Never leave a caller waiting out its timeout because the writer broke
+                log.error("Transaction ingest batch of {} failed", batch.size(), e);
+                batch.forEach(pending -> pending.done().completeExceptionally(e));
+            }
+            lastBatchMillis = System.currentTimeMillis() - start;
+            batch.clear();
+        }
+    }
+
+    private void write(List<Pending> batch) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> insert(batch));
+            batches.increment();
+            rowsWritten.add(batch.size());
+            largestBatch = Math.max(largestBatch, batch.size());
+            batch.forEach(pending -> pending.done().complete(pending.transaction()));
+        } catch (DataAccessException e) {
+            if (batch.size() == 1)
+                fail(batch.get(0), e);
+            else
+                batch.forEach(pending -> write(List.of(pending)));
+        }
+    }
+
+    private void insert(List<Pending> batch) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), (ps, pending) -> {
+            Transaction transaction = pending.transaction();
+            ps.setString(1, transaction.getTransactionId());
+            ps.setString(2, transaction.getOrderId());
+            ps.setString(3, transaction.getCardId());
+            ps.setBigDecimal(4, transaction.getAmount());
+            ps.setTimestamp(5, transaction.getTransactionDate());
+        });
+    }
+
+    private void fail(Pending pending, DataAccessException e) {
+        failed.increment();
+        String transactionId = pending.transaction().getTransactionId();
+        pending.done().completeExceptionally(e instanceof DuplicateKeyException
+                ? new RuntimeException("Transaction with ID " + transactionId + " already exists.")
+                : e);
+    }
+
+    private record Pending(Transaction transaction, CompletableFuture<Transaction> done) {
+    }
+}
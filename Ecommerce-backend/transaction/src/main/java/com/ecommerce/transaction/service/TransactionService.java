@@ -1,16 +1,23 @@
 package com.ecommerce.transaction.service;
 
+import com.ecommerce.common.export.ExportFormat;
 import com.ecommerce.transaction.entity.Transaction;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDate;
 import java.util.Map;
 
 public interface TransactionService {
     Page<Transaction> getTransactions(Pageable pageable);
+    ResponseEntity<StreamingResponseBody> exportTransactions(ExportFormat format, boolean gzip, LocalDate from, LocalDate to);
     Transaction getTransactionById(String transactionId);
     Transaction createTransaction(Transaction transaction);
+    Transaction createReservedTransaction(Transaction transaction);
     Transaction updateTransaction(Transaction transaction);
     void patchTransaction(String transactionId, Map<String, Object> updates);
     void deleteTransaction(String transactionId);
+    Map<String, Object> getIngestStats();
 }
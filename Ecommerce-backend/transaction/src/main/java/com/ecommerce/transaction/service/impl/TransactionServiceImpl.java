@@ -1,45 +1,89 @@
 package com.ecommerce.transaction.service.impl;
 
+import com.ecommerce.common.export.ExportFormat;
+import com.ecommerce.common.export.JdbcExport;
+import com.ecommerce.common.id.Ids;
+import com.ecommerce.common.patch.EntityPatcher;
 import com.ecommerce.transaction.entity.Transaction;
+import com.ecommerce.transaction.ingest.TransactionIngest;
 import com.ecommerce.transaction.repository.TransactionRepository;
 import com.ecommerce.transaction.service.TransactionService;
 import jakarta.transaction.Transactional;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.lang.reflect.Field;
-import java.math.BigDecimal;
 import java.sql.Timestamp;
-import java.time.OffsetDateTime;
-import java.time.format.DateTimeParseException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.UUID;
 
 @Service
 @Transactional
 public class TransactionServiceImpl implements TransactionService {
 
+    private static final EntityPatcher<Transaction> PATCHER = EntityPatcher.of(Transaction.class);
+
+    private static final List<String> EXPORT_FIELDS = List.of("transactionId", "orderId", "cardId", "amount", "transactionDate");
+    // Follows idx_transactions_transaction_date, which ends in the primary key, so rows come out without a sort
+    private static final String EXPORT_SQL = "SELECT transaction_id, order_id, card_id, amount, transaction_date FROM transactions";
+    private static final String EXPORT_ORDER = " ORDER BY transaction_date, transaction_id";
+
     @Autowired
     private TransactionRepository transactionRepository;
 
+    @Autowired
+    private JdbcExport jdbcExport;
+
+    @Autowired
+    private ObjectProvider<TransactionIngest> transactionIngest; // Empty unless transaction.ingest.enabled
+
     @Override
     public Page<Transaction> getTransactions(Pageable pageable) {
         return transactionRepository.findAll(pageable);
     }
 
+    // Rows are read while the response is written, after this method has returned
+    @Override
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public ResponseEntity<StreamingResponseBody> exportTransactions(ExportFormat format, boolean gzip, LocalDate from, LocalDate to) {
+        if (from != null && to != null && from.isAfter(to))
+            throw new IllegalArgumentException("From must not be after to");
+        StringBuilder sql = new StringBuilder(EXPORT_SQL);
+        List<Object> args = new ArrayList<>();
+        if (from != null) {
+            sql.append(" WHERE transaction_date >= ?");
+            args.add(Timestamp.valueOf(from.atStartOfDay()));
+        }
+        if (to != null) {
+            sql.append(from == null ? " WHERE " : " AND ").append("transaction_date < ?");
+            args.add(Timestamp.valueOf(to.plusDays(1).atStartOfDay()));
+        }
+        sql.append(EXPORT_ORDER);
+        return jdbcExport.response("transactions", format, gzip, EXPORT_FIELDS, sql.toString(), args.toArray());
+    }
+
     @Override
     public Transaction getTransactionById(String transactionId) {
         Optional<Transaction> optionalTransaction = transactionRepository.findById(transactionId);
         return optionalTransaction.orElse(null);
     }
 
+    // SUPPORTS: called outside a transaction, a caller waiting on the ingest batch holds no connection while it waits
     @Override
+    @Transactional(Transactional.TxType.SUPPORTS)
     public Transaction createTransaction(Transaction transaction) {
+        TransactionIngest ingest = transactionIngest.getIfAvailable();
+        if (ingest != null)
+            return ingest.submit(transaction);
         if (transaction.getTransactionId() == null)
-            transaction.setTransactionId(UUID.randomUUID().toString());
+            transaction.setTransactionId(Ids.next());
         else {
             Optional<Transaction> existingTransaction = transactionRepository.findById(transaction.getTransactionId());
             if (existingTransaction.isPresent()) {
@@ -49,6 +93,32 @@ public class TransactionServiceImpl implements TransactionService {
         return transactionRepository.saveAndFlush(transaction);
     }
 
+    // Under an ID reserved with an Idempotency-Key: an earlier attempt that failed or timed out may have written it already
+    @Override
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public Transaction createReservedTransaction(Transaction transaction) {
+        Optional<Transaction> written = transactionRepository.findById(transaction.getTransactionId());
+        if (written.isPresent())
+            return reserved(written.get(), transaction);
+        try {
+            return createTransaction(transaction);
+        } catch (RuntimeException e) {
+            // The earlier attempt's batch committed in the meantime
+            written = transactionRepository.findById(transaction.getTransactionId());
+            if (written.isEmpty())
+                throw e;
+            return reserved(written.get(), transaction);
+        }
+    }
+
+    // A client-chosen ID may belong to another payment altogether
+    private static Transaction reserved(Transaction written, Transaction transaction) {
+        if (!written.getOrderId().equals(transaction.getOrderId()) || !written.getCardId().equals(transaction.getCardId())
+                || written.getAmount().compareTo(transaction.getAmount()) != 0)
+            throw new RuntimeException("Transaction with ID " + transaction.getTransactionId() + " already exists.");
+        return written;
+    }
+
     @Override
     public Transaction updateTransaction(Transaction updatedTransaction) {
         return transactionRepository.saveAndFlush(updatedTransaction);
@@ -59,26 +129,7 @@ public class TransactionServiceImpl implements TransactionService {
         Transaction existingTransaction = transactionRepository.findById(transactionId)
                 .orElseThrow(() -> new RuntimeException("Transaction not found"));
 
-        updates.forEach((key, value) -> {
-            try {
-                Field field = Transaction.class.getDeclaredField(key);
-                field.setAccessible(true);
-                if (field.getType() == Timestamp.class) {
-                    try {
-                        OffsetDateTime odt = OffsetDateTime.parse((String) value);
-                        Timestamp timestampValue = Timestamp.from(odt.toInstant());
-                        field.set(existingTransaction, timestampValue);
-                    } catch (DateTimeParseException e) {
-                        throw new IllegalArgumentException("Invalid format for " + key + " TimeStamp field");
-                    }
-                }
-                else {
-                    field.set(existingTransaction, value);
-                }
-            } catch (NoSuchFieldException | IllegalAccessException e) {
-                throw new IllegalArgumentException("Invalid update field: " + key);
-            }
-        });
+        PATCHER.apply(existingTransaction, updates);
 
         transactionRepository.save(existingTransaction);
     }
@@ -87,4 +138,10 @@ public class TransactionServiceImpl implements TransactionService {
     public void deleteTransaction(String transactionId) {
         transactionRepository.deleteById(transactionId);
     }
+
+    @Override
+    public Map<String, Object> getIngestStats() {
+        TransactionIngest ingest = transactionIngest.getIfAvailable();
+        return ingest == null ? null : ingest.stats();
+    }
 }
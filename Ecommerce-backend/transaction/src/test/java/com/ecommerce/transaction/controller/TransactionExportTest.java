@@ -0,0 +1,99 @@
+package com.ecommerce.transaction.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:transactionexport;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+@AutoConfigureMockMvc
+class TransactionExportTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void transactions() {
+        jdbcTemplate.update("delete from transactions");
+        transaction("t1", "2024-02-29T23:59:59", "5.00");
+        transaction("t2", "2024-03-01T00:00:00", "12.50");
+        transaction("t3", "2024-03-31T12:00:00", "7.25");
+        transaction("t4", "2024-04-01T00:00:00", "1.00");
+    }
+
+    @Test
+    void csvExportCoversTheDateRangeInDateOrder() throws Exception {
+        MvcResult started = mockMvc.perform(get("/transactions/export").param("from", "2024-03-01").param("to", "2024-03-31"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String csv = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"transactions.csv\""))
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+
+        String[] lines = csv.split("\r\n");
+        assertEquals(3, lines.length);
+        assertEquals("transactionId,orderId,cardId,amount,transactionDate", lines[0]);
+        assertTrue(lines[1].startsWith("t2,o-t2,c1,12.50,"));
+        assertTrue(lines[2].startsWith("t3,o-t3,c1,7.25,"));
+    }
+
+    @Test
+    void gzippedNdjsonExportOfEverything() throws Exception {
+        MvcResult started = mockMvc.perform(get("/transactions/export").param("format", "ndjson").param("gzip", "true"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        byte[] body = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        String ndjson;
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            ndjson = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        String[] lines = ndjson.split("\n");
+        assertEquals(4, lines.length);
+        assertTrue(lines[0].startsWith("{\"transactionId\":\"t1\",\"orderId\":\"o-t1\",\"cardId\":\"c1\",\"amount\":5.00,"));
+        assertTrue(lines[3].startsWith("{\"transactionId\":\"t4\""));
+    }
+
+    @Test
+    void invalidRequestsAreRejectedBeforeStreaming() throws Exception {
+        mockMvc.perform(get("/transactions/export").param("format", "xml"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/transactions/export").param("from", "2024-04-01").param("to", "2024-03-01"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private void transaction(String id, String date, String amount) {
+        jdbcTemplate.update("insert into transactions (transaction_id, order_id, card_id, amount, transaction_date) values (?, ?, ?, ?, ?)",
+                id, "o-" + id, "c1", new BigDecimal(amount), Timestamp.valueOf(LocalDateTime.parse(date)));
+    }
+}
@@ -0,0 +1,62 @@
+package com.ecommerce.transaction.ingest;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RingBufferTest {
+
+    @Test
+    void fullBufferRefusesOffersUntilDrained() {
+        RingBuffer<Integer> ring = new RingBuffer<>(6); // Rounded up to 8
+        for (int i = 0; i < 8; i++)
+            assertTrue(ring.offer(i));
+        assertFalse(ring.offer(8));
+        assertEquals(8, ring.size());
+
+        List<Integer> drained = new ArrayList<>();
+        assertEquals(3, ring.drainTo(drained, 3));
+        assertTrue(ring.offer(8));
+        assertEquals(6, ring.drainTo(drained, 100));
+        assertEquals(List.of(0, 1, 2, 3, 4, 5, 6, 7, 8), drained);
+        assertEquals(0, ring.size());
+    }
+
+    @Test
+    void concurrentProducersLoseNothing() throws Exception {
+        RingBuffer<Integer> ring = new RingBuffer<>(64);
+        List<Thread> producers = new ArrayList<>();
+        for (int p = 0; p < 4; p++) {
+            int base = p * 20_000;
+            Thread producer = new Thread(() -> {
+                for (int i = 0; i < 20_000; i++)
+                    while (!ring.offer(base + i))
+                        Thread.yield();
+            });
+            producers.add(producer);
+            producer.start();
+        }
+
+        Set<Integer> seen = new HashSet<>();
+        int[] lastPerProducer = {-1, -1, -1, -1};
+        List<Integer> batch = new ArrayList<>();
+        while (seen.size() < 80_000) {
+            batch.clear();
+            ring.drainTo(batch, 256);
+            for (int value : batch) {
+                assertTrue(seen.add(value));
+                // Each producer's items come out in the order it offered them
+                assertTrue(value % 20_000 > lastPerProducer[value / 20_000]);
+                lastPerProducer[value / 20_000] = value % 20_000;
+            }
+        }
+        for (Thread producer : producers)
+            producer.join();
+        assertEquals(0, ring.size());
+    }
+}
@@ -0,0 +1,177 @@
+package com.ecommerce.transaction.ingest;
+
+import com.ecommerce.common.idempotency.IdempotencyStore;
+import com.ecommerce.transaction.entity.Transaction;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:transactioningest;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "transaction.ingest.enabled=true",
+        "transaction.ingest.max-batch-size=50",
+        "transaction.ingest.commit-timeout-ms=1000"
+})
+@AutoConfigureMockMvc
+class TransactionIngestTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionIngest transactionIngest;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    void concurrentPaymentsShareCommits() throws Exception {
+        String orderId = UUID.randomUUID().toString();
+        long batchesBefore = (long) transactionIngest.stats().get("batches");
+        ExecutorService pool = Executors.newFixedThreadPool(32);
+        try {
+            List<Future<String>> responses = new ArrayList<>();
+            for (int i = 0; i < 400; i++)
+                responses.add(pool.submit(() -> mockMvc.perform(post("/transactions")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(objectMapper.writeValueAsString(payment(UUID.randomUUID().toString(), orderId))))
+                        .andExpect(status().isOk())
+                        .andReturn().getResponse().getContentAsString()));
+            for (Future<String> response : responses) {
+                Transaction written = objectMapper.readValue(response.get(), Transaction.class);
+                // Answered only after the commit, so the row is already readable
+                assertEquals(1, count("select count(*) from transactions where transaction_id = ?", written.getTransactionId()));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(400, count("select count(*) from transactions where order_id = ?", orderId));
+        assertTrue((long) transactionIngest.stats().get("batches") - batchesBefore < 400);
+        mockMvc.perform(get("/transactions/ingest/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.rejected").value(0));
+    }
+
+    @Test
+    void duplicateFailsAloneWhileTheRestOfItsBatchCommits() throws Exception {
+        String orderId = UUID.randomUUID().toString();
+        String duplicateId = UUID.randomUUID().toString();
+        transactionIngest.submit(payment(duplicateId, orderId));
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Transaction>> results = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                String transactionId = i == 10 ? duplicateId : UUID.randomUUID().toString();
+                results.add(pool.submit(() -> transactionIngest.submit(payment(transactionId, orderId))));
+            }
+            int failed = 0;
+            for (Future<Transaction> result : results) {
+                try {
+                    result.get();
+                } catch (Exception e) {
+                    assertEquals("Transaction with ID " + duplicateId + " already exists.", e.getCause().getMessage());
+                    failed++;
+                }
+            }
+            assertEquals(1, failed);
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(20, count("select count(*) from transactions where order_id = ?", orderId));
+    }
+
+    @Test
+    void retryAfterATimeoutGetsThePaymentTheFirstAttemptWrote() throws Exception {
+        String orderId = UUID.randomUUID().toString();
+        String blockerId = UUID.randomUUID().toString();
+        // Without an ID of its own, the payment is written under the one reserved with the key
+        String body = objectMapper.writeValueAsString(payment(null, orderId));
+        String key = UUID.randomUUID().toString();
+
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try (Connection lock = dataSource.getConnection()) {
+            // The writer stalls on a row another transaction has inserted but not committed
+            lock.setAutoCommit(false);
+            try (PreparedStatement insert = lock.prepareStatement(
+                    "insert into transactions (transaction_id, order_id, card_id, amount) values (?, 'blocker', 'c1', 1)")) {
+                insert.setString(1, blockerId);
+                insert.executeUpdate();
+            }
+            pool.submit(() -> transactionIngest.submit(payment(blockerId, "blocker")));
+
+            mockMvc.perform(post("/transactions")
+                            .header(IdempotencyStore.HEADER, key)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(body))
+                    .andExpect(status().isServiceUnavailable());
+            lock.rollback();
+        } finally {
+            pool.shutdown();
+        }
+
+        String written = mockMvc.perform(post("/transactions")
+                        .header(IdempotencyStore.HEADER, key)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        mockMvc.perform(post("/transactions")
+                        .header(IdempotencyStore.HEADER, key)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(header().string(IdempotencyStore.REPLAYED_HEADER, "true"))
+                .andExpect(jsonPath("$.transactionId").value(objectMapper.readValue(written, Transaction.class).getTransactionId()));
+
+        assertEquals(1, count("select count(*) from transactions where order_id = ?", orderId));
+    }
+
+    private Transaction payment(String transactionId, String orderId) {
+        return Transaction.builder()
+                .transactionId(transactionId)
+                .orderId(orderId)
+                .cardId("c1")
+                .amount(new BigDecimal("19.99"))
+                .build();
+    }
+
+    private long count(String sql, Object... args) {
+        return jdbcTemplate.queryForObject(sql, Long.class, args);
+    }
+}
@@ -1,5 +1,7 @@
 package com.ecommerce.user.service.impl;
 
+import com.ecommerce.common.id.Ids;
+import com.ecommerce.common.patch.EntityPatcher;
 import com.ecommerce.user.entity.User;
 import com.ecommerce.user.repository.UserRepository;
 import com.ecommerce.user.service.UserService;
@@ -10,20 +12,15 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
-import java.lang.reflect.Field;
-import java.sql.Timestamp;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.time.OffsetDateTime;
-import java.time.format.DateTimeParseException;
 import java.util.Map;
 import java.util.Optional;
-import java.util.UUID;
 
 @Service
 @Transactional
 public class UserServiceImpl implements UserService {
 
+    private static final EntityPatcher<User> PATCHER = EntityPatcher.of(User.class);
+
 
     private final UserRepository userRepository;
 
@@ -54,7 +51,7 @@ public class UserServiceImpl implements UserService {
     @Override
     public User createUser(User user) {
         if(user.getUserId() == null){
-            user.setUserId(UUID.randomUUID().toString());
+            user.setUserId(Ids.next());
         }
         else{
             Optional<User> existingUser = userRepository.findById(user.getUserId());
@@ -79,29 +76,7 @@ public class UserServiceImpl implements UserService {
     public void patchUser(String userId, Map<String, Object> updates) {
         User existingUser = userRepository.findById(userId).orElseThrow(() -> new RuntimeException("User not found"));
 
-        updates.forEach((key, value) -> {
-            try {
-                // Use reflection or property accessors to update specific fields based on the key
-                Field field = User.class.getDeclaredField(key);
-                field.setAccessible(true);
-                if (field.getType() == Timestamp.class) {
-                    try {
-                        // Use OffsetDateTime to parse the ISO 8601 format
-                        OffsetDateTime odt = OffsetDateTime.parse((String) value);
-                        Timestamp timestampValue = Timestamp.from(odt.toInstant());
-                        field.set(existingUser, timestampValue);
-                    } catch (DateTimeParseException e) {
-                        throw new IllegalArgumentException("Invalid format for "+key+" TimeStamp field");
-                    }
-                } else {
-                    // Set other field types as usual
-                    field.set(existingUser, value);
-                }
-            } catch (NoSuchFieldException | IllegalAccessException e) {
-                // Handle potential exceptions (e.g., invalid field name)
-                throw new IllegalArgumentException("Invalid update field: " + key);
-            }
-        });
+        PATCHER.apply(existingUser, updates);
 
 
         userRepository.save(existingUser);
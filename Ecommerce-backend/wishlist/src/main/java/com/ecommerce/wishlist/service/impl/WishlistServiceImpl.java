@@ -1,5 +1,6 @@
 package com.ecommerce.wishlist.service.impl;
 
+import com.ecommerce.common.id.Ids;
 import com.ecommerce.wishlist.entity.Wishlist;
 import com.ecommerce.wishlist.repository.WishlistRepository;
 import com.ecommerce.wishlist.service.WishlistService;
@@ -10,7 +11,6 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
 import java.util.Optional;
-import java.util.UUID;
 
 @Service
 @Transactional
@@ -36,7 +36,7 @@ public class WishlistServiceImpl implements WishlistService {
     @Override
     public Wishlist createWishlist(Wishlist wishlist) {
         if (wishlist.getWishlistId() == null) {
-            wishlist.setWishlistId(UUID.randomUUID().toString());
+            wishlist.setWishlistId(Ids.next());
         } else {
             Optional<Wishlist> existingWishlist = wishlistRepository.findById(wishlist.getWishlistId());
             if (existingWishlist.isPresent()) {
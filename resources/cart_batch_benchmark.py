@@ -0,0 +1,63 @@
+import json
+import sys
+import time
+import urllib.error
+import urllib.request
+import uuid
+
+CART_URL = 'http://localhost:8087/carts'
+
+
+def request(method, url, body=None):
+    data = json.dumps(body).encode() if body is not None else None
+    req = urllib.request.Request(url, data=data, method=method, headers={'Content-Type': 'application/json'})
+    try:
+        with urllib.request.urlopen(req) as response:
+            return response.status, json.loads(response.read() or 'null')
+    except urllib.error.HTTPError as e:
+        return e.code, None
+
+
+def lines(count):
+    user_id = f'bench-{uuid.uuid4()}'
+    return [{'cartId': str(uuid.uuid4()), 'userId': user_id, 'productId': f'p{i}', 'quantity': 1}
+            for i in range(count)]
+
+
+def one_by_one(count):
+    """What a client does today: a POST /carts per line."""
+    for line in lines(count):
+        status, _ = request('POST', CART_URL, line)
+        assert status == 200, status
+
+
+def batched(count):
+    status, result = request('POST', f'{CART_URL}/batch', {'add': lines(count)})
+    assert status == 200 and len(result['added']) == count, status
+
+
+def measure(add, count, iterations):
+    """Time to put `count` lines into a cart, averaged over the iterations."""
+    start = time.perf_counter()
+    for _ in range(iterations):
+        add(count)
+    elapsed = time.perf_counter() - start
+    return {
+        'msPerCartFill': round(elapsed * 1000 / iterations, 2),
+        'linesPerSecond': round(count * iterations / elapsed),
+    }
+
+
+def run(count, iterations):
+    return {
+        'lines': count,
+        'singlePosts': measure(one_by_one, count, iterations),
+        'batch': measure(batched, count, iterations),
+    }
+
+
+if __name__ == "__main__":
+    iterations = int(sys.argv[1]) if len(sys.argv) > 1 else 50
+    run(10, iterations)  # Warm-up
+    for count in (1, 10, 100):
+        print(json.dumps(run(count, iterations), indent=2))
@@ -0,0 +1,87 @@
+import json
+import random
+import sys
+import time
+import urllib.error
+import urllib.request
+import uuid
+from concurrent.futures import ThreadPoolExecutor
+
+CART_URL = 'http://localhost:8087/carts'
+
+
+def request(method, url, body=None):
+    data = json.dumps(body).encode() if body is not None else None
+    req = urllib.request.Request(url, data=data, method=method, headers={'Content-Type': 'application/json'})
+    try:
+        with urllib.request.urlopen(req) as response:
+            payload = response.read()
+            # DELETE answers with a plain-text message
+            is_json = response.headers.get_content_type() == 'application/json'
+            return response.status, json.loads(payload) if is_json and payload else None
+    except urllib.error.HTTPError as e:
+        return e.code, None
+
+
+def store_stats():
+    """None when the cart service writes straight to the table."""
+    status, stats = request('GET', f'{CART_URL}/store/stats')
+    return stats if status == 200 else None
+
+
+def shopper(operations, lines_per_user):
+    """One user's session: add a few lines, then keep changing quantities and swapping lines."""
+    user_id = f'bench-{uuid.uuid4()}'
+    cart_ids = []
+    latencies = []
+    errors = 0
+    for i in range(operations):
+        start = time.perf_counter()
+        if len(cart_ids) < lines_per_user:
+            cart_id = str(uuid.uuid4())
+            status, _ = request('POST', CART_URL, {'cartId': cart_id, 'userId': user_id,
+                                                   'productId': f'p{random.randrange(1000)}', 'quantity': 1})
+            cart_ids.append(cart_id)
+        elif i % 5 == 0:
+            status, _ = request('DELETE', f'{CART_URL}/{cart_ids.pop(0)}')
+        else:
+            status, _ = request('PATCH', f'{CART_URL}/{random.choice(cart_ids)}', {'quantity': random.randint(1, 9)})
+        latencies.append((time.perf_counter() - start) * 1000)
+        errors += status != 200
+    return latencies, errors
+
+
+def run(users, operations, lines_per_user, flush_wait):
+    before = store_stats()
+    start = time.perf_counter()
+    with ThreadPoolExecutor(max_workers=users) as pool:
+        results = list(pool.map(lambda _: shopper(operations, lines_per_user), range(users)))
+    elapsed = time.perf_counter() - start
+
+    latencies = sorted(latency for session, _ in results for latency in session)
+    writes = len(latencies)
+    if before is None:
+        mode = 'direct'
+        rows = writes  # Every insert, update or delete is a row write before the response
+    else:
+        mode = 'write-behind'
+        time.sleep(flush_wait)  # Let the last flush land
+        rows = store_stats()['rowsWritten'] - before['rowsWritten']
+    return {
+        'mode': mode,
+        'users': users,
+        'writes': writes,
+        'errors': sum(errors for _, errors in results),
+        'writesPerSecond': round(writes / elapsed),
+        'p50Ms': round(latencies[len(latencies) // 2], 2),
+        'p99Ms': round(latencies[int(len(latencies) * 0.99) - 1], 2),
+        'dbRowWrites': rows,
+        'dbWritesPerSecond': round(rows / elapsed),
+    }
+
+
+if __name__ == "__main__":
+    # Run once with cart.store.write-behind.enabled=false and once with true, then compare
+    users = int(sys.argv[1]) if len(sys.argv) > 1 else 32
+    operations = int(sys.argv[2]) if len(sys.argv) > 2 else 200
+    print(json.dumps(run(users, operations, lines_per_user=5, flush_wait=2), indent=2))
@@ -0,0 +1,85 @@
+import json
+import statistics
+import sys
+import time
+import urllib.error
+import urllib.request
+import uuid
+
+PRODUCT_URL = 'http://localhost:8085/products'
+CART_URL = 'http://localhost:8087/carts'
+
+
+def request(method, url, body=None, headers=None):
+    data = json.dumps(body).encode() if body is not None else None
+    req = urllib.request.Request(url, data=data, method=method,
+                                 headers={'Content-Type': 'application/json', **(headers or {})})
+    try:
+        with urllib.request.urlopen(req) as response:
+            payload = response.read()
+            return response.status, response.headers.get('ETag'), len(payload), json.loads(payload or 'null')
+    except urllib.error.HTTPError as e:
+        return e.code, e.headers.get('ETag'), 0, None
+
+
+def create_products(count):
+    """Products the cart lines point at, so every line is priced by the join."""
+    ids = []
+    for i in range(count):
+        _, _, _, product = request('POST', PRODUCT_URL, {
+            'productName': f'Cart benchmark {i}',
+            'categories': '["Benchmark"]',
+            'retailPrice': 100 + i,
+            'discountedPrice': 50 + i,
+            'imageUrls': '[]',
+            'productDescription': 'Cart view benchmark',
+            'brand': 'Benchmark',
+            'stockQuantity': 1000,
+            'quantityUnit': 'pcs',
+        })
+        ids.append(product['productId'])
+    return ids
+
+
+def fill_cart(user_id, product_ids):
+    for product_id in product_ids:
+        request('POST', CART_URL, {'cartId': str(uuid.uuid4()), 'userId': user_id, 'productId': product_id, 'quantity': 1})
+
+
+def measure(url, iterations, headers=None):
+    latencies = []
+    size = status = 0
+    for _ in range(iterations):
+        start = time.perf_counter()
+        status, _, size, _ = request('GET', url, headers=headers)
+        latencies.append((time.perf_counter() - start) * 1000)
+    latencies.sort()
+    return {
+        'status': status,
+        'bytes': size,
+        'p50Ms': round(statistics.median(latencies), 2),
+        'p99Ms': round(latencies[max(0, int(len(latencies) * 0.99) - 1)], 2),
+    }
+
+
+def run(lines, iterations, product_ids):
+    """One GET returns every line priced; a poll with the ETag should come back 304 with no body."""
+    user_id = f'bench-{uuid.uuid4()}'
+    fill_cart(user_id, product_ids[:lines])
+    url = f'{CART_URL}/userId/{user_id}'
+    status, etag, _, view = request('GET', url)
+    assert status == 200 and view['lineCount'] == lines, (status, view and view['lineCount'])
+    return {
+        'lines': lines,
+        'total': view['total'],
+        'full': measure(url, iterations),
+        'notModified': measure(url, iterations, {'If-None-Match': etag}),
+    }
+
+
+if __name__ == "__main__":
+    iterations = int(sys.argv[1]) if len(sys.argv) > 1 else 200
+    sizes = (10, 100, 250, 500)
+    product_ids = create_products(max(sizes))
+    for lines in sizes:
+        print(json.dumps(run(lines, iterations, product_ids), indent=2))
@@ -0,0 +1,89 @@
+import json
+import statistics
+import sys
+import time
+import urllib.error
+import urllib.request
+import uuid
+from concurrent.futures import ThreadPoolExecutor
+from datetime import datetime
+
+ORDER_URL = 'http://localhost:8090/orders'
+ORDER_ITEMS_URL = 'http://localhost:8091/order-items'
+TRANSACTION_URL = 'http://localhost:8092/transactions'
+INVOICE_URL = 'http://localhost:8093/invoices'
+
+
+def request(method, url, body=None):
+    data = json.dumps(body).encode() if body is not None else None
+    req = urllib.request.Request(url, data=data, method=method, headers={'Content-Type': 'application/json'})
+    try:
+        with urllib.request.urlopen(req) as response:
+            payload = response.read()
+            is_json = response.headers.get_content_type() == 'application/json'
+            return response.status, json.loads(payload) if is_json and payload else None
+    except urllib.error.HTTPError as e:
+        return e.code, None
+
+
+def multi_call(user_id, card_id, items):
+    """What a client does without checkout: one call per row, each committed by its own service."""
+    order_id = str(uuid.uuid4())
+    now = datetime.now().strftime('%Y-%m-%dT%H:%M:%S')
+    total = round(sum(price * quantity for _, quantity, price in items), 2)
+    statuses = [request('POST', ORDER_URL, {'orderId': order_id, 'userId': user_id,
+                                            'totalAmount': total, 'status': 'processing'})[0]]
+    for product_id, quantity, price in items:
+        statuses.append(request('POST', ORDER_ITEMS_URL, {'orderItemId': str(uuid.uuid4()), 'orderId': order_id,
+                                                          'productId': product_id, 'quantity': quantity,
+                                                          'price': price})[0])
+    transaction_id = str(uuid.uuid4())
+    statuses.append(request('POST', TRANSACTION_URL, {'transactionId': transaction_id, 'orderId': order_id,
+                                                      'cardId': card_id, 'amount': total,
+                                                      'transactionDate': now})[0])
+    statuses.append(request('POST', INVOICE_URL, {'invoiceId': str(uuid.uuid4()), 'transactionId': transaction_id,
+                                                  'paymentAmount': total, 'paymentDate': now})[0])
+    return all(status in (200, 201) for status in statuses)
+
+
+def single_call(user_id, card_id, items):
+    status, _ = request('POST', f'{ORDER_URL}/checkout', {
+        'userId': user_id, 'cardId': card_id,
+        'items': [{'productId': product_id, 'quantity': quantity} for product_id, quantity, _ in items]})
+    return status == 200
+
+
+def run(flow, users, orders, user_id, card_id, items):
+    def customer(_):
+        latencies, errors = [], 0
+        for _ in range(orders):
+            start = time.perf_counter()
+            errors += not flow(user_id, card_id, items)
+            latencies.append((time.perf_counter() - start) * 1000)
+        return latencies, errors
+
+    start = time.perf_counter()
+    with ThreadPoolExecutor(max_workers=users) as pool:
+        results = list(pool.map(customer, range(users)))
+    elapsed = time.perf_counter() - start
+    latencies = sorted(latency for session, _ in results for latency in session)
+    return {
+        'flow': flow.__name__,
+        'orders': len(latencies),
+        'errors': sum(errors for _, errors in results),
+        'ordersPerSecond': round(len(latencies) / elapsed),
+        'meanMs': round(statistics.mean(latencies), 2),
+        'p50Ms': round(latencies[len(latencies) // 2], 2),
+        'p99Ms': round(latencies[int(len(latencies) * 0.99) - 1], 2),
+    }
+
+
+if __name__ == "__main__":
+    # Needs order, order-items, transaction and invoice running against the same schema, plus a
+    # card owned by the user and the listed products: checkout_benchmark.py USER CARD P1:PRICE P2:PRICE ...
+    user_id, card_id = sys.argv[1], sys.argv[2]
+    items = [(product_id, 1 + i % 3, float(price))
+             for i, (product_id, price) in enumerate(arg.split(':') for arg in sys.argv[3:])]
+    for flow in (multi_call, single_call):
+        run(flow, 4, 10, user_id, card_id, items)  # Warm-up
+        print(json.dumps(run(flow, users=16, orders=50, user_id=user_id, card_id=card_id, items=items), indent=2))
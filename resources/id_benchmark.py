@@ -0,0 +1,126 @@
+import json
+import os
+import sys
+import time
+import uuid
+
+import mysql.connector
+
+BATCH_SIZE = 1000
+# Key layouts under test; each table has the shape of a typical entity table with a secondary index
+TABLES = {
+    'random': 'VARCHAR(50)',  # UUID.randomUUID().toString(), what every createX used to assign
+    'time_ordered': 'VARCHAR(50)',  # Ids.next()
+    'time_ordered_binary': 'BINARY(16)',  # Ids.next() stored through BinaryIdType
+}
+
+_last_tick = 0
+
+
+def connect_to_database(host, database, user, password):
+    """Establish a connection to the MySQL database."""
+    return mysql.connector.connect(
+        host=host,
+        database=database,
+        user=user,
+        password=password
+    )
+
+
+def time_ordered_id():
+    """Same layout as Ids.next(): 48-bit Unix millis, version 7, 12-bit counter, 62 random bits."""
+    global _last_tick
+    tick = max(time.time_ns() // 1_000_000 << 12, _last_tick + 1)
+    _last_tick = tick
+    msb = (tick >> 12) << 16 | 0x7000 | (tick & 0xFFF)
+    lsb = 0x8000_0000_0000_0000 | int.from_bytes(os.urandom(8), 'big') & 0x3FFF_FFFF_FFFF_FFFF
+    return uuid.UUID(int=msb << 64 | lsb)
+
+
+def new_key(layout):
+    if layout == 'random':
+        return str(uuid.uuid4())
+    key = time_ordered_id()
+    return key.bytes if layout == 'time_ordered_binary' else str(key)
+
+
+def create_table(cursor, layout):
+    cursor.execute(f"DROP TABLE IF EXISTS bench_ids_{layout}")
+    cursor.execute(f"""
+        CREATE TABLE bench_ids_{layout} (
+            id {TABLES[layout]} PRIMARY KEY,
+            user_id varchar(50) NOT NULL,
+            created_at TIMESTAMP NOT NULL,
+            amount DECIMAL(10, 2) NOT NULL,
+            INDEX idx_bench_ids_{layout}_user_id (user_id)
+        )
+    """)
+
+
+def page_splits(cursor):
+    """InnoDB's index_page_splits counter, or None when the server does not expose it."""
+    try:
+        cursor.execute("SELECT COUNT FROM information_schema.INNODB_METRICS WHERE NAME = 'index_page_splits'")
+        row = cursor.fetchone()
+        return row[0] if row else None
+    except mysql.connector.Error:
+        return None
+
+
+def insert_rows(connection, layout, total_rows, report_every):
+    """Insert total_rows in committed batches; returns rows/s for each report_every window."""
+    cursor = connection.cursor()
+    create_table(cursor, layout)
+    insert_query = f"INSERT INTO bench_ids_{layout} (id, user_id, created_at, amount) VALUES (%s, %s, NOW(), %s)"
+    windows = []
+    splits_before = page_splits(cursor)
+    window_start = time.perf_counter()
+    for inserted in range(0, total_rows, BATCH_SIZE):
+        rows = [(new_key(layout), f'user-{(inserted + i) % 10_000}', 10.00) for i in range(BATCH_SIZE)]
+        cursor.executemany(insert_query, rows)
+        connection.commit()
+        if (inserted + BATCH_SIZE) % report_every == 0:
+            windows.append(round(report_every / (time.perf_counter() - window_start)))
+            window_start = time.perf_counter()
+    splits_after = page_splits(cursor)
+
+    cursor.execute(f"ANALYZE TABLE bench_ids_{layout}")
+    cursor.fetchall()
+    cursor.execute("""
+        SELECT data_length, index_length, data_free FROM information_schema.TABLES
+        WHERE table_schema = DATABASE() AND table_name = %s
+    """, (f'bench_ids_{layout}',))
+    data_length, index_length, data_free = cursor.fetchone()
+    cursor.close()
+    return {
+        'layout': layout,
+        'rows': total_rows,
+        'rowsPerSecond': windows,
+        'primaryKeyMb': round(data_length / 2 ** 20, 1),  # The clustered index holds the rows
+        'secondaryIndexMb': round(index_length / 2 ** 20, 1),
+        'freeMb': round(data_free / 2 ** 20, 1),
+        'pageSplits': None if splits_before is None else splits_after - splits_before,
+    }
+
+
+def run_benchmark(total_rows, report_every):
+    connection = connect_to_database('localhost', 'ecommerce', 'root', 'drowssap')
+    cursor = connection.cursor()
+    try:
+        cursor.execute("SET GLOBAL innodb_monitor_enable = 'index_page_splits'")
+    except mysql.connector.Error:
+        pass  # Needs SUPER or SYSTEM_VARIABLES_ADMIN; page splits are then not reported
+    results = []
+    for layout in TABLES:
+        results.append(insert_rows(connection, layout, total_rows, report_every))
+        print(json.dumps(results[-1]))
+        cursor.execute(f"DROP TABLE bench_ids_{layout}")
+    connection.close()
+    return results
+
+
+if __name__ == "__main__":
+    # id_benchmark.py [rows] [report_every]; random keys slow down once the index outgrows the buffer pool
+    rows = int(sys.argv[1]) if len(sys.argv) > 1 else 5_000_000
+    every = int(sys.argv[2]) if len(sys.argv) > 2 else 1_000_000
+    run_benchmark(rows, every)
@@ -0,0 +1,120 @@
+import json
+import random
+import statistics
+import sys
+import time
+import urllib.request
+import uuid
+from datetime import datetime, timedelta
+
+import mysql.connector
+
+BASE_URL = 'http://localhost:8090/orders'
+PAGE_SIZE = 20
+USERS = 100_000
+HEAVY_USER = 'bench-heavy'  # 5,000 orders, so deep pages exist
+LIGHT_USER = 'bench-light'  # 20 orders
+STATUSES = ['pending', 'processing', 'shipped', 'delivered']
+
+
+def connect_to_database(host, database, user, password):
+    """Establish a connection to the MySQL database."""
+    return mysql.connector.connect(
+        host=host,
+        database=database,
+        user=user,
+        password=password
+    )
+
+
+def seed_orders(connection, target_rows, batch_size=10000):
+    """Top the orders table up to target_rows with synthetic orders spread over USERS users and two years."""
+    cursor = connection.cursor()
+    cursor.execute("SELECT COUNT(*) FROM orders")
+    existing = cursor.fetchone()[0]
+    insert_query = """
+        INSERT INTO orders (order_id, user_id, order_date, total_amount, status, version)
+        VALUES (%s, %s, %s, %s, %s, 0)
+    """
+    if existing == 0:
+        now = datetime.now()
+        rows = [(str(uuid.uuid4()), HEAVY_USER, now - timedelta(minutes=i), 10, STATUSES[i % 4]) for i in range(5000)]
+        rows += [(str(uuid.uuid4()), LIGHT_USER, now - timedelta(days=i), 10, STATUSES[i % 4]) for i in range(20)]
+        cursor.executemany(insert_query, rows)
+        connection.commit()
+        existing = len(rows)
+    start = datetime.now() - timedelta(days=730)
+    while existing < target_rows:
+        rows = []
+        for _ in range(min(batch_size, target_rows - existing)):
+            rows.append((
+                str(uuid.uuid4()), f'bench-{random.randrange(USERS)}',
+                start + timedelta(seconds=random.randrange(730 * 86400)),
+                round(random.uniform(10, 5000), 2), random.choice(STATUSES)
+            ))
+        cursor.executemany(insert_query, rows)
+        connection.commit()
+        existing += len(rows)
+        print(f"seeded {existing}/{target_rows}")
+    cursor.close()
+
+
+def timed_get(url):
+    start = time.perf_counter()
+    with urllib.request.urlopen(url) as response:
+        body = json.loads(response.read())
+    return (time.perf_counter() - start) * 1000, body
+
+
+def median_latency(url, repeats=20):
+    return statistics.median(timed_get(url)[0] for _ in range(repeats))
+
+
+def history_latencies():
+    """Median latency of the first page, a page 100 deep and a status-filtered page."""
+    first = f"{BASE_URL}?userId={HEAVY_USER}&size={PAGE_SIZE}"
+    cursor = None
+    for _ in range(100):
+        _, body = timed_get(first + (f"&cursor={cursor}" if cursor else ""))
+        cursor = body['nextCursor']
+    return {
+        'lightFirstMs': median_latency(f"{BASE_URL}?userId={LIGHT_USER}&size={PAGE_SIZE}"),
+        'heavyFirstMs': median_latency(first),
+        'heavyPage100Ms': median_latency(f"{first}&cursor={cursor}"),
+        'heavyShippedMs': median_latency(f"{first}&status=shipped"),
+    }
+
+
+def client_side_latency(max_pages=10):
+    """The old way: page through every order by date and keep the light user's, up to max_pages pages."""
+    start = time.perf_counter()
+    found = 0
+    for page in range(max_pages):
+        _, body = timed_get(f"{BASE_URL}?page={page}&size=100")
+        found += sum(order['userId'] == LIGHT_USER for order in body['content'])
+        if found >= PAGE_SIZE or body['last']:
+            break
+    return (time.perf_counter() - start) * 1000, found
+
+
+def run_benchmark(sizes, seed=True):
+    results = []
+    for total_rows in sizes:
+        if seed:
+            connection = connect_to_database('localhost', 'ecommerce', 'root', 'drowssap')
+            seed_orders(connection, total_rows)
+            connection.close()
+        else:
+            input(f"Load {total_rows} orders, then press enter")
+        result = {'orders': total_rows, **history_latencies()}
+        result['clientSideMs'], result['clientSideFound'] = client_side_latency()
+        results.append({key: round(value, 2) if isinstance(value, float) else value for key, value in result.items()})
+        print(json.dumps(results[-1]))
+    return results
+
+
+if __name__ == "__main__":
+    # order_history_benchmark.py [--no-seed] [rows ...]; latency should stay flat as rows grow
+    args = [arg for arg in sys.argv[1:] if arg != '--no-seed']
+    sizes = [int(arg) for arg in args] or [1_000_000, 3_000_000, 10_000_000]
+    run_benchmark(sizes, seed='--no-seed' not in sys.argv)
@@ -0,0 +1,72 @@
+import json
+import random
+import sys
+import time
+import urllib.request
+
+INGEST_URL = 'http://localhost:8085/products/ingest'
+
+
+def generate_crawl_file(file_path, records, seed=42):
+    """Write a deterministic Flipkart-style crawl file so every run ingests identical data."""
+    rng = random.Random(seed)
+    categories = [
+        'Clothing >> Women\'s Clothing >> Western Wear',
+        'Furniture >> Living Room Furniture >> Sofa Beds & Futons',
+        'Footwear >> Women\'s Footwear >> Ballerinas',
+        'Watches >> Wrist Watches',
+    ]
+    with open(file_path, 'w', encoding='utf-8') as file:
+        file.write('[')
+        for i in range(records):
+            retail_price = rng.randint(100, 50000)
+            product = {
+                'uniq_id': f'bench-{i:010d}',
+                'crawl_timestamp': '2016-03-25 22:59:23 +0000',
+                'product_url': f'http://www.flipkart.com/bench/p/{i}',
+                'product_name': f'Benchmark product {i}',
+                'product_category_tree': json.dumps([rng.choice(categories)]),
+                'pid': f'PID{i:010d}',
+                'retail_price': str(retail_price),
+                'discounted_price': str(int(retail_price * rng.uniform(0.5, 1.0))),
+                'image': json.dumps([f'http://img.example.com/{i}/1.jpeg']),
+                'is_FK_Advantage_product': rng.choice(['TRUE', 'FALSE']),
+                'description': 'Synthetic product used to benchmark the ingest pipeline. ' * 5,
+                'product_rating': 'No rating available',
+                'overall_rating': 'No rating available',
+                'brand': rng.choice(['Alisha', 'FabHomeDecor', 'AW', 'Sicons']),
+                'product_specifications': '{"product_specification"=>[{"key"=>"Type", "value"=>"Benchmark"}]}',
+            }
+            if i:
+                file.write(',')
+            json.dump(product, file)
+        file.write(']')
+
+
+def ingest(file_path, resume_from=0):
+    """Stream the file to the ingest endpoint and return the server's report."""
+    with open(file_path, 'rb') as file:
+        request = urllib.request.Request(
+            f'{INGEST_URL}?resumeFrom={resume_from}', data=file, method='POST',
+            headers={'Content-Type': 'application/json'})
+        start = time.perf_counter()
+        with urllib.request.urlopen(request) as response:
+            report = json.loads(response.read())
+        report['clientElapsedMs'] = round((time.perf_counter() - start) * 1000)
+    return report
+
+
+if __name__ == "__main__":
+    records = int(sys.argv[1]) if len(sys.argv) > 1 else 100_000
+    path = f'product_ingest_benchmark_{records}.json'
+    generate_crawl_file(path, records)
+    report = ingest(path)
+    print(json.dumps(report, indent=2))
+    # A failed run can be continued from where the last contiguous chunk committed
+    while not report['completed']:
+        resume_from = report['resumeFrom']
+        report = ingest(path, resume_from)
+        print(json.dumps(report, indent=2))
+        # Malformed input fails at the same record every time; retrying cannot get past it
+        if not report['completed'] and report['resumeFrom'] == resume_from:
+            sys.exit(f"Ingest is stuck at record {resume_from}: {report['error']}")
@@ -0,0 +1,98 @@
+import json
+import random
+import time
+import urllib.request
+import uuid
+from datetime import datetime
+
+import mysql.connector
+
+BASE_URL = 'http://localhost:8085/products'
+PAGE_SIZE = 50
+
+
+def connect_to_database(host, database, user, password):
+    """Establish a connection to the MySQL database."""
+    return mysql.connector.connect(
+        host=host,
+        database=database,
+        user=user,
+        password=password
+    )
+
+
+def seed_products(connection, target_rows, batch_size=5000):
+    """Top the product table up to target_rows with synthetic rows."""
+    cursor = connection.cursor()
+    cursor.execute("SELECT COUNT(*) FROM product")
+    existing = cursor.fetchone()[0]
+    insert_query = """
+        INSERT INTO product (
+            product_id, crawl_timestamp, product_url, product_name, categories, pid,
+            retail_price, discounted_price, image_urls, is_FK_Advantage_product, product_description,
+            product_rating, overall_rating, brand, product_specifications, stock_quantity, quantity_unit, created_at
+        ) VALUES (%s, %s, %s, %s, %s, %s, %s, %s, %s, %s, %s, %s, %s, %s, %s, %s, %s, %s)
+    """
+    now = datetime.now()
+    while existing < target_rows:
+        rows = []
+        for _ in range(min(batch_size, target_rows - existing)):
+            price = round(random.uniform(100, 100000), 2)
+            rows.append((
+                str(uuid.uuid4()), now, 'http://example.com', 'Benchmark product', '["Benchmark"]', None,
+                price, price, '[]', False, 'Synthetic row for pagination benchmark',
+                'No rating available', 'No rating available', 'Benchmark', None, 10, 'pcs', now
+            ))
+        cursor.executemany(insert_query, rows)
+        connection.commit()
+        existing += len(rows)
+        print(f"seeded {existing}/{target_rows}")
+    cursor.close()
+
+
+def timed_get(url):
+    start = time.perf_counter()
+    with urllib.request.urlopen(url) as response:
+        body = json.loads(response.read())
+    return (time.perf_counter() - start) * 1000, body
+
+
+def offset_latency(page):
+    elapsed, _ = timed_get(f"{BASE_URL}?page={page}&size={PAGE_SIZE}")
+    return elapsed
+
+
+def cursor_latencies(pages, sample_every):
+    """Walk the cursor chain and record the latency of every sample_every-th page."""
+    samples = {}
+    cursor = None
+    for page in range(pages + 1):
+        url = f"{BASE_URL}?mode=cursor&size={PAGE_SIZE}" + (f"&cursor={cursor}" if cursor else "")
+        elapsed, body = timed_get(url)
+        if page % sample_every == 0:
+            samples[page] = elapsed
+        cursor = body.get('nextCursor')
+        if cursor is None:
+            break
+    return samples
+
+
+def run_benchmark(total_rows=1_000_000):
+    connection = connect_to_database('localhost', 'ecommerce', 'root', 'drowssap')
+    seed_products(connection, total_rows)
+    connection.close()
+
+    last_page = total_rows // PAGE_SIZE - 1
+    sample_pages = [0, 10, 100, 1000, 5000, last_page // 2, last_page]
+    print(f"{'page':>8} {'offset ms':>12}")
+    for page in sample_pages:
+        print(f"{page:>8} {offset_latency(page):>12.1f}")
+
+    # Reaching deep pages in cursor mode means walking the chain, so sample a shallower range
+    print(f"{'page':>8} {'cursor ms':>12}")
+    for page, elapsed in cursor_latencies(5000, 500).items():
+        print(f"{page:>8} {elapsed:>12.1f}")
+
+
+if __name__ == "__main__":
+    run_benchmark()
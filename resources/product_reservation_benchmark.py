@@ -0,0 +1,80 @@
+import json
+import sys
+import threading
+import time
+import urllib.error
+import urllib.request
+from concurrent.futures import ThreadPoolExecutor
+
+BASE_URL = 'http://localhost:8085/products'
+
+
+def request(method, url, body=None):
+    data = json.dumps(body).encode() if body is not None else None
+    req = urllib.request.Request(url, data=data, method=method, headers={'Content-Type': 'application/json'})
+    try:
+        with urllib.request.urlopen(req) as response:
+            return response.status, json.loads(response.read() or 'null')
+    except urllib.error.HTTPError as e:
+        return e.code, None
+
+
+def create_product(stock, shards):
+    """Create a fresh flash-sale SKU, optionally spreading its stock over sub-counter rows."""
+    status, product = request('POST', BASE_URL, {
+        'productName': f'Flash sale {time.time_ns()}',
+        'categories': '["Benchmark"]',
+        'retailPrice': 999,
+        'discountedPrice': 499,
+        'imageUrls': '[]',
+        'productDescription': 'Reservation contention benchmark',
+        'brand': 'Benchmark',
+        'stockQuantity': stock,
+        'quantityUnit': 'pcs',
+    })
+    product_id = product['productId']
+    if shards:
+        request('PUT', f'{BASE_URL}/{product_id}/stock/shards?count={shards}')
+    return product_id
+
+
+def run(buyers, stock, shards):
+    """All buyers wait on a barrier, then try to reserve one unit of the same SKU at once."""
+    product_id = create_product(stock, shards)
+    barrier = threading.Barrier(buyers)
+
+    def buy(_):
+        barrier.wait()
+        start = time.perf_counter()
+        status, _ = request('POST', f'{BASE_URL}/{product_id}/reservations?quantity=1')
+        return status, (time.perf_counter() - start) * 1000
+
+    start = time.perf_counter()
+    with ThreadPoolExecutor(max_workers=buyers) as pool:
+        results = list(pool.map(buy, range(buyers)))
+    elapsed = time.perf_counter() - start
+
+    latencies = sorted(latency for _, latency in results)
+    reserved = sum(1 for status, _ in results if status == 200)
+    rejected = sum(1 for status, _ in results if status == 409)
+    _, product = request('GET', f'{BASE_URL}/id/{product_id}')
+    return {
+        'shards': shards,
+        'buyers': buyers,
+        'stock': stock,
+        'reserved': reserved,
+        'rejected': rejected,
+        'errors': buyers - reserved - rejected,
+        'oversold': reserved > stock,
+        'stockAfter': product['stockQuantity'] if product else None,  # Sharded stock is refreshed by the sweeper
+        'elapsedMs': round(elapsed * 1000),
+        'p50Ms': round(latencies[len(latencies) // 2], 1),
+        'p99Ms': round(latencies[int(len(latencies) * 0.99) - 1], 1),
+    }
+
+
+if __name__ == "__main__":
+    buyers = int(sys.argv[1]) if len(sys.argv) > 1 else 500
+    stock = int(sys.argv[2]) if len(sys.argv) > 2 else 100
+    for shards in (0, 4, 16):
+        print(json.dumps(run(buyers, stock, shards), indent=2))
@@ -76,13 +76,68 @@ CREATE TABLE product (
     product_description TEXT  NOT NULL,
     product_rating varchar(2550),
     overall_rating varchar(2550),
-    brand VARCHAR(1000)  NOT NULL,
+    brand VARCHAR(255)  NOT NULL,
     product_specifications TEXT,
     stock_quantity INT NOT NULL,
+    stock_shards INT NOT NULL DEFAULT 0, -- > 0: stock lives in product_stock_shard
     quantity_unit VARCHAR(1000),
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    version BIGINT NOT NULL DEFAULT 0 -- Optimistic lock and ETag; bumped by every write
+);
+
+-- Keyset pagination on GET /products?mode=cursor seeks on (retail_price, product_id)
+CREATE INDEX idx_product_retail_price_id ON product (retail_price, product_id);
+
+-- Filters on GET /products (price ranges, brand, in-stock). brand was VARCHAR(1000), which at
+-- 4 bytes per utf8mb4 character exceeds InnoDB's 3072 byte key limit; no brand comes close to 255.
+-- Existing databases: ALTER TABLE product MODIFY brand VARCHAR(255) NOT NULL; before creating the index
+CREATE INDEX idx_product_brand_retail_price ON product (brand, retail_price, product_id);
+CREATE INDEX idx_product_discounted_price ON product (discounted_price);
+CREATE INDEX idx_product_stock_quantity ON product (stock_quantity);
+
+-- Drop Product Stock Shard Table if it exists
+DROP TABLE IF EXISTS product_stock_shard;
+
+-- Sub-counters for hot products, see PUT /products/{productId}/stock/shards
+CREATE TABLE product_stock_shard (
+    product_id VARCHAR(255) NOT NULL,
+    shard INT NOT NULL,
+    quantity INT NOT NULL,
+    PRIMARY KEY (product_id, shard)
+);
+
+-- Drop Product Category Table if it exists
+DROP TABLE IF EXISTS product_category;
+
+-- Every category path of a product and each of its ancestors, so a category filter too large
+-- for an id list seeks the primary key instead of scanning product.categories.
+-- 500 + 255 characters at 4 bytes each is the most InnoDB's 3072 byte key limit allows.
+-- Existing databases are filled in by the product service at startup.
+CREATE TABLE product_category (
+    category_path VARCHAR(500) NOT NULL,
+    product_id VARCHAR(255) NOT NULL,
+    PRIMARY KEY (category_path, product_id)
+);
+
+CREATE INDEX idx_product_category_product_id ON product_category (product_id);
+
+-- Drop Stock Reservation Table if it exists
+DROP TABLE IF EXISTS stock_reservation;
+
+-- Units held for a checkout until confirmed, released or expired
+CREATE TABLE stock_reservation (
+    reservation_id VARCHAR(255) PRIMARY KEY,
+    product_id VARCHAR(255) NOT NULL,
+    quantity INT NOT NULL,
+    shard INT, -- NULL when taken from product.stock_quantity
+    status VARCHAR(16) NOT NULL, -- RESERVED, CONFIRMED, RELEASED, EXPIRED
+    expires_at TIMESTAMP NOT NULL,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
 );
 
+-- The expiry sweep reads RESERVED rows in expires_at order
+CREATE INDEX idx_stock_reservation_status_expires_at ON stock_reservation (status, expires_at);
+
 -- Drop Cart Table if it exists
 DROP TABLE IF EXISTS cart;
 
@@ -92,7 +147,27 @@ CREATE TABLE cart (
     user_id varchar(50)  NOT NULL,
     product_id varchar(50)  NOT NULL,
     quantity INT NOT NULL,
-    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    version BIGINT NOT NULL DEFAULT 0 -- Optimistic lock and ETag
+);
+
+-- GET /carts/userId/{userId} reads a user's lines in created_at order
+CREATE INDEX idx_cart_user_id_created_at ON cart (user_id, created_at);
+
+-- The expiry sweep walks expired lines in (created_at, cart_id) order
+CREATE INDEX idx_cart_created_at_cart_id ON cart (created_at, cart_id);
+
+-- Drop Cart Archive Table if it exists
+DROP TABLE IF EXISTS cart_archive;
+
+-- Expired cart lines, when the sweeper runs with cart.expiry.archive=true
+CREATE TABLE cart_archive (
+    cart_id varchar(50) PRIMARY KEY,
+    user_id varchar(50) NOT NULL,
+    product_id varchar(50) NOT NULL,
+    quantity INT NOT NULL,
+    created_at TIMESTAMP NULL,
+    archived_at TIMESTAMP NOT NULL
 );
 
 -- Drop Wishlist Table if it exists
@@ -117,10 +192,38 @@ CREATE TABLE orders (
     user_id varchar(50)  NOT NULL,
     order_date TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     total_amount DECIMAL(10, 2) NOT NULL,
-    status VARCHAR(20) DEFAULT 'Pending'
+    status VARCHAR(20) NOT NULL DEFAULT 'pending', -- pending, processing, shipped, delivered or cancelled
+    version BIGINT NOT NULL DEFAULT 0 -- Optimistic lock and ETag
  --    FOREIGN KEY (user_id) REFERENCES users(user_id)
 );
 
+-- GET /orders?userId= seeks a user's orders newest first
+CREATE INDEX idx_orders_user_id_order_date ON orders (user_id, order_date);
+
+-- Date ranges: listing orders by date and rebuilding sales rollups
+CREATE INDEX idx_orders_order_date ON orders (order_date);
+
+-- Sales rollups, maintained as orders and order items are written; GET /orders/stats reads only these
+DROP TABLE IF EXISTS order_daily_sales;
+
+CREATE TABLE order_daily_sales (
+    sales_date DATE NOT NULL,
+    slot INT NOT NULL, -- A day is spread over a few rows to avoid one hot row lock
+    order_count BIGINT NOT NULL,
+    revenue DECIMAL(14, 2) NOT NULL,
+    PRIMARY KEY (sales_date, slot)
+);
+
+DROP TABLE IF EXISTS product_daily_sales;
+
+CREATE TABLE product_daily_sales (
+    sales_date DATE NOT NULL,
+    product_id varchar(50) NOT NULL,
+    units BIGINT NOT NULL,
+    revenue DECIMAL(14, 2) NOT NULL,
+    PRIMARY KEY (sales_date, product_id)
+);
+
 -- Drop Order Items Table if it exists
 DROP TABLE IF EXISTS order_items;
 
@@ -135,6 +238,9 @@ CREATE TABLE order_items (
 --     FOREIGN KEY (product_id) REFERENCES products(product_id)
 );
 
+-- Items of an order, one order or a page of them at a time
+CREATE INDEX idx_order_items_order_id ON order_items (order_id);
+
 -- Drop Ratings Table if it exists
 DROP TABLE IF EXISTS rating;
 
@@ -194,6 +300,12 @@ CREATE TABLE transactions (
 --     FOREIGN KEY (card_id) REFERENCES cards(card_id)
 );
 
+-- GET /transactions/export reads date ranges in (transaction_date, transaction_id) order
+CREATE INDEX idx_transactions_transaction_date ON transactions (transaction_date);
+
+-- The reconciliation reads transactions in order_id order from this index alone
+CREATE INDEX idx_transactions_order_id ON transactions (order_id, amount, transaction_date);
+
 -- Drop Invoices Table if it exists
 DROP TABLE IF EXISTS invoices;
 
@@ -205,3 +317,69 @@ CREATE TABLE invoices (
     payment_date TIMESTAMP DEFAULT CURRENT_TIMESTAMP
   --   FOREIGN KEY (transaction_id) REFERENCES transactions(transaction_id)
 );
+
+-- Invoices of a transaction; the invoice backfill and the reconciliation probe it
+CREATE INDEX idx_invoices_transaction_id ON invoices (transaction_id);
+
+-- GET /invoices/export reads date ranges in (payment_date, invoice_id) order
+CREATE INDEX idx_invoices_payment_date ON invoices (payment_date);
+
+-- Drop Invoice Backfill Checkpoint Table if it exists
+DROP TABLE IF EXISTS invoice_backfill_checkpoint;
+
+-- How far POST /invoices/backfill has got, so a stopped or failed run resumes there
+CREATE TABLE invoice_backfill_checkpoint (
+    job_name varchar(50) PRIMARY KEY,
+    last_transaction_id varchar(50), -- Every transaction up to this one has an invoice
+    invoices_created BIGINT NOT NULL,
+    updated_at TIMESTAMP NULL
+);
+
+-- Drop Reconciliation Tables if they exist
+DROP TABLE IF EXISTS reconciliation_issue;
+DROP TABLE IF EXISTS reconciliation_run;
+
+-- One run of POST /invoices/reconciliation over orders, transactions and invoices
+CREATE TABLE reconciliation_run (
+    run_id varchar(50) PRIMARY KEY,
+    status varchar(16) NOT NULL, -- running, completed, stopped or failed
+    started_at TIMESTAMP NULL,
+    finished_at TIMESTAMP NULL,
+    orders_checked BIGINT NOT NULL,
+    transactions_checked BIGINT NOT NULL,
+    invoices_checked BIGINT NOT NULL,
+    issues BIGINT NOT NULL,
+    error varchar(255)
+);
+
+CREATE INDEX idx_reconciliation_run_started_at ON reconciliation_run (started_at);
+
+-- Disagreements a run found: missing links, duplicates and amount mismatches
+CREATE TABLE reconciliation_issue (
+    issue_id varchar(50) PRIMARY KEY,
+    run_id varchar(50) NOT NULL,
+    kind varchar(32) NOT NULL,
+    order_id varchar(50),
+    transaction_id varchar(50),
+    invoice_id varchar(50),
+    expected_amount DECIMAL(14, 2),
+    actual_amount DECIMAL(14, 2)
+);
+
+-- A run's issues in the order they were found, all or of one kind
+CREATE INDEX idx_reconciliation_issue_run_id_kind ON reconciliation_issue (run_id, kind, issue_id);
+CREATE INDEX idx_reconciliation_issue_run_id ON reconciliation_issue (run_id, issue_id);
+
+-- Responses to POSTs sent with an Idempotency-Key, replayed to retries until they expire; shared by the services
+DROP TABLE IF EXISTS idempotency_key;
+
+CREATE TABLE idempotency_key (
+    scope varchar(50) NOT NULL, -- spring.application.name of the service that answered
+    idempotency_key varchar(255) NOT NULL,
+    request_hash CHAR(64) NOT NULL,
+    response_status INT,
+    response_body MEDIUMTEXT,
+    resource_id varchar(50), -- ID reserved for the resource a retry must create again rather than anew
+    expires_at TIMESTAMP NOT NULL,
+    PRIMARY KEY (scope, idempotency_key)
+);
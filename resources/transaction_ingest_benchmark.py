@@ -0,0 +1,86 @@
+import json
+import statistics
+import sys
+import threading
+import time
+import urllib.error
+import urllib.request
+import uuid
+
+BASE_URL = 'http://localhost:8092/transactions'
+
+
+def post_transaction(order_id):
+    body = json.dumps({
+        'transactionId': str(uuid.uuid4()),
+        'orderId': order_id,
+        'cardId': 'bench-card',
+        'amount': 19.99,
+    }).encode()
+    request = urllib.request.Request(BASE_URL, data=body, method='POST',
+                                     headers={'Content-Type': 'application/json'})
+    start = time.perf_counter()
+    try:
+        with urllib.request.urlopen(request) as response:
+            response.read()
+            status = response.status
+    except urllib.error.HTTPError as e:
+        status = e.code  # 503 when the ingest pushes back
+    return (time.perf_counter() - start) * 1000, status
+
+
+def burst(clients, seconds):
+    """clients threads POST payment callbacks back to back for seconds; returns rate and latencies."""
+    order_id = f'bench-{uuid.uuid4()}'
+    latencies, statuses, lock = [], {}, threading.Lock()
+    deadline = time.perf_counter() + seconds
+
+    def client():
+        while time.perf_counter() < deadline:
+            latency, status = post_transaction(order_id)
+            with lock:
+                statuses[status] = statuses.get(status, 0) + 1
+                if status == 200:
+                    latencies.append(latency)
+
+    threads = [threading.Thread(target=client) for _ in range(clients)]
+    start = time.perf_counter()
+    for thread in threads:
+        thread.start()
+    for thread in threads:
+        thread.join()
+    elapsed = time.perf_counter() - start
+    latencies.sort()
+    return {
+        'clients': clients,
+        'perSecond': round(len(latencies) / elapsed),
+        'p50Ms': round(statistics.median(latencies), 1),
+        'p99Ms': round(latencies[int(len(latencies) * 0.99) - 1], 1),
+        'statuses': statuses,
+    }
+
+
+def ingest_stats():
+    try:
+        with urllib.request.urlopen(f'{BASE_URL}/ingest/stats') as response:
+            return json.loads(response.read())
+    except urllib.error.HTTPError:
+        return None  # Ingest disabled: one commit per request
+
+
+def run_benchmark(client_counts, seconds):
+    results = []
+    for clients in client_counts:
+        results.append(burst(clients, seconds))
+        print(json.dumps(results[-1]))
+    stats = ingest_stats()
+    print(json.dumps({'mode': 'ingest' if stats else 'per-request', 'ingest': stats}))
+    return results
+
+
+if __name__ == "__main__":
+    # transaction_ingest_benchmark.py [seconds] [clients ...]; run once with transaction.ingest.enabled
+    # false and once with it true, against the same database, and compare
+    duration = int(sys.argv[1]) if len(sys.argv) > 1 else 20
+    counts = [int(arg) for arg in sys.argv[2:]] or [1, 16, 64, 256]
+    run_benchmark(counts, duration)